@@ -23,6 +23,7 @@ import android.os.RemoteException;
 import android.os.SystemClock;
 import android.platform.spectatio.constants.JsonConfigConstants;
 import android.platform.spectatio.exceptions.MissingUiElementException;
+import android.platform.uiautomatorhelpers.AccessibilityEventWaits;
 import android.util.Log;
 import android.view.KeyEvent;
 
@@ -41,6 +42,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -65,6 +67,8 @@ public class SpectatioUiUtil {
 
     private int mWaitTimeAfterScroll = 5; // seconds
     private int mScrollMargin = 4;
+    // When set, clicks wait for the UI to change instead of a fixed one second.
+    private boolean mWaitForUiChangeAfterClick = false;
 
     private UiDevice mDevice;
 
@@ -246,8 +250,20 @@ public class SpectatioUiUtil {
         }
     }
 
+    /**
+     * Sets whether {@link #clickAndWait(UiObject2)} and {@link #clickAndWait(Point)} wait for the
+     * UI to change after the click rather than for a fixed second.
+     */
+    public void setWaitForUiChangeAfterClick(boolean enabled) {
+        mWaitForUiChangeAfterClick = enabled;
+    }
+
     public void clickAndWait(UiObject2 uiObject) {
         validateUiObjectAndThrowIllegalArgumentException(uiObject, /* action= */ "Click");
+        if (mWaitForUiChangeAfterClick) {
+            clickAndWaitForUiChange(uiObject, SHORT_UI_RESPONSE_WAIT_MS);
+            return;
+        }
         uiObject.click();
         wait1Second();
     }
@@ -274,10 +290,49 @@ public class SpectatioUiUtil {
      * @param location Where to click
      */
     public void clickAndWait(Point location) {
+        if (mWaitForUiChangeAfterClick) {
+            waitForUiChange(
+                    () -> mDevice.click(location.x, location.y),
+                    SHORT_UI_RESPONSE_WAIT_MS,
+                    /* metricName= */ "spectatio-click-point");
+            return;
+        }
         mDevice.click(location.x, location.y);
         wait1Second();
     }
 
+    /**
+     * Click on the given UI object and wait until the UI reports a change, for at most {@code
+     * maxWaitTime} milliseconds. The time actually waited is reported as the
+     * "wait-spectatio-click-ms" metric through TimingCollector.
+     *
+     * @return true if the UI changed within {@code maxWaitTime}.
+     */
+    public boolean clickAndWaitForUiChange(UiObject2 uiObject, int maxWaitTime) {
+        validateUiObjectAndThrowIllegalArgumentException(uiObject, /* action= */ "Click");
+        return waitForUiChange(uiObject::click, maxWaitTime, /* metricName= */ "spectatio-click");
+    }
+
+    /**
+     * Run the given action and wait until the UI reports a window or window content change, for
+     * at most {@code maxWaitTime} milliseconds, through {@link AccessibilityEventWaits}. The time
+     * waited is reported as the "wait-{@code metricName}-ms" metric.
+     *
+     * @return true if the UI changed within {@code maxWaitTime}.
+     */
+    private boolean waitForUiChange(Runnable runnable, int maxWaitTime, String metricName) {
+        Duration timeout = Duration.ofMillis(maxWaitTime);
+        Duration waited = AccessibilityEventWaits.awaitUiChange(timeout, runnable);
+        AccessibilityEventWaits.reportWaitTime(metricName, waited);
+        boolean changed = waited.compareTo(timeout) < 0;
+        if (!changed) {
+            Log.w(
+                    LOG_TAG,
+                    String.format("No UI change within %d ms (%s).", maxWaitTime, metricName));
+        }
+        return changed;
+    }
+
     public void waitForIdle() {
         mDevice.waitForIdle();
     }
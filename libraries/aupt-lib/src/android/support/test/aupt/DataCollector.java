@@ -22,22 +22,44 @@ import android.util.Log;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Saves the output of {@link LogGenerator}s periodically while the tests run.
+ *
+ * <p>Each generator is scheduled at the fixed rate of its own interval, and runs on a shared pool
+ * so that a slow generator doesn't delay the others. A generator never overlaps itself: when it is
+ * due while its previous run is still going, that run is skipped and the next one keeps the
+ * original schedule. At most {@link #MAX_CONCURRENT_HEAVY_GENERATORS} heavy generators, like
+ * bugreports, run at once; the others wait for their turn.
+ *
+ * <p>How late each generator starts compared to its schedule, and how many of its runs were
+ * skipped, is logged when the collector stops.
+ */
 public class DataCollector {
     private static final String TAG = "AuptDataCollector";
 
+    private static final int MAX_CONCURRENT_HEAVY_GENERATORS = 1;
+    private static final long STOP_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(1);
+
     private final AtomicBoolean mStopped = new AtomicBoolean(true);
     private final Map<LogGenerator, Long> generatorsWithIntervals = new HashMap<>();
-    private final Map<LogGenerator, Long> mLastUpdate = new HashMap<>();
+    private final Map<LogGenerator, ScheduledGenerator> mScheduledGenerators = new HashMap<>();
+    private final Semaphore mHeavyGeneratorPermits =
+            new Semaphore(MAX_CONCURRENT_HEAVY_GENERATORS);
     private final Instrumentation instrumentation;
     private final String resultsDirectory;
-    private final long mSleepInterval;
 
-    private Thread mThread;
+    private ScheduledExecutorService mScheduler;
+    private ExecutorService mWorkers;
 
     /**
      * Add a generator iff the interval is valid (i.e. > 0).
@@ -72,29 +94,22 @@ public class DataCollector {
         put(LogGenerator.MEM_INFO, meminfoInterval);
         put(LogGenerator.PAGETYPE_INFO, pagetypeinfoInterval);
         put(LogGenerator.TRACE, traceInterval);
-
-        mSleepInterval = gcd(generatorsWithIntervals.values());
     }
 
     public synchronized void start() {
         if (mStopped.getAndSet(false)) {
-            /* Initialize the LastUpdates to the current time */
+            mScheduler = Executors.newSingleThreadScheduledExecutor();
+            mWorkers = Executors.newCachedThreadPool();
+
             for (Map.Entry<LogGenerator, Long> entry : generatorsWithIntervals.entrySet()) {
-                if (entry.getValue() > 0) {
-                    Log.d(TAG, "Collecting " + entry.getKey() + " logs every " +
-                        entry.getValue() + " milliseconds");
+                Log.d(TAG, "Collecting " + entry.getKey() + " logs every " +
+                    entry.getValue() + " milliseconds");
 
-                    mLastUpdate.put(entry.getKey(), SystemClock.uptimeMillis());
-                }
+                ScheduledGenerator generator =
+                        new ScheduledGenerator(entry.getKey(), entry.getValue());
+                mScheduledGenerators.put(entry.getKey(), generator);
+                generator.schedule(mScheduler);
             }
-
-            mThread = new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    loop();
-                }
-            });
-            mThread.start();
         } else {
             Log.e(TAG, "Tried to start a started DataCollector!");
         }
@@ -102,70 +117,124 @@ public class DataCollector {
 
     public synchronized void stop() {
         if (!mStopped.getAndSet(true)) {
-            mThread.interrupt();
+            mScheduler.shutdownNow();
+            mWorkers.shutdownNow();
 
             try {
-                mThread.join();
+                if (!mWorkers.awaitTermination(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    Log.w(TAG, "Log generators still running after stopping the DataCollector");
+                }
             } catch (InterruptedException e) {
                 // ignore
             }
+
+            for (ScheduledGenerator generator : mScheduledGenerators.values()) {
+                Log.i(TAG, generator.getStats());
+            }
+            mScheduledGenerators.clear();
         } else {
             Log.e(TAG, "Tried to stop a stoppped DataCollector!");
         }
     }
 
-    private void loop() {
-        if (mSleepInterval <= 0) {
-            return;
+    /**
+     * Runs a generator on the workers each time it is due, and records how late its runs are.
+     */
+    private class ScheduledGenerator implements Runnable {
+        private final LogGenerator mGenerator;
+        private final long mInterval;
+        private long mStartTime;
+        private final AtomicBoolean mRunning = new AtomicBoolean(false);
+        /** Number of times the generator was due, only used on the scheduler thread. */
+        private long mDueCount;
+
+        /* Stats, guarded by this */
+        private long mRuns;
+        private long mSkippedRuns;
+        private long mTotalLatenessMs;
+        private long mMaxLatenessMs;
+        private long mMaxDriftMs;
+
+        ScheduledGenerator(LogGenerator generator, long interval) {
+            mGenerator = generator;
+            mInterval = interval;
+        }
+
+        /** Schedules the generator at the fixed rate of its interval, starting one from now. */
+        void schedule(ScheduledExecutorService scheduler) {
+            mStartTime = SystemClock.uptimeMillis();
+            scheduler.scheduleAtFixedRate(this, mInterval, mInterval, TimeUnit.MILLISECONDS);
         }
 
-        while (!mStopped.get()) {
+        @Override
+        public void run() {
+            mDueCount++;
+            final long dueTime = mStartTime + mDueCount * mInterval;
+            // How late the scheduler itself wakes up.
+            recordDrift(SystemClock.uptimeMillis() - dueTime);
+
+            if (!mRunning.compareAndSet(false, true)) {
+                Log.w(TAG, "Skipping " + mGenerator + " logs, the previous ones are still"
+                        + " being saved");
+                recordSkippedRun();
+                return;
+            }
+
             try {
-                for (Map.Entry<LogGenerator, Long> entry : generatorsWithIntervals.entrySet()) {
-                    Long t = SystemClock.uptimeMillis() - mLastUpdate.get(entry.getKey());
-
-                    if (entry.getValue() > 0 && t >= entry.getValue()) {
-                        try {
-                            entry.getKey().save(instrumentation, resultsDirectory);
-                        } catch (IOException ex) {
-                            Log.e(TAG, "Error writing results in " + resultsDirectory +
-                                    ": " + ex.toString());
-                        }
-
-                        mLastUpdate.put(entry.getKey(), SystemClock.uptimeMillis());
+                mWorkers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        save(dueTime);
                     }
-                }
+                });
+            } catch (RejectedExecutionException e) {
+                // The collector is stopping.
+                mRunning.set(false);
+            }
+        }
 
-                Thread.sleep(mSleepInterval);
+        private void save(long dueTime) {
+            boolean heavy = mGenerator.isHeavy();
+            try {
+                if (heavy) {
+                    mHeavyGeneratorPermits.acquire();
+                }
+                try {
+                    recordRun(SystemClock.uptimeMillis() - dueTime);
+                    mGenerator.save(instrumentation, resultsDirectory);
+                } catch (IOException ex) {
+                    Log.e(TAG, "Error writing results in " + resultsDirectory +
+                            ": " + ex.toString());
+                } finally {
+                    if (heavy) {
+                        mHeavyGeneratorPermits.release();
+                    }
+                }
             } catch (InterruptedException e) {
-                // Ignore.
+                // The collector is stopping.
+            } finally {
+                mRunning.set(false);
             }
         }
-    }
 
-    private long gcd(Collection<Long> values) {
-        if (values.size() < 1) {
-            return 0;
+        private synchronized void recordDrift(long driftMs) {
+            mMaxDriftMs = Math.max(mMaxDriftMs, driftMs);
         }
 
-        long gcdSoFar = values.iterator().next();
-
-        for (Long value : values) {
-            gcdSoFar = gcd(gcdSoFar, value);
+        private synchronized void recordSkippedRun() {
+            mSkippedRuns++;
         }
 
-        return gcdSoFar;
-    }
+        private synchronized void recordRun(long latenessMs) {
+            mRuns++;
+            mTotalLatenessMs += latenessMs;
+            mMaxLatenessMs = Math.max(mMaxLatenessMs, latenessMs);
+        }
 
-    private long gcd(long a, long b) {
-        if (a == 0) {
-            return b;
-        } else if (b == 0) {
-            return a;
-        } else if (a > b) {
-            return gcd(b, a % b);
-        } else {
-            return gcd(a, b % a);
+        synchronized String getStats() {
+            return String.format("%s logs: %d runs, %d skipped, lateness average %d ms, max %d ms,"
+                    + " scheduler drift max %d ms", mGenerator, mRuns, mSkippedRuns,
+                    mRuns > 0 ? mTotalLatenessMs / mRuns : 0, mMaxLatenessMs, mMaxDriftMs);
         }
     }
 }
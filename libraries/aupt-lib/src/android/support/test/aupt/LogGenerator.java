@@ -23,15 +23,15 @@ import java.io.File;
 import java.io.IOException;
 
 enum LogGenerator {
-    BUGREPORT(new BugreportGenerator()),
-    BUGREPORTZ(new BugreportzGenerator()),
-    GRAPHICS_STATS(new GraphicsGenerator()),
-    MEM_INFO(new CompactMemInfoGenerator()),
-    CPU_INFO(new CpuInfoGenerator()),
-    FRAGMENTATION(new FragmentationGenerator()),
-    ION_HEAP(new IonHeapGenerator()),
-    PAGETYPE_INFO(new PageTypeInfoGenerator()),
-    TRACE(new TraceGenerator());
+    BUGREPORT(new BugreportGenerator(), true),
+    BUGREPORTZ(new BugreportzGenerator(), true),
+    GRAPHICS_STATS(new GraphicsGenerator(), false),
+    MEM_INFO(new CompactMemInfoGenerator(), false),
+    CPU_INFO(new CpuInfoGenerator(), false),
+    FRAGMENTATION(new FragmentationGenerator(), false),
+    ION_HEAP(new IonHeapGenerator(), false),
+    PAGETYPE_INFO(new PageTypeInfoGenerator(), false),
+    TRACE(new TraceGenerator(), true);
 
     private static final String TAG = "AuptDataCollector";
 
@@ -164,9 +164,19 @@ enum LogGenerator {
 
     // Individual LogGenerator instance methods
     private final Generator mGenerator;
+    private final boolean mHeavy;
 
-    LogGenerator (Generator generator) {
+    LogGenerator (Generator generator, boolean heavy) {
         mGenerator = generator;
+        mHeavy = heavy;
+    }
+
+    /**
+     * Whether the generator takes long enough or loads the device enough that it shouldn't run
+     * concurrently with other heavy generators.
+     */
+    public boolean isHeavy() {
+        return mHeavy;
     }
 
     public void save(Instrumentation instr, String logDir)
@@ -31,6 +31,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 /**
  * SimpleperfHelper is used to start and stop simpleperf sample collection and move the output
@@ -48,12 +51,19 @@ public class SimpleperfHelper {
     private static final String REMOVE_CMD = "rm %s";
     private static final String MOVE_CMD = "mv %s %s";
 
-    private static final int SIMPLEPERF_START_WAIT_COUNT = 3;
-    private static final int SIMPLEPERF_START_WAIT_TIME = 1000;
-    private static final int SIMPLEPERF_STOP_WAIT_COUNT = 60;
-    private static final long SIMPLEPERF_STOP_WAIT_TIME = 15000;
+    private static final long SIMPLEPERF_START_TIMEOUT_MS = 3000;
+    private static final long SIMPLEPERF_STOP_TIMEOUT_MS = 15 * 60 * 1000;
+    // Delays between two checks of the simpleperf state, doubling from the initial one up to the
+    // maximum one, so that fast starts and stops are detected within milliseconds.
+    private static final long POLL_INITIAL_DELAY_MS = 5;
+    private static final long POLL_MAX_DELAY_MS = 1000;
 
     private final UiDevice mUiDevice;
+    // Released when the simpleperf process started by this helper exits.
+    private volatile CountDownLatch mSimpleperfExited;
+    private long mLastStartLatencyMs = -1;
+    private long mLastStopLatencyMs = -1;
+    private SimpleperfReportParser mReportParser;
 
     /** Constructor to receive visible UiDevice. Should not be used except for testing. */
     @VisibleForTesting
@@ -77,6 +87,10 @@ public class SimpleperfHelper {
             }
 
             Log.i(LOG_TAG, String.format("Starting simpleperf"));
+            long startTime = SystemClock.elapsedRealtime();
+            CountDownLatch simpleperfExited = new CountDownLatch(1);
+            mSimpleperfExited = simpleperfExited;
+            // The start command returns once simpleperf exits.
             new Thread() {
                 @Override
                 public void run() {
@@ -94,25 +108,31 @@ public class SimpleperfHelper {
                                 String.format("Simpleperf start command output - %s", startOutput));
                     } catch (IOException e) {
                         Log.e(LOG_TAG, "Failed to start simpleperf.");
+                    } finally {
+                        simpleperfExited.countDown();
                     }
                 }
             }.start();
 
-            int waitCount = 0;
-            while (!isSimpleperfRunning()) {
-                if (waitCount < SIMPLEPERF_START_WAIT_COUNT) {
-                    SystemClock.sleep(SIMPLEPERF_START_WAIT_TIME);
-                    waitCount++;
-                    continue;
-                }
+            // Stop waiting early if simpleperf already exited, e.g. because of invalid arguments.
+            boolean started =
+                    waitFor(
+                            () -> simpleperfExited.getCount() == 0 || isSimpleperfRunning(),
+                            SIMPLEPERF_START_TIMEOUT_MS);
+            if (!started || simpleperfExited.getCount() == 0) {
                 Log.e(LOG_TAG, "Simpleperf sampling failed to start.");
                 return false;
             }
+            mLastStartLatencyMs = SystemClock.elapsedRealtime() - startTime;
         } catch (IOException e) {
             Log.e(LOG_TAG, "Unable to start simpleperf sampling due to :" + e.getMessage());
             return false;
         }
-        Log.i(LOG_TAG, "Simpleperf sampling started successfully.");
+        Log.i(
+                LOG_TAG,
+                String.format(
+                        "Simpleperf sampling started successfully in %d ms.",
+                        mLastStartLatencyMs));
         return true;
     }
 
@@ -152,19 +172,65 @@ public class SimpleperfHelper {
             return false;
         }
 
+        long stopTime = SystemClock.elapsedRealtime();
         String stopOutput = mUiDevice.executeShellCommand(SIMPLEPERF_STOP_CMD);
         Log.i(LOG_TAG, String.format("Simpleperf stop command ran: %s", SIMPLEPERF_STOP_CMD));
-        int waitCount = 0;
-        while (isSimpleperfRunning()) {
-            if (waitCount < SIMPLEPERF_STOP_WAIT_COUNT) {
-                SystemClock.sleep(SIMPLEPERF_STOP_WAIT_TIME);
-                waitCount++;
-                continue;
+        // Simpleperf flushes its samples before exiting, which can take minutes. If this helper
+        // started it, wait for its start command to return, then check that no other instance is
+        // left.
+        CountDownLatch simpleperfExited = mSimpleperfExited;
+        if (simpleperfExited != null) {
+            try {
+                simpleperfExited.await(SIMPLEPERF_STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Log.e(LOG_TAG, "Interrupted while waiting for simpleperf to stop.");
+                return false;
             }
+        }
+        long remainingTimeMs =
+                SIMPLEPERF_STOP_TIMEOUT_MS - (SystemClock.elapsedRealtime() - stopTime);
+        if (!waitFor(() -> !isSimpleperfRunning(), remainingTimeMs)) {
             Log.e(LOG_TAG, "Simpleperf failed to stop");
             return false;
         }
-        Log.i(LOG_TAG, "Simpleperf stopped successfully.");
+        mSimpleperfExited = null;
+        mLastStopLatencyMs = SystemClock.elapsedRealtime() - stopTime;
+        Log.i(
+                LOG_TAG,
+                String.format("Simpleperf stopped successfully in %d ms.", mLastStopLatencyMs));
+        return true;
+    }
+
+    /** Returns the time the last successful start took, from its command to sampling, or -1. */
+    public long getLastStartLatencyMs() {
+        return mLastStartLatencyMs;
+    }
+
+    /**
+     * Returns the time the last successful stop took, from its signal to simpleperf exiting, or -1.
+     */
+    public long getLastStopLatencyMs() {
+        return mLastStopLatencyMs;
+    }
+
+    /**
+     * Checks {@code condition} with exponentially increasing delays, until it holds or {@code
+     * timeoutMs} elapsed.
+     *
+     * @return true if the condition holds.
+     */
+    private static boolean waitFor(BooleanSupplier condition, long timeoutMs) {
+        long deadline = SystemClock.elapsedRealtime() + timeoutMs;
+        long delayMs = POLL_INITIAL_DELAY_MS;
+        while (!condition.getAsBoolean()) {
+            long remainingMs = deadline - SystemClock.elapsedRealtime();
+            if (remainingMs <= 0) {
+                return false;
+            }
+            SystemClock.sleep(Math.min(delayMs, remainingMs));
+            delayMs = Math.min(delayMs * 2, POLL_MAX_DELAY_MS);
+        }
         return true;
     }
 
@@ -206,63 +272,17 @@ public class SimpleperfHelper {
      */
     private Map<String, String> getMetrics(
             String process, Map<String, String> symbols, int testIterations) {
-        Map<String, String> results = new HashMap<>();
-        try {
-            String eventName = "";
-            BufferedReader reader =
-                    new BufferedReader(
-                            new FileReader(SimpleperfHelper.SIMPLEPERF_REPORT_TMP_FILE_PATH));
-            for (String line; (line = reader.readLine()) != null; ) {
-                // Checking for top of the report to find event name and event count.
-                // Event count: 3498520605
-                if (line.contains(": ")) {
-                    String[] splitLine = line.split(": ");
-                    if (splitLine[0].equals("Event")) {
-                        eventName = splitLine[1].split(" ")[0];
-                    } else if (splitLine[0].equals("Event count")) {
-                        String key = String.join("-", process, eventName);
-                        long count = Long.parseLong(splitLine[1]) / testIterations;
-                        results.put(key, String.valueOf(count));
-                    }
-                }
-                // Parsing lines for specific symbols in report to store with event count to results
-                // Children  Self    AccEventCount  SelfEventCount  Pid   Symbol
-                // 54.20%    0.00%   122803507      0               2510  __start_thread
-                else if (line.contains("%")) {
-                    final String[] splitLine = line.split("\\s+", 6);
-                    final String parsedSymbol = splitLine[5].trim();
-                    final String matchedSymbol = getMatchingSymbol(symbols, parsedSymbol);
-                    if (matchedSymbol == null) {
-                        continue;
-                    }
-                    String key = String.join("-", process, matchedSymbol, eventName);
-                    if (results.containsKey(key + "-percentage")) {
-                        // We are searching for symbols with partial matches so only include the
-                        // first hit if we get multiple matches.
-                        continue;
-                    }
-
-                    // Remove trailing %
-                    String percentage = splitLine[0].substring(0, splitLine[0].length() - 1);
-                    results.put(key + "-percentage", percentage);
-                    String eventCount = splitLine[2].trim();
-                    long count = Long.parseLong(eventCount) / testIterations;
-                    results.put(key + "-count", String.valueOf(count));
-                }
-            }
-        } catch (Exception e) {
-            Log.e(LOG_TAG, "Could not open report file: " + e.getMessage());
+        // Reports are usually generated for several processes with the same symbols.
+        if (mReportParser == null || !mReportParser.hasSymbols(symbols)) {
+            mReportParser = new SimpleperfReportParser(symbols);
         }
-        return results;
-    }
-
-    private static String getMatchingSymbol(Map<String, String> symbols, String parsedSymbol) {
-        for (String candidate : symbols.keySet()) {
-            if (parsedSymbol.contains(candidate)) {
-                return symbols.get(candidate);
-            }
+        try (BufferedReader reader =
+                new BufferedReader(new FileReader(SIMPLEPERF_REPORT_TMP_FILE_PATH))) {
+            return mReportParser.parse(reader, process, testIterations);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Could not open report file: " + e.getMessage());
         }
-        return null;
+        return new HashMap<>();
     }
 
     /**
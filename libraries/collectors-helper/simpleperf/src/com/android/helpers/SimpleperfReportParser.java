@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.helpers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+
+/**
+ * Extracts event counts per symbol from a text report generated by {@code simpleperf report
+ * --sort pid,symbol --print-event-count --children}, in a single pass over the report.
+ *
+ * <p>The symbols to report are searched as substrings of the symbols of the report. All of them
+ * are matched at once by an Aho-Corasick automaton built when the parser is created, so each row
+ * of the report is scanned once regardless of the number of symbols to report. A parser can be
+ * reused for any number of reports.
+ */
+public class SimpleperfReportParser {
+    private static final int ROOT = 0;
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+    // Columns of the report rows, the symbol being the last one.
+    // Children  Self    AccEventCount  SelfEventCount  Pid   Symbol
+    private static final int PERCENTAGE_COLUMN = 0;
+    private static final int EVENT_COUNT_COLUMN = 2;
+    private static final int SYMBOL_COLUMN = 5;
+
+    /** Symbols and their metric keys, in the iteration order of the constructor map. */
+    private final String[] mSymbols;
+    private final String[] mMetricKeys;
+
+    // Automaton states. The transitions of each state are sorted by character.
+    private char[][] mTransitionChars;
+    private int[][] mTransitionTargets;
+    private int[] mFailure;
+    /**
+     * Lowest index of the symbols that end at each state, directly or through its failure links,
+     * or {@link #NO_MATCH}.
+     */
+    private int[] mFirstMatch;
+    private int mStateCount;
+
+    /**
+     * @param symbols substrings of the symbols to report, to the key to report them under. When a
+     *     symbol of the report contains several of them, the first one in the iteration order of
+     *     the map is reported.
+     */
+    public SimpleperfReportParser(Map<String, String> symbols) {
+        List<String> patterns = new ArrayList<>(symbols.size());
+        List<String> metricKeys = new ArrayList<>(symbols.size());
+        for (Map.Entry<String, String> symbol : symbols.entrySet()) {
+            patterns.add(symbol.getKey());
+            metricKeys.add(symbol.getValue());
+        }
+        mSymbols = patterns.toArray(new String[0]);
+        mMetricKeys = metricKeys.toArray(new String[0]);
+        buildAutomaton(patterns);
+    }
+
+    /**
+     * Returns whether this parser reports the same symbols under the same keys, in the same order,
+     * as {@code symbols}.
+     */
+    public boolean hasSymbols(Map<String, String> symbols) {
+        if (symbols.size() != mSymbols.length) {
+            return false;
+        }
+        int index = 0;
+        for (Map.Entry<String, String> symbol : symbols.entrySet()) {
+            if (!Objects.equals(symbol.getKey(), mSymbols[index])
+                    || !Objects.equals(symbol.getValue(), mMetricKeys[index])) {
+                return false;
+            }
+            index++;
+        }
+        return true;
+    }
+
+    /**
+     * Reads a report and returns its metrics: the total count of each event, under {@code
+     * <process>-<event>}, and the percentage and count of each event for the reported symbols,
+     * under {@code <process>-<symbol key>-<event>-percentage} and {@code -count}. Counts are
+     * divided by {@code testIterations}.
+     *
+     * <p>Only the first row matching a symbol is reported for each event, rows being sorted by
+     * decreasing event count. Rows that can't be parsed are skipped.
+     */
+    public Map<String, String> parse(BufferedReader reader, String process, int testIterations)
+            throws IOException {
+        Map<String, String> results = new HashMap<>();
+        String eventName = "";
+        String[] columns = new String[SYMBOL_COLUMN + 1];
+        for (String line; (line = reader.readLine()) != null; ) {
+            // Checking for top of the report to find event name and event count.
+            // Event: cpu-cycles (type 0, config 0)
+            // Event count: 3498520605
+            int separator = line.indexOf(": ");
+            if (separator >= 0) {
+                String name = line.substring(0, separator);
+                int valueEnd = line.indexOf(": ", separator + 2);
+                String value =
+                        line.substring(separator + 2, valueEnd >= 0 ? valueEnd : line.length());
+                if (name.equals("Event")) {
+                    int space = value.indexOf(' ');
+                    eventName = space >= 0 ? value.substring(0, space) : value;
+                } else if (name.equals("Event count")) {
+                    try {
+                        long count = Long.parseLong(value) / testIterations;
+                        results.put(String.join("-", process, eventName), String.valueOf(count));
+                    } catch (NumberFormatException e) {
+                        continue;
+                    }
+                }
+            } else if (line.indexOf('%') >= 0) {
+                // Parsing lines for specific symbols in report to store with event count.
+                // 54.20%    0.00%   122803507      0               2510  __start_thread
+                if (!splitColumns(line, columns)) {
+                    // Not a row of the report.
+                    continue;
+                }
+                int symbol = findFirstMatch(columns[SYMBOL_COLUMN].trim());
+                if (symbol == NO_MATCH) {
+                    continue;
+                }
+                String key = String.join("-", process, mMetricKeys[symbol], eventName);
+                if (results.containsKey(key + "-percentage")) {
+                    // We are searching for symbols with partial matches so only include the
+                    // first hit if we get multiple matches.
+                    continue;
+                }
+                long count;
+                try {
+                    count = Long.parseLong(columns[EVENT_COUNT_COLUMN]) / testIterations;
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                // Remove trailing %
+                String percentage = columns[PERCENTAGE_COLUMN];
+                results.put(key + "-percentage", percentage.substring(0, percentage.length() - 1));
+                results.put(key + "-count", String.valueOf(count));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the index of the first symbol, in the order given to the constructor, that {@code
+     * text} contains, or {@link #NO_MATCH}.
+     */
+    int findFirstMatch(String text) {
+        int state = ROOT;
+        int first = mFirstMatch[ROOT];
+        for (int i = 0; i < text.length() && first != 0; i++) {
+            state = next(state, text.charAt(i));
+            first = Math.min(first, mFirstMatch[state]);
+        }
+        return first;
+    }
+
+    /**
+     * Splits {@code line} on whitespace into {@code columns}, the same way as {@code
+     * line.split("\\s+", columns.length)}.
+     *
+     * @return false if the line has fewer columns.
+     */
+    private static boolean splitColumns(String line, String[] columns) {
+        int start = 0;
+        int length = line.length();
+        for (int column = 0; column < columns.length - 1; column++) {
+            int end = start;
+            while (end < length && !isWhitespace(line.charAt(end))) {
+                end++;
+            }
+            if (end == length) {
+                return false;
+            }
+            columns[column] = line.substring(start, end);
+            start = end;
+            while (start < length && isWhitespace(line.charAt(start))) {
+                start++;
+            }
+        }
+        columns[columns.length - 1] = line.substring(start);
+        return true;
+    }
+
+    /** Returns whether {@code c} is matched by the {@code \s} regular expression class. */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    /** Returns the state after reading {@code c} in {@code state}. */
+    private int next(int state, char c) {
+        while (true) {
+            int target = getTransition(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = mFailure[state];
+        }
+    }
+
+    /** Returns the state {@code c} leads to from {@code state} in the trie, or -1. */
+    private int getTransition(int state, char c) {
+        int index = Arrays.binarySearch(mTransitionChars[state], c);
+        return index >= 0 ? mTransitionTargets[state][index] : -1;
+    }
+
+    private void buildAutomaton(List<String> patterns) {
+        int maxStates = 1;
+        for (String pattern : patterns) {
+            maxStates += pattern.length();
+        }
+        mTransitionChars = new char[maxStates][];
+        mTransitionTargets = new int[maxStates][];
+        mFailure = new int[maxStates];
+        mFirstMatch = new int[maxStates];
+        Arrays.fill(mFirstMatch, NO_MATCH);
+        mTransitionChars[ROOT] = new char[0];
+        mTransitionTargets[ROOT] = new int[0];
+        mStateCount = 1;
+
+        // Trie of the patterns.
+        for (int index = 0; index < patterns.size(); index++) {
+            String pattern = patterns.get(index);
+            int state = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                int target = getTransition(state, c);
+                if (target < 0) {
+                    target = addTransition(state, c);
+                }
+                state = target;
+            }
+            mFirstMatch[state] = Math.min(mFirstMatch[state], index);
+        }
+
+        // Failure links, breadth first so that the link of a state is complete before its
+        // children's.
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : mTransitionTargets[ROOT]) {
+            mFailure[child] = ROOT;
+            mFirstMatch[child] = Math.min(mFirstMatch[child], mFirstMatch[ROOT]);
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            for (int i = 0; i < mTransitionChars[state].length; i++) {
+                int child = mTransitionTargets[state][i];
+                int failure = next(mFailure[state], mTransitionChars[state][i]);
+                mFailure[child] = failure;
+                mFirstMatch[child] = Math.min(mFirstMatch[child], mFirstMatch[failure]);
+                queue.add(child);
+            }
+        }
+    }
+
+    /** Adds a new state reached by {@code c} from {@code state}, and returns it. */
+    private int addTransition(int state, char c) {
+        int target = mStateCount++;
+        mTransitionChars[target] = new char[0];
+        mTransitionTargets[target] = new int[0];
+
+        char[] chars = mTransitionChars[state];
+        int[] targets = mTransitionTargets[state];
+        int insertion = -Arrays.binarySearch(chars, c) - 1;
+        char[] newChars = new char[chars.length + 1];
+        int[] newTargets = new int[targets.length + 1];
+        System.arraycopy(chars, 0, newChars, 0, insertion);
+        System.arraycopy(targets, 0, newTargets, 0, insertion);
+        newChars[insertion] = c;
+        newTargets[insertion] = target;
+        System.arraycopy(chars, insertion, newChars, insertion + 1, chars.length - insertion);
+        System.arraycopy(
+                targets, insertion, newTargets, insertion + 1, targets.length - insertion);
+        mTransitionChars[state] = newChars;
+        mTransitionTargets[state] = newTargets;
+        return target;
+    }
+}
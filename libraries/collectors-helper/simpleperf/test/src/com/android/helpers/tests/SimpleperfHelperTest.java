@@ -15,6 +15,7 @@
  */
 package com.android.helpers.tests;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -64,6 +65,16 @@ public class SimpleperfHelperTest {
         assertTrue(simpleperfHelper.startCollecting(DEFAULT_SUBCOMMAND, DEFAULT_ARGUMENTS));
     }
 
+    /** Test the start and stop latencies are measured. */
+    @Test
+    public void testSimpleperfLatencies() throws Exception {
+        assertEquals(-1, simpleperfHelper.getLastStartLatencyMs());
+        assertTrue(simpleperfHelper.startCollecting(DEFAULT_SUBCOMMAND, DEFAULT_ARGUMENTS));
+        assertTrue(simpleperfHelper.getLastStartLatencyMs() >= 0);
+        assertTrue(simpleperfHelper.stopCollecting("/data/local/tmp/perf.data"));
+        assertTrue(simpleperfHelper.getLastStopLatencyMs() >= 0);
+    }
+
     /** Test if the path name is prefixed with /. */
     @Test
     public void testSimpleperfValidOutputPath() throws Exception {
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.helpers.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.helpers.SimpleperfReportParser;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Android Unit tests for {@link SimpleperfReportParser}.
+ *
+ * <p>atest CollectorsHelperTest:com.android.helpers.tests.SimpleperfReportParserTest
+ */
+@RunWith(AndroidJUnit4.class)
+public class SimpleperfReportParserTest {
+
+    private static final String REPORT =
+            String.join(
+                    "\n",
+                    "Cmdline: /system/bin/simpleperf record -g -e instructions,cpu-cycles",
+                    "Arch: arm64",
+                    "Event: instructions (type 0, config 1)",
+                    "Samples: 2400",
+                    "Event count: 1107121600",
+                    "",
+                    "Children  Self   AccEventCount  SelfEventCount  Pid  Symbol",
+                    "54.20%    0.00%  600059907      0               680  __start_thread",
+                    "3.10%     0.10%  34320770       1107121         680"
+                            + "  android::SurfaceFlinger::commit(long, long, long)",
+                    "0.74%     0.74%  8192700        8192700         680"
+                            + "  android::Parcel::writeInt32(int)",
+                    "0.20%     0.20%  2214243        2214243         680"
+                            + "  android::SurfaceFlinger::commit(long, long, long)::$_0",
+                    "",
+                    "Event: cpu-cycles (type 0, config 0)",
+                    "Samples: 1800",
+                    "Event count: 908094716",
+                    "",
+                    "Children  Self   AccEventCount  SelfEventCount  Pid  Symbol",
+                    "2.25%     0.00%  20433420       0               680"
+                            + "  android::SurfaceFlinger::composite(long, long)",
+                    "malformed%",
+                    "");
+
+    /** Test the event counts and the first row of each symbol are reported per event. */
+    @Test
+    public void testParseReport() throws Exception {
+        Map<String, String> symbols = new HashMap<>();
+        symbols.put("android::Parcel::writeInt32(int)", "writeInt32");
+        symbols.put("android::SurfaceFlinger::commit(", "commit");
+        symbols.put("android::SurfaceFlinger::composite(", "composite");
+        SimpleperfReportParser parser = new SimpleperfReportParser(symbols);
+
+        Map<String, String> metrics = parse(parser, REPORT, 10);
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put("surfaceflinger-instructions", "110712160");
+        expected.put("surfaceflinger-cpu-cycles", "90809471");
+        expected.put("surfaceflinger-commit-instructions-percentage", "3.10");
+        expected.put("surfaceflinger-commit-instructions-count", "3432077");
+        expected.put("surfaceflinger-writeInt32-instructions-percentage", "0.74");
+        expected.put("surfaceflinger-writeInt32-instructions-count", "819270");
+        expected.put("surfaceflinger-composite-cpu-cycles-percentage", "2.25");
+        expected.put("surfaceflinger-composite-cpu-cycles-count", "2043342");
+        assertEquals(expected, metrics);
+    }
+
+    /** Test a symbol matching several substrings is reported under the first one. */
+    @Test
+    public void testParseReportOverlappingSymbols() throws Exception {
+        Map<String, String> symbols = new LinkedHashMap<>();
+        symbols.put("Flinger::comp", "comp");
+        symbols.put("SurfaceFlinger::commit", "commit");
+        symbols.put("android::", "android");
+        SimpleperfReportParser parser = new SimpleperfReportParser(symbols);
+
+        Map<String, String> metrics = parse(parser, REPORT, 1);
+
+        assertEquals("3.10", metrics.get("surfaceflinger-commit-instructions-percentage"));
+        assertEquals("0.74", metrics.get("surfaceflinger-android-instructions-percentage"));
+        assertEquals("2.25", metrics.get("surfaceflinger-comp-cpu-cycles-percentage"));
+        assertFalse(metrics.containsKey("surfaceflinger-android-cpu-cycles-percentage"));
+    }
+
+    /** Test the parser is only reused for the same symbols in the same order. */
+    @Test
+    public void testHasSymbols() {
+        Map<String, String> symbols = new LinkedHashMap<>();
+        symbols.put("a", "1");
+        symbols.put("b", "2");
+        SimpleperfReportParser parser = new SimpleperfReportParser(symbols);
+        assertTrue(parser.hasSymbols(new LinkedHashMap<>(symbols)));
+
+        Map<String, String> reversed = new LinkedHashMap<>();
+        reversed.put("b", "2");
+        reversed.put("a", "1");
+        assertFalse(parser.hasSymbols(reversed));
+        symbols.put("b", "3");
+        assertFalse(parser.hasSymbols(symbols));
+    }
+
+    /** Test a large report with many symbols gives the same metrics as matching each symbol. */
+    @Test
+    public void testParseLargeReport() throws Exception {
+        Random random = new Random(0);
+        String[] names = {"Parcel", "Surface", "Flinger", "commit", "composite", "write", "Int"};
+        Map<String, String> symbols = new LinkedHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            symbols.put(randomSymbol(random, names, 1 + random.nextInt(2)), "symbol" + i);
+        }
+        StringBuilder report = new StringBuilder();
+        for (String event : new String[] {"instructions", "cpu-cycles"}) {
+            report.append("Event: ").append(event).append(" (type 0, config 0)\n");
+            report.append("Event count: 123456789\n");
+            for (int i = 0; i < 5000; i++) {
+                report.append(
+                        String.format(
+                                "%d.%02d%%  0.00%%  %d  0  680  %s\n",
+                                random.nextInt(100),
+                                random.nextInt(100),
+                                random.nextInt(1000000),
+                                randomSymbol(random, names, 1 + random.nextInt(4))));
+            }
+        }
+        SimpleperfReportParser parser = new SimpleperfReportParser(symbols);
+
+        Map<String, String> metrics = parse(parser, report.toString(), 3);
+
+        assertEquals(parseByScanningSymbols(symbols, report.toString(), 3), metrics);
+    }
+
+    private static Map<String, String> parse(
+            SimpleperfReportParser parser, String report, int testIterations) throws Exception {
+        return parser.parse(
+                new BufferedReader(new StringReader(report)), "surfaceflinger", testIterations);
+    }
+
+    private static String randomSymbol(Random random, String[] names, int length) {
+        StringBuilder symbol = new StringBuilder("android::");
+        for (int i = 0; i < length; i++) {
+            symbol.append(names[random.nextInt(names.length)]);
+        }
+        return symbol.toString();
+    }
+
+    /** Reference parsing, matching each row against all the symbols one at a time. */
+    private static Map<String, String> parseByScanningSymbols(
+            Map<String, String> symbols, String report, int testIterations) {
+        Map<String, String> results = new HashMap<>();
+        String eventName = "";
+        for (String line : report.split("\n")) {
+            if (line.contains(": ")) {
+                String[] splitLine = line.split(": ");
+                if (splitLine[0].equals("Event")) {
+                    eventName = splitLine[1].split(" ")[0];
+                } else if (splitLine[0].equals("Event count")) {
+                    long count = Long.parseLong(splitLine[1]) / testIterations;
+                    results.put("surfaceflinger-" + eventName, String.valueOf(count));
+                }
+            } else if (line.contains("%")) {
+                String[] splitLine = line.split("\\s+", 6);
+                String parsedSymbol = splitLine[5].trim();
+                String matchedSymbol = null;
+                for (Map.Entry<String, String> symbol : symbols.entrySet()) {
+                    if (parsedSymbol.contains(symbol.getKey())) {
+                        matchedSymbol = symbol.getValue();
+                        break;
+                    }
+                }
+                String key = String.join("-", "surfaceflinger", matchedSymbol, eventName);
+                if (matchedSymbol == null || results.containsKey(key + "-percentage")) {
+                    continue;
+                }
+                results.put(
+                        key + "-percentage", splitLine[0].substring(0, splitLine[0].length() - 1));
+                long count = Long.parseLong(splitLine[2]) / testIterations;
+                results.put(key + "-count", String.valueOf(count));
+            }
+        }
+        return results;
+    }
+}
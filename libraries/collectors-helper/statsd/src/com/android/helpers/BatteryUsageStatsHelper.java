@@ -331,6 +331,7 @@ public class BatteryUsageStatsHelper implements ICollectorHelper<Long> {
 
             results.put(sharedKey, afterData.get(sharedKey) - beforeData.get(sharedKey));
         }
+        results.putAll(mStatsdHelper.getGaugeWaitMetrics());
         return results;
     }
 
@@ -339,6 +340,14 @@ public class BatteryUsageStatsHelper implements ICollectorHelper<Long> {
         return mStatsdHelper.removeStatsConfig();
     }
 
+    /**
+     * Set the maximum wait for statsd to collect the gauge metrics, see {@link
+     * StatsdHelper#setMetricReadinessTimeoutMs(long)}.
+     */
+    public void setMetricReadinessTimeoutMs(long timeoutMs) {
+        mStatsdHelper.setMetricReadinessTimeoutMs(timeoutMs);
+    }
+
     private void printEntries(String prefix, Map<String, Long> data) {
         for (Map.Entry<String, Long> datum : data.entrySet()) {
             Log.e(
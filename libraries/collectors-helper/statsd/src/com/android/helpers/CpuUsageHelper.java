@@ -169,6 +169,7 @@ public class CpuUsageHelper implements ICollectorHelper<Long> {
             }
         }
 
+        cpuUsageFinalMap.putAll(mStatsdHelper.getGaugeWaitMetrics());
         return cpuUsageFinalMap;
     }
 
@@ -201,6 +202,14 @@ public class CpuUsageHelper implements ICollectorHelper<Long> {
         isCpuUtilizationEnabled = true;
     }
 
+    /**
+     * Set the maximum wait for statsd to collect the gauge metrics, see {@link
+     * StatsdHelper#setMetricReadinessTimeoutMs(long)}.
+     */
+    public void setMetricReadinessTimeoutMs(long timeoutMs) {
+        mStatsdHelper.setMetricReadinessTimeoutMs(timeoutMs);
+    }
+
     /**
      * return the number of cores that the device has.
      */
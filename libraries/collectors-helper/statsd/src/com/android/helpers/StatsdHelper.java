@@ -36,20 +36,40 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.BooleanSupplier;
 
 /**
  * StatsdHelper consist of basic utilities that will be used to setup statsd
  * config, parse the collected information and remove the statsd config.
  */
 public class StatsdHelper {
+    /** Metric key of the time spent waiting for statsd to collect the gauge metrics. */
+    public static final String GAUGE_WAIT_MS = "statsd_gauge_wait_ms";
+    /** Metric key of the time saved by those waits, compared to the former fixed delays. */
+    public static final String GAUGE_TIME_SAVED_MS = "statsd_gauge_time_saved_ms";
+
     private static final String LOG_TAG = StatsdHelper.class.getSimpleName();
     private static final long MAX_ATOMS = 2000;
     private static final long METRIC_DELAY_MS = 3000;
     private static final long CONFIG_REGISTRATION_TIMEOUT_MS = 1000;
+    private static final long POLL_INITIAL_DELAY_MS = 10;
+    private static final long POLL_MAX_DELAY_MS = 200;
+    // Fields of the AppBreadcrumbReported atom.
+    private static final int BREADCRUMB_LABEL_FIELD = 2;
+    private static final int BREADCRUMB_STATE_FIELD = 3;
     private long mConfigId = -1;
     private StatsManager mStatsManager;
+    private long mMetricReadinessTimeoutMs = METRIC_DELAY_MS;
+    // Breadcrumb logged after each gauge trigger event, to know when statsd handled the trigger.
+    private int mSentinelMatcherId;
+    private int mSentinelLabel;
+    private int mSentinelCount;
+    // Time spent in the gauge waits of the current config.
+    private long mGaugeWaitMs;
 
     /**
      * Add simple event configurations using a list of atom ids.
@@ -96,6 +116,9 @@ public class StatsdHelper {
      * In order to capture the usage during the test take the difference of gauge metrics
      * before and after the test.
      *
+     * <p>Returns once statsd collected the gauge metrics before the test, or after the readiness
+     * timeout, see {@link #setMetricReadinessTimeoutMs(long)}.
+     *
      * @param atomIdList List of atoms to be collected in gauge metrics.
      * @return if the config is added successfully otherwise false.
      */
@@ -103,15 +126,27 @@ public class StatsdHelper {
         long configId = System.currentTimeMillis();
         StatsdConfigProto.StatsdConfig config = getSimpleSources(configId);
         int appBreadCrumbUniqueId = getUniqueId();
+        int sentinelUniqueId = getUniqueId();
+        int sentinelLabel = getUniqueId();
         config.whitelistedAtomIds =
                 new int[] {AtomsProto.Atom.APP_BREADCRUMB_REPORTED_FIELD_NUMBER};
         List<StatsdConfigProto.AtomMatcher> matchers = new ArrayList<>(atomIdList.size());
         List<StatsdConfigProto.GaugeMetric> gaugeMetrics = new ArrayList<>();
-        // Needed for collecting gauge metric based on trigger events.
+        // Needed for collecting gauge metric based on trigger events. Only the events logged
+        // by StatsLog.logEvent() trigger, so that the sentinel doesn't.
         matchers.add(
-                getSimpleAtomMatcher(
+                getBreadcrumbMatcher(
                         appBreadCrumbUniqueId,
-                        AtomsProto.Atom.APP_BREADCRUMB_REPORTED_FIELD_NUMBER));
+                        getIntFieldMatcher(
+                                BREADCRUMB_STATE_FIELD,
+                                AtomsProto.AppBreadcrumbReported.UNSPECIFIED)));
+        // Needed for knowing when statsd handled the trigger events.
+        matchers.add(
+                getBreadcrumbMatcher(
+                        sentinelUniqueId,
+                        getIntFieldMatcher(
+                                BREADCRUMB_STATE_FIELD, AtomsProto.AppBreadcrumbReported.STOP),
+                        getIntFieldMatcher(BREADCRUMB_LABEL_FIELD, sentinelLabel)));
         for (Integer atomId : atomIdList) {
             int atomUniqueId = getUniqueId();
             // Build Gauge metric config.
@@ -136,9 +171,13 @@ public class StatsdHelper {
             if (!pollForRegisteredConfig(configId)) {
                 return false;
             }
+            mSentinelMatcherId = sentinelUniqueId;
+            mSentinelLabel = sentinelLabel;
+            mSentinelCount = 0;
+            mGaugeWaitMs = 0;
             StatsLog.logEvent(0);
             // Dump the counters before the test started.
-            SystemClock.sleep(METRIC_DELAY_MS);
+            waitForGaugeMetrics(configId);
         } catch (Exception e) {
             Log.e(LOG_TAG, "Not able to setup the gauge config.", e);
             return false;
@@ -151,6 +190,27 @@ public class StatsdHelper {
         return true;
     }
 
+    /**
+     * Create an atom matcher with the given id for the AppBreadcrumbReported events matching all
+     * the given field value matchers.
+     */
+    private StatsdConfigProto.AtomMatcher getBreadcrumbMatcher(
+            int id, StatsdConfigProto.FieldValueMatcher... fieldValueMatchers) {
+        StatsdConfigProto.AtomMatcher atomMatcher =
+                getSimpleAtomMatcher(id, AtomsProto.Atom.APP_BREADCRUMB_REPORTED_FIELD_NUMBER);
+        atomMatcher.getSimpleAtomMatcher().fieldValueMatcher = fieldValueMatchers;
+        return atomMatcher;
+    }
+
+    /** Create a field value matcher matching the given field to the given value. */
+    private StatsdConfigProto.FieldValueMatcher getIntFieldMatcher(int field, long value) {
+        StatsdConfigProto.FieldValueMatcher fieldValueMatcher =
+                new StatsdConfigProto.FieldValueMatcher();
+        fieldValueMatcher.field = field;
+        fieldValueMatcher.setEqInt(value);
+        return fieldValueMatcher;
+    }
+
     /** Create simple atom matcher with the given id and the field id. */
     private StatsdConfigProto.AtomMatcher getSimpleAtomMatcher(int id, int fieldId) {
         StatsdConfigProto.AtomMatcher atomMatcher = new StatsdConfigProto.AtomMatcher();
@@ -195,13 +255,19 @@ public class StatsdHelper {
 
     /** Returns accumulated StatsdStats. */
     public com.android.os.nano.StatsLog.StatsdStatsReport getStatsdStatsReport() {
+        adoptShellIdentity();
+        com.android.os.nano.StatsLog.StatsdStatsReport report = readStatsdStatsReport();
+        dropShellIdentity();
+        return report;
+    }
+
+    /** Returns accumulated StatsdStats. The caller must hold the shell permission identity. */
+    private com.android.os.nano.StatsLog.StatsdStatsReport readStatsdStatsReport() {
         com.android.os.nano.StatsLog.StatsdStatsReport report =
                 new com.android.os.nano.StatsLog.StatsdStatsReport();
         try {
-            adoptShellIdentity();
             byte[] serializedReports = getStatsManager().getStatsMetadata();
             report = com.android.os.nano.StatsLog.StatsdStatsReport.parseFrom(serializedReports);
-            dropShellIdentity();
         } catch (InvalidProtocolBufferNanoException | StatsUnavailableException se) {
             Log.e(LOG_TAG, "Retrieving StatsdStats report failed.", se);
         }
@@ -256,7 +322,7 @@ public class StatsdHelper {
                 adoptShellIdentity();
                 StatsLog.logEvent(0);
                 // Dump the the counters after the test completed.
-                SystemClock.sleep(METRIC_DELAY_MS);
+                waitForGaugeMetrics(getConfigId());
                 reportList =
                         com.android.os.nano.StatsLog.ConfigMetricsReportList.parseFrom(
                                 getStatsManager().getReports(getConfigId()));
@@ -364,14 +430,77 @@ public class StatsdHelper {
         }
     }
 
-    private boolean pollForRegisteredConfig(long configId) {
-        long endTime = System.currentTimeMillis() + CONFIG_REGISTRATION_TIMEOUT_MS;
-        while (System.currentTimeMillis() < endTime) {
-            if (verifyConfigIsRegistered(configId)) {
-                Log.i(LOG_TAG, String.format("Found config %d registered.", configId));
-                return true;
+    /**
+     * Sets how long to wait at most for statsd to collect the gauge metrics, when starting and
+     * ending the collection.
+     */
+    public void setMetricReadinessTimeoutMs(long timeoutMs) {
+        mMetricReadinessTimeoutMs = timeoutMs;
+    }
+
+    /**
+     * Returns how long the gauge config waited for statsd, when starting and ending the collection,
+     * and how much time that saved compared to the fixed {@code METRIC_DELAY_MS} sleeps it
+     * replaced. The time saved is negative if the readiness timeout was raised above that delay and
+     * reached.
+     */
+    public Map<String, Long> getGaugeWaitMetrics() {
+        Map<String, Long> metrics = new HashMap<>();
+        metrics.put(GAUGE_WAIT_MS, mGaugeWaitMs);
+        metrics.put(GAUGE_TIME_SAVED_MS, mSentinelCount * METRIC_DELAY_MS - mGaugeWaitMs);
+        return metrics;
+    }
+
+    /**
+     * Waits until statsd collected the gauge metrics triggered by the last event, or the readiness
+     * timeout elapsed. The caller must hold the shell permission identity.
+     *
+     * <p>Statsd handles the logged events one at a time, and pulls the gauge atoms while handling
+     * their trigger event. So the gauge metrics are collected once a breadcrumb logged after the
+     * trigger event was matched, which the config stats of statsd tell without consuming the
+     * reports.
+     */
+    private void waitForGaugeMetrics(long configId) {
+        long startTime = SystemClock.elapsedRealtime();
+        int sentinelCount = ++mSentinelCount;
+        StatsLog.logStop(mSentinelLabel);
+        boolean ready =
+                waitFor(
+                        () -> getSentinelMatchedTimes(configId) >= sentinelCount,
+                        mMetricReadinessTimeoutMs);
+        long waitMs = SystemClock.elapsedRealtime() - startTime;
+        mGaugeWaitMs += waitMs;
+        if (ready) {
+            Log.i(LOG_TAG, String.format("Gauge metrics collected after %d ms.", waitMs));
+        } else {
+            Log.w(
+                    LOG_TAG,
+                    String.format("Gauge metrics not known to be collected after %d ms.", waitMs));
+        }
+    }
+
+    /** Returns the number of sentinel breadcrumbs statsd matched for the config, or -1. */
+    private int getSentinelMatchedTimes(long configId) {
+        com.android.os.nano.StatsLog.StatsdStatsReport report = readStatsdStatsReport();
+        for (com.android.os.nano.StatsLog.StatsdStatsReport.ConfigStats configStats :
+                report.configStats) {
+            if (configStats.id != configId) {
+                continue;
+            }
+            for (com.android.os.nano.StatsLog.StatsdStatsReport.MatcherStats matcherStats :
+                    configStats.matcherStats) {
+                if (matcherStats.id == mSentinelMatcherId) {
+                    return matcherStats.matchedTimes;
+                }
             }
-            SystemClock.sleep(100);
+        }
+        return -1;
+    }
+
+    private boolean pollForRegisteredConfig(long configId) {
+        if (waitFor(() -> verifyConfigIsRegistered(configId), CONFIG_REGISTRATION_TIMEOUT_MS)) {
+            Log.i(LOG_TAG, String.format("Found config %d registered.", configId));
+            return true;
         }
         Log.e(
                 LOG_TAG,
@@ -382,7 +511,7 @@ public class StatsdHelper {
     }
 
     private boolean verifyConfigIsRegistered(long configId) {
-        com.android.os.nano.StatsLog.StatsdStatsReport report = getStatsdStatsReport();
+        com.android.os.nano.StatsLog.StatsdStatsReport report = readStatsdStatsReport();
         for (com.android.os.nano.StatsLog.StatsdStatsReport.ConfigStats configStats :
                 report.configStats) {
             if (configStats.id == configId
@@ -394,6 +523,26 @@ public class StatsdHelper {
         return false;
     }
 
+    /**
+     * Checks {@code condition} with exponentially increasing delays, until it holds or {@code
+     * timeoutMs} elapsed.
+     *
+     * @return true if the condition holds.
+     */
+    private static boolean waitFor(BooleanSupplier condition, long timeoutMs) {
+        long deadline = SystemClock.elapsedRealtime() + timeoutMs;
+        long delayMs = POLL_INITIAL_DELAY_MS;
+        while (!condition.getAsBoolean()) {
+            long remainingMs = deadline - SystemClock.elapsedRealtime();
+            if (remainingMs <= 0) {
+                return false;
+            }
+            SystemClock.sleep(Math.min(delayMs, remainingMs));
+            delayMs = Math.min(delayMs * 2, POLL_MAX_DELAY_MS);
+        }
+        return true;
+    }
+
     /** Gets {@code StatsManager}, used to configure, collect and remove the statsd configs. */
     private StatsManager getStatsManager() {
         if (mStatsManager == null) {
@@ -106,6 +106,8 @@ public class BatteryUsageStatsHelperTest {
         assertTrue(batteryUsageStats.containsKey("session-start-ms"));
         assertTrue(batteryUsageStats.containsKey("session-end-ms"));
         assertTrue(batteryUsageStats.containsKey("session-discharge-pct"));
+        assertTrue(batteryUsageStats.containsKey(StatsdHelper.GAUGE_WAIT_MS));
+        assertTrue(batteryUsageStats.containsKey(StatsdHelper.GAUGE_TIME_SAVED_MS));
 
         assertTrue(mBatteryUsageStatsHelper.stopCollecting());
     }
@@ -80,6 +80,8 @@ public class CpuUsageHelperTest {
         Map<String, Long> cpuUsage = mCpuUsageHelper.getMetrics();
         // Which includes two default total usage per pkg and per freq
         assertTrue(cpuUsage.size() > 2);
+        assertTrue(cpuUsage.get(StatsdHelper.GAUGE_WAIT_MS) >= 0);
+        assertTrue(cpuUsage.containsKey(StatsdHelper.GAUGE_TIME_SAVED_MS));
         assertTrue(mCpuUsageHelper.stopCollecting());
         mHelper.get().exit();
     }
@@ -134,8 +136,11 @@ public class CpuUsageHelperTest {
         assertTrue(mCpuUsageHelper.startCollecting());
         mHelper.get().open();
         Map<String, Long> cpuUsage = mCpuUsageHelper.getMetrics();
-        assertTrue(cpuUsage.size() == 1);
+        // The total usage, and the statsd wait metrics.
+        assertTrue(cpuUsage.size() == 3);
         assertTrue(cpuUsage.containsKey(TOTAL_CPU_USAGE));
+        assertTrue(cpuUsage.containsKey(StatsdHelper.GAUGE_WAIT_MS));
+        assertTrue(cpuUsage.containsKey(StatsdHelper.GAUGE_TIME_SAVED_MS));
         assertTrue(mCpuUsageHelper.stopCollecting());
         mHelper.get().exit();
     }
@@ -153,7 +158,11 @@ public class CpuUsageHelperTest {
         Map<String, Long> cpuUsage = mCpuUsageHelper.getMetrics();
         assertTrue(cpuUsage.size() > 2);
         for (Map.Entry<String, Long> cpuUsageEntry : mCpuUsageHelper.getMetrics().entrySet()) {
-            assertTrue(cpuUsageEntry.getKey().startsWith(CPU_USAGE_PKG_UID_PREFIX));
+            String key = cpuUsageEntry.getKey();
+            assertTrue(
+                    key.startsWith(CPU_USAGE_PKG_UID_PREFIX)
+                            || key.equals(StatsdHelper.GAUGE_WAIT_MS)
+                            || key.equals(StatsdHelper.GAUGE_TIME_SAVED_MS));
         }
         assertTrue(mCpuUsageHelper.stopCollecting());
         mHelper.get().exit();
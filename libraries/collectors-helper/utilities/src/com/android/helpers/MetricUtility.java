@@ -29,6 +29,8 @@ public class MetricUtility {
     public static final int BUFFER_SIZE = 1024;
     private static final DecimalFormat DOUBLE_FORMAT = new DecimalFormat("#0.000001");
 
+    private static volatile boolean sUseShellSession = false;
+
     /**
      * Append the given array of string to construct the final key used to track the metrics.
      *
@@ -115,14 +117,35 @@ public class MetricUtility {
         return result;
     }
 
+    /**
+     * Sets whether {@link #executeCommandBlocking(String, Instrumentation)} runs the commands in
+     * the {@link ShellSession} shared by the instrumentation, instead of spawning a process for
+     * each of them. This applies to all the helpers of the instrumentation. Commands run in the
+     * session are interpreted by the shell, so quotes and redirections in them take effect.
+     */
+    public static void setUseShellSession(boolean useShellSession) {
+        sUseShellSession = useShellSession;
+    }
+
     /**
      * Turn executeShellCommand into a blocking operation.
      *
+     * <p>The command runs in the shared {@link ShellSession} if it was enabled with {@link
+     * #setUseShellSession(boolean)}.
+     *
      * @param command shell command to be executed.
      * @param instr used to run the shell command.
      * @return byte array of execution result
      */
     public static byte[] executeCommandBlocking(String command, Instrumentation instr) {
+        if (sUseShellSession) {
+            return ShellSession.getInstance(instr).executeCommandBlocking(command);
+        }
+        return executeCommandInNewProcess(command, instr);
+    }
+
+    /** Runs {@code command} in a new process, whether the shell session is used or not. */
+    static byte[] executeCommandInNewProcess(String command, Instrumentation instr) {
         try (InputStream is = new ParcelFileDescriptor.AutoCloseInputStream(instr.getUiAutomation()
                 .executeShellCommand(command));
                 ByteArrayOutputStream out = new ByteArrayOutputStream()) {
@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.helpers;
+
+import android.app.Instrumentation;
+import android.app.UiAutomation;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-lived shell, started once through {@link UiAutomation#executeShellCommandRw(String)} and
+ * shared by the rules, listeners and helpers of the instrumentation.
+ *
+ * <p>Running a command through {@link UiAutomation#executeShellCommand(String)} spawns a new
+ * process each time, which costs latency and wakes up the CPU, skewing the measurements of power
+ * tests. Commands sent to the session run in the same {@code sh} process instead. As they are
+ * interpreted by the shell, they also support redirections and pipes, e.g. {@code echo 3 >
+ * /proc/sys/vm/drop_caches}, which {@link UiAutomation#executeShellCommand(String)} passes as
+ * literal arguments.
+ *
+ * <p>Each request is framed by an end marker carrying the exit code of the command, which the
+ * response is read up to. Requests from several threads are multiplexed on the session one at a
+ * time. Commands run with their standard input closed and their standard error merged into their
+ * output. A command that doesn't complete within its timeout is killed along with the shell, and
+ * the next {@link #getInstance(Instrumentation)} starts a new session. Use {@link
+ * UiAutomation#executeShellCommand(String)} for commands that are expected to run for long.
+ */
+public class ShellSession implements Closeable {
+    private static final String TAG = ShellSession.class.getSimpleName();
+
+    private static final String END_MARKER = "__shell_session_end_";
+    private static final long NO_PENDING_REQUEST = -1;
+
+    /** Timeout of the commands run with {@link #execute(String)}. */
+    public static final long DEFAULT_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private static ShellSession sInstance;
+    private static ScheduledExecutorService sWatchdog;
+
+    private final OutputStream mInput;
+    private final InputStream mOutput;
+    private final Runnable mKill;
+    /** Id of the request being executed, for the watchdog to tell whether it's still running. */
+    private final AtomicLong mPendingRequest = new AtomicLong(NO_PENDING_REQUEST);
+    private final byte[] mBuffer = new byte[MetricUtility.BUFFER_SIZE];
+    /** Bytes read from the shell after the end of the last response, in {@link #mBuffer}. */
+    private int mBufferStart;
+    private int mBufferEnd;
+    private long mNextRequestId;
+    private boolean mClosed;
+
+    private long mCommandCount;
+    private long mTotalLatencyNanos;
+
+    /**
+     * @param input the standard input of the shell.
+     * @param output the standard output of the shell.
+     * @param kill kills the shell and the command it runs, when a command times out.
+     */
+    ShellSession(OutputStream input, InputStream output, Runnable kill) {
+        mInput = input;
+        mOutput = output;
+        mKill = kill;
+    }
+
+    /**
+     * Returns the session shared by the instrumentation, starting a new one if there is none yet
+     * or if the previous one was closed.
+     */
+    public static synchronized ShellSession getInstance(Instrumentation instrumentation) {
+        if (sInstance == null || sInstance.isClosed()) {
+            ParcelFileDescriptor[] fds =
+                    instrumentation.getUiAutomation().executeShellCommandRw("sh");
+            long[] pid = {-1};
+            sInstance =
+                    new ShellSession(
+                            new ParcelFileDescriptor.AutoCloseOutputStream(fds[1]),
+                            new ParcelFileDescriptor.AutoCloseInputStream(fds[0]),
+                            () -> kill(instrumentation, pid[0]));
+            try {
+                pid[0] = Long.parseLong(sInstance.execute("echo $$").getOutputString().trim());
+            } catch (IOException | NumberFormatException e) {
+                // Timed out commands will only be interrupted by closing the session.
+                Log.w(TAG, "Couldn't get the pid of the shell", e);
+            }
+        }
+        return sInstance;
+    }
+
+    /** Kills the shell with the given pid and the commands it runs. */
+    private static void kill(Instrumentation instrumentation, long pid) {
+        if (pid < 0) {
+            return;
+        }
+        // The commands go first: they keep the output of the shell open even once it's dead.
+        MetricUtility.executeCommandInNewProcess("pkill -9 -P " + pid, instrumentation);
+        MetricUtility.executeCommandInNewProcess("kill -9 " + pid, instrumentation);
+    }
+
+    private static synchronized ScheduledExecutorService getWatchdog() {
+        if (sWatchdog == null) {
+            sWatchdog =
+                    Executors.newSingleThreadScheduledExecutor(
+                            r -> {
+                                Thread thread = new Thread(r, TAG + "Watchdog");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+        }
+        return sWatchdog;
+    }
+
+    /**
+     * Runs {@code command} in the session with a timeout of {@link #DEFAULT_TIMEOUT_MS} and
+     * returns its result.
+     *
+     * @throws IOException if the session was closed, the shell exited or the command timed out.
+     *     The session is closed and {@link #getInstance(Instrumentation)} starts a new one.
+     */
+    public Result execute(String command) throws IOException {
+        return execute(command, DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * Runs {@code command} in the session and returns its result.
+     *
+     * @param timeoutMs time after which the command and the shell are killed.
+     * @throws IOException if the session was closed, the shell exited or the command timed out.
+     *     The session is closed and {@link #getInstance(Instrumentation)} starts a new one.
+     */
+    public synchronized Result execute(String command, long timeoutMs) throws IOException {
+        if (mClosed) {
+            throw new IOException("Shell session closed");
+        }
+        long start = SystemClock.elapsedRealtimeNanos();
+        long requestId = mNextRequestId++;
+        String marker = END_MARKER + requestId;
+        mPendingRequest.set(requestId);
+        ScheduledFuture<?> watchdog =
+                getWatchdog()
+                        .schedule(() -> onTimeout(requestId), timeoutMs, TimeUnit.MILLISECONDS);
+        try {
+            // The command is on its own lines so that comments or trailing operators in it can't
+            // swallow the end marker, and the marker is on a new line in case the output doesn't
+            // end with one.
+            String request =
+                    String.format(
+                            "{\n%s\n} </dev/null 2>&1; printf '\\n%s %%d\\n' $?\n",
+                            command, marker);
+            mInput.write(request.getBytes(StandardCharsets.UTF_8));
+            mInput.flush();
+            Result result = readResponse(("\n" + marker + " ").getBytes(StandardCharsets.UTF_8));
+            if (!mPendingRequest.compareAndSet(requestId, NO_PENDING_REQUEST)) {
+                // The command was killed, its output may be incomplete.
+                throw new IOException("Shell session killed");
+            }
+            long latencyNanos = SystemClock.elapsedRealtimeNanos() - start;
+            result.mLatencyNanos = latencyNanos;
+            mCommandCount++;
+            mTotalLatencyNanos += latencyNanos;
+            Log.v(TAG, String.format("Executed in %d us: %s", latencyNanos / 1000, command));
+            return result;
+        } catch (IOException e) {
+            boolean timedOut = !mPendingRequest.compareAndSet(requestId, NO_PENDING_REQUEST);
+            close();
+            IOException error =
+                    timedOut
+                            ? new IOException(String.format("Timed out after %d ms", timeoutMs), e)
+                            : e;
+            Log.e(TAG, "Error executing: " + command, error);
+            throw error;
+        } finally {
+            watchdog.cancel(false);
+        }
+    }
+
+    /** Kills the shell if request {@code requestId} is still running. */
+    private void onTimeout(long requestId) {
+        if (!mPendingRequest.compareAndSet(requestId, NO_PENDING_REQUEST)) {
+            return;
+        }
+        Log.w(TAG, "Killing the shell session, request timed out: " + requestId);
+        try {
+            mKill.run();
+        } finally {
+            // Unblocks the response if the shell couldn't be killed. Not synchronized, as the
+            // request holds the lock; the request closes the session once it sees the failure.
+            closeStreams();
+        }
+    }
+
+    /**
+     * Runs {@code command} in the session and returns its output, or null if it couldn't be run,
+     * like {@link MetricUtility#executeCommandBlocking(String, Instrumentation)}.
+     */
+    public byte[] executeCommandBlocking(String command) {
+        try {
+            return execute(command).getOutput();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Reads the output of the current command up to {@code marker}, then its exit code. */
+    private Result readResponse(byte[] marker) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int matched = 0;
+        while (matched < marker.length) {
+            if (mBufferStart == mBufferEnd) {
+                fillBuffer();
+            }
+            byte b = mBuffer[mBufferStart++];
+            if (b == marker[matched]) {
+                matched++;
+                continue;
+            }
+            // Not the marker after all: the matched bytes are output. The marker starts with a
+            // line break that appears nowhere else in it, so matching restarts from scratch.
+            output.write(marker, 0, matched);
+            matched = 0;
+            if (b == marker[0]) {
+                matched = 1;
+            } else {
+                output.write(b);
+            }
+        }
+
+        int exitCode = 0;
+        while (true) {
+            if (mBufferStart == mBufferEnd) {
+                fillBuffer();
+            }
+            byte b = mBuffer[mBufferStart++];
+            if (b == '\n') {
+                break;
+            }
+            exitCode = exitCode * 10 + (b - '0');
+        }
+        return new Result(output.toByteArray(), exitCode);
+    }
+
+    private void fillBuffer() throws IOException {
+        int length = mOutput.read(mBuffer);
+        if (length < 0) {
+            throw new IOException("Shell session ended");
+        }
+        mBufferStart = 0;
+        mBufferEnd = length;
+    }
+
+    /** Returns the number of commands executed in the session. */
+    public synchronized long getCommandCount() {
+        return mCommandCount;
+    }
+
+    /** Returns the total time spent executing commands in the session, in nanoseconds. */
+    public synchronized long getTotalLatencyNanos() {
+        return mTotalLatencyNanos;
+    }
+
+    public synchronized boolean isClosed() {
+        return mClosed;
+    }
+
+    /** Ends the shell. Further commands fail. */
+    @Override
+    public synchronized void close() {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        closeStreams();
+    }
+
+    private void closeStreams() {
+        try {
+            mInput.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Error closing the shell input", e);
+        }
+        try {
+            mOutput.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Error closing the shell output", e);
+        }
+    }
+
+    /** Output, exit code and latency of a command executed in a {@link ShellSession}. */
+    public static class Result {
+        private final byte[] mOutput;
+        private final int mExitCode;
+        private long mLatencyNanos;
+
+        private Result(byte[] output, int exitCode) {
+            mOutput = output;
+            mExitCode = exitCode;
+        }
+
+        /** Returns the standard output and error of the command. */
+        public byte[] getOutput() {
+            return mOutput;
+        }
+
+        /** Returns the output of the command as a UTF-8 string. */
+        public String getOutputString() {
+            return new String(mOutput, StandardCharsets.UTF_8);
+        }
+
+        public int getExitCode() {
+            return mExitCode;
+        }
+
+        /** Returns the time from sending the command to reading its whole output. */
+        public long getLatencyNanos() {
+            return mLatencyNanos;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.helpers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Android Unit tests for {@link ShellSession}, against a fake shell.
+ *
+ * <p>atest CollectorsHelperAospTest:com.android.helpers.ShellSessionTest
+ */
+@RunWith(AndroidJUnit4.class)
+public class ShellSessionTest {
+
+    private FakeShell mShell;
+    private ShellSession mSession;
+
+    @Before
+    public void setUp() throws IOException {
+        mShell = new FakeShell();
+        mSession = new ShellSession(mShell.mStdin, mShell.mStdout, mShell::kill);
+    }
+
+    @After
+    public void tearDown() {
+        mSession.close();
+        mShell.kill();
+    }
+
+    /** Test that the output and the exit code of each command are returned. */
+    @Test
+    public void testExecute() throws IOException {
+        mShell.respond("echo hello", "hello\n", 0);
+        mShell.respond("ls /nonexistent", "ls: /nonexistent: No such file or directory\n", 1);
+        mShell.respond("missing", "sh: missing: not found\n", 127);
+
+        ShellSession.Result hello = mSession.execute("echo hello");
+        ShellSession.Result ls = mSession.execute("ls /nonexistent");
+        ShellSession.Result missing = mSession.execute("missing");
+
+        assertEquals("hello\n", hello.getOutputString());
+        assertEquals(0, hello.getExitCode());
+        assertEquals("ls: /nonexistent: No such file or directory\n", ls.getOutputString());
+        assertEquals(1, ls.getExitCode());
+        assertEquals("sh: missing: not found\n", missing.getOutputString());
+        assertEquals(127, missing.getExitCode());
+        assertEquals(3, mSession.getCommandCount());
+        assertTrue(hello.getLatencyNanos() > 0);
+        assertEquals(
+                hello.getLatencyNanos() + ls.getLatencyNanos() + missing.getLatencyNanos(),
+                mSession.getTotalLatencyNanos());
+    }
+
+    /** Test that commands are sent on their own lines, with their input and error redirected. */
+    @Test
+    public void testExecute_framing() throws IOException {
+        mShell.respond("echo a # comment", "a\n", 0);
+        mShell.respond("echo b &&\necho c", "b\nc\n", 0);
+
+        mSession.execute("echo a # comment");
+        mSession.execute("echo b &&\necho c");
+
+        assertEquals(Arrays.asList("echo a # comment", "echo b &&\necho c"), mShell.getCommands());
+        assertEquals(Arrays.asList("0", "1"), mShell.getRequestIds());
+    }
+
+    /** Test that an output that doesn't end with a line break is returned as is. */
+    @Test
+    public void testExecute_noTrailingNewline() throws IOException {
+        mShell.respond("printf abc", "abc", 0);
+
+        assertEquals("abc", mSession.execute("printf abc").getOutputString());
+    }
+
+    /** Test that an output that looks like the end marker is returned as is. */
+    @Test
+    public void testExecute_outputContainsMarker() throws IOException {
+        String output = "a\n\n__shell_session_end_9 1\n__shell_session_end_0\nb";
+        mShell.respond("cat file", output, 2);
+
+        ShellSession.Result result = mSession.execute("cat file");
+
+        assertEquals(output, result.getOutputString());
+        assertEquals(2, result.getExitCode());
+    }
+
+    /** Test that binary output is returned unchanged. */
+    @Test
+    public void testExecute_binaryOutput() throws IOException {
+        byte[] output = new byte[3 * MetricUtility.BUFFER_SIZE];
+        for (int i = 0; i < output.length; i++) {
+            output[i] = (byte) i;
+        }
+        mShell.respond("cat binary", new String(output, StandardCharsets.ISO_8859_1), 0);
+
+        assertArrayEquals(output, mSession.execute("cat binary").getOutput());
+    }
+
+    /** Test that a command that times out kills the shell and closes the session. */
+    @Test
+    public void testExecute_timeout() throws IOException {
+        mShell.respond("echo after", "after\n", 0);
+
+        try {
+            mSession.execute("sleep 100", 100);
+            fail("Expected IOException");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("Timed out after 100 ms"));
+        }
+        assertTrue(mShell.isKilled());
+        assertTrue(mSession.isClosed());
+        try {
+            mSession.execute("echo after");
+            fail("Expected IOException");
+        } catch (IOException expected) {
+            // Closed session.
+        }
+    }
+
+    /** Test that a command completing before its timeout doesn't kill the shell. */
+    @Test
+    public void testExecute_noTimeout() throws IOException, InterruptedException {
+        mShell.respond("echo hello", "hello\n", 0);
+
+        mSession.execute("echo hello", 100);
+        Thread.sleep(200);
+
+        assertFalse(mShell.isKilled());
+        assertFalse(mSession.isClosed());
+    }
+
+    /** Test that the session is closed when the shell exits. */
+    @Test
+    public void testExecute_shellExited() {
+        try {
+            mSession.execute("exit");
+            fail("Expected IOException");
+        } catch (IOException expected) {
+            assertEquals("Shell session ended", expected.getMessage());
+        }
+        assertTrue(mSession.isClosed());
+    }
+
+    /** Test that the output is null when the command can't be run. */
+    @Test
+    public void testExecuteCommandBlocking() {
+        mShell.respond("echo hello", "hello\n", 0);
+
+        assertArrayEquals(
+                "hello\n".getBytes(StandardCharsets.UTF_8),
+                mSession.executeCommandBlocking("echo hello"));
+        assertEquals(null, mSession.executeCommandBlocking("exit"));
+    }
+
+    /**
+     * Shell answering the requests of a {@link ShellSession} with canned responses. Commands
+     * without a response never complete, except for "exit" which ends the shell.
+     */
+    private static class FakeShell {
+        private static final Pattern END =
+                Pattern.compile(
+                        "^\\} </dev/null 2>&1; printf '\\\\n(\\S+)_(\\d+) %d\\\\n' \\$\\?$");
+
+        final PipedOutputStream mStdin = new PipedOutputStream();
+        final PipedInputStream mStdout = new PipedInputStream(4 * MetricUtility.BUFFER_SIZE);
+        private final PipedOutputStream mStdoutWriter = new PipedOutputStream(mStdout);
+        private final BufferedReader mRequests;
+        private final Map<String, String> mOutputs = new HashMap<>();
+        private final Map<String, Integer> mExitCodes = new HashMap<>();
+        private final List<String> mCommands = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> mRequestIds = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean mKilled;
+
+        FakeShell() throws IOException {
+            mRequests =
+                    new BufferedReader(
+                            new InputStreamReader(
+                                    new PipedInputStream(mStdin), StandardCharsets.ISO_8859_1));
+            Thread thread = new Thread(this::run);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        synchronized void respond(String command, String output, int exitCode) {
+            mOutputs.put(command, output);
+            mExitCodes.put(command, exitCode);
+        }
+
+        List<String> getCommands() {
+            return mCommands;
+        }
+
+        List<String> getRequestIds() {
+            return mRequestIds;
+        }
+
+        boolean isKilled() {
+            return mKilled;
+        }
+
+        void kill() {
+            mKilled = true;
+            try {
+                mStdoutWriter.close();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+
+        private void run() {
+            try {
+                String line;
+                // Each request starts with a "{" line.
+                while ((line = mRequests.readLine()) != null) {
+                    StringBuilder command = new StringBuilder();
+                    Matcher end;
+                    while (!(end = END.matcher(line = mRequests.readLine())).matches()) {
+                        if (command.length() > 0) {
+                            command.append('\n');
+                        }
+                        command.append(line);
+                    }
+                    mCommands.add(command.toString());
+                    mRequestIds.add(end.group(2));
+                    if (command.toString().equals("exit")) {
+                        kill();
+                        return;
+                    }
+                    String output;
+                    int exitCode;
+                    synchronized (this) {
+                        if (!mOutputs.containsKey(command.toString())) {
+                            continue;
+                        }
+                        output = mOutputs.get(command.toString());
+                        exitCode = mExitCodes.get(command.toString());
+                    }
+                    String response = output + "\n" + end.group(1) + "_" + end.group(2) + " "
+                            + exitCode + "\n";
+                    mStdoutWriter.write(response.getBytes(StandardCharsets.ISO_8859_1));
+                    mStdoutWriter.flush();
+                }
+            } catch (IOException e) {
+                // Killed.
+            }
+        }
+    }
+}
@@ -24,7 +24,11 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -43,6 +47,17 @@ public abstract class BusinessLogicExecutor {
     /* List of regexes indicating a method arg should be redacted in the logs */
     protected List<String> mRedactionRegexes = new ArrayList<>();
 
+    /*
+     * Business logic evaluates the same few methods over and over, so the classes and the public
+     * methods of each class by name are resolved once per process and shared by all executors.
+     * The methods are still invoked by reflection: a cached Method is invoked faster than a
+     * method handle spreading an argument array, on the host JVM and even more so on ART, see
+     * BusinessLogicExecutorBenchmark.
+     */
+    private static final Map<String, Class<?>> sClasses = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Map<String, List<Method>>> sMethodsByName =
+            new ConcurrentHashMap<>();
+
     /**
      * Execute a business logic condition.
      * @param method the name of the method to invoke. Must include fully qualified name of the
@@ -143,7 +158,7 @@ public abstract class BusinessLogicExecutor {
                     + "For example, \"com.android.packagename.ClassName.methodName\".", method));
         }
         String className = method.substring(0, index);
-        Class cls = Class.forName(className);
+        Class cls = loadClass(className);
         Object obj = null;
         if (getTestObject() != null && cls.isAssignableFrom(getTestObject().getClass())) {
             // The given method is a member of the test class, use the known test class instance
@@ -157,6 +172,16 @@ public abstract class BusinessLogicExecutor {
         return rm.invoke(obj);
     }
 
+    /** Returns the named class, loading it on first use like {@link Class#forName}. */
+    private static Class<?> loadClass(String className) throws ClassNotFoundException {
+        Class<?> cls = sClasses.get(className);
+        if (cls == null) {
+            cls = Class.forName(className);
+            sClasses.put(className, cls);
+        }
+        return cls;
+    }
+
     /**
      * Log information with whichever logging mechanism is available to the instance. This varies
      * from host-side to device-side, so implementations are left to subclasses.
@@ -199,13 +224,16 @@ public abstract class BusinessLogicExecutor {
      * @return a list of method objects
      */
     protected List<Method> getMethodsWithName(Class cls, String name) {
-        List<Method> methodList = new ArrayList<>();
-        for (Method m : cls.getMethods()) {
-            if (name.equals(m.getName())) {
-                methodList.add(m);
+        Map<String, List<Method>> methodsByName = sMethodsByName.get(cls);
+        if (methodsByName == null) {
+            methodsByName = new HashMap<>();
+            for (Method m : ((Class<?>) cls).getMethods()) {
+                methodsByName.computeIfAbsent(m.getName(), k -> new ArrayList<>()).add(m);
             }
+            sMethodsByName.put(cls, methodsByName);
         }
-        return methodList;
+        // Callers are free to modify the list, so hand out a copy.
+        return new ArrayList<>(methodsByName.getOrDefault(name, Collections.emptyList()));
     }
 
     /**
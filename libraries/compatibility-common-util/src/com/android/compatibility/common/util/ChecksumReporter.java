@@ -21,9 +21,13 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 import com.google.common.hash.BloomFilter;
 import com.google.common.hash.Funnels;
+import com.google.common.hash.Hashing;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -31,18 +35,32 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 /***
  * Calculate and store checksum values for files and test results
+ *
+ * <p>Checksums are saved in a binary format: a header, the bits of the bloom filter of the test
+ * results, then a table of the file checksums sorted by the hash of their path, each entry being
+ * the 64-bit path hash followed by the SHA-256 of the file. Loading a checksum file only reads
+ * the bloom filter, the table is memory-mapped and binary searched by {@link #containsFile}.
+ * Checksum files written by older versions with Java serialization can still be loaded.
  */
 public final class ChecksumReporter implements Serializable {
 
@@ -57,9 +75,19 @@ public final class ChecksumReporter implements Serializable {
     private static final short CURRENT_VERSION = 1;
     // Serialized format Id (ie magic number) used to identify serialized data.
     static final short SERIALIZED_FORMAT_CODE = 650;
+    // Magic number of the binary format, "CKSM".
+    static final int BINARY_FORMAT_CODE = 0x434b534d;
+    // Stream magic number of Java serialization, used by the older serialized format.
+    private static final short JAVA_SERIALIZATION_MAGIC = (short) 0xaced;
+    private static final int FILE_CHECKSUM_LENGTH = 32;
+    // Entries of the file checksum table: path hash followed by the file checksum.
+    private static final int FILE_ENTRY_LENGTH = Long.BYTES + FILE_CHECKSUM_LENGTH;
 
     private final BloomFilter<CharSequence> mResultChecksum;
-    private final HashMap<String, byte[]> mFileChecksum;
+    // Checksums of the files added to this instance, or loaded from the older serialized format.
+    private final Map<String, byte[]> mFileChecksum;
+    // Table of the file checksums loaded from the binary format, or null.
+    private final transient ByteBuffer mFileChecksumTable;
     private final short mVersion;
 
     /***
@@ -103,18 +131,30 @@ public final class ChecksumReporter implements Serializable {
      */
     public ChecksumReporter(File directory) throws ChecksumValidationException {
         File file = new File(directory, ChecksumReporter.NAME);
-        try (FileInputStream fileStream = new FileInputStream(file);
-            InputStream outputStream = new BufferedInputStream(fileStream);
-            ObjectInput objectInput = new ObjectInputStream(outputStream)) {
-            short magicNumber = objectInput.readShort();
-            switch (magicNumber) {
-                case SERIALIZED_FORMAT_CODE:
-                   mVersion = objectInput.readShort();
-                    mResultChecksum = (BloomFilter<CharSequence>) objectInput.readObject();
-                    mFileChecksum = (HashMap<String, byte[]>) objectInput.readObject();
-                    break;
-                default:
-                    throw new ChecksumValidationException("Unknown format of serialized data.");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getShort(0) == JAVA_SERIALIZATION_MAGIC) {
+                ChecksumReporter reporter = readSerializedFormat(file);
+                mVersion = reporter.mVersion;
+                mResultChecksum = reporter.mResultChecksum;
+                mFileChecksum = reporter.mFileChecksum;
+                mFileChecksumTable = null;
+            } else if (buffer.getInt() == BINARY_FORMAT_CODE) {
+                mVersion = buffer.getShort();
+                byte[] resultChecksum = new byte[buffer.getInt()];
+                buffer.get(resultChecksum);
+                mResultChecksum =
+                        BloomFilter.readFrom(
+                                new ByteArrayInputStream(resultChecksum),
+                                Funnels.unencodedCharsFunnel());
+                int fileCount = buffer.getInt();
+                if (fileCount < 0 || buffer.remaining() != fileCount * FILE_ENTRY_LENGTH) {
+                    throw new ChecksumValidationException("Invalid size of file checksums.");
+                }
+                mFileChecksumTable = buffer.slice();
+                mFileChecksum = new ConcurrentHashMap<>();
+            } else {
+                throw new ChecksumValidationException("Unknown format of serialized data.");
             }
         } catch (Exception e) {
             throw new ChecksumValidationException("Unable to load checksum from file", e);
@@ -131,12 +171,44 @@ public final class ChecksumReporter implements Serializable {
      * @param fpp the false positive percentage for result lookup misses
      */
     public ChecksumReporter(int testCount, double fpp, short version) {
-        mResultChecksum = BloomFilter.create(Funnels.unencodedCharsFunnel(),
-                testCount, fpp);
-        mFileChecksum = new HashMap<>();
+        this(BloomFilter.create(Funnels.unencodedCharsFunnel(), testCount, fpp),
+                new ConcurrentHashMap<>(), version);
+    }
+
+    private ChecksumReporter(BloomFilter<CharSequence> resultChecksum,
+            Map<String, byte[]> fileChecksum, short version) {
+        mResultChecksum = resultChecksum;
+        mFileChecksum = fileChecksum;
+        mFileChecksumTable = null;
         mVersion = version;
     }
 
+    /***
+     * Deserialize checksum from a file in the older format, written with Java serialization
+     */
+    @SuppressWarnings("unchecked")
+    private static ChecksumReporter readSerializedFormat(File file)
+            throws IOException, ClassNotFoundException, ChecksumValidationException {
+        try (FileInputStream fileStream = new FileInputStream(file);
+            InputStream inputStream = new BufferedInputStream(fileStream);
+            ObjectInput objectInput = new ObjectInputStream(inputStream)) {
+            short magicNumber = objectInput.readShort();
+            switch (magicNumber) {
+                case SERIALIZED_FORMAT_CODE:
+                    short version = objectInput.readShort();
+                    BloomFilter<CharSequence> resultChecksum =
+                            (BloomFilter<CharSequence>) objectInput.readObject();
+                    Map<String, byte[]> fileChecksum =
+                            (Map<String, byte[]>) objectInput.readObject();
+                    // Files may be added concurrently, see addDirectory.
+                    return new ChecksumReporter(
+                            resultChecksum, new ConcurrentHashMap<>(fileChecksum), version);
+                default:
+                    throw new ChecksumValidationException("Unknown format of serialized data.");
+            }
+        }
+    }
+
     /***
      * Add each test result from each module and test case
      */
@@ -171,11 +243,14 @@ public final class ChecksumReporter implements Serializable {
     @VisibleForTesting
     public boolean containsFile(File file, String path) {
         String key = path + SEPARATOR + file.getName();
-        if (mFileChecksum.containsKey(key))
-        {
+        byte[] expectedCrc = mFileChecksum.get(key);
+        if (expectedCrc == null && mFileChecksumTable != null) {
+            expectedCrc = findFileChecksum(hashPath(key));
+        }
+        if (expectedCrc != null) {
             try {
                 byte[] crc = calculateFileChecksum(file);
-                return Arrays.equals(mFileChecksum.get(key), crc);
+                return Arrays.equals(expectedCrc, crc);
             } catch (ChecksumValidationException e) {
                 return false;
             }
@@ -183,24 +258,67 @@ public final class ChecksumReporter implements Serializable {
         return false;
     }
 
+    /***
+     * Binary search the loaded file checksum table
+     * @return the checksum of the file with the given path hash, or null if there is none
+     */
+    private byte[] findFileChecksum(long pathHash) {
+        int low = 0;
+        int high = mFileChecksumTable.limit() / FILE_ENTRY_LENGTH - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = middle * FILE_ENTRY_LENGTH;
+            long middleHash = mFileChecksumTable.getLong(offset);
+            if (middleHash < pathHash) {
+                low = middle + 1;
+            } else if (middleHash > pathHash) {
+                high = middle - 1;
+            } else {
+                return readFileChecksum(offset);
+            }
+        }
+        return null;
+    }
+
+    private byte[] readFileChecksum(int offset) {
+        byte[] crc = new byte[FILE_CHECKSUM_LENGTH];
+        ByteBuffer entry = mFileChecksumTable.duplicate();
+        entry.position(offset + Long.BYTES);
+        entry.get(crc);
+        return crc;
+    }
+
+    private static long hashPath(String key) {
+        return Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+
     /***
      * Adds all child files recursively through all sub directories
+     *
+     * <p>The files are hashed in parallel.
      * @param directory target that is deeply searched for files
      */
     public void addDirectory(File directory) {
-        addDirectory(directory, directory.getName());
+        List<File> files = new ArrayList<>();
+        List<String> paths = new ArrayList<>();
+        listFiles(directory, directory.getName(), files, paths);
+        IntStream.range(0, files.size())
+                .parallel()
+                .forEach(i -> addFile(files.get(i), paths.get(i)));
     }
 
     /***
      * @param path the relative path to the current directory from the base directory
      */
-    private void addDirectory(File directory, String path) {
+    private static void listFiles(
+            File directory, String path, List<File> files, List<String> paths) {
         for(String childName : directory.list()) {
             File child = new File(directory, childName);
             if (child.isDirectory()) {
-                addDirectory(child, path + SEPARATOR + child.getName());
+                listFiles(child, path + SEPARATOR + child.getName(), files, paths);
             } else {
-                addFile(child, path);
+                files.add(child);
+                paths.add(path);
             }
         }
     }
@@ -246,20 +364,50 @@ public final class ChecksumReporter implements Serializable {
 
     /***
      * Write the checksum data to disk.
-     * Overwrites existing file
+     * Overwrites existing file. The data is written to a temporary file first and then renamed,
+     * so that a checksum file mapped by a loaded instance is never modified in place.
      * @param directory
      * @throws IOException
      */
     public void saveToFile(File directory) throws IOException {
         File file = new File(directory, NAME);
 
-        try (FileOutputStream fileStream = new FileOutputStream(file, false);
-             OutputStream outputStream = new BufferedOutputStream(fileStream);
-             ObjectOutput objectOutput = new ObjectOutputStream(outputStream)) {
-            objectOutput.writeShort(SERIALIZED_FORMAT_CODE);
-            objectOutput.writeShort(mVersion);
-            objectOutput.writeObject(mResultChecksum);
-            objectOutput.writeObject(mFileChecksum);
+        // File checksums sorted by path hash. Files that couldn't be hashed never match, so they
+        // are left out.
+        TreeMap<Long, byte[]> fileChecksums = new TreeMap<>();
+        if (mFileChecksumTable != null) {
+            for (int offset = 0; offset < mFileChecksumTable.limit();
+                    offset += FILE_ENTRY_LENGTH) {
+                fileChecksums.put(mFileChecksumTable.getLong(offset), readFileChecksum(offset));
+            }
+        }
+        for (Map.Entry<String, byte[]> entry : mFileChecksum.entrySet()) {
+            if (entry.getValue().length == FILE_CHECKSUM_LENGTH) {
+                fileChecksums.put(hashPath(entry.getKey()), entry.getValue());
+            }
+        }
+        ByteArrayOutputStream resultChecksum = new ByteArrayOutputStream();
+        mResultChecksum.writeTo(resultChecksum);
+
+        File tempFile = File.createTempFile(NAME, null, directory);
+        try {
+            try (FileOutputStream fileStream = new FileOutputStream(tempFile, false);
+                 DataOutputStream output =
+                         new DataOutputStream(new BufferedOutputStream(fileStream))) {
+                output.writeInt(BINARY_FORMAT_CODE);
+                output.writeShort(mVersion);
+                output.writeInt(resultChecksum.size());
+                resultChecksum.writeTo(output);
+                output.writeInt(fileChecksums.size());
+                for (Map.Entry<Long, byte[]> entry : fileChecksums.entrySet()) {
+                    output.writeLong(entry.getKey());
+                    output.write(entry.getValue());
+                }
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tempFile.delete();
         }
     }
 
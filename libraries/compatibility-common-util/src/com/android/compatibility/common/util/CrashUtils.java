@@ -23,6 +23,10 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -60,9 +64,11 @@ public class CrashUtils {
     public static final String FILENAME = "filename";
     public static final String METHOD = "method";
     public static final String BACKTRACE = "backtrace";
-    // Matches the smallest blob that has the appropriate header and footer
-    private static final Pattern sCrashBlobPattern =
-            Pattern.compile("DEBUG\\s+?:( [*]{3})+?.*?DEBUG\\s+?:\\s+?backtrace:", Pattern.DOTALL);
+    // Matches the header of a crash, a crash blob being everything from it to the end of a crash
+    private static final Pattern sCrashStartPattern = Pattern.compile("DEBUG\\s+?:( [*]{3})");
+    // Maximum number of characters kept from the header of a crash to the end of it. The crash is
+    // still reported when its backtrace comes later, parsed from the characters that were kept.
+    static final int MAX_CRASH_BLOB_CHARS = 1 << 20;
     // Matches process id and name line and captures them
     private static final Pattern sPidtidNamePattern =
             Pattern.compile("pid: (\\d+?), tid: (\\d+?), name: ([^\\s]+?\\s+?)*?>>> (.*?) <<<");
@@ -226,71 +232,82 @@ public class CrashUtils {
 
     /** Adds all crashes found in the input as JSONObjects to the given JSONArray */
     public static JSONArray addAllCrashes(String input, JSONArray crashes) {
-        Matcher crashBlobFinder = sCrashBlobPattern.matcher(input);
-        while (crashBlobFinder.find()) {
-            String crashStr = crashBlobFinder.group(0);
-            int tid = 0;
-            int pid = 0;
-            BigInteger faultAddress = null;
-            String name = null;
-            String process = null;
-            String signal = null;
-            String abortMessage = null;
-            List<BacktraceFrameInfo> backtraceFrames = new ArrayList<BacktraceFrameInfo>();
+        try {
+            return addAllCrashes(new StringReader(input), crashes);
+        } catch (IOException e) {
+            // Reading from a string doesn't fail.
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            Matcher pidtidNameMatcher = sPidtidNamePattern.matcher(crashStr);
-            if (pidtidNameMatcher.find()) {
-                try {
-                    pid = Integer.parseInt(pidtidNameMatcher.group(1));
-                } catch (NumberFormatException e) {
-                }
-                try {
-                    tid = Integer.parseInt(pidtidNameMatcher.group(2));
-                } catch (NumberFormatException e) {
+    /**
+     * Adds all crashes found in the logcat read from the input as JSONObjects to the given
+     * JSONArray.
+     *
+     * <p>The logcat is read one line at a time, and only the lines of the crash being parsed are
+     * kept in memory, from its header to the start of its backtrace. A crash header that is
+     * followed by another one before a backtrace is ignored. At most {@link
+     * #MAX_CRASH_BLOB_CHARS} characters are kept from a crash header, so that lines interleaved
+     * by other processes don't grow the crash blob without bounds. The fields of the crash are
+     * right after its header, so they are still found in what was kept.
+     */
+    public static JSONArray addAllCrashes(Reader input, JSONArray crashes) throws IOException {
+        LineReader reader = new LineReader(input);
+        // The crash blob being read, from its header up to the current line, or null.
+        StringBuilder crashBlob = null;
+        String line = reader.readLine();
+        // Offset in the current line where the crash blob or its end is searched from.
+        int searchStart = 0;
+        while (line != null) {
+            if (crashBlob == null) {
+                Matcher crashStartMatcher = sCrashStartPattern.matcher(line);
+                if (!mayStartCrash(line) || !crashStartMatcher.find()) {
+                    line = reader.readLine();
+                    continue;
                 }
-                name = pidtidNameMatcher.group(3).trim();
-                process = pidtidNameMatcher.group(4).trim();
+                crashBlob = new StringBuilder();
+                // Keep the header for the crash blob, but don't match the end of crash in it.
+                crashBlob.append(line, crashStartMatcher.start(), crashStartMatcher.end());
+                searchStart = crashStartMatcher.end();
             }
 
-            Matcher faultLineMatcher = sFaultLinePattern.matcher(crashStr);
-            if (faultLineMatcher.find()) {
-                signal = faultLineMatcher.group(1);
-                String faultAddrMatch = faultLineMatcher.group(2);
-                if (faultAddrMatch != null) {
-                    try {
-                        faultAddress = new BigInteger(faultAddrMatch, 16);
-                    } catch (NumberFormatException e) {
-                    }
+            int endOfCrash = findEndOfCrash(line, searchStart);
+            if (endOfCrash < 0) {
+                if (searchStart == 0
+                        && mayStartCrash(line)
+                        && sCrashStartPattern.matcher(line).find()) {
+                    // The crash has no backtrace, parse the next one from this line.
+                    crashBlob = null;
+                    continue;
                 }
+                if (crashBlob.length() < MAX_CRASH_BLOB_CHARS) {
+                    crashBlob.append(line, searchStart, line.length()).append('\n');
+                }
+                line = reader.readLine();
+                searchStart = 0;
+                continue;
             }
-
-            Matcher abortMessageMatcher = sAbortMessagePattern.matcher(crashStr);
-            if (abortMessageMatcher.find()) {
-                abortMessage = abortMessageMatcher.group(1);
-            }
+            crashBlob.append(line, searchStart, endOfCrash);
 
             // Continue on after the crash block to find all the stacktrace entries.
             // The format is from tombstone_proto_to_text.cpp's print_thread_backtrace()
             // This will scan the logcat lines until it finds a line that does not match,
-            // or end of log.
-            int currentIndex = crashBlobFinder.end();
-            while (true) {
-                int firstEndline = input.indexOf('\n', currentIndex);
-                int secondEndline = input.indexOf('\n', firstEndline + 1);
-                currentIndex = secondEndline;
-                if (firstEndline == -1 || secondEndline == -1) break;
-
-                String nextLine = input.substring(firstEndline + 1, secondEndline);
-
-                Matcher backtraceNoteMatcher = sBacktraceNotePattern.matcher(nextLine);
-                if (backtraceNoteMatcher.matches()) {
+            // or end of log. The last line is only scanned if it ends with a line break.
+            List<BacktraceFrameInfo> backtraceFrames = new ArrayList<BacktraceFrameInfo>();
+            while ((line = reader.readLine()) != null && reader.isLineTerminated()) {
+                // The literal parts of the patterns rule out most lines without matching them.
+                if (line.indexOf("NOTE: ") >= 0
+                        && sBacktraceNotePattern.matcher(line).matches()) {
                     continue;
                 }
+                if (line.indexOf(" pc ") < 0) {
+                    break;
+                }
 
                 Matcher backtraceFrameWithBuildIdMatcher =
-                        sBacktraceFrameWithBuildIdPattern.matcher(nextLine);
+                        sBacktraceFrameWithBuildIdPattern.matcher(line);
                 Matcher backtraceFrameWithoutBuildIdMatcher =
-                        sBacktraceFrameWithoutBuildIdPattern.matcher(nextLine);
+                        sBacktraceFrameWithoutBuildIdPattern.matcher(line);
 
                 Matcher backtraceFrameMatcher = null;
                 if (backtraceFrameWithBuildIdMatcher.matches()) {
@@ -308,28 +325,145 @@ public class CrashUtils {
                                 backtraceFrameMatcher.group("filename"),
                                 backtraceFrameMatcher.group("method")));
             }
+            addCrash(crashBlob.toString(), backtraceFrames, crashes);
+
+            // The line ending the backtrace may start the next crash.
+            crashBlob = null;
+            searchStart = 0;
+        }
+        return crashes;
+    }
+
+    /** Returns false if the line can't hold a crash header, cheaper than matching it. */
+    private static boolean mayStartCrash(String line) {
+        return line.indexOf("DEBUG") >= 0 && line.indexOf(" ***") >= 0;
+    }
+
+    /**
+     * Returns the offset after the end of crash in the line, searched from the start offset, or
+     * -1 if there is none.
+     */
+    private static int findEndOfCrash(String line, int start) {
+        if (line.indexOf("backtrace:", start) < 0) {
+            return -1;
+        }
+        Matcher endOfCrashMatcher = sEndofCrashPattern.matcher(line);
+        return endOfCrashMatcher.find(start) ? endOfCrashMatcher.end() : -1;
+    }
 
+    /** Adds the crash parsed from the crash blob and its backtrace to the given JSONArray */
+    private static void addCrash(
+            String crashStr, List<BacktraceFrameInfo> backtraceFrames, JSONArray crashes) {
+        int tid = 0;
+        int pid = 0;
+        BigInteger faultAddress = null;
+        String name = null;
+        String process = null;
+        String signal = null;
+        String abortMessage = null;
+
+        Matcher pidtidNameMatcher = sPidtidNamePattern.matcher(crashStr);
+        if (pidtidNameMatcher.find()) {
             try {
-                JSONObject crash = new JSONObject();
-                crash.put(PID, pid);
-                crash.put(TID, tid);
-                crash.put(NAME, name);
-                crash.put(PROCESS, process);
-                crash.put(FAULT_ADDRESS, faultAddress == null ? null : faultAddress.toString(16));
-                crash.put(SIGNAL, signal);
-                crash.put(ABORT_MESSAGE, abortMessage);
-                JSONArray backtrace = new JSONArray();
-                for (BacktraceFrameInfo frame : backtraceFrames) {
-                    backtrace.put(
-                            new JSONObject()
-                                    .put(FILENAME, frame.getFilename())
-                                    .put(METHOD, frame.getMethod()));
+                pid = Integer.parseInt(pidtidNameMatcher.group(1));
+            } catch (NumberFormatException e) {
+            }
+            try {
+                tid = Integer.parseInt(pidtidNameMatcher.group(2));
+            } catch (NumberFormatException e) {
+            }
+            name = pidtidNameMatcher.group(3).trim();
+            process = pidtidNameMatcher.group(4).trim();
+        }
+
+        Matcher faultLineMatcher = sFaultLinePattern.matcher(crashStr);
+        if (faultLineMatcher.find()) {
+            signal = faultLineMatcher.group(1);
+            String faultAddrMatch = faultLineMatcher.group(2);
+            if (faultAddrMatch != null) {
+                try {
+                    faultAddress = new BigInteger(faultAddrMatch, 16);
+                } catch (NumberFormatException e) {
                 }
-                crash.put(BACKTRACE, backtrace);
-                crashes.put(crash);
-            } catch (JSONException e) {}
+            }
+        }
+
+        Matcher abortMessageMatcher = sAbortMessagePattern.matcher(crashStr);
+        if (abortMessageMatcher.find()) {
+            abortMessage = abortMessageMatcher.group(1);
+        }
+
+        try {
+            JSONObject crash = new JSONObject();
+            crash.put(PID, pid);
+            crash.put(TID, tid);
+            crash.put(NAME, name);
+            crash.put(PROCESS, process);
+            crash.put(FAULT_ADDRESS, faultAddress == null ? null : faultAddress.toString(16));
+            crash.put(SIGNAL, signal);
+            crash.put(ABORT_MESSAGE, abortMessage);
+            JSONArray backtrace = new JSONArray();
+            for (BacktraceFrameInfo frame : backtraceFrames) {
+                backtrace.put(
+                        new JSONObject()
+                                .put(FILENAME, frame.getFilename())
+                                .put(METHOD, frame.getMethod()));
+            }
+            crash.put(BACKTRACE, backtrace);
+            crashes.put(crash);
+        } catch (JSONException e) {}
+    }
+
+    /**
+     * Reads lines separated by '\n' only, like the logcat lines of the crash blobs, and tells
+     * whether the last line read ended with a line break.
+     */
+    private static final class LineReader {
+        private final Reader mInput;
+        private final char[] mBuffer = new char[8192];
+        private int mPosition;
+        private int mLimit;
+        private boolean mLineTerminated;
+
+        LineReader(Reader input) {
+            mInput = input;
+        }
+
+        /** Returns the next line without its line break, or null at the end of the input. */
+        String readLine() throws IOException {
+            StringBuilder line = null;
+            while (true) {
+                if (mPosition == mLimit) {
+                    int length = mInput.read(mBuffer);
+                    if (length < 0) {
+                        mLineTerminated = false;
+                        return line == null ? null : line.toString();
+                    }
+                    mPosition = 0;
+                    mLimit = length;
+                }
+                int start = mPosition;
+                while (mPosition < mLimit && mBuffer[mPosition] != '\n') {
+                    mPosition++;
+                }
+                if (mPosition < mLimit) {
+                    mLineTerminated = true;
+                    int length = mPosition++ - start;
+                    // Most lines are within the buffer, don't copy them twice.
+                    return line == null
+                            ? new String(mBuffer, start, length)
+                            : line.append(mBuffer, start, length).toString();
+                }
+                if (line == null) {
+                    line = new StringBuilder(mPosition - start);
+                }
+                line.append(mBuffer, start, mPosition - start);
+            }
+        }
+
+        boolean isLineTerminated() {
+            return mLineTerminated;
         }
-        return crashes;
     }
 
     public static class BacktraceFrameInfo {
@@ -6,18 +6,33 @@ import com.google.common.base.Joiner;
 import com.google.common.io.Closeables;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Inherit this class and implement {@link #executeShellCommand(String)} to be able to assert that
  * logcat contains what you want.
+ *
+ * <p>The assertions on this class dump the whole logcat buffer on every poll. To avoid that, use
+ * {@link #follow(String)} to read a single logcat stream incrementally, and share it across the
+ * assertions of a test.
  */
 public abstract class LogcatInspector {
     private static final int SMALL_LOGCAT_DELAY = 1000;
+    // Tag of the marks logged by LogcatFollower, always let through its filter.
+    static final String FOLLOWER_MARK_TAG = "LogcatFollower";
+    // Maximum number of lines a LogcatFollower keeps, the oldest ones are dropped first.
+    static final int MAX_FOLLOWED_LINES = 50_000;
+
+    private LogcatFollower mFollower;
 
     /**
      * Should execute adb shell {@param command} and return an {@link InputStream} with the result.
@@ -134,4 +149,198 @@ public abstract class LogcatInspector {
         }
         return stringIndex;
     }
+
+    /**
+     * Start following logcat with {@param filterSpec}, starting from the most recent line. The
+     * returned {@link LogcatFollower} reads the stream incrementally and can be used for several
+     * consecutive assertions. Any follower previously returned by this method is closed.
+     *
+     * <p>The marks of {@link LogcatFollower#mark()} are logged with the {@link #FOLLOWER_MARK_TAG}
+     * tag, which is added to {@param filterSpec} so that they are followed whatever the filter.
+     *
+     * @throws IOException if error while executing command.
+     */
+    public LogcatFollower follow(String filterSpec) throws IOException {
+        if (mFollower != null) {
+            mFollower.close();
+        }
+        // '-T 1' -> Start from the most recent line and keep following, instead of dumping the
+        // whole buffer.
+        mFollower =
+                new LogcatFollower(
+                        executeShellCommand(
+                                "logcat -v epoch -v usec -T 1 "
+                                        + filterSpec
+                                        + " "
+                                        + FOLLOWER_MARK_TAG
+                                        + ":I"));
+        return mFollower;
+    }
+
+    /**
+     * A single logcat stream read incrementally. Lines are read on a background thread and kept
+     * from the last {@link #mark()}, so that each assertion sees all the lines logged since
+     * the mark, like the dump based assertions of {@link LogcatInspector} do, while only reading
+     * each line from the device once.
+     *
+     * <p>At most {@link #MAX_FOLLOWED_LINES} lines are kept, older lines are dropped, so assertions
+     * that need more lines than that since the mark may miss them.
+     */
+    public final class LogcatFollower implements Closeable {
+        // Queued at the end of the stream, readLine() never returns a line break.
+        private static final String END_OF_STREAM = "\n";
+        private final InputStream mLogcatStream;
+        private final BlockingQueue<String> mPendingLines =
+                new LinkedBlockingQueue<>(MAX_FOLLOWED_LINES);
+        private final Deque<String> mLinesSinceMark = new ArrayDeque<>();
+        private final Thread mReaderThread;
+        private boolean mEnded = false;
+
+        private LogcatFollower(InputStream logcatStream) {
+            mLogcatStream = logcatStream;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(logcatStream));
+            mReaderThread =
+                    new Thread(
+                            () -> {
+                                try {
+                                    String line;
+                                    while ((line = reader.readLine()) != null) {
+                                        enqueue(line);
+                                    }
+                                } catch (IOException e) {
+                                    // The stream was closed.
+                                } finally {
+                                    enqueue(END_OF_STREAM);
+                                }
+                            },
+                            "LogcatFollower");
+            mReaderThread.setDaemon(true);
+            mReaderThread.start();
+        }
+
+        /** Queues a line read from the stream, dropping the oldest pending line when full. */
+        private void enqueue(String line) {
+            while (!mPendingLines.offer(line)) {
+                mPendingLines.poll();
+            }
+        }
+
+        /**
+         * Logs an unique string using tag {@link #FOLLOWER_MARK_TAG} and wait until it appears in
+         * the stream. Following assertions only consider the lines logged after it.
+         *
+         * @return a unique separator string.
+         * @throws IOException if error while executing command.
+         */
+        public String mark() throws IOException {
+            String uniqueString = ":::" + UUID.randomUUID().toString();
+            Closeables.closeQuietly(
+                    executeShellCommand("log -t " + FOLLOWER_MARK_TAG + " " + uniqueString));
+            try {
+                if (numberOfStringsFound(5, uniqueString) < 1) {
+                    fail("Couldn't find mark " + uniqueString + " within 5 seconds");
+                }
+            } catch (InterruptedException e) {
+                fail("Thread interrupted unexpectedly: " + e.getMessage());
+            }
+            // Forget everything up to and including the mark.
+            while (!mLinesSinceMark.isEmpty()
+                    && !mLinesSinceMark.removeFirst().contains(uniqueString)) {}
+            return uniqueString;
+        }
+
+        /**
+         * Wait for up to {@param maxTimeoutInSeconds} for the given {@param logcatStrings} strings
+         * to appear in order in the lines followed since the last mark. Returns as soon as the
+         * last string is found. Repeated strings are not supported.
+         *
+         * @throws AssertionError if the strings are not found in the given time.
+         */
+        public void assertContainsInOrder(int maxTimeoutInSeconds, String... logcatStrings)
+                throws AssertionError {
+            try {
+                int nextStringIndex = numberOfStringsFound(maxTimeoutInSeconds, logcatStrings);
+                if (nextStringIndex < logcatStrings.length) {
+                    fail(
+                            "Couldn't find "
+                                    + logcatStrings[nextStringIndex]
+                                    + (nextStringIndex > 0
+                                            ? " after " + logcatStrings[nextStringIndex - 1]
+                                            : "")
+                                    + " within "
+                                    + maxTimeoutInSeconds
+                                    + " seconds ");
+                }
+            } catch (InterruptedException e) {
+                fail("Thread interrupted unexpectedly: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Wait for up to {@param timeInSeconds}, if all the strings {@param logcatStrings} are
+         * found in order in the lines followed since the last mark then the assertion fails,
+         * otherwise it succeeds.
+         *
+         * @throws AssertionError if all the strings are found in order in the given time.
+         */
+        public void assertDoesNotContainInOrder(int timeInSeconds, String... logcatStrings) {
+            try {
+                if (numberOfStringsFound(timeInSeconds, logcatStrings) == logcatStrings.length) {
+                    fail("Found " + Joiner.on(", ").join(logcatStrings) + " that weren't expected");
+                }
+            } catch (InterruptedException e) {
+                fail("Thread interrupted unexpectedly: " + e.getMessage());
+            }
+        }
+
+        private int numberOfStringsFound(int timeInSeconds, String... logcatStrings)
+                throws InterruptedException {
+            long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeInSeconds);
+            int stringIndex = 0;
+            // Lines already read since the mark.
+            for (String line : mLinesSinceMark) {
+                if (line.contains(logcatStrings[stringIndex])) {
+                    stringIndex++;
+                    if (stringIndex >= logcatStrings.length) {
+                        return stringIndex;
+                    }
+                }
+            }
+            // New lines, as they are logged.
+            while (!mEnded) {
+                long remaining = timeout - System.currentTimeMillis();
+                if (remaining < 0) {
+                    break;
+                }
+                String line = mPendingLines.poll(remaining, TimeUnit.MILLISECONDS);
+                if (line == null) {
+                    break;
+                }
+                if (END_OF_STREAM.equals(line)) {
+                    mEnded = true;
+                    break;
+                }
+                if (mLinesSinceMark.size() >= MAX_FOLLOWED_LINES) {
+                    mLinesSinceMark.removeFirst();
+                }
+                mLinesSinceMark.addLast(line);
+                if (line.contains(logcatStrings[stringIndex])) {
+                    stringIndex++;
+                    if (stringIndex >= logcatStrings.length) {
+                        return stringIndex;
+                    }
+                }
+            }
+            return stringIndex;
+        }
+
+        @Override
+        public void close() {
+            // Closing the underlying stream unblocks the reader thread.
+            Closeables.closeQuietly(mLogcatStream);
+            if (mFollower == this) {
+                mFollower = null;
+            }
+        }
+    }
 }
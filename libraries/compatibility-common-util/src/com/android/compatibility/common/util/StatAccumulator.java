@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.compatibility.common.util;
+
+/**
+ * Streaming version of {@link Stat}, for when there are too many samples to keep them all.
+ *
+ * <p>Average, variance, min and max are computed exactly and online with Welford's method.
+ * Quantiles, including the median, are estimated with a log-bucketed sketch: every estimate is
+ * within {@code relativeAccuracy} of a sample of the requested rank. Memory is bounded by the
+ * number of buckets regardless of the number of samples, and accumulators can be merged, e.g. to
+ * combine samples collected on different threads.
+ *
+ * <p>Samples must be finite: NaN and infinite values are rejected.
+ *
+ * <p>This class is not thread safe.
+ */
+public class StatAccumulator {
+    /** Default relative accuracy of the quantile estimates. */
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+    /** Default maximum number of buckets per sign. */
+    public static final int DEFAULT_MAX_BUCKETS = 2048;
+
+    // Values smaller than this in absolute value are counted as zero by the sketch.
+    private static final double MIN_INDEXABLE_VALUE = 1e-9;
+
+    private final double mRelativeAccuracy;
+    private final double mGamma;
+    private final double mLogGamma;
+    private final int mMaxBuckets;
+
+    private long mCount = 0;
+    private double mMean = 0.0;
+    // Sum of squares of differences from the current mean.
+    private double mM2 = 0.0;
+    private double mMin = Double.NaN;
+    private double mMax = Double.NaN;
+
+    private final Buckets mPositive;
+    private final Buckets mNegative;
+    private long mZeroCount = 0;
+
+    public StatAccumulator() {
+        this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_MAX_BUCKETS);
+    }
+
+    /**
+     * @param relativeAccuracy relative accuracy of the quantile estimates, between 0 and 1.
+     * @param maxBuckets maximum number of buckets per sign. When reached, the buckets of the
+     *     samples closest to zero are merged together, losing accuracy for those samples only:
+     *     the lowest positive ones and the highest negative ones.
+     */
+    public StatAccumulator(double relativeAccuracy, int maxBuckets) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("relativeAccuracy must be between 0 and 1");
+        }
+        if (maxBuckets < 1) {
+            throw new IllegalArgumentException("maxBuckets must be positive");
+        }
+        mRelativeAccuracy = relativeAccuracy;
+        mGamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        mLogGamma = Math.log(mGamma);
+        mMaxBuckets = maxBuckets;
+        mPositive = new Buckets(maxBuckets);
+        mNegative = new Buckets(maxBuckets);
+    }
+
+    /**
+     * Adds a sample.
+     *
+     * @throws IllegalArgumentException if {@code value} is NaN or infinite.
+     */
+    public void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Sample must be finite: " + value);
+        }
+        mCount++;
+        double delta = value - mMean;
+        mMean += delta / mCount;
+        mM2 += delta * (value - mMean);
+        if (mCount == 1) {
+            mMin = value;
+            mMax = value;
+        } else {
+            if (value < mMin) {
+                mMin = value;
+            }
+            if (value > mMax) {
+                mMax = value;
+            }
+        }
+        if (value > MIN_INDEXABLE_VALUE) {
+            mPositive.add(index(value), 1);
+        } else if (value < -MIN_INDEXABLE_VALUE) {
+            mNegative.add(index(-value), 1);
+        } else {
+            mZeroCount++;
+        }
+    }
+
+    /** Adds all the samples of the given array. */
+    public void addAll(double[] values) {
+        for (double value : values) {
+            add(value);
+        }
+    }
+
+    /**
+     * Merges the samples of {@code other} into this accumulator. Both accumulators must have been
+     * created with the same relative accuracy.
+     */
+    public void merge(StatAccumulator other) {
+        if (other.mRelativeAccuracy != mRelativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge accumulators of different accuracy");
+        }
+        if (other.mCount == 0) {
+            return;
+        }
+        if (mCount == 0) {
+            mMin = other.mMin;
+            mMax = other.mMax;
+        } else {
+            mMin = Math.min(mMin, other.mMin);
+            mMax = Math.max(mMax, other.mMax);
+        }
+        // Chan et al. parallel variance.
+        long count = mCount + other.mCount;
+        double delta = other.mMean - mMean;
+        mMean += delta * other.mCount / count;
+        mM2 += other.mM2 + delta * delta * ((double) mCount * other.mCount / count);
+        mCount = count;
+        mPositive.merge(other.mPositive);
+        mNegative.merge(other.mNegative);
+        mZeroCount += other.mZeroCount;
+    }
+
+    /** Returns the number of samples. */
+    public long getCount() {
+        return mCount;
+    }
+
+    /** Returns the average of the samples, or NaN if there are none. */
+    public double getAverage() {
+        return mCount == 0 ? Double.NaN : mMean;
+    }
+
+    /** Returns the sample variance, with the same n - 1 denominator as {@link Stat#getStat}. */
+    public double getVariance() {
+        return mCount < 2 ? Double.NaN : mM2 / (mCount - 1);
+    }
+
+    /** Returns the sample standard deviation. */
+    public double getStddev() {
+        return Math.sqrt(getVariance());
+    }
+
+    /** Returns the minimum sample, or NaN if there are none. */
+    public double getMin() {
+        return mMin;
+    }
+
+    /** Returns the maximum sample, or NaN if there are none. */
+    public double getMax() {
+        return mMax;
+    }
+
+    /** Returns an estimate of the median. */
+    public double getMedian() {
+        return getQuantile(0.5);
+    }
+
+    /** Returns an estimate of the 95th percentile. */
+    public double get95PercentileValue() {
+        return getQuantile(0.95);
+    }
+
+    /**
+     * Returns an estimate of the {@code quantile} of the samples, within the relative accuracy of
+     * this accumulator, or NaN if there are no samples.
+     *
+     * @param quantile the quantile, between 0 and 1.
+     */
+    public double getQuantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("quantile must be between 0 and 1");
+        }
+        if (mCount == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) (quantile * (mCount - 1));
+        double value;
+        if (rank < mNegative.mTotal) {
+            // Negative values in increasing order are in decreasing index order.
+            value = -value(mNegative.indexOfRank(mNegative.mTotal - 1 - rank));
+        } else if (rank < mNegative.mTotal + mZeroCount) {
+            value = 0;
+        } else {
+            value = value(mPositive.indexOfRank(rank - mNegative.mTotal - mZeroCount));
+        }
+        return Math.max(mMin, Math.min(mMax, value));
+    }
+
+    /** Returns the statistics as a {@link Stat.StatResult}, with an estimated median. */
+    public Stat.StatResult getStat() {
+        return new Stat.StatResult(
+                getAverage(), getMin(), getMax(), getStddev(), getMedian(), (int) mCount);
+    }
+
+    /**
+     * Adds a summary of the samples to the given report, as {@code message} suffixed with
+     * "_average", "_median", "_95th_percentile", "_min", "_max", "_stddev" and "_count".
+     *
+     * @param type the {@link ResultType} of the average, median and 95th percentile. Other values
+     *     are {@link ResultType#NEUTRAL}.
+     */
+    public void addToReport(ReportLog reportLog, String message, ResultType type, ResultUnit unit) {
+        reportLog.addValue(message + "_average", getAverage(), type, unit);
+        reportLog.addValue(message + "_median", getMedian(), type, unit);
+        reportLog.addValue(message + "_95th_percentile", get95PercentileValue(), type, unit);
+        reportLog.addValue(message + "_min", getMin(), ResultType.NEUTRAL, unit);
+        reportLog.addValue(message + "_max", getMax(), ResultType.NEUTRAL, unit);
+        reportLog.addValue(message + "_stddev", getStddev(), ResultType.NEUTRAL, unit);
+        reportLog.addValue(message + "_count", mCount, ResultType.NEUTRAL, ResultUnit.COUNT);
+    }
+
+    private int index(double value) {
+        return (int) Math.ceil(Math.log(value) / mLogGamma);
+    }
+
+    private double value(int index) {
+        // Middle of the bucket in relative terms, so the estimate is within the accuracy.
+        return 2 * Math.pow(mGamma, index) / (mGamma + 1);
+    }
+
+    /**
+     * Counts per bucket index, stored contiguously from the lowest index. Indices grow with the
+     * absolute value of the samples, for both signs.
+     */
+    private static class Buckets {
+        private static final int INITIAL_BUCKETS = 16;
+        private final int mMaxBuckets;
+        private long[] mCounts = new long[0];
+        private int mOffset = 0;
+        private long mTotal = 0;
+
+        Buckets(int maxBuckets) {
+            mMaxBuckets = maxBuckets;
+        }
+
+        void add(int index, long count) {
+            if (mCounts.length == 0) {
+                int length = Math.min(INITIAL_BUCKETS, mMaxBuckets);
+                mCounts = new long[length];
+                mOffset = index - length / 2;
+            }
+            int maxIndex = mOffset + mCounts.length - 1;
+            if (index < mOffset || index > maxIndex) {
+                ensureRange(Math.min(index, mOffset), Math.max(index, maxIndex));
+            }
+            // Indices below the collapsed range are counted in the lowest bucket.
+            mCounts[Math.max(index, mOffset) - mOffset] += count;
+            mTotal += count;
+        }
+
+        void merge(Buckets other) {
+            for (int i = 0; i < other.mCounts.length; i++) {
+                if (other.mCounts[i] != 0) {
+                    add(other.mOffset + i, other.mCounts[i]);
+                }
+            }
+        }
+
+        /** Returns the index of the bucket holding the sample of the given rank. */
+        int indexOfRank(long rank) {
+            long seen = 0;
+            for (int i = 0; i < mCounts.length; i++) {
+                seen += mCounts[i];
+                if (seen > rank) {
+                    return mOffset + i;
+                }
+            }
+            return mOffset + mCounts.length - 1;
+        }
+
+        /**
+         * Grows the storage to hold [minIndex, maxIndex]. If that takes more than the maximum
+         * number of buckets, the lowest ones, i.e. closest to zero, are collapsed together.
+         */
+        private void ensureRange(int minIndex, int maxIndex) {
+            int needed = maxIndex - minIndex + 1;
+            int length = Math.min(mMaxBuckets, Math.max(needed, mCounts.length * 2));
+            int newOffset;
+            if (needed > length || minIndex < mOffset) {
+                // Collapsing, or growing down: keep the spare room below.
+                newOffset = maxIndex - length + 1;
+            } else {
+                // Growing up: keep the spare room above.
+                newOffset = minIndex;
+            }
+            long[] counts = new long[length];
+            for (int i = 0; i < mCounts.length; i++) {
+                if (mCounts[i] != 0) {
+                    counts[Math.max(mOffset + i, newOffset) - newOffset] += mCounts[i];
+                }
+            }
+            mCounts = counts;
+            mOffset = newOffset;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.compatibility.common.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * Measures the cost of invoking a business logic condition, from a direct call to the full
+ * {@link BusinessLogicExecutor#executeCondition(String, String...)} path, with and without the
+ * class and method caches. Not run with the unit tests, run it with:
+ *
+ * <pre>
+ * java -cp compatibility-common-util-tests.jar \
+ *     com.android.compatibility.common.util.BusinessLogicExecutorBenchmark [iterations]
+ * </pre>
+ */
+public class BusinessLogicExecutorBenchmark {
+    private static final String METHOD = Conditions.class.getName() + ".isEqual";
+    private static final int ROUNDS = 5;
+
+    /** The condition invoked by the benchmark. */
+    public static class Conditions {
+        public boolean isEqual(String a, String b) {
+            return a.equals(b);
+        }
+    }
+
+    /** Executor passing the string arguments as they are. */
+    private static class Executor extends BusinessLogicExecutor {
+        @Override
+        protected String formatExecutionString(String method, String... args) {
+            return method;
+        }
+
+        @Override
+        public void logInfo(String format, Object... args) {}
+
+        @Override
+        public void logDebug(String format, Object... args) {}
+
+        @Override
+        protected Object getTestObject() {
+            return null;
+        }
+
+        @Override
+        protected ResolvedMethod getResolvedMethod(Class cls, String methodName, String... args) {
+            ResolvedMethod rm = new ResolvedMethod(getMethodsWithName(cls, methodName).get(0));
+            for (String arg : args) {
+                rm.addArg(arg);
+            }
+            return rm;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Conditions conditions = new Conditions();
+        Method method = Conditions.class.getMethod("isEqual", String.class, String.class);
+        BusinessLogicExecutor.ResolvedMethod rm = new BusinessLogicExecutor.ResolvedMethod(method);
+        rm.addArg("a");
+        rm.addArg("a");
+        Executor executor = new Executor();
+        System.out.println("VM: " + System.getProperty("java.vm.name"));
+        // The first rounds warm up the JIT, the last one is reported.
+        for (int round = 1; round <= ROUNDS; round++) {
+            boolean report = round == ROUNDS;
+            int matches = 0;
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                matches += conditions.isEqual("a", "a") ? 1 : 0;
+            }
+            report(report, "Direct call", iterations, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                matches += (Boolean) method.invoke(conditions, "a", "a") ? 1 : 0;
+            }
+            report(report, "Method.invoke", iterations, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                matches += (Boolean) rm.invoke(conditions) ? 1 : 0;
+            }
+            report(report, "ResolvedMethod.invoke", iterations, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                matches += executor.executeCondition(METHOD, "a", "a") ? 1 : 0;
+            }
+            report(report, "executeCondition", iterations, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                matches += uncachedExecuteCondition(METHOD, "a", "a") ? 1 : 0;
+            }
+            report(report, "executeCondition without caches", iterations, start);
+
+            if (matches != 5 * iterations) {
+                throw new AssertionError("Unexpected result");
+            }
+        }
+    }
+
+    /** What executeCondition did before it cached the classes and methods. */
+    private static boolean uncachedExecuteCondition(String method, String... args)
+            throws Exception {
+        int index = method.lastIndexOf('.');
+        Class<?> cls = Class.forName(method.substring(0, index));
+        Object obj = cls.getDeclaredConstructor().newInstance();
+        String name = method.substring(index + 1);
+        for (Method m : cls.getMethods()) {
+            if (name.equals(m.getName())) {
+                return (Boolean) m.invoke(obj, (Object[]) args);
+            }
+        }
+        throw new NoSuchMethodException(method);
+    }
+
+    private static void report(boolean report, String name, int iterations, long start) {
+        if (report) {
+            System.out.printf(
+                    "%s: %.1f ns per call%n",
+                    name, (System.nanoTime() - start) / (double) iterations);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.compatibility.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.AssumptionViolatedException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Unit tests for {@link BusinessLogicExecutor}
+ */
+@RunWith(JUnit4.class)
+public class BusinessLogicExecutorTest {
+
+    private static final String CLASS_NAME = Conditions.class.getName();
+
+    /** Business logic methods invoked by the tests. */
+    public static class Conditions {
+        public static int sActionCount;
+
+        public boolean isEqual(String a, String b) {
+            return a.equals(b);
+        }
+
+        public static boolean isEmpty(String a) {
+            return a.isEmpty();
+        }
+
+        public boolean hasArgs(String... args) {
+            return args.length > 0;
+        }
+
+        public void count() {
+            sActionCount++;
+        }
+
+        public void fail(String message) {
+            throw new AssertionError(message);
+        }
+
+        public void skip(String message) {
+            throw new AssumptionViolatedException(message);
+        }
+
+        public void setValue(int value) {}
+
+        public void setValue(String value) {}
+    }
+
+    /** Class that isn't public, with a public method invoked through reflection. */
+    static class PackagePrivateConditions {
+        public boolean isEmpty(String a) {
+            return a.isEmpty();
+        }
+    }
+
+    /** Executor passing the string arguments as they are, or as an array for varargs. */
+    private static class TestExecutor extends BusinessLogicExecutor {
+        private final Object mTestObject;
+
+        TestExecutor(Object testObject) {
+            mTestObject = testObject;
+        }
+
+        @Override
+        protected String formatExecutionString(String method, String... args) {
+            return String.format("%s(%s)", method, String.join(", ", formatArgs(args)));
+        }
+
+        @Override
+        public void logInfo(String format, Object... args) {}
+
+        @Override
+        public void logDebug(String format, Object... args) {}
+
+        @Override
+        protected Object getTestObject() {
+            return mTestObject;
+        }
+
+        @Override
+        protected ResolvedMethod getResolvedMethod(Class cls, String methodName, String... args) {
+            for (Method method : getMethodsWithName(cls, methodName)) {
+                Class<?>[] types = method.getParameterTypes();
+                if (types.length == 1 && types[0].getName().equals(STRING_ARRAY_CLASS)) {
+                    ResolvedMethod rm = new ResolvedMethod(method);
+                    rm.addArg(args);
+                    return rm;
+                }
+                if (types.length == args.length
+                        && (types.length == 0 || types[0].getName().equals(STRING_CLASS))) {
+                    ResolvedMethod rm = new ResolvedMethod(method);
+                    for (String arg : args) {
+                        rm.addArg(arg);
+                    }
+                    return rm;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Test
+    public void testExecuteCondition() {
+        BusinessLogicExecutor executor = new TestExecutor(null);
+        // Repeated to go through the cached class and methods.
+        for (int i = 0; i < 3; i++) {
+            assertTrue(executor.executeCondition(CLASS_NAME + ".isEqual", "a", "a"));
+            assertFalse(executor.executeCondition(CLASS_NAME + "#isEqual", "a", "b"));
+            assertTrue(executor.executeCondition(CLASS_NAME + ".isEmpty", ""));
+            assertFalse(executor.executeCondition(CLASS_NAME + ".isEmpty", "a"));
+            assertTrue(executor.executeCondition(CLASS_NAME + ".hasArgs", "a", "b"));
+            assertFalse(executor.executeCondition(CLASS_NAME + ".hasArgs"));
+        }
+    }
+
+    @Test
+    public void testExecuteConditionPackagePrivateClass() {
+        BusinessLogicExecutor executor = new TestExecutor(null);
+        String className = PackagePrivateConditions.class.getName();
+        for (int i = 0; i < 2; i++) {
+            assertTrue(executor.executeCondition(className + ".isEmpty", ""));
+            assertFalse(executor.executeCondition(className + ".isEmpty", "a"));
+        }
+    }
+
+    @Test
+    public void testExecuteAction() {
+        BusinessLogicExecutor executor = new TestExecutor(new Conditions());
+        int count = Conditions.sActionCount;
+        executor.executeAction(CLASS_NAME + ".count");
+        executor.executeAction(CLASS_NAME + ".count");
+        assertEquals(count + 2, Conditions.sActionCount);
+    }
+
+    @Test
+    public void testExecuteActionFailure() {
+        BusinessLogicExecutor executor = new TestExecutor(null);
+        try {
+            executor.executeAction(CLASS_NAME + ".fail", "message");
+            fail("Expected RuntimeException");
+        } catch (RuntimeException e) {
+            assertFalse(e instanceof AssumptionViolatedException);
+            assertEquals("message", e.getMessage());
+        }
+        try {
+            executor.executeAction(CLASS_NAME + ".skip", "message");
+            fail("Expected AssumptionViolatedException");
+        } catch (AssumptionViolatedException e) {
+            assertEquals("message", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testExecuteConditionMissingMethod() {
+        BusinessLogicExecutor executor = new TestExecutor(null);
+        try {
+            executor.executeCondition(CLASS_NAME + "Missing.isEmpty", "");
+            fail("Expected RuntimeException");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof ClassNotFoundException);
+        }
+    }
+
+    @Test
+    public void testGetMethodsWithName() throws Exception {
+        BusinessLogicExecutor executor = new TestExecutor(null);
+        List<Method> methods = executor.getMethodsWithName(Conditions.class, "setValue");
+        assertEquals(2, methods.size());
+        methods.clear();
+        assertEquals(2, executor.getMethodsWithName(Conditions.class, "setValue").size());
+        assertTrue(executor.getMethodsWithName(Conditions.class, "missing").isEmpty());
+    }
+
+    @Test
+    public void testResolvedMethodInvoke() throws Exception {
+        Method method = Conditions.class.getMethod("isEqual", String.class, String.class);
+        BusinessLogicExecutor.ResolvedMethod rm = new BusinessLogicExecutor.ResolvedMethod(method);
+        rm.addArg("a");
+        rm.addArg("a");
+        assertEquals(true, rm.invoke(new Conditions()));
+        try {
+            rm.invoke(new Object());
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        Method fail = Conditions.class.getMethod("fail", String.class);
+        rm = new BusinessLogicExecutor.ResolvedMethod(fail);
+        rm.addArg("message");
+        try {
+            rm.invoke(new Conditions());
+            fail("Expected InvocationTargetException");
+        } catch (InvocationTargetException e) {
+            assertSame(AssertionError.class, e.getCause().getClass());
+        }
+    }
+}
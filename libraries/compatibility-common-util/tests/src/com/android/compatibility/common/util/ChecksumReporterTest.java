@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.compatibility.common.util;
+
+import com.android.tradefed.util.FileUtil;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+
+/**
+ * Unit tests for {@link ChecksumReporter}
+ */
+public class ChecksumReporterTest extends TestCase {
+
+    private static final String FINGERPRINT = "build_fingerprint";
+
+    private File mResultDir;
+    private File mLog;
+    private File mNestedLog;
+    private IModuleResult mModule;
+    private ITestResult mTest;
+
+    @Override
+    public void setUp() throws Exception {
+        mResultDir = FileUtil.createTempDir("results");
+        File logs = new File(mResultDir, "logs");
+        File nestedLogs = new File(logs, "nested");
+        nestedLogs.mkdirs();
+        mLog = new File(logs, "log.txt");
+        FileUtil.writeToFile("log", mLog);
+        mNestedLog = new File(nestedLogs, "nested_log.txt");
+        FileUtil.writeToFile("nested log", mNestedLog);
+        FileUtil.writeToFile("result", new File(mResultDir, "test_result.xml"));
+
+        mModule = new ModuleResult("armeabi-v7a module");
+        mTest = mModule.getOrCreateResult("Case").getOrCreateResult("test");
+        mTest.failed("stacktrace");
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        FileUtil.recursiveDelete(mResultDir);
+    }
+
+    public void testSaveAndLoad() throws Exception {
+        ChecksumReporter reporter = new ChecksumReporter(10, 0.05, (short) 1);
+        reporter.addModuleResult(mModule, FINGERPRINT);
+        reporter.addTestResult(mTest, mModule, FINGERPRINT);
+        reporter.addDirectory(mResultDir);
+        reporter.saveToFile(mResultDir);
+
+        ChecksumReporter loaded = ChecksumReporter.load(mResultDir);
+
+        String path = mResultDir.getName() + "/logs";
+        assertTrue(loaded.containsModuleResult(mModule, FINGERPRINT));
+        assertTrue(loaded.containsTestResult(mTest, mModule, FINGERPRINT));
+        assertTrue(loaded.containsFile(mLog, path));
+        assertTrue(loaded.containsFile(mNestedLog, path + "/nested"));
+        assertFalse(loaded.containsFile(mLog, path + "/nested"));
+        assertFalse(loaded.containsFile(new File(mResultDir, ChecksumReporter.NAME), path));
+
+        FileUtil.writeToFile("modified log", mLog);
+        assertFalse(loaded.containsFile(mLog, path));
+    }
+
+    public void testLoadSerializedFormat() throws Exception {
+        BloomFilter<CharSequence> resultChecksum =
+                BloomFilter.create(Funnels.unencodedCharsFunnel(), 10, 0.05);
+        resultChecksum.put(
+                ChecksumReporter.generateTestResultSignature(mTest, mModule, FINGERPRINT));
+        HashMap<String, byte[]> fileChecksum = new HashMap<>();
+        String path = mResultDir.getName() + "/logs";
+        fileChecksum.put(path + "/log.txt", ChecksumReporter.calculateFileChecksum(mLog));
+        try (ObjectOutputStream output = new ObjectOutputStream(
+                new FileOutputStream(new File(mResultDir, ChecksumReporter.NAME)))) {
+            output.writeShort(ChecksumReporter.SERIALIZED_FORMAT_CODE);
+            output.writeShort(1);
+            output.writeObject(resultChecksum);
+            output.writeObject(fileChecksum);
+        }
+
+        ChecksumReporter loaded = ChecksumReporter.load(mResultDir);
+        assertTrue(loaded.containsTestResult(mTest, mModule, FINGERPRINT));
+        assertTrue(loaded.containsFile(mLog, path));
+        assertFalse(loaded.containsFile(mNestedLog, path + "/nested"));
+
+        // Saving converts to the binary format.
+        loaded.addDirectory(mResultDir);
+        loaded.saveToFile(mResultDir);
+        ChecksumReporter converted = ChecksumReporter.load(mResultDir);
+        assertTrue(converted.containsTestResult(mTest, mModule, FINGERPRINT));
+        assertTrue(converted.containsFile(mLog, path));
+        assertTrue(converted.containsFile(mNestedLog, path + "/nested"));
+    }
+
+    public void testSaveToLoadedDirectory() throws Exception {
+        ChecksumReporter reporter = new ChecksumReporter(10, 0.05, (short) 1);
+        reporter.addFile(mLog, mResultDir.getName() + "/logs");
+        reporter.saveToFile(mResultDir);
+        ChecksumReporter loaded = ChecksumReporter.load(mResultDir);
+
+        // Overwriting the checksum file doesn't affect the loaded table.
+        String path = mResultDir.getName() + "/logs";
+        loaded.addFile(mNestedLog, path + "/nested");
+        loaded.saveToFile(mResultDir);
+        assertTrue(loaded.containsFile(mLog, path));
+        assertTrue(loaded.containsFile(mNestedLog, path + "/nested"));
+
+        ChecksumReporter reloaded = ChecksumReporter.load(mResultDir);
+        assertTrue(reloaded.containsFile(mLog, path));
+        assertTrue(reloaded.containsFile(mNestedLog, path + "/nested"));
+        assertEquals(1, mResultDir.list((dir, name) -> name.startsWith(ChecksumReporter.NAME))
+                .length);
+    }
+
+    public void testLoadInvalidFile() throws Exception {
+        FileUtil.writeToFile("not a checksum file", new File(mResultDir, ChecksumReporter.NAME));
+        try {
+            ChecksumReporter.load(mResultDir);
+            fail("Expected ChecksumValidationException");
+        } catch (ChecksumReporter.ChecksumValidationException expected) {
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.compatibility.common.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Measures the throughput of {@link CrashUtils#addAllCrashes(Reader, JSONArray)} on synthetic
+ * logcats written to a temporary file, against the crash blob regex it replaced. Not run with the
+ * unit tests, run it with:
+ *
+ * <pre>
+ * java -cp compatibility-common-util-tests.jar \
+ *     com.android.compatibility.common.util.CrashUtilsBenchmark [size in MB]
+ * </pre>
+ */
+public class CrashUtilsBenchmark {
+    private static final String DEBUG = "01-01 00:00:00.000  1234  1234 F DEBUG   : ";
+    private static final String HEADER =
+            "*** *** *** *** *** *** *** *** *** *** *** *** *** *** *** ***";
+    // The patterns of the regex parser that addAllCrashes used before it parsed line by line.
+    private static final Pattern LEGACY_CRASH_BLOB_PATTERN =
+            Pattern.compile(
+                    "DEBUG\\s+?:( [*]{3})+?.*?DEBUG\\s+?:\\s+?backtrace:", Pattern.DOTALL);
+    private static final Pattern LEGACY_PID_TID_NAME_PATTERN =
+            Pattern.compile("pid: (\\d+?), tid: (\\d+?), name: ([^\\s]+?\\s+?)*?>>> (.*?) <<<");
+    private static final Pattern LEGACY_FAULT_LINE_PATTERN =
+            Pattern.compile(
+                    "\\w+? \\d+? \\((.*?)\\), code -*?\\d+? \\(.*?\\), fault addr "
+                            + "(?:0x(\\p{XDigit}+)|-+)");
+    private static final Pattern LEGACY_ABORT_MESSAGE_PATTERN =
+            Pattern.compile("(?i)Abort message: (.*)");
+    private static final Pattern LEGACY_BACKTRACE_NOTE_PATTERN =
+            Pattern.compile("[0-9\\-\\s:.]+[A-Z] DEBUG\\s+:\\s+NOTE: .*");
+    private static final Pattern LEGACY_BACKTRACE_FRAME_WITH_BUILD_ID_PATTERN =
+            Pattern.compile(
+                    "[0-9\\-\\s:.]+[A-Z] DEBUG\\s+:\\s+#[0-9]+ pc [0-9a-fA-F]+  "
+                            + "(?<filename>[^\\s]+)(\\s+\\((?<method>.*)\\))?"
+                            + "\\s+\\(BuildId: .*\\)");
+    private static final Pattern LEGACY_BACKTRACE_FRAME_WITHOUT_BUILD_ID_PATTERN =
+            Pattern.compile(
+                    "[0-9\\-\\s:.]+[A-Z] DEBUG\\s+:\\s+#[0-9]+ pc [0-9a-fA-F]+  "
+                            + "(?<filename>[^\\s]+)(\\s+\\((?<method>.*)\\))?");
+    // The regex scans to the end of the logcat from every header without backtrace, so it only
+    // gets that much of the logcat without backtraces.
+    private static final long LEGACY_MAX_SIZE_WITHOUT_BACKTRACE = 1 << 20;
+
+    public static void main(String[] args) throws IOException {
+        long size = (args.length > 0 ? Long.parseLong(args[0]) : 200) << 20;
+        File logcat = File.createTempFile("logcat", ".txt");
+        try {
+            writeMixedLogcat(logcat, size);
+            run("Crashes among other lines", logcat);
+            runLegacy("Crashes among other lines", logcat);
+            writeHeadersWithoutBacktrace(logcat, size);
+            run("Crash headers without backtrace", logcat);
+            writeHeadersWithoutBacktrace(
+                    logcat, Math.min(size, LEGACY_MAX_SIZE_WITHOUT_BACKTRACE));
+            run("Crash headers without backtrace", logcat);
+            runLegacy("Crash headers without backtrace", logcat);
+        } finally {
+            logcat.delete();
+        }
+    }
+
+    private static void run(String name, File logcat) throws IOException {
+        long start = System.nanoTime();
+        int crashes;
+        try (Reader reader = new BufferedReader(new FileReader(logcat))) {
+            crashes = CrashUtils.addAllCrashes(reader, new JSONArray()).length();
+        }
+        report(name, "line parser", logcat, crashes, start);
+    }
+
+    private static void runLegacy(String name, File logcat) throws IOException {
+        long start = System.nanoTime();
+        String input = new String(Files.readAllBytes(logcat.toPath()), StandardCharsets.UTF_8);
+        int crashes = legacyAddAllCrashes(input, new JSONArray()).length();
+        report(name, "legacy regex", logcat, crashes, start);
+    }
+
+    /** The regex parser that addAllCrashes used before it parsed the logcat line by line. */
+    private static JSONArray legacyAddAllCrashes(String input, JSONArray crashes) {
+        Matcher crashBlobFinder = LEGACY_CRASH_BLOB_PATTERN.matcher(input);
+        while (crashBlobFinder.find()) {
+            String crashStr = crashBlobFinder.group(0);
+            int tid = 0;
+            int pid = 0;
+            BigInteger faultAddress = null;
+            String name = null;
+            String process = null;
+            String signal = null;
+            String abortMessage = null;
+            List<CrashUtils.BacktraceFrameInfo> backtraceFrames = new ArrayList<>();
+
+            Matcher pidtidNameMatcher = LEGACY_PID_TID_NAME_PATTERN.matcher(crashStr);
+            if (pidtidNameMatcher.find()) {
+                try {
+                    pid = Integer.parseInt(pidtidNameMatcher.group(1));
+                } catch (NumberFormatException e) {
+                }
+                try {
+                    tid = Integer.parseInt(pidtidNameMatcher.group(2));
+                } catch (NumberFormatException e) {
+                }
+                name = pidtidNameMatcher.group(3).trim();
+                process = pidtidNameMatcher.group(4).trim();
+            }
+
+            Matcher faultLineMatcher = LEGACY_FAULT_LINE_PATTERN.matcher(crashStr);
+            if (faultLineMatcher.find()) {
+                signal = faultLineMatcher.group(1);
+                String faultAddrMatch = faultLineMatcher.group(2);
+                if (faultAddrMatch != null) {
+                    try {
+                        faultAddress = new BigInteger(faultAddrMatch, 16);
+                    } catch (NumberFormatException e) {
+                    }
+                }
+            }
+
+            Matcher abortMessageMatcher = LEGACY_ABORT_MESSAGE_PATTERN.matcher(crashStr);
+            if (abortMessageMatcher.find()) {
+                abortMessage = abortMessageMatcher.group(1);
+            }
+
+            int currentIndex = crashBlobFinder.end();
+            while (true) {
+                int firstEndline = input.indexOf('\n', currentIndex);
+                int secondEndline = input.indexOf('\n', firstEndline + 1);
+                currentIndex = secondEndline;
+                if (firstEndline == -1 || secondEndline == -1) break;
+
+                String nextLine = input.substring(firstEndline + 1, secondEndline);
+
+                if (LEGACY_BACKTRACE_NOTE_PATTERN.matcher(nextLine).matches()) {
+                    continue;
+                }
+
+                Matcher backtraceFrameWithBuildIdMatcher =
+                        LEGACY_BACKTRACE_FRAME_WITH_BUILD_ID_PATTERN.matcher(nextLine);
+                Matcher backtraceFrameWithoutBuildIdMatcher =
+                        LEGACY_BACKTRACE_FRAME_WITHOUT_BUILD_ID_PATTERN.matcher(nextLine);
+
+                Matcher backtraceFrameMatcher = null;
+                if (backtraceFrameWithBuildIdMatcher.matches()) {
+                    backtraceFrameMatcher = backtraceFrameWithBuildIdMatcher;
+                } else if (backtraceFrameWithoutBuildIdMatcher.matches()) {
+                    backtraceFrameMatcher = backtraceFrameWithoutBuildIdMatcher;
+                } else {
+                    break;
+                }
+
+                backtraceFrames.add(
+                        new CrashUtils.BacktraceFrameInfo(
+                                backtraceFrameMatcher.group("filename"),
+                                backtraceFrameMatcher.group("method")));
+            }
+
+            try {
+                JSONObject crash = new JSONObject();
+                crash.put(CrashUtils.PID, pid);
+                crash.put(CrashUtils.TID, tid);
+                crash.put(CrashUtils.NAME, name);
+                crash.put(CrashUtils.PROCESS, process);
+                crash.put(
+                        CrashUtils.FAULT_ADDRESS,
+                        faultAddress == null ? null : faultAddress.toString(16));
+                crash.put(CrashUtils.SIGNAL, signal);
+                crash.put(CrashUtils.ABORT_MESSAGE, abortMessage);
+                JSONArray backtrace = new JSONArray();
+                for (CrashUtils.BacktraceFrameInfo frame : backtraceFrames) {
+                    backtrace.put(
+                            new JSONObject()
+                                    .put(CrashUtils.FILENAME, frame.getFilename())
+                                    .put(CrashUtils.METHOD, frame.getMethod()));
+                }
+                crash.put(CrashUtils.BACKTRACE, backtrace);
+                crashes.put(crash);
+            } catch (JSONException e) {
+            }
+        }
+        return crashes;
+    }
+
+    private static void report(String name, String parser, File logcat, int crashes, long start) {
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        double megabytes = logcat.length() / (double) (1 << 20);
+        System.out.printf(
+                "%s, %s: %.1f MB, %d crashes in %d ms (%.1f MB/s)%n",
+                name, parser, megabytes, crashes, millis, megabytes * 1000 / millis);
+    }
+
+    /** Writes a logcat where 2% of the entries are crashes, some of them without backtrace. */
+    private static void writeMixedLogcat(File logcat, long size) throws IOException {
+        Random random = new Random(0);
+        try (Writer writer = new BufferedWriter(new FileWriter(logcat))) {
+            long written = 0;
+            for (int i = 0; written < size; i++) {
+                StringBuilder entry = new StringBuilder();
+                int type = random.nextInt(100);
+                if (type < 2) {
+                    appendCrash(entry, random, i);
+                } else if (type < 10) {
+                    entry.append(DEBUG).append("unrelated debug line ").append(i).append('\n');
+                } else {
+                    entry.append("01-01 00:00:00.000  1000  1000 I ActivityManager: Start proc ")
+                            .append(random.nextInt(100000))
+                            .append(" for activity com.example/.Main\n");
+                }
+                writer.write(entry.toString());
+                written += entry.length();
+            }
+        }
+    }
+
+    private static void appendCrash(StringBuilder entry, Random random, int i) {
+        entry.append(DEBUG).append(HEADER).append('\n');
+        entry.append(DEBUG)
+                .append(String.format("pid: %d, tid: %d, name: Thread-%d  ", i, i, i))
+                .append(String.format(">>> /system/bin/synthetic_process_%d <<<\n", i % 7));
+        entry.append(DEBUG)
+                .append("signal 11 (SIGSEGV), code 1 (SEGV_MAPERR), fault addr 0x")
+                .append(Integer.toHexString(random.nextInt()))
+                .append('\n');
+        for (int j = 0; j < 16; j++) {
+            entry.append(DEBUG).append("    x0  0000000000000000  x1  0000007fe0000000\n");
+        }
+        if (random.nextInt(20) == 0) {
+            return;
+        }
+        entry.append(DEBUG).append("backtrace:\n");
+        for (int j = 0; j < 10; j++) {
+            entry.append(DEBUG)
+                    .append(String.format("#%02d pc 000000000001abcd  ", j))
+                    .append(String.format("/system/lib64/lib%d.so (method+4) (BuildId: 12)\n", j));
+        }
+    }
+
+    /** Writes a logcat of crash headers followed by registers, but never by a backtrace. */
+    private static void writeHeadersWithoutBacktrace(File logcat, long size) throws IOException {
+        try (Writer writer = new BufferedWriter(new FileWriter(logcat))) {
+            long written = 0;
+            while (written < size) {
+                StringBuilder entry = new StringBuilder();
+                entry.append(DEBUG).append(HEADER).append('\n');
+                entry.append(DEBUG).append("pid: 1, tid: 1, name: init  >>> init <<<\n");
+                for (int j = 0; j < 200; j++) {
+                    entry.append(DEBUG).append("    x0  0000000000000000  x1  0000007fe0000000\n");
+                }
+                writer.write(entry.toString());
+                written += entry.length();
+            }
+        }
+    }
+}
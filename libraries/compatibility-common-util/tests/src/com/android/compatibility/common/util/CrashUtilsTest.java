@@ -21,6 +21,8 @@ import com.google.common.collect.ImmutableList;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -541,6 +543,120 @@ public class CrashUtilsTest {
         return json;
     }
 
+    @Test
+    public void testAddAllCrashesFromReader() throws Exception {
+        try (Reader txtReader =
+                new InputStreamReader(
+                        getClass().getClassLoader().getResourceAsStream("logcat.txt"))) {
+            JSONArray crashes = CrashUtils.addAllCrashes(txtReader, new JSONArray());
+            Assert.assertEquals(mCrashes.toString(), crashes.toString());
+        }
+    }
+
+    @Test
+    public void testCrashSplitAcrossLines() throws Exception {
+        String prefix = "01-01 00:00:00.000  1234  1234 F DEBUG   : ";
+        String input =
+                prefix + "*** *** *** *** *** *** *** *** *** *** *** *** *** *** *** ***\n"
+                        + prefix + "pid: 1234, tid: 1235, name: Binder:1234_1  >>> /system/bin/"
+                        + "synthetic_process_1 <<<\n"
+                        + prefix + "signal 11 (SIGSEGV), code 1 (SEGV_MAPERR), fault addr 0x1234\n"
+                        + prefix + "backtrace:\n"
+                        + prefix + "NOTE: note\n"
+                        + prefix + "#00 pc 00001234  /system/lib64/libfoo.so (foo+8)\n"
+                        + prefix + "*** *** *** *** *** *** *** *** *** *** *** *** *** *** *** ***\n"
+                        + prefix + "pid: 99, tid: 99, name: main  >>> synthetic_process_2 <<<\n"
+                        + prefix + "signal 6 (SIGABRT), code -6 (SI_TKILL), fault addr --------\n"
+                        + prefix + "backtrace:\n"
+                        + prefix + "#00 pc 00001234  /system/lib64/libbar.so (BuildId: 12)\n"
+                        // The last line is not part of the backtrace without a line break.
+                        + prefix + "#01 pc 00001234  /system/lib64/libbaz.so";
+        JSONArray expected = new JSONArray();
+        expected.put(
+                createCrashJson(
+                        1234,
+                        1235,
+                        "Binder:1234_1",
+                        "/system/bin/synthetic_process_1",
+                        "1234",
+                        "SIGSEGV",
+                        null,
+                        ImmutableList.of(stackFrame("/system/lib64/libfoo.so", "foo+8"))));
+        expected.put(
+                createCrashJson(
+                        99,
+                        99,
+                        "main",
+                        "synthetic_process_2",
+                        null,
+                        "SIGABRT",
+                        null,
+                        ImmutableList.of(stackFrame("/system/lib64/libbar.so", null))));
+
+        JSONArray crashes =
+                CrashUtils.addAllCrashes(new StringReader(input), new JSONArray());
+        Assert.assertEquals(expected.toString(), crashes.toString());
+    }
+
+    @Test
+    public void testCrashWithoutBacktraceIgnored() throws Exception {
+        String prefix = "01-01 00:00:00.000  1234  1234 F DEBUG   : ";
+        String input =
+                prefix + "*** *** *** *** *** *** *** *** *** *** *** *** *** *** *** ***\n"
+                        + prefix + "pid: 1, tid: 1, name: init  >>> /system/bin/init <<<\n"
+                        + prefix + "signal 11 (SIGSEGV), code 1 (SEGV_MAPERR), fault addr 0x1\n"
+                        + prefix + "*** *** *** *** *** *** *** *** *** *** *** *** *** *** *** ***\n"
+                        + prefix + "pid: 99, tid: 99, name: main  >>> synthetic_process_2 <<<\n"
+                        + prefix + "signal 6 (SIGABRT), code -6 (SI_TKILL), fault addr --------\n"
+                        + prefix + "backtrace:\n"
+                        + prefix + "#00 pc 00001234  /system/lib64/libbar.so (BuildId: 12)\n";
+        JSONArray expected = new JSONArray();
+        expected.put(
+                createCrashJson(
+                        99,
+                        99,
+                        "main",
+                        "synthetic_process_2",
+                        null,
+                        "SIGABRT",
+                        null,
+                        ImmutableList.of(stackFrame("/system/lib64/libbar.so", null))));
+
+        JSONArray crashes =
+                CrashUtils.addAllCrashes(new StringReader(input), new JSONArray());
+        Assert.assertEquals(expected.toString(), crashes.toString());
+    }
+
+    @Test
+    public void testCrashBlobBoundedCrashFound() throws Exception {
+        String prefix = "01-01 00:00:00.000  1234  1234 F DEBUG   : ";
+        String other = "01-01 00:00:00.000  1000  1000 I ActivityManager: unrelated line\n";
+        StringBuilder input = new StringBuilder();
+        input.append(prefix).append("*** *** *** *** *** *** *** *** *** *** *** ***\n");
+        input.append(prefix).append("pid: 1, tid: 1, name: init  >>> /system/bin/init <<<\n");
+        input.append(prefix).append("signal 11 (SIGSEGV), code 1 (SEGV_MAPERR), fault addr 0x1\n");
+        for (int i = 0; i <= CrashUtils.MAX_CRASH_BLOB_CHARS / other.length(); i++) {
+            input.append(other);
+        }
+        input.append(prefix).append("backtrace:\n");
+        input.append(prefix).append("#00 pc 00001234  /system/lib64/libbar.so (BuildId: 12)\n");
+        JSONArray expected = new JSONArray();
+        expected.put(
+                createCrashJson(
+                        1,
+                        1,
+                        "init",
+                        "/system/bin/init",
+                        "1",
+                        "SIGSEGV",
+                        null,
+                        ImmutableList.of(stackFrame("/system/lib64/libbar.so", null))));
+
+        JSONArray crashes =
+                CrashUtils.addAllCrashes(new StringReader(input.toString()), new JSONArray());
+        Assert.assertEquals(expected.toString(), crashes.toString());
+    }
+
     @Test
     public void testValidCrash() throws Exception {
         Assert.assertTrue(CrashUtils.securityCrashDetected(mCrashes, new CrashUtils.Config()
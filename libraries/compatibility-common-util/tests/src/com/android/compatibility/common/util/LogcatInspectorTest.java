@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.compatibility.common.util;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link LogcatInspector.LogcatFollower}, against a fake logcat stream. */
+@RunWith(JUnit4.class)
+public class LogcatInspectorTest {
+
+    private FakeLogcatInspector mInspector;
+    private LogcatInspector.LogcatFollower mFollower;
+
+    @Before
+    public void setUp() throws IOException {
+        mInspector = new FakeLogcatInspector();
+    }
+
+    @After
+    public void tearDown() {
+        if (mFollower != null) {
+            mFollower.close();
+        }
+    }
+
+    /** Test that marks are followed even when the filter would exclude them. */
+    @Test
+    public void testMarkWithRestrictiveFilter() throws IOException {
+        mFollower = mInspector.follow("Test:* *:S");
+
+        mFollower.mark();
+    }
+
+    /** Test that assertions only see the lines logged after the last mark. */
+    @Test
+    public void testAssertContainsInOrderAfterMark() throws IOException {
+        mFollower = mInspector.follow("Test:* *:S");
+        mInspector.log("Test", "before");
+        mFollower.mark();
+        mInspector.log("Test", "first");
+        mInspector.log("Other", "filtered");
+        mInspector.log("Test", "second");
+
+        mFollower.assertContainsInOrder(5, "first", "second");
+        mFollower.assertDoesNotContainInOrder(0, "before");
+        mFollower.assertDoesNotContainInOrder(0, "filtered");
+        mFollower.assertDoesNotContainInOrder(0, "second", "first");
+    }
+
+    /** Test that assertions fail when the strings are not logged. */
+    @Test
+    public void testAssertContainsInOrderFails() throws IOException {
+        mFollower = mInspector.follow("");
+        mFollower.mark();
+        mInspector.log("Test", "first");
+
+        try {
+            mFollower.assertContainsInOrder(1, "first", "second");
+            fail("Expected AssertionError");
+        } catch (AssertionError expected) {
+            assertTrue(expected.getMessage().contains("Couldn't find second after first"));
+        }
+    }
+
+    /** Test that the follower only keeps a bounded number of lines. */
+    @Test
+    public void testFollowedLinesAreBounded() throws IOException {
+        mFollower = mInspector.follow("");
+        mFollower.mark();
+        for (int i = 0; i <= LogcatInspector.MAX_FOLLOWED_LINES; i++) {
+            mInspector.log("Test", "line " + i + ";");
+        }
+        mInspector.log("Test", "last");
+
+        mFollower.assertContainsInOrder(5, "last");
+        mFollower.assertDoesNotContainInOrder(0, "line 0;");
+        mFollower.assertContainsInOrder(0, "line " + LogcatInspector.MAX_FOLLOWED_LINES + ";");
+    }
+
+    /**
+     * Fake device: "logcat" returns a stream of the lines later logged with "log", filtered like
+     * logcat does for "tag:priority" specs.
+     */
+    private static class FakeLogcatInspector extends LogcatInspector {
+        private final PipedOutputStream mLogcat = new PipedOutputStream();
+        private final List<String> mTags = new ArrayList<>();
+        private boolean mSilenceOthers = false;
+
+        @Override
+        protected InputStream executeShellCommand(String command) throws IOException {
+            String[] args = command.split(" ");
+            if (args[0].equals("logcat")) {
+                for (String arg : args) {
+                    if (arg.equals("*:S")) {
+                        mSilenceOthers = true;
+                    } else if (arg.contains(":")) {
+                        mTags.add(arg.substring(0, arg.indexOf(':')));
+                    }
+                }
+                // Large enough for the bounded lines test to not block the writer.
+                return new PipedInputStream(mLogcat, 8 * 1024 * 1024);
+            }
+            if (args[0].equals("log")) {
+                log(args[2], command.substring(command.indexOf(args[3])));
+            }
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        void log(String tag, String message) throws IOException {
+            if (mSilenceOthers && !mTags.contains(tag)) {
+                return;
+            }
+            String line = "1700000000.000000  1000  1000 I " + tag + ": " + message + "\n";
+            mLogcat.write(line.getBytes(StandardCharsets.UTF_8));
+            mLogcat.flush();
+        }
+    }
+}
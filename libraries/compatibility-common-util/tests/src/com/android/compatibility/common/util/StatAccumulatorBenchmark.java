@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.compatibility.common.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the throughput of {@link StatAccumulator} against the exact {@link Stat} methods, from
+ * recording the samples to getting their summary, median and 95th percentile. Timings depend on
+ * the machine, so this isn't run with the unit tests, {@link StatAccumulatorTest} checks the
+ * accuracy. Run it with:
+ *
+ * <pre>
+ * java -cp compatibility-common-util-tests.jar \
+ *     com.android.compatibility.common.util.StatAccumulatorBenchmark [samples]
+ * </pre>
+ */
+public class StatAccumulatorBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        double[] samples = new double[count];
+        Random random = new Random(0);
+        for (int i = 0; i < count; i++) {
+            // Log-normal, like latencies in milliseconds.
+            samples[i] = Math.exp(2 + random.nextGaussian() * 0.5);
+        }
+        // The first rounds warm up the JIT, the last one is reported.
+        for (int round = 1; round <= ROUNDS; round++) {
+            boolean report = round == ROUNDS;
+            double[] exact = runExact(samples, report);
+            double[] sketch = runAccumulator(samples, report);
+            if (report) {
+                System.out.printf(
+                        "Relative error: median %.4f, 95th percentile %.4f%n",
+                        Math.abs(sketch[0] - exact[0]) / exact[0],
+                        Math.abs(sketch[1] - exact[1]) / exact[1]);
+            }
+        }
+    }
+
+    /** Records the samples in a growing array, as tests do, and summarizes them with {@link Stat}. */
+    private static double[] runExact(double[] samples, boolean report) {
+        long start = System.nanoTime();
+        double[] recorded = new double[16];
+        for (int i = 0; i < samples.length; i++) {
+            if (i == recorded.length) {
+                recorded = Arrays.copyOf(recorded, recorded.length * 2);
+            }
+            recorded[i] = samples[i];
+        }
+        recorded = Arrays.copyOf(recorded, samples.length);
+        double median = Stat.getStat(recorded).mMedian;
+        double percentile95 = Stat.get95PercentileValue(recorded);
+        if (report) {
+            report("Stat", samples.length, start);
+        }
+        return new double[] {median, percentile95};
+    }
+
+    private static double[] runAccumulator(double[] samples, boolean report) {
+        long start = System.nanoTime();
+        StatAccumulator accumulator = new StatAccumulator();
+        for (double sample : samples) {
+            accumulator.add(sample);
+        }
+        double median = accumulator.getStat().mMedian;
+        double percentile95 = accumulator.get95PercentileValue();
+        if (report) {
+            report("StatAccumulator", samples.length, start);
+        }
+        return new double[] {median, percentile95};
+    }
+
+    private static void report(String name, int count, long start) {
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        System.out.printf(
+                "%s: %d samples in %d ms (%.1f M samples/s)%n",
+                name, count, millis, count / 1000.0 / millis);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.compatibility.common.util;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Unit tests for the {@link StatAccumulator} class, including accuracy comparisons against the
+ * exact {@link Stat} methods. {@link StatAccumulatorBenchmark} compares their throughput.
+ */
+public class StatAccumulatorTest extends TestCase {
+
+    private static final int SAMPLE_COUNT = 1_000_000;
+
+    /** Test that average, stddev, min and max match {@link Stat#getStat(double[])}. */
+    public void testMatchesExactStat() {
+        double[] values = new double[] {0, 1, 2, 3, 4, 10, -3.5};
+        StatAccumulator accumulator = new StatAccumulator();
+        accumulator.addAll(values);
+        Stat.StatResult exact = Stat.getStat(values);
+        assertEquals(exact.mAverage, accumulator.getAverage(), 0.00001);
+        assertEquals(exact.mStddev, accumulator.getStddev(), 0.00001);
+        assertEquals(exact.mMin, accumulator.getMin());
+        assertEquals(exact.mMax, accumulator.getMax());
+        assertEquals(exact.mDataCount, accumulator.getCount());
+    }
+
+    /** Test that an empty accumulator reports NaN rather than throwing. */
+    public void testEmpty() {
+        StatAccumulator accumulator = new StatAccumulator();
+        assertEquals(0, accumulator.getCount());
+        assertTrue(Double.isNaN(accumulator.getAverage()));
+        assertTrue(Double.isNaN(accumulator.getMedian()));
+    }
+
+    /** Test that quantile estimates are within the relative accuracy of the exact values. */
+    public void testQuantileAccuracy() {
+        double[] values = latencies(new Random(0), SAMPLE_COUNT);
+        StatAccumulator accumulator = new StatAccumulator();
+        accumulator.addAll(values);
+
+        double[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted);
+        for (double quantile : new double[] {0.01, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99}) {
+            double exact = sorted[(int) (quantile * (sorted.length - 1))];
+            assertEquals(
+                    "quantile " + quantile,
+                    exact,
+                    accumulator.getQuantile(quantile),
+                    exact * StatAccumulator.DEFAULT_RELATIVE_ACCURACY);
+        }
+        double exactMedian = Stat.getStat(values).mMedian;
+        assertEquals(exactMedian, accumulator.getMedian(), exactMedian * 0.02);
+        double exact95 = Stat.get95PercentileValue(values);
+        assertEquals(exact95, accumulator.get95PercentileValue(), exact95 * 0.02);
+    }
+
+    /** Test that merging accumulators is equivalent to adding all the samples to one. */
+    public void testMerge() {
+        Random random = new Random(1);
+        double[] first = latencies(random, 10_000);
+        double[] second = latencies(random, 20_000);
+        StatAccumulator all = new StatAccumulator();
+        all.addAll(first);
+        all.addAll(second);
+        StatAccumulator merged = new StatAccumulator();
+        merged.addAll(first);
+        StatAccumulator other = new StatAccumulator();
+        other.addAll(second);
+        merged.merge(other);
+
+        assertEquals(all.getCount(), merged.getCount());
+        assertEquals(all.getAverage(), merged.getAverage(), 0.00001);
+        assertEquals(all.getStddev(), merged.getStddev(), 0.00001);
+        assertEquals(all.getMin(), merged.getMin());
+        assertEquals(all.getMax(), merged.getMax());
+        assertEquals(all.getMedian(), merged.getMedian());
+        assertEquals(all.get95PercentileValue(), merged.get95PercentileValue());
+    }
+
+    /** Test that memory stays bounded when the samples span more buckets than allowed. */
+    public void testBoundedBuckets() {
+        StatAccumulator accumulator = new StatAccumulator(0.01, 64);
+        for (int i = 0; i < 100; i++) {
+            accumulator.add(Math.pow(10, i % 20 - 10));
+        }
+        // The highest values are still accurate, the lowest ones are collapsed.
+        assertEquals(1e9, accumulator.getQuantile(1), 1e9 * 0.01);
+        assertTrue(accumulator.getQuantile(0) >= accumulator.getMin());
+    }
+
+    /** Test that accumulators with fewer buckets than initially allocated stay bounded. */
+    public void testFewerBucketsThanInitial() {
+        StatAccumulator accumulator = new StatAccumulator(0.01, 4);
+        for (int i = 0; i < 100; i++) {
+            accumulator.add(Math.pow(10, i % 20 - 10));
+        }
+        assertEquals(1e9, accumulator.getQuantile(1), 1e9 * 0.01);
+        assertTrue(accumulator.getQuantile(0) >= accumulator.getMin());
+    }
+
+    /** Test that quantiles of negative samples are accurate, and that collapsing keeps extremes. */
+    public void testNegativeValues() {
+        double[] values = latencies(new Random(2), 10_000);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = -values[i];
+        }
+        StatAccumulator accumulator = new StatAccumulator();
+        accumulator.addAll(values);
+        double[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted);
+        for (double quantile : new double[] {0.01, 0.5, 0.99}) {
+            double exact = sorted[(int) (quantile * (sorted.length - 1))];
+            assertEquals(
+                    "quantile " + quantile,
+                    exact,
+                    accumulator.getQuantile(quantile),
+                    -exact * StatAccumulator.DEFAULT_RELATIVE_ACCURACY);
+        }
+
+        StatAccumulator bounded = new StatAccumulator(0.01, 64);
+        for (int i = 0; i < 100; i++) {
+            bounded.add(-Math.pow(10, i % 20 - 10));
+        }
+        // The lowest values are still accurate, the highest ones (closest to zero) are collapsed.
+        assertEquals(-1e9, bounded.getQuantile(0), 1e9 * 0.01);
+        assertTrue(bounded.getQuantile(1) <= bounded.getMax());
+    }
+
+    /** Test that NaN and infinite samples are rejected. */
+    public void testRejectsNonFiniteValues() {
+        StatAccumulator accumulator = new StatAccumulator();
+        for (double value :
+                new double[] {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            try {
+                accumulator.add(value);
+                fail("Expected IllegalArgumentException for " + value);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        assertEquals(0, accumulator.getCount());
+    }
+
+    /** Returns log-normally distributed values, resembling latencies in milliseconds. */
+    private static double[] latencies(Random random, int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = Math.exp(2 + random.nextGaussian() * 0.5);
+        }
+        return values;
+    }
+}
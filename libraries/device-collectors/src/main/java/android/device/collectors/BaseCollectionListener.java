@@ -142,7 +142,7 @@ public class BaseCollectionListener<T> extends BaseMetricListener {
     protected void collectMetrics(DataRecord data) {
         Map<String, T> metrics = mHelper.getMetrics();
         for (Map.Entry<String, T> entry : metrics.entrySet()) {
-            data.addStringMetric(entry.getKey(), entry.getValue().toString());
+            data.addMetric(entry.getKey(), entry.getValue());
         }
     }
 
@@ -17,13 +17,17 @@ package android.device.collectors;
 
 import android.device.collectors.annotations.MetricOption;
 import android.device.collectors.annotations.OptionClass;
+import android.device.collectors.util.CollectorOverheadTracker;
 import android.device.collectors.util.SendToInstrumentation;
 import android.os.Bundle;
 import android.os.Environment;
 import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
 import android.os.Trace;
 import androidx.annotation.VisibleForTesting;
 import android.util.Log;
+import com.android.helpers.MetricUtility;
+import com.android.helpers.ShellSession;
 
 import androidx.test.InstrumentationRegistry;
 import androidx.test.internal.runner.listener.InstrumentationRunListener;
@@ -69,6 +73,20 @@ import java.util.Set;
  * group using '--exclude-filter-group [group name]'.
  * Several group name can be passed using a comma separated argument.
  *
+ * Overhead:
+ * Passing '--report_collector_overhead true' makes the collector report the wall time it spent in
+ * its own callbacks, the number of shell commands it issued through
+ * {@link #executeCommandBlocking(String)}, their latency and the bytes read back from them,
+ * namespaced under "collector_overhead_[collector name]_". '--report_collector_overhead_histogram
+ * true' adds per-hook duration and per-shell-command latency histograms to the run metrics.
+ *
+ * Shell session:
+ * Passing '--use_shell_session true' runs the commands of {@link #executeCommandBlocking(String)}
+ * in the {@link ShellSession} shared by the instrumentation, instead of spawning a process for each
+ * of them. Commands are then interpreted by the shell, so quotes and redirections in them take
+ * effect. The helpers running commands through {@link MetricUtility#executeCommandBlocking} use the
+ * session too.
+ *
  */
 public class BaseMetricListener extends InstrumentationRunListener {
 
@@ -92,6 +110,16 @@ public class BaseMetricListener extends InstrumentationRunListener {
     // For example if overall iteration is 10 and skip until iteration is set
     // to 3. Metric will not be collected for 1st,2nd and 3rd iteration.
     public static final String SKIP_METRIC_UNTIL_ITERATION = "skip_metric_until_iteration";
+    // Report the time spent by the collector in its own callbacks.
+    public static final String REPORT_COLLECTOR_OVERHEAD = "report_collector_overhead";
+    // Also report a per-hook histogram of the callback durations for the whole run.
+    public static final String REPORT_COLLECTOR_OVERHEAD_HISTOGRAM =
+            "report_collector_overhead_histogram";
+    public static final String COLLECTOR_OVERHEAD_PREFIX = "collector_overhead_";
+    // Report typed numeric metrics as a single compact byte[] instead of one string each.
+    public static final String COMPACT_METRIC_ENCODING = "compact_metric_encoding";
+    // Run the shell commands in the shell session shared by the instrumentation.
+    public static final String USE_SHELL_SESSION = "use_shell_session";
 
     private static final String NAMESPACE_SEPARATOR = ":";
 
@@ -111,6 +139,13 @@ public class BaseMetricListener extends InstrumentationRunListener {
     // which do not have the information to invoke InstrumentationRunFinished() to report metrics.
     private boolean mReportAsInstrumentationResults = false;
 
+    private final CollectorOverheadTracker mOverhead = new CollectorOverheadTracker();
+    private boolean mReportOverhead = false;
+    private boolean mReportOverheadHistogram = false;
+    private String mOverheadPrefix;
+    private boolean mCompactMetricEncoding = false;
+    private boolean mUseShellSession = false;
+
     public BaseMetricListener() {
         mIncludeFilters = new ArrayList<>();
         mExcludeFilters = new ArrayList<>();
@@ -129,7 +164,11 @@ public class BaseMetricListener extends InstrumentationRunListener {
     @Override
     public final void testRunStarted(Description description) throws Exception {
         Trace.beginSection(this.getClass().getSimpleName() + ":testRunStarted");
+        long start = mOverhead.begin();
         setUp();
+        if (mReportOverhead) {
+            mOverhead.resetRun();
+        }
         if (!mLogOnly) {
             try {
                 mRunData = createDataRecord();
@@ -139,6 +178,9 @@ public class BaseMetricListener extends InstrumentationRunListener {
                 Log.e(getTag(), "Exception during onTestRunStart.", e);
             }
         }
+        if (mReportOverhead) {
+            mOverhead.end(CollectorOverheadTracker.HOOK_TEST_RUN_STARTED, start);
+        }
         super.testRunStarted(description);
         Trace.endSection();
     }
@@ -146,6 +188,7 @@ public class BaseMetricListener extends InstrumentationRunListener {
     @Override
     public final void testRunFinished(Result result) throws Exception {
         Trace.beginSection(this.getClass().getSimpleName() + ":testRunFinished");
+        long start = mOverhead.begin();
         if (!mLogOnly) {
             try {
                 onTestRunEnd(mRunData, result);
@@ -153,6 +196,11 @@ public class BaseMetricListener extends InstrumentationRunListener {
                 // Prevent exception from reporting events.
                 Log.e(getTag(), "Exception during onTestRunEnd.", e);
             }
+            if (mReportOverhead) {
+                mOverhead.end(CollectorOverheadTracker.HOOK_TEST_RUN_FINISHED, start);
+                mOverhead.reportRun(
+                        mRunData::addStringMetric, mOverheadPrefix, mReportOverheadHistogram);
+            }
         }
         cleanUp();
         super.testRunFinished(result);
@@ -162,6 +210,10 @@ public class BaseMetricListener extends InstrumentationRunListener {
     @Override
     public final void testStarted(Description description) throws Exception {
         Trace.beginSection(this.getClass().getSimpleName() + ":testStarted");
+        long start = mOverhead.begin();
+        if (mReportOverhead) {
+            mOverhead.resetTest();
+        }
         // Update the current invocation before proceeding with metric collection.
         // mTestIdInvocationCount uses 1 indexing.
         mTestIdInvocationCount.compute(description.toString(),
@@ -175,6 +227,9 @@ public class BaseMetricListener extends InstrumentationRunListener {
                 // Prevent exception from reporting events.
                 Log.e(getTag(), "Exception during onTestStart.", e);
             }
+            if (mReportOverhead) {
+                mOverhead.end(CollectorOverheadTracker.HOOK_TEST_STARTED, start);
+            }
         }
         super.testStarted(description);
         Trace.endSection();
@@ -184,12 +239,16 @@ public class BaseMetricListener extends InstrumentationRunListener {
     public final void testFailure(Failure failure) throws Exception {
         Description description = failure.getDescription();
         if (shouldRun(description)) {
+            long start = mOverhead.begin();
             try {
                 onTestFail(mTestData, description, failure);
             } catch (RuntimeException e) {
                 // Prevent exception from reporting events.
                 Log.e(getTag(), "Exception during onTestFail.", e);
             }
+            if (mReportOverhead) {
+                mOverhead.end(CollectorOverheadTracker.HOOK_TEST_FAILURE, start);
+            }
         }
         super.testFailure(failure);
     }
@@ -197,6 +256,7 @@ public class BaseMetricListener extends InstrumentationRunListener {
     @Override
     public final void testFinished(Description description) throws Exception {
         Trace.beginSection(this.getClass().getSimpleName() + ":testFinished");
+        long start = mOverhead.begin();
         if (shouldRun(description)) {
             try {
                 onTestEnd(mTestData, description);
@@ -204,6 +264,10 @@ public class BaseMetricListener extends InstrumentationRunListener {
                 // Prevent exception from reporting events.
                 Log.e(getTag(), "Exception during onTestEnd.", e);
             }
+            if (mReportOverhead) {
+                mOverhead.end(CollectorOverheadTracker.HOOK_TEST_FINISHED, start);
+                mOverhead.reportTest(mTestData::addStringMetric, mOverheadPrefix);
+            }
             if (mTestData.hasMetrics()) {
                 // Only send the status progress if there are metrics
                 if (mReportAsInstrumentationResults) {
@@ -254,7 +318,9 @@ public class BaseMetricListener extends InstrumentationRunListener {
      */
     @VisibleForTesting
     DataRecord createDataRecord() {
-        return new DataRecord();
+        DataRecord record = new DataRecord();
+        record.setCompactEncoding(mCompactMetricEncoding, getTag());
+        return record;
     }
 
     // ---------- Interfaces that can be implemented to set up and clean up metric collection.
@@ -336,6 +402,21 @@ public class BaseMetricListener extends InstrumentationRunListener {
      * @return byte array of execution result
      */
     public byte[] executeCommandBlocking(String command) {
+        if (mUseShellSession) {
+            try {
+                ShellSession.Result result = ShellSession.getInstance(getInstrumentation())
+                        .execute(command);
+                if (mReportOverhead) {
+                    mOverhead.recordShellCommand(
+                            result.getOutput().length, result.getLatencyNanos());
+                }
+                return result.getOutput();
+            } catch (IOException e) {
+                Log.e(getTag(), "Error executing: " + command, e);
+                return null;
+            }
+        }
+        long start = mOverhead.begin();
         try (
                 InputStream is = new ParcelFileDescriptor.AutoCloseInputStream(
                         getInstrumentation().getUiAutomation().executeShellCommand(command));
@@ -346,6 +427,10 @@ public class BaseMetricListener extends InstrumentationRunListener {
             while ((length = is.read(buf)) >= 0) {
                 out.write(buf, 0, length);
             }
+            if (mReportOverhead) {
+                mOverhead.recordShellCommand(
+                        out.size(), SystemClock.elapsedRealtimeNanos() - start);
+            }
             return out.toByteArray();
         } catch (IOException e) {
             Log.e(getTag(), "Error executing: " + command, e);
@@ -479,6 +564,22 @@ public class BaseMetricListener extends InstrumentationRunListener {
         if (logOnly != null) {
             mLogOnly = Boolean.parseBoolean(logOnly);
         }
+        mCompactMetricEncoding = Boolean.parseBoolean(args.getString(COMPACT_METRIC_ENCODING));
+        mUseShellSession = Boolean.parseBoolean(args.getString(USE_SHELL_SESSION));
+        if (mUseShellSession) {
+            MetricUtility.setUseShellSession(true);
+        }
+        mReportOverhead = Boolean.parseBoolean(args.getString(REPORT_COLLECTOR_OVERHEAD));
+        mReportOverheadHistogram =
+                Boolean.parseBoolean(args.getString(REPORT_COLLECTOR_OVERHEAD_HISTOGRAM));
+        if (mReportOverhead && mOverheadPrefix == null) {
+            String name = getClass().getSimpleName();
+            if (name.isEmpty()) {
+                // Anonymous collectors have no simple name.
+                name = getClass().getName();
+            }
+            mOverheadPrefix = COLLECTOR_OVERHEAD_PREFIX + name + "_";
+        }
     }
 
     /**
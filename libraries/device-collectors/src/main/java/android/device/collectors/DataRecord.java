@@ -15,22 +15,52 @@
  */
 package android.device.collectors;
 
+import android.device.collectors.util.CompactMetricEncoding;
 import android.os.Bundle;
+import android.util.Log;
 import androidx.annotation.VisibleForTesting;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * Object to hold all the data collected by metric collectors.
+ *
+ * <p>Numeric metrics added through {@link #addLongMetric}, {@link #addDoubleMetric} and {@link
+ * #addDoubleArrayMetric} are kept in primitive arrays and only formatted when the metrics are
+ * reported. By default they are reported as strings like any other metric; when compact encoding
+ * is enabled they are all reported as a single byte[] under {@link
+ * CompactMetricEncoding#getMetricsKey(String)} for the collector, to be decoded with {@link
+ * CompactMetricEncoding#decode(byte[])}.
  */
 public class DataRecord {
+    private static final String TAG = DataRecord.class.getSimpleName();
+    private static final int INITIAL_CAPACITY = 16;
+    private static final String ARRAY_SEPARATOR = ",";
+
     // TODO: expend type supports to more complex type: Object,etc.
     private LinkedHashMap<String, String> mCurrentStringMetrics = new LinkedHashMap<>();
     private LinkedHashMap<String, File> mCurrentFileMetrics = new LinkedHashMap<>();
     private LinkedHashMap<String, byte[]> mCurrentBinaryMetrics = new LinkedHashMap<>();
 
+    // Numeric metrics are append-only: a later value for the same key replaces the earlier one
+    // when reported, the same way a map would.
+    private String[] mLongKeys = new String[INITIAL_CAPACITY];
+    private long[] mLongValues = new long[INITIAL_CAPACITY];
+    private int mLongCount = 0;
+    private String[] mDoubleKeys = new String[INITIAL_CAPACITY];
+    private double[] mDoubleValues = new double[INITIAL_CAPACITY];
+    private int mDoubleCount = 0;
+    private ArrayList<String> mDoubleArrayKeys = new ArrayList<>();
+    private ArrayList<double[]> mDoubleArrayValues = new ArrayList<>();
+
+    // Key of the compact numeric metrics, or null to report them as strings.
+    private String mCompactMetricsKey = null;
+
     /**
      * Add a metric to be tracked by a key.
      *
@@ -62,12 +92,89 @@ public class DataRecord {
         mCurrentBinaryMetrics.put(key, value);
     }
 
+    /**
+     * Add a metric of unknown type to be tracked by a key: integral values and doubles are added
+     * as numeric metrics, anything else as its string value.
+     *
+     * @param key the key under which to find the metric
+     * @param value the value associated with the key
+     */
+    public void addMetric(String key, Object value) {
+        if (value instanceof Long
+                || value instanceof Integer
+                || value instanceof Short
+                || value instanceof Byte) {
+            addLongMetric(key, ((Number) value).longValue());
+        } else if (value instanceof Double) {
+            addDoubleMetric(key, (Double) value);
+        } else {
+            // Floats are kept as strings, their double value wouldn't print the same.
+            addStringMetric(key, String.valueOf(value));
+        }
+    }
+
+    /**
+     * Add a long metric to be tracked by a key.
+     *
+     * @param key the key under which to find the metric
+     * @param value the value associated with the key
+     */
+    public void addLongMetric(String key, long value) {
+        if (mLongCount == mLongKeys.length) {
+            mLongKeys = Arrays.copyOf(mLongKeys, mLongCount * 2);
+            mLongValues = Arrays.copyOf(mLongValues, mLongCount * 2);
+        }
+        mLongKeys[mLongCount] = key;
+        mLongValues[mLongCount] = value;
+        mLongCount++;
+    }
+
+    /**
+     * Add a double metric to be tracked by a key.
+     *
+     * @param key the key under which to find the metric
+     * @param value the value associated with the key
+     */
+    public void addDoubleMetric(String key, double value) {
+        if (mDoubleCount == mDoubleKeys.length) {
+            mDoubleKeys = Arrays.copyOf(mDoubleKeys, mDoubleCount * 2);
+            mDoubleValues = Arrays.copyOf(mDoubleValues, mDoubleCount * 2);
+        }
+        mDoubleKeys[mDoubleCount] = key;
+        mDoubleValues[mDoubleCount] = value;
+        mDoubleCount++;
+    }
+
+    /**
+     * Add a double[] metric to be tracked by a key. When reported as a string, the values are
+     * separated by commas.
+     *
+     * @param key the key under which to find the metric
+     * @param values the values associated with the key
+     */
+    public void addDoubleArrayMetric(String key, double[] values) {
+        mDoubleArrayKeys.add(key);
+        mDoubleArrayValues.add(values);
+    }
+
+    /**
+     * Sets whether the numeric metrics are reported as a single compact byte[] rather than one
+     * string per metric.
+     *
+     * @param tag the tag of the collector reporting the metrics, to report them under a key of
+     *     their own.
+     */
+    public void setCompactEncoding(boolean enabled, String tag) {
+        mCompactMetricsKey = enabled ? CompactMetricEncoding.getMetricsKey(tag) : null;
+    }
+
     /**
      * Returns True if the {@link DataRecord} already contains some metrics, False otherwise.
      */
     public boolean hasMetrics() {
         return (mCurrentStringMetrics.size() + mCurrentFileMetrics.size()
-                + mCurrentBinaryMetrics.size()) > 0;
+                + mCurrentBinaryMetrics.size() + mLongCount + mDoubleCount
+                + mDoubleArrayKeys.size()) > 0;
     }
 
     /**
@@ -96,9 +203,58 @@ public class DataRecord {
         for (String key : mCurrentBinaryMetrics.keySet()) {
             b.putByteArray(key, mCurrentBinaryMetrics.get(key));
         }
+        if (mCompactMetricsKey != null) {
+            putCompactNumericMetrics(b);
+        } else {
+            putNumericMetricsAsStrings(b);
+        }
         return b;
     }
 
+    private void putNumericMetricsAsStrings(Bundle b) {
+        for (int i = 0; i < mLongCount; i++) {
+            b.putString(mLongKeys[i], Long.toString(mLongValues[i]));
+        }
+        for (int i = 0; i < mDoubleCount; i++) {
+            b.putString(mDoubleKeys[i], Double.toString(mDoubleValues[i]));
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < mDoubleArrayKeys.size(); i++) {
+            sb.setLength(0);
+            double[] values = mDoubleArrayValues.get(i);
+            for (int j = 0; j < values.length; j++) {
+                if (j > 0) {
+                    sb.append(ARRAY_SEPARATOR);
+                }
+                sb.append(values[j]);
+            }
+            b.putString(mDoubleArrayKeys.get(i), sb.toString());
+        }
+    }
+
+    private void putCompactNumericMetrics(Bundle b) {
+        if (mLongCount + mDoubleCount + mDoubleArrayKeys.size() == 0) {
+            return;
+        }
+        CompactMetricEncoding encoding = new CompactMetricEncoding();
+        try {
+            for (int i = 0; i < mLongCount; i++) {
+                encoding.writeLong(mLongKeys[i], mLongValues[i]);
+            }
+            for (int i = 0; i < mDoubleCount; i++) {
+                encoding.writeDouble(mDoubleKeys[i], mDoubleValues[i]);
+            }
+            for (int i = 0; i < mDoubleArrayKeys.size(); i++) {
+                encoding.writeDoubleArray(mDoubleArrayKeys.get(i), mDoubleArrayValues.get(i));
+            }
+            b.putByteArray(mCompactMetricsKey, encoding.toByteArray());
+        } catch (IOException e) {
+            // Writing to memory should not fail, fall back to strings if it does.
+            Log.e(TAG, "Failed to encode numeric metrics, reporting them as strings.", e);
+            putNumericMetricsAsStrings(b);
+        }
+    }
+
     /**
      * Create a {@link Bundle} that will hold the metrics. Exposed for testing.
      */
@@ -111,5 +267,11 @@ public class DataRecord {
         mCurrentStringMetrics.clear();
         mCurrentFileMetrics.clear();
         mCurrentBinaryMetrics.clear();
+        Arrays.fill(mLongKeys, 0, mLongCount, null);
+        mLongCount = 0;
+        Arrays.fill(mDoubleKeys, 0, mDoubleCount, null);
+        mDoubleCount = 0;
+        mDoubleArrayKeys.clear();
+        mDoubleArrayValues.clear();
     }
 }
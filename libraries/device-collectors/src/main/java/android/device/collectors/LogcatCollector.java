@@ -25,16 +25,37 @@ import org.junit.runner.Description;
 import org.junit.runner.notification.Failure;
 import org.junit.runner.Result;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 import java.text.SimpleDateFormat;
 
 /**
  * A {@link LogcatCollector} that captures logcat after each test.
  *
+ * <p>With {@link #CONTINUOUS_LOGCAT}, logcat is instead read continuously into a file for the whole
+ * run, and the logcat of each test is cut from it. This doesn't lose the lines that were dropped
+ * from the logcat buffers before the end of long tests, and doesn't read logcat again for each
+ * test. The file is capped at {@link #CONTINUOUS_LOGCAT_MAX_SIZE_KB}: the lines of the previous
+ * tests are dropped from it once it's half full, and the logcat of a test that doesn't fit is
+ * dumped at its end instead.
+ *
  * This class needs external storage permission. See {@link BaseMetricListener} how to grant
  * external storage permission, especially at install time.
  *
@@ -50,10 +71,22 @@ public class LogcatCollector extends BaseMetricListener {
             "before-logcat-duration-secs";
     @VisibleForTesting static final String COLLECT_ON_FAILURE_ONLY = "collect-on-failure-only";
     @VisibleForTesting static final String RETURN_LOGCAT_DIR = "return-logcat-directory";
+    @VisibleForTesting static final String CONTINUOUS_LOGCAT = "continuous-logcat";
+    @VisibleForTesting static final String COMPRESS_PASSED_TEST_LOGCAT =
+            "compress-passed-test-logcat";
+    @VisibleForTesting static final String CONTINUOUS_LOGCAT_MAX_SIZE_KB =
+            "continuous-logcat-max-size-kb";
     @VisibleForTesting static final String DEFAULT_DIR = "run_listeners/logcats";
+    @VisibleForTesting static final String RUN_LOGCAT_FILE_NAME = "run-logcat.txt";
 
     private static final int BUFFER_SIZE = 16 * 1024;
-
+    private static final long DEFAULT_CONTINUOUS_LOGCAT_MAX_SIZE_KB = 64 * 1024;
+    // Maximum time to wait for the continuous logcat to catch up at the end of a test.
+    private static final long SYNC_TIMEOUT_MS = 2000;
+    // Length of the "MM-dd HH:mm:ss.SSS" timestamps at the start of logcat lines, and of their
+    // "MM-dd HH:mm:ss" prefix.
+    private static final int TIMESTAMP_LENGTH = 18;
+    private static final int SECOND_LENGTH = 14;
 
     private File mDestDir;
     private String mStartTime = null;
@@ -66,6 +99,14 @@ public class LogcatCollector extends BaseMetricListener {
     // otherwise individual logcat file will be reported associated with the test.
     // The final directory which contains all the logcat files will be <DEFAULT_DIR>_all.
     private boolean mReturnLogcatDir = false;
+    // Use this flag to read logcat continuously during the run and cut the logcat of each test
+    // from it, instead of dumping logcat at the end of each test.
+    private boolean mContinuousLogcat = false;
+    // Use this flag to compress the logcat of passing tests, with the continuous logcat.
+    private boolean mCompressPassedTestLogcat = false;
+    // Maximum size of the continuous logcat file.
+    private long mContinuousLogcatMaxSizeKb = DEFAULT_CONTINUOUS_LOGCAT_MAX_SIZE_KB;
+    private LogcatReader mLogcatReader;
 
     // Map to keep track of test iterations for multiple test iterations.
     private HashMap<Description, Integer> mTestIterations = new HashMap<>();
@@ -89,6 +130,19 @@ public class LogcatCollector extends BaseMetricListener {
         // Capture the start time in case onTestStart() is never called due to failure during
         // @BeforeClass.
         mStartTime = getLogcatStartTime();
+        if (mContinuousLogcat && mDestDir != null) {
+            File runLogcat = new File(mDestDir, RUN_LOGCAT_FILE_NAME);
+            try {
+                mLogcatReader =
+                        new LogcatReader(
+                                startLogcat(mStartTime),
+                                runLogcat,
+                                mContinuousLogcatMaxSizeKb * 1024);
+                mLogcatReader.start();
+            } catch (IOException e) {
+                Log.e(getTag(), "Failed to start logcat, dumping it at the end of each test.", e);
+            }
+        }
     }
 
     @Override
@@ -131,8 +185,18 @@ public class LogcatCollector extends BaseMetricListener {
                                 description.getMethodName(),
                                 iteration == 1 ? "" : (METRIC_SEP + String.valueOf(iteration)),
                                 METRIC_SEP + FILENAME_SUFFIX);
-                File logcat = new File(mDestDir, fileName);
-                getLogcatSince(mStartTime, logcat);
+                File logcat = null;
+                if (mLogcatReader != null) {
+                    boolean compress = mCompressPassedTestLogcat && !mTestFailed;
+                    logcat = new File(mDestDir, compress ? fileName + ".gz" : fileName);
+                    if (!mLogcatReader.copySince(mStartTime, logcat, compress)) {
+                        logcat = null;
+                    }
+                }
+                if (logcat == null) {
+                    logcat = new File(mDestDir, fileName);
+                    getLogcatSince(mStartTime, logcat);
+                }
                 if (!mReturnLogcatDir) {
                     // Do not return individual logcat file path if the logcat directory
                     // option is enabled. Logcat root directory path will be returned in the
@@ -150,10 +214,23 @@ public class LogcatCollector extends BaseMetricListener {
         // Update the start time here in case onTestStart() is not called for the next test. If it
         // is called, the start time will be overwritten.
         mStartTime = getLogcatStartTime();
+        if (mLogcatReader != null) {
+            try {
+                mLogcatReader.trimBefore(mStartTime);
+            } catch (IOException e) {
+                Log.e(getTag(), "Failed to trim logcat, dumping it at the end of each test.", e);
+                mLogcatReader.finish();
+                mLogcatReader = null;
+            }
+        }
     }
 
     @Override
     public void onTestRunEnd(DataRecord runData, Result result) {
+        if (mLogcatReader != null) {
+            mLogcatReader.finish();
+            mLogcatReader = null;
+        }
         if (mReturnLogcatDir) {
             runData.addStringMetric(getTag(), mDestDir.getAbsolutePath().toString());
         }
@@ -174,6 +251,13 @@ public class LogcatCollector extends BaseMetricListener {
         proc.waitFor();
     }
 
+    /** Starts reading logcat from {@code startTime}, until the process is destroyed. */
+    @VisibleForTesting
+    protected Process startLogcat(String startTime) throws IOException {
+        // Same as getLogcatSince(), but without -d so that logcat keeps reading new lines.
+        return new ProcessBuilder(Arrays.asList("logcat", "-T", startTime)).start();
+    }
+
     @VisibleForTesting
     protected String getLogcatStartTime() {
         Date date = new Date(System.currentTimeMillis());
@@ -204,5 +288,301 @@ public class LogcatCollector extends BaseMetricListener {
                     .parseBoolean(args.getString(RETURN_LOGCAT_DIR));
         }
 
+        if (args.getString(CONTINUOUS_LOGCAT) != null) {
+            mContinuousLogcat = Boolean.parseBoolean(args.getString(CONTINUOUS_LOGCAT));
+        }
+
+        if (args.getString(COMPRESS_PASSED_TEST_LOGCAT) != null) {
+            mCompressPassedTestLogcat =
+                    Boolean.parseBoolean(args.getString(COMPRESS_PASSED_TEST_LOGCAT));
+        }
+
+        String maxSizeKb = args.getString(CONTINUOUS_LOGCAT_MAX_SIZE_KB);
+        if (maxSizeKb != null) {
+            try {
+                mContinuousLogcatMaxSizeKb = Long.parseLong(maxSizeKb);
+            } catch (NumberFormatException e) {
+                Log.e(
+                        getTag(),
+                        String.format(
+                                "Invalid continuous logcat max size: %s, using %d KB.",
+                                maxSizeKb, DEFAULT_CONTINUOUS_LOGCAT_MAX_SIZE_KB),
+                        e);
+            }
+        }
+    }
+
+    /** Returns whether {@code line} starts with a "MM-dd HH:mm:ss.SSS" timestamp. */
+    private static boolean hasTimestamp(String line) {
+        return line.length() >= TIMESTAMP_LENGTH
+                && Character.isDigit(line.charAt(0))
+                && line.charAt(2) == '-'
+                && line.charAt(5) == ' '
+                && line.charAt(SECOND_LENGTH) == '.';
+    }
+
+    /**
+     * Reads logcat into a file, and indexes the offset of the first line of each second so that
+     * the lines since a given time can be copied without reading the file from the start.
+     *
+     * <p>The file doesn't grow over a maximum size: the lines that don't fit are dropped, and the
+     * lines logged before a given time can be trimmed from it.
+     */
+    private class LogcatReader extends Thread {
+        private final Process mProcess;
+        private final File mFile;
+        private final long mMaxBytes;
+        private final Object mLock = new Object();
+
+        // Guarded by mLock.
+        private final TreeMap<String, Long> mSecondOffsets = new TreeMap<>();
+        private OutputStream mOutput;
+        private long mOffset;
+        private String mMarker;
+        private long mMarkerOffset = -1;
+        private boolean mFinished;
+        // Whether lines were dropped as the file was full, since the last trim.
+        private boolean mDropped;
+        // Whether lines were dropped before the last trim, which may belong to the next test.
+        private boolean mIncomplete;
+
+        LogcatReader(Process process, File file, long maxBytes) throws IOException {
+            super("logcat-collector");
+            mProcess = process;
+            mFile = file;
+            mMaxBytes = maxBytes;
+            mOutput = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        }
+
+        @Override
+        public void run() {
+            try (BufferedReader reader =
+                    new BufferedReader(
+                            new InputStreamReader(
+                                    mProcess.getInputStream(), StandardCharsets.UTF_8),
+                            BUFFER_SIZE)) {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    synchronized (mLock) {
+                        if (mMarker != null && line.contains(mMarker)) {
+                            // Logcat caught up with the end of the test. The marker itself is
+                            // left out of the file.
+                            mOutput.flush();
+                            mMarkerOffset = mOffset;
+                            mMarker = null;
+                            mLock.notifyAll();
+                            continue;
+                        }
+                        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+                        if (mOffset + bytes.length > mMaxBytes) {
+                            if (!mDropped) {
+                                Log.w(getTag(), "Run logcat is full, dumping it at the test end.");
+                                mDropped = true;
+                            }
+                            continue;
+                        }
+                        if (hasTimestamp(line)) {
+                            mSecondOffsets.putIfAbsent(line.substring(0, SECOND_LENGTH), mOffset);
+                        }
+                        mOutput.write(bytes);
+                        mOffset += bytes.length;
+                    }
+                }
+            } catch (IOException e) {
+                Log.e(getTag(), "Error trying to read logcat.", e);
+            } finally {
+                synchronized (mLock) {
+                    mFinished = true;
+                    mLock.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Copies the lines logged since {@code startTime} to {@code saveTo}, compressed with gzip
+         * if {@code compress} is true.
+         *
+         * @return false if lines were dropped as the file was full, or if the file may not have
+         *     all the lines logged so far, in which case nothing is copied.
+         */
+        boolean copySince(String startTime, File saveTo, boolean compress)
+                throws IOException, InterruptedException {
+            long end = sync();
+            long start;
+            synchronized (mLock) {
+                if (end < 0 || mDropped || mIncomplete) {
+                    return false;
+                }
+                start = getSecondOffset(startTime);
+            }
+            try (FileInputStream file = new FileInputStream(mFile);
+                    InputStream input = new BufferedInputStream(file, BUFFER_SIZE)) {
+                file.getChannel().position(start);
+                start += skipLinesBefore(input, startTime, end - start);
+                OutputStream output = new FileOutputStream(saveTo);
+                if (compress) {
+                    output = new GZIPOutputStream(output, BUFFER_SIZE);
+                }
+                try (OutputStream out = output) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    for (long remaining = end - start; remaining > 0; ) {
+                        int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                        if (read < 0) {
+                            break;
+                        }
+                        out.write(buffer, 0, read);
+                        remaining -= read;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Drops the lines logged before {@code startTime} from the file if it's over half its
+         * maximum size, or all of them if lines were dropped as it was full.
+         */
+        void trimBefore(String startTime) throws IOException {
+            long start;
+            long end;
+            synchronized (mLock) {
+                boolean dropped = mDropped;
+                mDropped = false;
+                mIncomplete = dropped;
+                if (!dropped && mOffset <= mMaxBytes / 2) {
+                    return;
+                }
+                mOutput.flush();
+                start = dropped ? mOffset : getSecondOffset(startTime);
+                end = mOffset;
+            }
+            // Copy the lines to keep without the lock, so that logcat keeps being read meanwhile.
+            // Only the lines read during the copy are copied with the lock held.
+            File trimmed = new File(mFile.getPath() + ".tmp");
+            try (FileInputStream input = new FileInputStream(mFile);
+                    FileOutputStream output = new FileOutputStream(trimmed)) {
+                input.getChannel().position(start);
+                start +=
+                        skipLinesBefore(
+                                new BufferedInputStream(input, BUFFER_SIZE),
+                                startTime,
+                                end - start);
+                input.getChannel().transferTo(start, end - start, output.getChannel());
+            }
+            synchronized (mLock) {
+                mOutput.flush();
+                try (FileInputStream input = new FileInputStream(mFile);
+                        FileOutputStream output = new FileOutputStream(trimmed, true)) {
+                    input.getChannel().transferTo(end, mOffset - end, output.getChannel());
+                }
+                mOutput.close();
+                if (!trimmed.renameTo(mFile)) {
+                    throw new IOException("Failed to replace " + mFile);
+                }
+                mOutput =
+                        new BufferedOutputStream(new FileOutputStream(mFile, true), BUFFER_SIZE);
+                for (Iterator<Map.Entry<String, Long>> it = mSecondOffsets.entrySet().iterator();
+                        it.hasNext(); ) {
+                    Map.Entry<String, Long> second = it.next();
+                    if (second.getValue() < start) {
+                        it.remove();
+                    } else {
+                        second.setValue(second.getValue() - start);
+                    }
+                }
+                mOffset -= start;
+            }
+        }
+
+        /** Returns the offset of the first line of the second of {@code time}. Guarded by mLock. */
+        private long getSecondOffset(String time) {
+            Map.Entry<String, Long> second =
+                    mSecondOffsets.floorEntry(time.substring(0, SECOND_LENGTH));
+            return second != null ? second.getValue() : 0;
+        }
+
+        /**
+         * Logs a marker and waits for it to be read, so that the file has all the lines logged so
+         * far.
+         *
+         * @return the length of the file up to the marker, or -1 if logcat stopped or didn't catch
+         *     up in time.
+         */
+        private long sync() throws IOException, InterruptedException {
+            String marker = "logcat-collector-sync-" + UUID.randomUUID();
+            synchronized (mLock) {
+                mMarker = marker;
+                mMarkerOffset = -1;
+            }
+            Log.i(getTag(), marker);
+            synchronized (mLock) {
+                long deadline = System.currentTimeMillis() + SYNC_TIMEOUT_MS;
+                long remaining;
+                while (mMarkerOffset < 0
+                        && !mFinished
+                        && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                    mLock.wait(remaining);
+                }
+                if (mMarkerOffset >= 0) {
+                    return mMarkerOffset;
+                }
+                Log.w(
+                        getTag(),
+                        mFinished
+                                ? "Logcat stopped, dumping it at the test end."
+                                : "Logcat did not catch up, dumping it at the test end.");
+                mMarker = null;
+                return -1;
+            }
+        }
+
+        /**
+         * Skips the lines of {@code input} until the first one logged at or after {@code
+         * startTime}, reading at most {@code limit} bytes.
+         *
+         * @return the number of bytes skipped.
+         */
+        private long skipLinesBefore(InputStream input, String startTime, long limit)
+                throws IOException {
+            byte[] timestamp = new byte[TIMESTAMP_LENGTH];
+            long skipped = 0;
+            while (skipped < limit) {
+                input.mark(TIMESTAMP_LENGTH);
+                int length = 0;
+                for (int b; length < TIMESTAMP_LENGTH && (b = input.read()) >= 0; length++) {
+                    timestamp[length] = (byte) b;
+                }
+                input.reset();
+                String line = new String(timestamp, 0, length, StandardCharsets.UTF_8);
+                if (hasTimestamp(line) && line.compareTo(startTime) >= 0) {
+                    break;
+                }
+                // Skip to the start of the next line.
+                for (int b = 0; b != '\n' && skipped < limit; skipped++) {
+                    b = input.read();
+                    if (b < 0) {
+                        return skipped;
+                    }
+                }
+            }
+            return skipped;
+        }
+
+        /** Stops reading logcat and deletes the file. */
+        void finish() {
+            mProcess.destroy();
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Log.e(getTag(), "Interrupted when joining the logcat thread.", e);
+            }
+            synchronized (mLock) {
+                try {
+                    mOutput.close();
+                } catch (IOException e) {
+                    Log.e(getTag(), "Failed to close the run logcat.", e);
+                }
+            }
+            mFile.delete();
+        }
     }
 }
@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.device.collectors;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.helpers.ICollectorHelper;
+
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * A listener that drives several {@link ICollectorHelper}s concurrently.
+ *
+ * <p>Where chaining one {@link BaseCollectionListener} per helper runs every helper's
+ * {@code startCollecting}, {@code getMetrics} and {@code stopCollecting} one after another, this
+ * listener runs them on a bounded executor so the time added between tests is bounded by the
+ * slowest helper rather than the sum of all of them. Each call on all the helpers shares a single
+ * timeout; a helper that times out or throws is logged and skipped without affecting the others.
+ * A helper that times out is interrupted, and skipped by the following calls until it returns.
+ *
+ * <p>Metrics are reported under the namespace of the helper that produced them, as
+ * "[namespace]_[metric key]". The {@link BaseCollectionListener#COLLECT_PER_RUN} and
+ * {@link BaseCollectionListener#SKIP_TEST_FAILURE_METRICS} options behave as they do for
+ * {@link BaseCollectionListener}.
+ *
+ * Do NOT throw exception anywhere in this class. We don't want to halt the test when metrics
+ * collection fails.
+ */
+public class MultiCollectionListener extends BaseMetricListener {
+
+    // Maximum number of helpers running at the same time.
+    public static final String MAX_PARALLEL_HELPERS = "max_parallel_helpers";
+    // Timeout for a call on all the helpers, e.g. getMetrics at the end of a test.
+    public static final String HELPER_TIMEOUT_MS = "helper_timeout_ms";
+
+    private static final int DEFAULT_MAX_PARALLEL_HELPERS = 4;
+    private static final long DEFAULT_HELPER_TIMEOUT_MS = 30000;
+    private static final String NAMESPACE_SEPARATOR = "_";
+
+    private final Map<String, ICollectorHelper> mHelpers = new LinkedHashMap<>();
+    // Namespaces of the helpers running a call, which may outlive its timeout.
+    private final Set<String> mRunningHelpers = ConcurrentHashMap.newKeySet();
+    private ExecutorService mExecutor;
+    private int mMaxParallelHelpers = DEFAULT_MAX_PARALLEL_HELPERS;
+    private long mHelperTimeoutMs = DEFAULT_HELPER_TIMEOUT_MS;
+    protected boolean mIsCollectPerRun;
+    protected boolean mSkipTestFailureMetrics;
+    private boolean mIsTestFailed = false;
+
+    public MultiCollectionListener() {
+        super();
+    }
+
+    @VisibleForTesting
+    public MultiCollectionListener(Bundle args, Map<String, ICollectorHelper> helpers) {
+        super(args);
+        mHelpers.putAll(helpers);
+    }
+
+    /**
+     * Add a helper to be driven by this listener. Its metrics are namespaced with the simple name
+     * of the helper class.
+     */
+    protected void addHelper(ICollectorHelper helper) {
+        addHelper(helper.getClass().getSimpleName(), helper);
+    }
+
+    /** Add a helper to be driven by this listener, with its metrics under {@code namespace}. */
+    protected void addHelper(String namespace, ICollectorHelper helper) {
+        if (mHelpers.containsKey(namespace)) {
+            Log.w(getTag(), String.format("Replacing helper for namespace %s.", namespace));
+        }
+        mHelpers.put(namespace, helper);
+    }
+
+    @Override
+    protected void parseArguments() {
+        super.parseArguments();
+        Bundle args = getArgsBundle();
+        mIsCollectPerRun = "true".equals(args.getString(BaseCollectionListener.COLLECT_PER_RUN));
+        // By default this flag is set to false to collect the metrics on test failure.
+        mSkipTestFailureMetrics =
+                "true".equals(args.getString(BaseCollectionListener.SKIP_TEST_FAILURE_METRICS));
+        mMaxParallelHelpers =
+                Integer.parseInt(
+                        args.getString(
+                                MAX_PARALLEL_HELPERS,
+                                String.valueOf(DEFAULT_MAX_PARALLEL_HELPERS)));
+        if (mMaxParallelHelpers < 1) {
+            Log.i(getTag(), "Max parallel helpers cannot be less than 1. Running them serially.");
+            mMaxParallelHelpers = 1;
+        }
+        mHelperTimeoutMs =
+                Long.parseLong(
+                        args.getString(
+                                HELPER_TIMEOUT_MS, String.valueOf(DEFAULT_HELPER_TIMEOUT_MS)));
+    }
+
+    @Override
+    protected void onSetUp() {
+        if (mExecutor == null) {
+            mExecutor = Executors.newFixedThreadPool(mMaxParallelHelpers);
+        }
+    }
+
+    @Override
+    protected void onCleanUp() {
+        if (mExecutor != null) {
+            mExecutor.shutdownNow();
+            mExecutor = null;
+        }
+    }
+
+    protected Function<String, Boolean> getFilter(Description description) {
+        return null;
+    }
+
+    @Override
+    public void onTestRunStart(DataRecord runData, Description description) {
+        if (mIsCollectPerRun) {
+            startCollecting(getFilter(description));
+        }
+    }
+
+    @Override
+    public final void onTestStart(DataRecord testData, Description description) {
+        mIsTestFailed = false;
+        if (!mIsCollectPerRun) {
+            startCollecting(getFilter(description));
+        }
+    }
+
+    @Override
+    public void onTestFail(DataRecord testData, Description description, Failure failure) {
+        mIsTestFailed = true;
+    }
+
+    @Override
+    public void onTestEnd(DataRecord testData, Description description) {
+        if (!mIsCollectPerRun) {
+            try {
+                // Skip adding the metrics collected during the test failure
+                // if the skip metrics on test failure flag is enabled and the
+                // current test is failed.
+                if (shouldSkipFailureTestMetrics()) {
+                    Log.i(getTag(), "Skipping the metric collection.");
+                } else {
+                    collectMetrics(testData);
+                }
+            } finally {
+                stopCollecting();
+            }
+        }
+    }
+
+    @Override
+    public void onTestRunEnd(DataRecord runData, Result result) {
+        if (mIsCollectPerRun) {
+            try {
+                collectMetrics(runData);
+            } finally {
+                stopCollecting();
+            }
+        }
+    }
+
+    protected boolean shouldSkipFailureTestMetrics() {
+        return mSkipTestFailureMetrics && mIsTestFailed;
+    }
+
+    private void startCollecting(Function<String, Boolean> filter) {
+        runOnAllHelpers(
+                "startCollecting",
+                helper -> filter == null ? helper.startCollecting() : helper.startCollecting(filter));
+    }
+
+    private void stopCollecting() {
+        runOnAllHelpers("stopCollecting", ICollectorHelper::stopCollecting);
+    }
+
+    /** Collect the metrics of every helper and add them to {@code data} in helper order. */
+    protected void collectMetrics(DataRecord data) {
+        Map<String, Map<?, ?>> results =
+                runOnAllHelpers("getMetrics", helper -> (Map<?, ?>) helper.getMetrics());
+        for (Map.Entry<String, Map<?, ?>> helperResult : results.entrySet()) {
+            if (helperResult.getValue() == null) {
+                continue;
+            }
+            String prefix = helperResult.getKey() + NAMESPACE_SEPARATOR;
+            for (Map.Entry<?, ?> entry : helperResult.getValue().entrySet()) {
+                data.addMetric(prefix + entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Run {@code action} on every helper using the executor and wait for all of them to finish or
+     * time out. Helpers still running a previous call that timed out are skipped.
+     *
+     * @return the results keyed by helper namespace, in helper order. Helpers that failed, timed
+     *     out or were skipped are not part of the results.
+     */
+    private <R> Map<String, R> runOnAllHelpers(
+            String actionName, Function<ICollectorHelper, R> action) {
+        Map<String, R> results = new LinkedHashMap<>();
+        if (mExecutor == null) {
+            // Callbacks invoked without setUp(), run in place.
+            for (Map.Entry<String, ICollectorHelper> helper : mHelpers.entrySet()) {
+                try {
+                    results.put(helper.getKey(), action.apply(helper.getValue()));
+                } catch (RuntimeException e) {
+                    Log.e(getTag(), String.format(
+                            "Error in %s for %s.", actionName, helper.getKey()), e);
+                }
+            }
+            return results;
+        }
+        long deadline = SystemClock.uptimeMillis() + mHelperTimeoutMs;
+        List<String> namespaces = new ArrayList<>(mHelpers.size());
+        List<Future<R>> futures = new ArrayList<>(mHelpers.size());
+        for (Map.Entry<String, ICollectorHelper> helper : mHelpers.entrySet()) {
+            String namespace = helper.getKey();
+            ICollectorHelper value = helper.getValue();
+            if (mRunningHelpers.contains(namespace)) {
+                Log.e(getTag(), String.format(
+                        "Skipping %s for %s, its previous call is still running.",
+                        actionName, namespace));
+                continue;
+            }
+            namespaces.add(namespace);
+            futures.add(
+                    mExecutor.submit(
+                            () -> {
+                                // Tasks cancelled before they start never run, so they're never
+                                // marked as running.
+                                mRunningHelpers.add(namespace);
+                                try {
+                                    return action.apply(value);
+                                } finally {
+                                    mRunningHelpers.remove(namespace);
+                                }
+                            }));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            Future<R> future = futures.get(i);
+            String namespace = namespaces.get(i);
+            try {
+                // All the helpers share the deadline, so that the call is bounded by the timeout
+                // whatever the number of helpers.
+                long remaining = Math.max(0, deadline - SystemClock.uptimeMillis());
+                results.put(namespace, future.get(remaining, TimeUnit.MILLISECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                Log.e(getTag(), String.format(
+                        "%s for %s timed out after %d ms.",
+                        actionName, namespace, mHelperTimeoutMs));
+            } catch (ExecutionException e) {
+                Log.e(getTag(), String.format(
+                        "Error in %s for %s.", actionName, namespace), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Log.e(getTag(), String.format(
+                        "Interrupted while waiting for %s of %s.", actionName, namespace), e);
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+}
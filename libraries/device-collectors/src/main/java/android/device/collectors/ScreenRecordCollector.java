@@ -33,6 +33,8 @@ import java.util.Map;
 import java.util.HashMap;
 
 import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
 
 /**
  * A {@link BaseMetricListener} that captures video of the screen.
@@ -51,9 +53,26 @@ public class ScreenRecordCollector extends BaseMetricListener {
     // to false is useful when multiple test classes need recordings and recordings are pulled at
     // the end of the test run.
     @VisibleForTesting static final String EMPTY_OUTPUT_DIR_ARG = "empty-output-dir";
+    // Bit rate of the recordings, in bits per second. Defaults to BIT_RATE_PER_PIXEL times the
+    // number of pixels of the recordings when a quality is set, or to the screenrecord default.
+    @VisibleForTesting static final String BIT_RATE_ARG = "video-bit-rate";
+    // Option to only keep the recordings of failing tests. The recordings of passing tests are
+    // deleted instead of being reported. Defaults to false.
+    @VisibleForTesting static final String COLLECT_ON_FAILURE_ONLY = "collect-on-failure-only";
+    // Option to also report the last recording of the preceding passing test when a test fails,
+    // for the moments before it started. Only used with COLLECT_ON_FAILURE_ONLY. Defaults to false.
+    @VisibleForTesting static final String PRE_ROLL_ARG = "keep-pre-roll";
     // Maximum parts per test (each part is <= 3min).
     @VisibleForTesting static final int MAX_RECORDING_PARTS = 5;
+    // Duration of each part, which is the maximum allowed by screenrecord.
+    @VisibleForTesting static final int PART_DURATION_SECS = 180;
+    // The next part is started this long before the current one ends, so that they overlap.
+    private static final long PART_OVERLAP_MS = 1000;
+    // Interval between attempts to stop the parts, and how long to keep trying.
+    private static final long STOP_RETRY_INTERVAL_MS = 200;
+    private static final long STOP_TIMEOUT_MS = 10000;
     private static final long VIDEO_TAIL_BUFFER = 500;
+    private static final int BIT_RATE_PER_PIXEL = 8;
 
     static final String OUTPUT_DIR = "run_listeners/videos";
 
@@ -63,7 +82,14 @@ public class ScreenRecordCollector extends BaseMetricListener {
     private RecordingThread mCurrentThread;
 
     private String mVideoDimensions;
+    private int mBitRate;
     private boolean mEmptyOutputDir;
+    private boolean mCollectOnFailureOnly;
+    private boolean mKeepPreRoll;
+
+    private boolean mTestFailed;
+    // Last recording of the preceding passing test, kept as a pre-roll for the next test.
+    private File mPreRoll;
 
     // Tracks the test iterations to ensure that each failure gets unique filenames.
     // Key: test description; value: number of iterations.
@@ -89,6 +115,18 @@ public class ScreenRecordCollector extends BaseMetricListener {
         mEmptyOutputDir =
                 Boolean.parseBoolean(
                         getArgsBundle().getString(EMPTY_OUTPUT_DIR_ARG, String.valueOf(true)));
+        mCollectOnFailureOnly =
+                Boolean.parseBoolean(getArgsBundle().getString(COLLECT_ON_FAILURE_ONLY));
+        mKeepPreRoll = Boolean.parseBoolean(getArgsBundle().getString(PRE_ROLL_ARG));
+
+        String bitRate = getArgsBundle().getString(BIT_RATE_ARG);
+        if (bitRate != null) {
+            try {
+                mBitRate = Integer.parseInt(bitRate);
+            } catch (NumberFormatException e) {
+                Log.e(getTag(), String.format("Invalid video bit rate: %s", bitRate), e);
+            }
+        }
 
         try {
             long scaleDown = 1;
@@ -116,10 +154,16 @@ public class ScreenRecordCollector extends BaseMetricListener {
                             .substring("Physical size: ".length())
                             .trim()
                             .split("x");
-            int width = Integer.parseInt(dims[0]);
-            int height = Integer.parseInt(dims[1]);
-            mVideoDimensions = String.format("%dx%d", width / scaleDown, height / scaleDown);
+            int width = Integer.parseInt(dims[0]) / (int) scaleDown;
+            int height = Integer.parseInt(dims[1]) / (int) scaleDown;
+            mVideoDimensions = String.format("%dx%d", width, height);
             Log.v(getTag(), String.format("Using video dimensions: %s", mVideoDimensions));
+            // Scale the bit rate with the size, as the screenrecord default is meant for the
+            // full resolution.
+            if (mBitRate <= 0) {
+                mBitRate = width * height * BIT_RATE_PER_PIXEL;
+                Log.v(getTag(), String.format("Using video bit rate: %d", mBitRate));
+            }
         } catch (Exception e) {
             Log.e(getTag(), "Failed to query the device dimensions. Using default.", e);
         }
@@ -131,6 +175,7 @@ public class ScreenRecordCollector extends BaseMetricListener {
             return;
         }
 
+        mTestFailed = false;
         // Track the number of iteration for this test.
         amendIterations(description);
         // Start the screen recording operation.
@@ -138,6 +183,11 @@ public class ScreenRecordCollector extends BaseMetricListener {
         mCurrentThread.start();
     }
 
+    @Override
+    public void onTestFail(DataRecord testData, Description description, Failure failure) {
+        mTestFailed = true;
+    }
+
     @Override
     public void onTestEnd(DataRecord testData, Description description) {
         // Skip if not directory.
@@ -145,8 +195,14 @@ public class ScreenRecordCollector extends BaseMetricListener {
             return;
         }
 
-        // Add some extra time to the video end.
-        SystemClock.sleep(getTailBuffer());
+        boolean keepRecordings = !mCollectOnFailureOnly || mTestFailed;
+        // Reset the flag here, as onTestStart might not have been called if a @BeforeClass
+        // method fails.
+        mTestFailed = false;
+        if (keepRecordings) {
+            // Add some extra time to the video end.
+            SystemClock.sleep(getTailBuffer());
+        }
         // Ctrl + C all screen record processes.
         mCurrentThread.cancel();
         // Wait for the thread to completely die.
@@ -156,14 +212,60 @@ public class ScreenRecordCollector extends BaseMetricListener {
             Log.e(getTag(), "Interrupted when joining the recording thread.", ex);
         }
 
+        if (!keepRecordings) {
+            discardRecordings(mCurrentThread.getRecordings());
+            return;
+        }
+
         // Add the output files to the data record.
+        if (mPreRoll != null) {
+            Log.d(getTag(), String.format("Adding video pre-roll: #%s", mPreRoll.getName()));
+            testData.addFileMetric(
+                    String.format("%s_pre-roll_%s", getTag(), mPreRoll.getName()), mPreRoll);
+            mPreRoll = null;
+        }
         for (File recording : mCurrentThread.getRecordings()) {
             Log.d(getTag(), String.format("Adding video part: #%s", recording.getName()));
             testData.addFileMetric(
                     String.format("%s_%s", getTag(), recording.getName()), recording);
         }
+    }
+
+    @Override
+    public void onTestRunEnd(DataRecord runData, Result result) {
+        // The pre-roll was not needed by any failing test.
+        if (mPreRoll != null) {
+            deleteRecording(mPreRoll);
+            mPreRoll = null;
+        }
+    }
+
+    /**
+     * Deletes the recordings of a passing test, except for the last one if it should be kept as a
+     * pre-roll for the next test.
+     */
+    private void discardRecordings(List<File> recordings) {
+        if (mPreRoll != null) {
+            deleteRecording(mPreRoll);
+            mPreRoll = null;
+        }
+        for (int i = 0; i < recordings.size(); i++) {
+            if (mKeepPreRoll && i == recordings.size() - 1) {
+                mPreRoll = recordings.get(i);
+            } else {
+                deleteRecording(recordings.get(i));
+            }
+        }
+    }
 
-        // TODO(b/144869954): Delete when tests pass.
+    /** Deletes a recording, which is owned by the shell as screenrecord wrote it. */
+    private void deleteRecording(File recording) {
+        Log.d(getTag(), String.format("Deleting video part: #%s", recording.getName()));
+        try {
+            getDevice().executeShellCommand(String.format("rm %s", recording.getAbsolutePath()));
+        } catch (IOException e) {
+            Log.e(getTag(), String.format("Failed to delete %s.", recording), e);
+        }
     }
 
     /** Updates the number of iterations performed for a given test {@link Description}. */
@@ -212,8 +314,12 @@ public class ScreenRecordCollector extends BaseMetricListener {
     private class RecordingThread extends Thread {
         private final Description mDescription;
         private final List<File> mRecordings;
+        private final Object mLock = new Object();
 
+        // Guarded by mLock.
         private boolean mContinue;
+        private int mStartedParts;
+        private int mFinishedParts;
 
         public RecordingThread(String name, Description description) {
             super(name);
@@ -229,34 +335,91 @@ public class ScreenRecordCollector extends BaseMetricListener {
         public void run() {
             try {
                 // Start at i = 1 to encode parts as X.mp4, X2.mp4, X3.mp4, etc.
-                for (int i = 1; i <= MAX_RECORDING_PARTS && mContinue; i++) {
-                    File output = getOutputFile(mDescription, i);
-                    Log.d(
-                            getTag(),
-                            String.format("Recording screen to %s", output.getAbsolutePath()));
-                    mRecordings.add(output);
-                    // Make sure not to block on this background command in the main thread so
-                    // that the test continues to run, but block in this thread so it does not
-                    // trigger a new screen recording session before the prior one completes.
-                    String dimensionsOpt =
-                            mVideoDimensions == null
-                                    ? ""
-                                    : String.format("--size=%s", mVideoDimensions);
-                    getDevice()
-                            .executeShellCommand(
-                                    String.format(
-                                            "screenrecord %s %s",
-                                            dimensionsOpt, output.getAbsolutePath()));
+                for (int i = 1; i <= MAX_RECORDING_PARTS; i++) {
+                    synchronized (mLock) {
+                        if (!mContinue) {
+                            break;
+                        }
+                        startPart(getOutputFile(mDescription, i));
+                        mStartedParts = i;
+                        // Start the next part shortly before this one reaches its time limit, so
+                        // that there is no gap in the recording while the next screenrecord
+                        // process starts. Start it right away if this one ended early.
+                        long deadline =
+                                SystemClock.uptimeMillis()
+                                        + PART_DURATION_SECS * 1000L
+                                        - PART_OVERLAP_MS;
+                        long remaining;
+                        while (mContinue
+                                && mFinishedParts < mStartedParts
+                                && (remaining = deadline - SystemClock.uptimeMillis()) > 0) {
+                            mLock.wait(remaining);
+                        }
+                    }
                 }
-            } catch (IOException e) {
-                throw new RuntimeException("Caught exception while screen recording.");
+                // Wait for the parts to be complete before the recordings are reported.
+                synchronized (mLock) {
+                    while (mFinishedParts < mStartedParts) {
+                        mLock.wait();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Log.e(getTag(), "Interrupted while screen recording.", e);
+            }
+        }
+
+        /** Records the screen to {@code output} in the background. */
+        private void startPart(File output) {
+            Log.d(getTag(), String.format("Recording screen to %s", output.getAbsolutePath()));
+            mRecordings.add(output);
+            StringBuilder command = new StringBuilder("screenrecord");
+            if (mVideoDimensions != null) {
+                command.append(String.format(" --size=%s", mVideoDimensions));
+            }
+            if (mBitRate > 0) {
+                command.append(String.format(" --bit-rate=%d", mBitRate));
             }
+            command.append(String.format(" --time-limit=%d", PART_DURATION_SECS));
+            command.append(" ").append(output.getAbsolutePath());
+            // Block on the command in its own thread, so that the next part can start before
+            // this one completes.
+            new Thread(
+                            () -> {
+                                try {
+                                    getDevice().executeShellCommand(command.toString());
+                                } catch (IOException e) {
+                                    Log.e(getTag(), "Caught exception while screen recording.", e);
+                                } finally {
+                                    synchronized (mLock) {
+                                        mFinishedParts++;
+                                        mLock.notifyAll();
+                                    }
+                                }
+                            },
+                            String.format("%s-%d", getName(), mRecordings.size()))
+                    .start();
         }
 
         public void cancel() {
-            mContinue = false;
+            synchronized (mLock) {
+                mContinue = false;
+                mLock.notifyAll();
+            }
+
+            // A part may have just been started, without its screenrecord process running yet, so
+            // keep interrupting them until all the parts are finished.
+            long deadline = SystemClock.uptimeMillis() + STOP_TIMEOUT_MS;
+            do {
+                interruptScreenRecord();
+                if (awaitParts(STOP_RETRY_INTERVAL_MS)) {
+                    return;
+                }
+            } while (SystemClock.uptimeMillis() < deadline);
+            Log.e(getTag(), "Screen recording did not stop, waiting for its time limit.");
+        }
 
-            // Identify the screenrecord PIDs and send SIGINT 2 (Ctrl + C) to each.
+        /** Identify the screenrecord PIDs and send SIGINT 2 (Ctrl + C) to each. */
+        private void interruptScreenRecord() {
             try {
                 String[] pids = getDevice().executeShellCommand("pidof screenrecord").split(" ");
                 for (String pid : pids) {
@@ -275,6 +438,27 @@ public class ScreenRecordCollector extends BaseMetricListener {
             }
         }
 
+        /**
+         * Waits up to {@code timeoutMs} for the started parts to finish.
+         *
+         * @return whether they are all finished.
+         */
+        private boolean awaitParts(long timeoutMs) {
+            long deadline = SystemClock.uptimeMillis() + timeoutMs;
+            synchronized (mLock) {
+                try {
+                    long remaining;
+                    while (mFinishedParts < mStartedParts
+                            && (remaining = deadline - SystemClock.uptimeMillis()) > 0) {
+                        mLock.wait(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    Log.e(getTag(), "Interrupted while stopping the screen recording.", e);
+                }
+                return mFinishedParts >= mStartedParts;
+            }
+        }
+
         public List<File> getRecordings() {
             return mRecordings;
         }
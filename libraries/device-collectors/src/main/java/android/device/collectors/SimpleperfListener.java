@@ -52,6 +52,9 @@ public class SimpleperfListener extends BaseMetricListener {
     private static final String TEST_OUTPUT_ROOT = "test_output_root";
     // Simpleperf file path key.
     private static final String SIMPLEPERF_FILE_PATH = "simpleperf_file_path";
+    // Time simpleperf took to start sampling and to stop, in ms.
+    @VisibleForTesting static final String SIMPLEPERF_START_LATENCY = "simpleperf_start_latency_ms";
+    @VisibleForTesting static final String SIMPLEPERF_STOP_LATENCY = "simpleperf_stop_latency_ms";
     // Argument determining whether we collect for the entire run, or per test.
     public static final String COLLECT_PER_RUN = "per_run";
     public static final String SIMPLEPERF_PREFIX = "simpleperf_";
@@ -286,6 +289,22 @@ public class SimpleperfListener extends BaseMetricListener {
             Log.e(getTag(), "Failed to collect the simpleperf output.");
         } else {
             record.addStringMetric(SIMPLEPERF_FILE_PATH, path.toString());
+            if (mRecord) {
+                addLatencyMetric(
+                        record,
+                        SIMPLEPERF_START_LATENCY,
+                        mSimpleperfHelper.getLastStartLatencyMs());
+                addLatencyMetric(
+                        record,
+                        SIMPLEPERF_STOP_LATENCY,
+                        mSimpleperfHelper.getLastStopLatencyMs());
+            }
+        }
+    }
+
+    private static void addLatencyMetric(DataRecord record, String key, long latencyMs) {
+        if (latencyMs >= 0) {
+            record.addLongMetric(key, latencyMs);
         }
     }
 
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.device.collectors.util;
+
+import android.os.SystemClock;
+
+/**
+ * Tracks the time a metric collector spends in its own listener callbacks, along with the number
+ * of shell commands it issues, the time they take and the number of bytes it reads back from them.
+ *
+ * <p>All counters are kept in preallocated primitive arrays so that recording a sample does not
+ * allocate. Formatting the results into metrics only happens when they are reported.
+ */
+public class CollectorOverheadTracker {
+
+    public static final int HOOK_TEST_RUN_STARTED = 0;
+    public static final int HOOK_TEST_RUN_FINISHED = 1;
+    public static final int HOOK_TEST_STARTED = 2;
+    public static final int HOOK_TEST_FAILURE = 3;
+    public static final int HOOK_TEST_FINISHED = 4;
+
+    private static final String[] HOOK_NAMES = {
+        "test_run_started", "test_run_finished", "test_started", "test_failure", "test_finished"
+    };
+    private static final int HOOK_COUNT = HOOK_NAMES.length;
+
+    // Histogram buckets are powers of two in microseconds: bucket i holds durations in
+    // [2^(i-1), 2^i) us, the last bucket holds everything above.
+    private static final int HISTOGRAM_BUCKETS = 32;
+
+    private final long[] mTestNanos = new long[HOOK_COUNT];
+    private final long[] mRunNanos = new long[HOOK_COUNT];
+    private final long[] mRunCalls = new long[HOOK_COUNT];
+    private final long[][] mHistogram = new long[HOOK_COUNT][HISTOGRAM_BUCKETS];
+
+    private final long[] mShellHistogram = new long[HISTOGRAM_BUCKETS];
+
+    private long mTestShellCommands;
+    private long mTestShellBytes;
+    private long mTestShellNanos;
+    private long mRunShellCommands;
+    private long mRunShellBytes;
+    private long mRunShellNanos;
+
+    /** Returns a timestamp to pass to {@link #end(int, long)}. */
+    public long begin() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos} against the given hook.
+     *
+     * @param hook one of the {@code HOOK_*} constants.
+     * @param startNanos the value returned by {@link #begin()}.
+     */
+    public void end(int hook, long startNanos) {
+        long elapsed = SystemClock.elapsedRealtimeNanos() - startNanos;
+        mTestNanos[hook] += elapsed;
+        mRunNanos[hook] += elapsed;
+        mRunCalls[hook]++;
+        mHistogram[hook][bucketOf(elapsed)]++;
+    }
+
+    /**
+     * Records a shell command issued by the collector.
+     *
+     * @param bytesRead the number of bytes read back from the command output.
+     * @param latencyNanos the time from issuing the command to reading its whole output.
+     */
+    public void recordShellCommand(long bytesRead, long latencyNanos) {
+        mTestShellCommands++;
+        mTestShellBytes += bytesRead;
+        mTestShellNanos += latencyNanos;
+        mRunShellCommands++;
+        mRunShellBytes += bytesRead;
+        mRunShellNanos += latencyNanos;
+        mShellHistogram[bucketOf(latencyNanos)]++;
+    }
+
+    /** Resets the per-test counters. Run level counters are kept. */
+    public void resetTest() {
+        for (int i = 0; i < HOOK_COUNT; i++) {
+            mTestNanos[i] = 0;
+        }
+        mTestShellCommands = 0;
+        mTestShellBytes = 0;
+        mTestShellNanos = 0;
+    }
+
+    /** Resets all the counters. */
+    public void resetRun() {
+        resetTest();
+        for (int i = 0; i < HOOK_COUNT; i++) {
+            mRunNanos[i] = 0;
+            mRunCalls[i] = 0;
+            for (int j = 0; j < HISTOGRAM_BUCKETS; j++) {
+                mHistogram[i][j] = 0;
+            }
+        }
+        for (int j = 0; j < HISTOGRAM_BUCKETS; j++) {
+            mShellHistogram[j] = 0;
+        }
+        mRunShellCommands = 0;
+        mRunShellBytes = 0;
+        mRunShellNanos = 0;
+    }
+
+    /**
+     * Adds the overhead of the current test to {@code metrics}.
+     *
+     * @param metrics the map the metrics are reported to, keyed by name.
+     * @param prefix the namespace to prefix every key with.
+     */
+    public void reportTest(MetricSink metrics, String prefix) {
+        reportHook(metrics, prefix, HOOK_TEST_STARTED, mTestNanos);
+        reportHook(metrics, prefix, HOOK_TEST_FAILURE, mTestNanos);
+        reportHook(metrics, prefix, HOOK_TEST_FINISHED, mTestNanos);
+        metrics.put(prefix + "shell_commands", String.valueOf(mTestShellCommands));
+        metrics.put(prefix + "shell_bytes_read", String.valueOf(mTestShellBytes));
+        metrics.put(prefix + "shell_us", String.valueOf(mTestShellNanos / 1000));
+    }
+
+    /**
+     * Adds the overhead accumulated over the whole run to {@code metrics}.
+     *
+     * @param metrics the map the metrics are reported to, keyed by name.
+     * @param prefix the namespace to prefix every key with.
+     * @param includeHistogram whether to add a per-hook and a per-shell-command histogram
+     *     summary.
+     */
+    public void reportRun(MetricSink metrics, String prefix, boolean includeHistogram) {
+        for (int hook = 0; hook < HOOK_COUNT; hook++) {
+            if (mRunCalls[hook] == 0) {
+                continue;
+            }
+            String hookPrefix = prefix + HOOK_NAMES[hook];
+            metrics.put(hookPrefix + "_total_us", String.valueOf(mRunNanos[hook] / 1000));
+            metrics.put(hookPrefix + "_count", String.valueOf(mRunCalls[hook]));
+            if (includeHistogram) {
+                metrics.put(hookPrefix + "_histogram_us", formatHistogram(mHistogram[hook]));
+            }
+        }
+        metrics.put(prefix + "total_shell_commands", String.valueOf(mRunShellCommands));
+        metrics.put(prefix + "total_shell_bytes_read", String.valueOf(mRunShellBytes));
+        metrics.put(prefix + "total_shell_us", String.valueOf(mRunShellNanos / 1000));
+        if (includeHistogram && mRunShellCommands > 0) {
+            metrics.put(prefix + "shell_command_histogram_us", formatHistogram(mShellHistogram));
+        }
+    }
+
+    private void reportHook(MetricSink metrics, String prefix, int hook, long[] nanos) {
+        if (nanos[hook] == 0) {
+            return;
+        }
+        metrics.put(prefix + HOOK_NAMES[hook] + "_us", String.valueOf(nanos[hook] / 1000));
+    }
+
+    /**
+     * Formats the non-empty buckets as a comma separated list of "upper_bound_us:count". The last
+     * bucket is reported with a "+" suffix as it has no upper bound.
+     */
+    private static String formatHistogram(long[] buckets) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            if (buckets[i] == 0) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            if (i == HISTOGRAM_BUCKETS - 1) {
+                sb.append(1L << (i - 1)).append('+');
+            } else {
+                sb.append(1L << i);
+            }
+            sb.append(':').append(buckets[i]);
+        }
+        return sb.toString();
+    }
+
+    private static int bucketOf(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, HISTOGRAM_BUCKETS - 1);
+    }
+
+    /** Destination of the formatted overhead metrics. */
+    public interface MetricSink {
+        void put(String key, String value);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.device.collectors.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Binary encoding of typed numeric metrics, used to report them as a single byte[] in the
+ * instrumentation results instead of one formatted string per metric.
+ *
+ * <p>The format is a version byte and an entry count, followed by each entry as a type byte, the
+ * key in modified UTF-8 and the value: a long, a double, or an int length followed by that many
+ * doubles. Entries keep the order they were added in and a later entry replaces an earlier one
+ * with the same key when decoded.
+ *
+ * <p>This class has no Android dependency so that host-side result parsers can use {@link
+ * #decode(byte[])} directly.
+ */
+public final class CompactMetricEncoding {
+
+    /**
+     * Prefix of the key under which the encoded metrics are reported, followed by the tag of the
+     * collector that reported them. See {@link #getMetricsKey(String)}.
+     */
+    public static final String COMPACT_METRICS_KEY = "compact_numeric_metrics";
+
+    public static final byte VERSION = 1;
+    public static final byte TYPE_LONG = 1;
+    public static final byte TYPE_DOUBLE = 2;
+    public static final byte TYPE_DOUBLE_ARRAY = 3;
+
+    /**
+     * Returns the key under which the metrics of the collector with tag {@code tag} are reported,
+     * so that the metrics of several collectors don't replace each other when their results are
+     * merged.
+     */
+    public static String getMetricsKey(String tag) {
+        return COMPACT_METRICS_KEY + "_" + tag;
+    }
+
+    private final ByteArrayOutputStream mBytes = new ByteArrayOutputStream();
+    private final DataOutputStream mOut = new DataOutputStream(mBytes);
+    private int mCount = 0;
+
+    public void writeLong(String key, long value) throws IOException {
+        mOut.writeByte(TYPE_LONG);
+        mOut.writeUTF(key);
+        mOut.writeLong(value);
+        mCount++;
+    }
+
+    public void writeDouble(String key, double value) throws IOException {
+        mOut.writeByte(TYPE_DOUBLE);
+        mOut.writeUTF(key);
+        mOut.writeDouble(value);
+        mCount++;
+    }
+
+    public void writeDoubleArray(String key, double[] values) throws IOException {
+        mOut.writeByte(TYPE_DOUBLE_ARRAY);
+        mOut.writeUTF(key);
+        mOut.writeInt(values.length);
+        for (double value : values) {
+            mOut.writeDouble(value);
+        }
+        mCount++;
+    }
+
+    /** Returns the encoded entries written so far. */
+    public byte[] toByteArray() throws IOException {
+        mOut.flush();
+        byte[] entries = mBytes.toByteArray();
+        ByteArrayOutputStream result = new ByteArrayOutputStream(entries.length + 5);
+        DataOutputStream out = new DataOutputStream(result);
+        out.writeByte(VERSION);
+        out.writeInt(mCount);
+        out.write(entries);
+        out.flush();
+        return result.toByteArray();
+    }
+
+    /**
+     * Decode metrics encoded with this class.
+     *
+     * @return the metrics in the order they were written, as {@link Long}, {@link Double} or
+     *     {@code double[]} values.
+     * @throws IOException if the data is truncated or of an unknown version or type.
+     */
+    public static Map<String, Object> decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException(String.format("Unsupported metric encoding version %d", version));
+        }
+        int count = in.readInt();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            byte type = in.readByte();
+            String key = in.readUTF();
+            switch (type) {
+                case TYPE_LONG:
+                    metrics.put(key, in.readLong());
+                    break;
+                case TYPE_DOUBLE:
+                    metrics.put(key, in.readDouble());
+                    break;
+                case TYPE_DOUBLE_ARRAY:
+                    double[] values = new double[in.readInt()];
+                    for (int j = 0; j < values.length; j++) {
+                        values[j] = in.readDouble();
+                    }
+                    metrics.put(key, values);
+                    break;
+                default:
+                    throw new IOException(String.format("Unknown metric type %d", type));
+            }
+        }
+        return metrics;
+    }
+}
@@ -16,14 +16,40 @@
 package android.device.collectors;
 
 import android.device.collectors.annotations.OptionClass;
+import android.os.Bundle;
+import android.util.Log;
 
 import com.android.helpers.BatteryUsageStatsHelper;
 
-/** Captures total and per-UID battery usage stats metrics during test methods. */
+/**
+ * Captures total and per-UID battery usage stats metrics during test methods.
+ *
+ * <p>Options:
+ *
+ * <p>-e metric_readiness_timeout_ms 3000 : The maximum time to wait for statsd to collect the
+ * battery usage stats at the start and at the end of each test.
+ */
 @OptionClass(alias = "battery-usage-stats-collector")
 public class BatteryUsageStatsListener extends BaseCollectionListener<Long> {
 
+    private static final String TAG = BatteryUsageStatsListener.class.getSimpleName();
+    private static final String METRIC_READINESS_TIMEOUT_MS = "metric_readiness_timeout_ms";
+
     public BatteryUsageStatsListener() {
         createHelperInstance(new BatteryUsageStatsHelper());
     }
+
+    @Override
+    public void setupAdditionalArgs() {
+        Bundle args = getArgsBundle();
+        String readinessTimeout = args.getString(METRIC_READINESS_TIMEOUT_MS);
+        if (readinessTimeout != null) {
+            try {
+                ((BatteryUsageStatsHelper) mHelper)
+                        .setMetricReadinessTimeoutMs(Long.parseLong(readinessTimeout));
+            } catch (NumberFormatException e) {
+                Log.e(TAG, "Invalid " + METRIC_READINESS_TIMEOUT_MS + ": " + readinessTimeout, e);
+            }
+        }
+    }
 }
@@ -17,6 +17,7 @@ package android.device.collectors;
 
 import android.device.collectors.annotations.OptionClass;
 import android.os.Bundle;
+import android.util.Log;
 
 import com.android.helpers.CpuUsageHelper;
 
@@ -29,9 +30,11 @@ import com.android.helpers.CpuUsageHelper;
 @OptionClass(alias = "cpuusage-collector")
 public class CpuUsageListener extends BaseCollectionListener<Long> {
 
+    private static final String TAG = CpuUsageListener.class.getSimpleName();
     private static final String DISABLE_PER_PACKAGE = "disable_per_pkg";
     private static final String DISABLE_TOTAL_PKG = "disable_total_pkg";
     private static final String ENABLE_CPU_UTILIZATION = "enable_cpu_utilization";
+    private static final String METRIC_READINESS_TIMEOUT_MS = "metric_readiness_timeout_ms";
 
     public CpuUsageListener() {
         createHelperInstance(new CpuUsageHelper());
@@ -55,6 +58,15 @@ public class CpuUsageListener extends BaseCollectionListener<Long> {
         if ("true".equals(args.getString(ENABLE_CPU_UTILIZATION))) {
             cpuUsageHelper.setEnableCpuUtilization();
         }
+
+        String readinessTimeout = args.getString(METRIC_READINESS_TIMEOUT_MS);
+        if (readinessTimeout != null) {
+            try {
+                cpuUsageHelper.setMetricReadinessTimeoutMs(Long.parseLong(readinessTimeout));
+            } catch (NumberFormatException e) {
+                Log.e(TAG, "Invalid " + METRIC_READINESS_TIMEOUT_MS + ": " + readinessTimeout, e);
+            }
+        }
     }
 }
 
@@ -773,4 +773,45 @@ public class BaseMetricListenerInstrumentedTest {
                         Mockito.eq(SendToInstrumentation.INST_STATUS_IN_PROGRESS),
                         Mockito.any(Bundle.class));
     }
+
+    /** Test that the collector overhead is reported when enabled. */
+    @MetricOption(group = "testGroup")
+    @Test
+    public void testReportCollectorOverhead() throws Exception {
+        Bundle args = new Bundle();
+        args.putString(BaseMetricListener.REPORT_COLLECTOR_OVERHEAD, "true");
+        args.putString(BaseMetricListener.REPORT_COLLECTOR_OVERHEAD_HISTOGRAM, "true");
+        mListener = createWithArgs(args);
+        mListener.setInstrumentation(mMockInstrumentation);
+        String prefix =
+                BaseMetricListener.COLLECTOR_OVERHEAD_PREFIX + mListener.getClass().getName() + "_";
+
+        Description runDescription = Description.createSuiteDescription("run");
+        mListener.testRunStarted(runDescription);
+        Description testDescription = Description.createTestDescription("class", "method");
+        mListener.testStarted(testDescription);
+        mListener.testFinished(testDescription);
+        mListener.testRunFinished(new Result());
+        Bundle resultBundle = new Bundle();
+        mListener.instrumentationRunFinished(System.out, resultBundle, new Result());
+
+        ArgumentCaptor<Bundle> capture = ArgumentCaptor.forClass(Bundle.class);
+        Mockito.verify(mMockInstrumentation)
+                .sendStatus(Mockito.eq(
+                        SendToInstrumentation.INST_STATUS_IN_PROGRESS), capture.capture());
+        Bundle check = capture.getValue();
+        assertEquals(TEST_END_VALUE + "method", check.getString(TEST_END_KEY));
+        assertEquals("0", check.getString(prefix + "shell_commands"));
+        assertEquals("0", check.getString(prefix + "shell_bytes_read"));
+        assertEquals("0", check.getString(prefix + "shell_us"));
+
+        assertEquals(RUN_END_VALUE, resultBundle.getString(RUN_END_KEY));
+        assertEquals("1", resultBundle.getString(prefix + "test_started_count"));
+        assertEquals("1", resultBundle.getString(prefix + "test_finished_count"));
+        assertTrue(resultBundle.containsKey(prefix + "test_finished_total_us"));
+        assertTrue(resultBundle.containsKey(prefix + "test_finished_histogram_us"));
+        assertEquals("0", resultBundle.getString(prefix + "total_shell_commands"));
+        assertEquals("0", resultBundle.getString(prefix + "total_shell_us"));
+        assertFalse(resultBundle.containsKey(prefix + "shell_command_histogram_us"));
+    }
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.device.collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.device.collectors.util.CompactMetricEncoding;
+import android.os.Bundle;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Map;
+
+/**
+ * Android Unit tests for {@link DataRecord}.
+ *
+ * To run:
+ * atest CollectorDeviceLibTest:android.device.collectors.DataRecordTest
+ */
+@RunWith(AndroidJUnit4.class)
+public class DataRecordTest {
+
+    /** Test that numeric metrics are reported as strings by default. */
+    @Test
+    public void testNumericMetricsAsStrings() {
+        DataRecord record = new DataRecord();
+        assertFalse(record.hasMetrics());
+        record.addStringMetric("string", "value");
+        record.addLongMetric("long", 42L);
+        record.addDoubleMetric("double", 1.5);
+        record.addDoubleArrayMetric("array", new double[] {1.0, 2.5});
+        assertTrue(record.hasMetrics());
+
+        Bundle bundle = record.createBundleFromMetrics();
+        assertEquals(4, bundle.size());
+        assertEquals("value", bundle.getString("string"));
+        assertEquals("42", bundle.getString("long"));
+        assertEquals("1.5", bundle.getString("double"));
+        assertEquals("1.0,2.5", bundle.getString("array"));
+    }
+
+    /** Test that many numeric metrics can be added and the last value for a key wins. */
+    @Test
+    public void testNumericMetricsGrowAndOverride() {
+        DataRecord record = new DataRecord();
+        for (int i = 0; i < 100; i++) {
+            record.addLongMetric("long" + i, i);
+        }
+        record.addLongMetric("long0", 1000);
+
+        Bundle bundle = record.createBundleFromMetrics();
+        assertEquals(100, bundle.size());
+        assertEquals("1000", bundle.getString("long0"));
+        assertEquals("99", bundle.getString("long99"));
+
+        record.clear();
+        assertFalse(record.hasMetrics());
+    }
+
+    /** Test that compact encoding packs the numeric metrics into a single decodable byte[]. */
+    @Test
+    public void testCompactEncoding() throws Exception {
+        DataRecord record = new DataRecord();
+        record.setCompactEncoding(true, "tag");
+        record.addStringMetric("string", "value");
+        record.addLongMetric("long", 42L);
+        record.addDoubleMetric("double", 1.5);
+        record.addDoubleArrayMetric("array", new double[] {1.0, 2.5});
+
+        Bundle bundle = record.createBundleFromMetrics();
+        assertEquals(2, bundle.size());
+        assertEquals("value", bundle.getString("string"));
+        Map<String, Object> decoded =
+                CompactMetricEncoding.decode(
+                        bundle.getByteArray(CompactMetricEncoding.getMetricsKey("tag")));
+        assertEquals(3, decoded.size());
+        assertEquals(42L, decoded.get("long"));
+        assertEquals(1.5, decoded.get("double"));
+        assertArrayEquals(new double[] {1.0, 2.5}, (double[]) decoded.get("array"), 0);
+    }
+
+    /** Test that the compact metrics of different collectors don't replace each other. */
+    @Test
+    public void testCompactEncodingPerCollector() throws Exception {
+        DataRecord first = new DataRecord();
+        first.setCompactEncoding(true, "first");
+        first.addLongMetric("long", 1L);
+        DataRecord second = new DataRecord();
+        second.setCompactEncoding(true, "second");
+        second.addLongMetric("long", 2L);
+
+        Bundle results = new Bundle();
+        results.putAll(first.createBundleFromMetrics());
+        results.putAll(second.createBundleFromMetrics());
+        assertEquals(2, results.size());
+        assertEquals(
+                1L,
+                CompactMetricEncoding.decode(
+                                results.getByteArray(CompactMetricEncoding.getMetricsKey("first")))
+                        .get("long"));
+        assertEquals(
+                2L,
+                CompactMetricEncoding.decode(
+                                results.getByteArray(CompactMetricEncoding.getMetricsKey("second")))
+                        .get("long"));
+    }
+
+    /** Test that metrics of unknown type are added as numeric metrics when they are numbers. */
+    @Test
+    public void testAddMetric() throws Exception {
+        DataRecord record = new DataRecord();
+        record.setCompactEncoding(true, "tag");
+        record.addMetric("int", 1);
+        record.addMetric("long", 2L);
+        record.addMetric("double", 1.5);
+        record.addMetric("float", 1.1f);
+        record.addMetric("string", "value");
+
+        Bundle bundle = record.createBundleFromMetrics();
+        assertEquals(3, bundle.size());
+        assertEquals("1.1", bundle.getString("float"));
+        assertEquals("value", bundle.getString("string"));
+        Map<String, Object> decoded =
+                CompactMetricEncoding.decode(
+                        bundle.getByteArray(CompactMetricEncoding.getMetricsKey("tag")));
+        assertEquals(1L, decoded.get("int"));
+        assertEquals(2L, decoded.get("long"));
+        assertEquals(1.5, decoded.get("double"));
+    }
+}
@@ -38,14 +38,18 @@ import org.mockito.Mockito;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
+import java.io.InputStreamReader;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -367,6 +371,181 @@ public final class LogcatCollectorTest {
         }
     }
 
+    /**
+     * Test that the continuous logcat is cut at the test boundaries, and that the logcat of passing
+     * tests is compressed.
+     */
+    @Test
+    public void testRetrievingContinuousLogcat() throws Exception {
+        Bundle bundle = new Bundle();
+        bundle.putString(LogcatCollector.CONTINUOUS_LOGCAT, "true");
+        bundle.putString(LogcatCollector.COMPRESS_PASSED_TEST_LOGCAT, "true");
+        LogcatCollector listener = initListener(bundle);
+        String logTag = this.getClass().getSimpleName() + "_testRetrievingContinuousLogcat";
+
+        listener.testRunStarted(RUN_DESCRIPTION);
+        Log.i(logTag, "Before tests");
+        SystemClock.sleep(10);
+
+        // Failed test.
+        Description failedDescription = Description.createTestDescription("run", "test_failed");
+        listener.testStarted(failedDescription);
+        SystemClock.sleep(10);
+        Log.i(logTag, "Message 1");
+        SystemClock.sleep(10);
+        listener.testFailure(new Failure(failedDescription, new RuntimeException("I failed.")));
+        listener.testFinished(failedDescription);
+        SystemClock.sleep(10);
+
+        // Passing test.
+        Description passedDescription = Description.createTestDescription("run", "test_passed");
+        listener.testStarted(passedDescription);
+        SystemClock.sleep(10);
+        Log.i(logTag, "Message 2");
+        SystemClock.sleep(10);
+        listener.testFinished(passedDescription);
+
+        listener.testRunFinished(new Result());
+        Bundle resultBundle = new Bundle();
+        listener.instrumentationRunFinished(System.out, resultBundle, new Result());
+        assertEquals(0, resultBundle.size());
+        // The logcat of the whole run is deleted at the end of the run.
+        assertFalse(new File(mLogDir, LogcatCollector.RUN_LOGCAT_FILE_NAME).exists());
+
+        ArgumentCaptor<Bundle> capture = ArgumentCaptor.forClass(Bundle.class);
+        Mockito.verify(mMockInstrumentation, Mockito.times(2))
+                .sendStatus(
+                        Mockito.eq(SendToInstrumentation.INST_STATUS_IN_PROGRESS),
+                        capture.capture());
+        List<Bundle> capturedBundles = capture.getAllValues();
+        String failedLogPath = capturedBundles.get(0).getString(
+                capturedBundles.get(0).keySet().iterator().next());
+        String passedLogPath = capturedBundles.get(1).getString(
+                capturedBundles.get(1).keySet().iterator().next());
+        assertTrue(failedLogPath.endsWith("-logcat.txt"));
+        assertTrue(passedLogPath.endsWith("-logcat.txt.gz"));
+
+        String beforeRegex = String.format(LOGCAT_REGEX_TEMPLATE, "I", logTag, "Before tests");
+        String message1Regex = String.format(LOGCAT_REGEX_TEMPLATE, "I", logTag, "Message 1");
+        String message2Regex = String.format(LOGCAT_REGEX_TEMPLATE, "I", logTag, "Message 2");
+        try (BufferedReader reader = new BufferedReader(new FileReader(failedLogPath))) {
+            assertEquals(
+                    "1", getMatchedRegexes(reader, beforeRegex, message1Regex, message2Regex));
+        }
+        try (BufferedReader reader =
+                new BufferedReader(
+                        new InputStreamReader(
+                                new GZIPInputStream(new FileInputStream(passedLogPath))))) {
+            assertEquals(
+                    "2", getMatchedRegexes(reader, beforeRegex, message1Regex, message2Regex));
+        }
+    }
+
+    /**
+     * Test that the continuous logcat doesn't grow over its maximum size, and that the logcat of
+     * the tests that don't fit in it is still collected.
+     */
+    @Test
+    public void testContinuousLogcatMaxSize() throws Exception {
+        Bundle bundle = new Bundle();
+        bundle.putString(LogcatCollector.CONTINUOUS_LOGCAT, "true");
+        bundle.putString(LogcatCollector.CONTINUOUS_LOGCAT_MAX_SIZE_KB, "1");
+        LogcatCollector listener = initListener(bundle);
+        String logTag = this.getClass().getSimpleName() + "_testContinuousLogcatMaxSize";
+        File runLogcat = new File(mLogDir, LogcatCollector.RUN_LOGCAT_FILE_NAME);
+
+        listener.testRunStarted(RUN_DESCRIPTION);
+        for (int i = 1; i <= 2; i++) {
+            Description description = Description.createTestDescription("run", "test_" + i);
+            listener.testStarted(description);
+            SystemClock.sleep(10);
+            for (int j = 0; j < 20; j++) {
+                Log.i(logTag, "Message " + i);
+            }
+            SystemClock.sleep(10);
+            listener.testFinished(description);
+            assertTrue(runLogcat.length() <= 1024);
+        }
+        listener.testRunFinished(new Result());
+        listener.instrumentationRunFinished(System.out, new Bundle(), new Result());
+
+        ArgumentCaptor<Bundle> capture = ArgumentCaptor.forClass(Bundle.class);
+        Mockito.verify(mMockInstrumentation, Mockito.times(2))
+                .sendStatus(
+                        Mockito.eq(SendToInstrumentation.INST_STATUS_IN_PROGRESS),
+                        capture.capture());
+        List<Bundle> capturedBundles = capture.getAllValues();
+        for (int i = 1; i <= 2; i++) {
+            Bundle check = capturedBundles.get(i - 1);
+            String logPath = check.getString(check.keySet().iterator().next());
+            String messageRegex =
+                    String.format(LOGCAT_REGEX_TEMPLATE, "I", logTag, "Message " + i);
+            try (BufferedReader reader = new BufferedReader(new FileReader(logPath))) {
+                assertTrue(getMatchedRegexes(reader, messageRegex).contains("0"));
+            }
+        }
+    }
+
+    /** Test that the logcat is dumped at each test end once the continuous logcat stopped. */
+    @Test
+    public void testContinuousLogcatStopped() throws Exception {
+        Bundle bundle = new Bundle();
+        bundle.putString(LogcatCollector.CONTINUOUS_LOGCAT, "true");
+        LogcatCollector listener = initListener(bundle);
+        Process stopped = new ProcessBuilder("true").start();
+        stopped.waitFor();
+        Mockito.doReturn(stopped).when(listener).startLogcat(Mockito.anyString());
+        Mockito.doNothing()
+                .when(listener)
+                .getLogcatSince(Mockito.any(String.class), Mockito.any(File.class));
+
+        listener.testRunStarted(RUN_DESCRIPTION);
+        listener.testStarted(TEST_DESCRIPTION);
+        listener.testFinished(TEST_DESCRIPTION);
+        listener.testStarted(TEST_2_DESCRIPTION);
+        listener.testFinished(TEST_2_DESCRIPTION);
+        listener.testRunFinished(new Result());
+
+        Mockito.verify(listener, Mockito.times(2))
+                .getLogcatSince(Mockito.any(String.class), Mockito.any(File.class));
+    }
+
+    /** Test that an invalid continuous logcat maximum size falls back to the default one. */
+    @Test
+    public void testContinuousLogcatInvalidMaxSize() throws Exception {
+        Bundle bundle = new Bundle();
+        bundle.putString(LogcatCollector.CONTINUOUS_LOGCAT, "true");
+        bundle.putString(LogcatCollector.CONTINUOUS_LOGCAT_MAX_SIZE_KB, "1MB");
+        LogcatCollector listener = initListener(bundle);
+        Mockito.doNothing()
+                .when(listener)
+                .getLogcatSince(Mockito.any(String.class), Mockito.any(File.class));
+
+        listener.testRunStarted(RUN_DESCRIPTION);
+        listener.testStarted(TEST_DESCRIPTION);
+        listener.testFinished(TEST_DESCRIPTION);
+        listener.testRunFinished(new Result());
+
+        Mockito.verify(listener, Mockito.never())
+                .getLogcatSince(Mockito.any(String.class), Mockito.any(File.class));
+    }
+
+    /**
+     * Returns the indexes, from 0, of the regular expressions that lines of {@code reader} match.
+     */
+    private static String getMatchedRegexes(BufferedReader reader, String... regexes)
+            throws Exception {
+        StringBuilder matches = new StringBuilder();
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            for (int i = 0; i < regexes.length; i++) {
+                if (line.matches(regexes[i])) {
+                    matches.append(i);
+                }
+            }
+        }
+        return matches.toString();
+    }
+
     /** Test that the logcat retrieved are within the time bounds of the test. */
     @Ignore
     @Test
@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.device.collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.os.Bundle;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.helpers.ICollectorHelper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Android Unit tests for {@link MultiCollectionListener}.
+ *
+ * To run:
+ * atest CollectorDeviceLibTest:android.device.collectors.MultiCollectionListenerTest
+ */
+@RunWith(AndroidJUnit4.class)
+public class MultiCollectionListenerTest {
+
+    private static final Description FAKE_DESCRIPTION = Description.createSuiteDescription("run");
+    private static final Description FAKE_TEST_DESCRIPTION =
+            Description.createTestDescription("class", "method");
+
+    @Mock private ICollectorHelper mHelperA;
+    @Mock private ICollectorHelper mHelperB;
+
+    private MultiCollectionListener mListener;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        doReturn(true).when(mHelperA).startCollecting();
+        doReturn(true).when(mHelperA).stopCollecting();
+        doReturn(Map.of("metric", "1")).when(mHelperA).getMetrics();
+        doReturn(true).when(mHelperB).startCollecting();
+        doReturn(true).when(mHelperB).stopCollecting();
+        doReturn(Map.of("metric", "2")).when(mHelperB).getMetrics();
+    }
+
+    private MultiCollectionListener initListener(Bundle b) {
+        Map<String, ICollectorHelper> helpers = new LinkedHashMap<>();
+        helpers.put("a", mHelperA);
+        helpers.put("b", mHelperB);
+        return new MultiCollectionListener(b, helpers);
+    }
+
+    /** Verify every helper is driven per test and metrics are namespaced per helper. */
+    @Test
+    public void testPerTestFlow() throws Exception {
+        mListener = initListener(new Bundle());
+        mListener.testRunStarted(FAKE_DESCRIPTION);
+        verify(mHelperA, times(0)).startCollecting();
+
+        mListener.testStarted(FAKE_TEST_DESCRIPTION);
+        verify(mHelperA, times(1)).startCollecting();
+        verify(mHelperB, times(1)).startCollecting();
+
+        DataRecord data = spy(mListener.createDataRecord());
+        mListener.onTestEnd(data, FAKE_TEST_DESCRIPTION);
+        verify(mHelperA, times(1)).stopCollecting();
+        verify(mHelperB, times(1)).stopCollecting();
+        verify(data).addStringMetric("a_metric", "1");
+        verify(data).addStringMetric("b_metric", "2");
+
+        mListener.testRunFinished(new Result());
+    }
+
+    /** Verify helpers are only started and stopped with the run when per_run is set. */
+    @Test
+    public void testPerRunFlow() throws Exception {
+        Bundle b = new Bundle();
+        b.putString(BaseCollectionListener.COLLECT_PER_RUN, "true");
+        mListener = initListener(b);
+
+        mListener.testRunStarted(FAKE_DESCRIPTION);
+        verify(mHelperA, times(1)).startCollecting();
+        verify(mHelperB, times(1)).startCollecting();
+        mListener.onTestStart(mListener.createDataRecord(), FAKE_TEST_DESCRIPTION);
+        mListener.onTestEnd(mListener.createDataRecord(), FAKE_TEST_DESCRIPTION);
+        verify(mHelperA, times(1)).startCollecting();
+        verify(mHelperA, times(0)).stopCollecting();
+
+        DataRecord runData = spy(mListener.createDataRecord());
+        mListener.onTestRunEnd(runData, new Result());
+        verify(mHelperA, times(1)).stopCollecting();
+        verify(mHelperB, times(1)).stopCollecting();
+        verify(runData).addStringMetric("a_metric", "1");
+        verify(runData).addStringMetric("b_metric", "2");
+    }
+
+    /** Verify metrics are skipped for failed tests when requested. */
+    @Test
+    public void testPerTestFailureSkipMetrics() throws Exception {
+        Bundle b = new Bundle();
+        b.putString(BaseCollectionListener.SKIP_TEST_FAILURE_METRICS, "true");
+        mListener = initListener(b);
+
+        mListener.testRunStarted(FAKE_DESCRIPTION);
+        mListener.testStarted(FAKE_TEST_DESCRIPTION);
+        mListener.testFailure(new Failure(FAKE_TEST_DESCRIPTION, new Exception()));
+        mListener.onTestEnd(mListener.createDataRecord(), FAKE_TEST_DESCRIPTION);
+        verify(mHelperA, times(0)).getMetrics();
+        verify(mHelperB, times(0)).getMetrics();
+        verify(mHelperA, times(1)).stopCollecting();
+        verify(mHelperB, times(1)).stopCollecting();
+    }
+
+    /**
+     * Verify a helper that throws or times out does not prevent the others from reporting, and
+     * that a helper still running after its timeout is skipped.
+     */
+    @Test
+    public void testFailingAndSlowHelpersAreSkipped() throws Exception {
+        Bundle b = new Bundle();
+        b.putString(MultiCollectionListener.HELPER_TIMEOUT_MS, "100");
+        mListener = initListener(b);
+        when(mHelperA.getMetrics()).thenThrow(RuntimeException.class);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(
+                        invocation -> {
+                            awaitUninterruptibly(release);
+                            return new HashMap<String, String>();
+                        })
+                .when(mHelperB)
+                .getMetrics();
+
+        try {
+            mListener.testRunStarted(FAKE_DESCRIPTION);
+            mListener.testStarted(FAKE_TEST_DESCRIPTION);
+            DataRecord data = mListener.createDataRecord();
+            long start = System.currentTimeMillis();
+            mListener.onTestEnd(data, FAKE_TEST_DESCRIPTION);
+            assertTrue(System.currentTimeMillis() - start < 5000);
+            assertFalse(data.hasMetrics());
+            verify(mHelperA, times(1)).stopCollecting();
+            verify(mHelperB, times(0)).stopCollecting();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /** Verify the timeout is shared by all the helpers rather than applied to each of them. */
+    @Test
+    public void testHelpersShareTimeout() throws Exception {
+        Bundle b = new Bundle();
+        b.putString(MultiCollectionListener.HELPER_TIMEOUT_MS, "1000");
+        mListener = initListener(b);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(
+                        invocation -> {
+                            awaitUninterruptibly(release);
+                            return new HashMap<String, String>();
+                        })
+                .when(mHelperA)
+                .getMetrics();
+        doAnswer(
+                        invocation -> {
+                            awaitUninterruptibly(release);
+                            return new HashMap<String, String>();
+                        })
+                .when(mHelperB)
+                .getMetrics();
+
+        try {
+            mListener.testRunStarted(FAKE_DESCRIPTION);
+            mListener.testStarted(FAKE_TEST_DESCRIPTION);
+            long start = System.currentTimeMillis();
+            mListener.onTestEnd(mListener.createDataRecord(), FAKE_TEST_DESCRIPTION);
+            assertTrue(System.currentTimeMillis() - start < 1500);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /** Waits for {@code latch}, ignoring interrupts like a helper stuck in a blocking call. */
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Verify helpers run concurrently. */
+    @Test
+    public void testHelpersRunConcurrently() throws Exception {
+        mListener = initListener(new Bundle());
+        doAnswer(
+                        invocation -> {
+                            Thread.sleep(1000);
+                            return Map.of("metric", "1");
+                        })
+                .when(mHelperA)
+                .getMetrics();
+        doAnswer(
+                        invocation -> {
+                            Thread.sleep(1000);
+                            return Map.of("metric", "2");
+                        })
+                .when(mHelperB)
+                .getMetrics();
+
+        mListener.testRunStarted(FAKE_DESCRIPTION);
+        mListener.testStarted(FAKE_TEST_DESCRIPTION);
+        long start = System.currentTimeMillis();
+        DataRecord data = mListener.createDataRecord();
+        mListener.onTestEnd(data, FAKE_TEST_DESCRIPTION);
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertEquals(2, data.createBundleFromMetrics().size());
+    }
+}
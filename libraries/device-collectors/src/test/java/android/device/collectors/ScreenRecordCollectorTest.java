@@ -24,7 +24,10 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.endsWith;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.matches;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
@@ -55,6 +58,7 @@ import org.mockito.MockitoAnnotations;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * Android Unit tests for {@link ScreenRecordCollector}.
@@ -222,6 +226,8 @@ public class ScreenRecordCollectorTest {
         // Delay verification by 100 ms to ensure the thread was started.
         SystemClock.sleep(100);
         verify(mDevice).executeShellCommand(matches("screenrecord --size=1080x720 .*video.mp4"));
+        verify(mDevice)
+                .executeShellCommand(matches("screenrecord .*--bit-rate=6220800 .*video.mp4"));
     }
 
     /** Test that quality options (medium) are respected by screen recordings. */
@@ -238,6 +244,45 @@ public class ScreenRecordCollectorTest {
         // Delay verification by 100 ms to ensure the thread was started.
         SystemClock.sleep(100);
         verify(mDevice).executeShellCommand(matches("screenrecord --size=540x360 .*video.mp4"));
+        verify(mDevice)
+                .executeShellCommand(matches("screenrecord .*--bit-rate=1555200 .*video.mp4"));
+    }
+
+    /** Test that the bit rate option overrides the one derived from the quality. */
+    @Test
+    public void testScreenRecord_bitRate() throws Exception {
+        Bundle args = new Bundle();
+        args.putString(ScreenRecordCollector.QUALITY_ARG, "medium");
+        args.putString(ScreenRecordCollector.BIT_RATE_ARG, "4000000");
+        mListener = initListener(args);
+        doReturn("Physical size: 1080x720 ").when(mDevice).executeShellCommand("wm size");
+
+        mListener.testRunStarted(mRunDesc);
+        mListener.testStarted(mTestDesc);
+
+        // Delay verification by 100 ms to ensure the thread was started.
+        SystemClock.sleep(100);
+        verify(mDevice)
+                .executeShellCommand(
+                        matches("screenrecord --size=540x360 --bit-rate=4000000 .*video.mp4"));
+    }
+
+    /** Test that each part is limited to the duration parts are handed off at. */
+    @Test
+    public void testScreenRecord_partTimeLimit() throws Exception {
+        mListener = initListener(null);
+
+        mListener.testRunStarted(mRunDesc);
+        mListener.testStarted(mTestDesc);
+
+        // Delay verification by 100 ms to ensure the thread was started.
+        SystemClock.sleep(100);
+        verify(mDevice)
+                .executeShellCommand(
+                        matches(
+                                String.format(
+                                        "screenrecord --time-limit=%d .*video.mp4",
+                                        ScreenRecordCollector.PART_DURATION_SECS)));
     }
 
     /** Test that quality options (low) are respected by screen recordings. */
@@ -291,6 +336,138 @@ public class ScreenRecordCollectorTest {
                 .executeShellCommand(not(matches("screenrecord .*video.mp4")));
     }
 
+    /** Test that only the recordings of failing tests are kept with collect-on-failure-only. */
+    @Test
+    public void testScreenRecord_collectOnFailureOnly() throws Exception {
+        Bundle args = new Bundle();
+        args.putString(ScreenRecordCollector.COLLECT_ON_FAILURE_ONLY, "true");
+        mListener = initListener(args);
+
+        mListener.testRunStarted(mRunDesc);
+        for (int i = 1; i <= NUM_TEST_CASE; i++) {
+            mListener.testStarted(mTestDesc);
+            SystemClock.sleep(100);
+            if (i % 2 == 0) {
+                mListener.testFailure(new Failure(mTestDesc, new RuntimeException("I failed")));
+            }
+            mListener.testFinished(mTestDesc);
+        }
+        mListener.testRunFinished(new Result());
+
+        // Only the recordings of the passing tests are deleted.
+        verify(mDevice, times(NUM_TEST_CASE / 2 * ScreenRecordCollector.MAX_RECORDING_PARTS))
+                .executeShellCommand(matches("rm .*video.*.mp4"));
+        verify(mDevice, never()).executeShellCommand(matches("rm .*-2-video.*.mp4"));
+        verify(mDevice).executeShellCommand(matches("rm .*-3-video.mp4"));
+
+        Bundle resultBundle = new Bundle();
+        mListener.instrumentationRunFinished(System.out, resultBundle, new Result());
+
+        // Metrics are only sent for the failing tests.
+        ArgumentCaptor<Bundle> capture = ArgumentCaptor.forClass(Bundle.class);
+        Mockito.verify(mInstrumentation, times(NUM_TEST_CASE / 2))
+                .sendStatus(
+                        Mockito.eq(SendToInstrumentation.INST_STATUS_IN_PROGRESS),
+                        capture.capture());
+        int videoCount = 0;
+        for (Bundle bundle : capture.getAllValues()) {
+            for (String key : bundle.keySet()) {
+                if (key.contains("mp4")) {
+                    videoCount++;
+                    assertFalse(key.contains("pre-roll"));
+                }
+            }
+        }
+        assertEquals(NUM_TEST_CASE / 2 * ScreenRecordCollector.MAX_RECORDING_PARTS, videoCount);
+    }
+
+    /** Test that the last recording of a passing test is reported with the next failing test. */
+    @Test
+    public void testScreenRecord_keepPreRoll() throws Exception {
+        Bundle args = new Bundle();
+        args.putString(ScreenRecordCollector.COLLECT_ON_FAILURE_ONLY, "true");
+        args.putString(ScreenRecordCollector.PRE_ROLL_ARG, "true");
+        mListener = initListener(args);
+
+        mListener.testRunStarted(mRunDesc);
+        // Pass, pass, fail, pass.
+        for (int i = 1; i <= 4; i++) {
+            mListener.testStarted(mTestDesc);
+            SystemClock.sleep(100);
+            if (i == 3) {
+                mListener.testFailure(new Failure(mTestDesc, new RuntimeException("I failed")));
+            }
+            mListener.testFinished(mTestDesc);
+        }
+        mListener.testRunFinished(new Result());
+
+        String lastPart = String.format("video%d.mp4", ScreenRecordCollector.MAX_RECORDING_PARTS);
+        // The last part of the first test is deleted when the second one passes.
+        verify(mDevice).executeShellCommand(matches("rm .*test-video" + lastPart));
+        // The last part of the second test is kept for the failing third test.
+        verify(mDevice, never()).executeShellCommand(matches("rm .*-2-" + lastPart));
+        // The last part of the fourth test is deleted at the end of the run.
+        verify(mDevice).executeShellCommand(matches("rm .*-4-" + lastPart));
+
+        Bundle resultBundle = new Bundle();
+        mListener.instrumentationRunFinished(System.out, resultBundle, new Result());
+
+        ArgumentCaptor<Bundle> capture = ArgumentCaptor.forClass(Bundle.class);
+        Mockito.verify(mInstrumentation, times(1))
+                .sendStatus(
+                        Mockito.eq(SendToInstrumentation.INST_STATUS_IN_PROGRESS),
+                        capture.capture());
+        Bundle metrics = capture.getValue();
+        String preRollKey = null;
+        for (String key : metrics.keySet()) {
+            if (key.contains("pre-roll")) {
+                preRollKey = key;
+            }
+        }
+        assertTrue(preRollKey != null && preRollKey.endsWith("-2-" + lastPart));
+        assertEquals(ScreenRecordCollector.MAX_RECORDING_PARTS + 1, metrics.keySet().size());
+    }
+
+    /**
+     * Test that a part whose screenrecord process was not running yet when the test ended is still
+     * stopped, instead of recording until its time limit.
+     */
+    @Test
+    public void testScreenRecord_stopsPartStartedLate() throws Exception {
+        Bundle args = new Bundle();
+        args.putString(ScreenRecordCollector.COLLECT_ON_FAILURE_ONLY, "true");
+        mListener = initListener(args);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        doAnswer(
+                        invocation -> {
+                            started.countDown();
+                            interrupted.await();
+                            return "";
+                        })
+                .when(mDevice)
+                .executeShellCommand(startsWith("screenrecord"));
+        // The process is not found the first time.
+        doReturn("").doReturn("1234").when(mDevice).executeShellCommand(eq("pidof screenrecord"));
+        doAnswer(
+                        invocation -> {
+                            interrupted.countDown();
+                            return "";
+                        })
+                .when(mDevice)
+                .executeShellCommand(eq("kill -2 1234"));
+
+        mListener.testRunStarted(mRunDesc);
+        mListener.testStarted(mTestDesc);
+        started.await();
+        long start = SystemClock.uptimeMillis();
+        mListener.testFinished(mTestDesc);
+
+        assertTrue(SystemClock.uptimeMillis() - start < 5000);
+        verify(mDevice, atLeast(2)).executeShellCommand(eq("pidof screenrecord"));
+        verify(mDevice).executeShellCommand(matches("rm .*video.mp4"));
+    }
+
     /** Test that the empty-output-dir works. */
     @Test
     public void testEmptyrOutputDirOptionSetToFalse() throws Exception {
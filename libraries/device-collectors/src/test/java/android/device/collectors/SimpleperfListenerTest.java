@@ -178,6 +178,26 @@ public class SimpleperfListenerTest {
         verify(mSimpleperfHelper, times(1)).stopCollecting(anyString());
     }
 
+    /*
+     * Verify the simpleperf start and stop latencies are reported along with the sample file.
+     */
+    @Test
+    public void testSimpleperfLatencyMetrics() throws Exception {
+        Bundle b = new Bundle();
+        mListener = initListener(b);
+        doReturn(true).when(mSimpleperfHelper).startCollecting(anyString(), anyString());
+        doReturn(true).when(mSimpleperfHelper).stopCollecting(anyString());
+        doReturn(12L).when(mSimpleperfHelper).getLastStartLatencyMs();
+        doReturn(345L).when(mSimpleperfHelper).getLastStopLatencyMs();
+        DataRecord testData = spy(mListener.createDataRecord());
+
+        mListener.testRunStarted(mRunDesc);
+        mListener.testStarted(mTest1Desc);
+        mListener.onTestEnd(testData, mTest1Desc);
+        verify(testData, times(1)).addLongMetric(SimpleperfListener.SIMPLEPERF_START_LATENCY, 12L);
+        verify(testData, times(1)).addLongMetric(SimpleperfListener.SIMPLEPERF_STOP_LATENCY, 345L);
+    }
+
     /*
      * Verify stop collecting called exactly once when the test failed and the
      * skip test failure metrics is enabled.
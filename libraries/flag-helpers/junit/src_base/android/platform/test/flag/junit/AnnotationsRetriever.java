@@ -36,6 +36,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -43,6 +44,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
@@ -52,6 +54,9 @@ import javax.annotation.Nonnull;
  *
  * <p>For each annotation, it trys to get it from the method first, then trys to get it from the
  * test class if the method has no such annotation.
+ *
+ * <p>The flags found on each test class, and through the meta-annotations of each annotation type,
+ * are resolved once and shared by all the rules, as they are requested again for every test.
  */
 public class AnnotationsRetriever {
     private static final Set<Class<?>> KNOWN_UNRELATED_ANNOTATIONS =
@@ -71,19 +76,14 @@ public class AnnotationsRetriever {
         Class<?> testClass = description.getTestClass();
         if (testClass != null && !visited.contains(testClass)) {
             visited.add(testClass);
-            collectUsedFlagsClasses(List.of(testClass.getAnnotations()), result);
+            result.addAll(sUsesFlags.getFlagsForClass(testClass));
         }
-        collectUsedFlagsClasses(description.getAnnotations(), result);
+        result.addAll(getFlagsForAnnotation(sUsesFlags, description.getAnnotations()));
         for (Description child : description.getChildren()) {
             collectUsedFlagsClasses(child, visited, result);
         }
     }
 
-    private static void collectUsedFlagsClasses(
-            Collection<Annotation> annotations, Set<String> result) {
-        result.addAll(getFlagsForAnnotation(sUsesFlags, annotations));
-    }
-
     public static Set<String> getAllAnnotationSetFlags(Description description) {
         Set<String> result = new HashSet<>();
         Set<Object> visited = new HashSet<>();
@@ -96,20 +96,16 @@ public class AnnotationsRetriever {
         Class<?> testClass = description.getTestClass();
         if (testClass != null && !visited.contains(testClass)) {
             visited.add(testClass);
-            collectAnnotationSetFlags(List.of(testClass.getAnnotations()), result);
+            result.addAll(sEnableFlags.getFlagsForClass(testClass));
+            result.addAll(sDisableFlags.getFlagsForClass(testClass));
         }
-        collectAnnotationSetFlags(description.getAnnotations(), result);
+        result.addAll(getFlagsForAnnotation(sEnableFlags, description.getAnnotations()));
+        result.addAll(getFlagsForAnnotation(sDisableFlags, description.getAnnotations()));
         for (Description child : description.getChildren()) {
             collectAnnotationSetFlags(child, visited, result);
         }
     }
 
-    private static void collectAnnotationSetFlags(
-            Collection<Annotation> annotations, Set<String> result) {
-        result.addAll(getFlagsForAnnotation(sEnableFlags, annotations));
-        result.addAll(getFlagsForAnnotation(sDisableFlags, annotations));
-    }
-
     /** Gets all feature flag related annotations. */
     public static FlagAnnotations getFlagAnnotations(Description description) {
         final Map<String, Boolean> requiresFlagValues =
@@ -135,18 +131,16 @@ public class AnnotationsRetriever {
         final Map<String, Boolean> methodFlagValues =
                 getFlagValues(
                         description.getMethodName(),
-                        enabledAnnotation,
-                        disabledAnnotation,
-                        description.getAnnotations());
+                        getFlagsForAnnotation(enabledAnnotation, description.getAnnotations()),
+                        getFlagsForAnnotation(disabledAnnotation, description.getAnnotations()));
         Class<?> testClass = description.getTestClass();
         final Map<String, Boolean> classFlagValues =
                 testClass == null
                         ? new HashMap<>()
                         : getFlagValues(
                                 testClass.getName(),
-                                enabledAnnotation,
-                                disabledAnnotation,
-                                List.of(testClass.getAnnotations()));
+                                enabledAnnotation.getFlagsForClass(testClass),
+                                disabledAnnotation.getFlagsForClass(testClass));
         Sets.SetView<String> doublyDefinedFlags =
                 Sets.intersection(classFlagValues.keySet(), methodFlagValues.keySet());
         if (!doublyDefinedFlags.isEmpty()) {
@@ -175,11 +169,8 @@ public class AnnotationsRetriever {
 
     private static Map<String, Boolean> getFlagValues(
             @Nonnull String annotationTarget,
-            @Nonnull FlagsAnnotation<? extends Annotation> enabledAnnotation,
-            @Nonnull FlagsAnnotation<? extends Annotation> disabledAnnotation,
-            @Nonnull Collection<Annotation> annotations) {
-        Set<String> enabledFlags = getFlagsForAnnotation(enabledAnnotation, annotations);
-        Set<String> disabledFlags = getFlagsForAnnotation(disabledAnnotation, annotations);
+            @Nonnull Set<String> enabledFlags,
+            @Nonnull Set<String> disabledFlags) {
         if (enabledFlags.isEmpty() && disabledFlags.isEmpty()) {
             return new HashMap<>();
         }
@@ -201,18 +192,43 @@ public class AnnotationsRetriever {
         return result;
     }
 
+    /**
+     * Gets the flags of {@code flagsAnnotation} from {@code annotations}, or from their
+     * meta-annotations.
+     */
     @Nonnull
     private static <T extends Annotation> Set<String> getFlagsForAnnotation(
             FlagsAnnotation<T> flagsAnnotation, Collection<Annotation> annotations) {
         Class<T> annotationType = flagsAnnotation.mAnnotationType;
         Set<String> results = new HashSet<>();
+        for (Annotation annotation : annotations) {
+            Class<? extends Annotation> currentAnnotationType = annotation.annotationType();
+            if (currentAnnotationType.equals(annotationType)) {
+                results.addAll(flagsAnnotation.getFlagsSet((T) annotation));
+            } else if (!KNOWN_UNRELATED_ANNOTATIONS.contains(currentAnnotationType)) {
+                results.addAll(flagsAnnotation.getFlagsForAnnotationType(currentAnnotationType));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Gets the flags of {@code flagsAnnotation} from the meta-annotations of {@code
+     * annotationType}, recursively.
+     */
+    @Nonnull
+    private static <T extends Annotation> Set<String> getFlagsForMetaAnnotations(
+            FlagsAnnotation<T> flagsAnnotation, Class<? extends Annotation> annotationType) {
+        Class<T> flagsAnnotationType = flagsAnnotation.mAnnotationType;
+        Set<String> results = new HashSet<>();
         Queue<Annotation> annotationQueue = new ArrayDeque<>();
         Set<Class<? extends Annotation>> visitedAnnotations = new HashSet<>();
-        annotationQueue.addAll(annotations);
+        annotationQueue.addAll(List.of(annotationType.getAnnotations()));
+        visitedAnnotations.add(annotationType);
         while (!annotationQueue.isEmpty()) {
             Annotation annotation = annotationQueue.poll();
             Class<? extends Annotation> currentAnnotationType = annotation.annotationType();
-            if (currentAnnotationType.equals(annotationType)) {
+            if (currentAnnotationType.equals(flagsAnnotationType)) {
                 results.addAll(flagsAnnotation.getFlagsSet((T) annotation));
             } else if (!KNOWN_UNRELATED_ANNOTATIONS.contains(currentAnnotationType)
                     && !visitedAnnotations.contains(currentAnnotationType)) {
@@ -295,11 +311,32 @@ public class AnnotationsRetriever {
 
     private abstract static class FlagsAnnotation<T extends Annotation> {
         Class<T> mAnnotationType;
+        /** Flags found on each test class. */
+        private final Map<Class<?>, Set<String>> mClassFlags = new ConcurrentHashMap<>();
+        /** Flags found through the meta-annotations of each annotation type. */
+        private final Map<Class<? extends Annotation>, Set<String>> mAnnotationTypeFlags =
+                new ConcurrentHashMap<>();
 
         FlagsAnnotation(Class<T> type) {
             mAnnotationType = type;
         }
 
+        @Nonnull
+        Set<String> getFlagsForClass(Class<?> testClass) {
+            return mClassFlags.computeIfAbsent(
+                    testClass,
+                    cls ->
+                            Collections.unmodifiableSet(
+                                    getFlagsForAnnotation(this, List.of(cls.getAnnotations()))));
+        }
+
+        @Nonnull
+        Set<String> getFlagsForAnnotationType(Class<? extends Annotation> annotationType) {
+            return mAnnotationTypeFlags.computeIfAbsent(
+                    annotationType,
+                    type -> Collections.unmodifiableSet(getFlagsForMetaAnnotations(this, type)));
+        }
+
         protected abstract String[] getFlags(T annotation);
 
         @Nonnull
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.platform.test.flag.junit;
+
+import android.platform.test.annotations.DisableFlags;
+import android.platform.test.annotations.EnableFlags;
+import android.platform.test.annotations.RequiresFlagsDisabled;
+import android.platform.test.annotations.RequiresFlagsEnabled;
+import android.platform.test.annotations.UsesFlags;
+
+import org.junit.Test;
+import org.junit.runner.Description;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Measures {@link AnnotationsRetriever} on a synthetic suite of 10k test methods, against a
+ * resolution that walks the class and meta-annotations again for every test, as it did before the
+ * flags were cached. It also checks that both return the same flags. The first pass fills the
+ * caches, the last one only hits them. Not run with the unit tests, run it with:
+ *
+ * <pre>
+ * java -cp FlagJUnitHostTests.jar \
+ *     android.platform.test.flag.junit.AnnotationsRetrieverBenchmark [classes] [methods]
+ * </pre>
+ */
+public class AnnotationsRetrieverBenchmark {
+    private static final int ROUNDS = 5;
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.METHOD, ElementType.TYPE})
+    @RequiresFlagsEnabled("flag.required")
+    @EnableFlags("flag.composite")
+    public @interface CompositeFlags {}
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.METHOD, ElementType.TYPE})
+    @CompositeFlags
+    @DisableFlags("flag.nested")
+    public @interface NestedCompositeFlags {}
+
+    @UsesFlags(Flags.class)
+    @RequiresFlagsDisabled("flag.class")
+    static class AnnotatedClass {}
+
+    @CompositeFlags
+    static class CompositeClass {}
+
+    @NestedCompositeFlags
+    @UsesFlags(Flags.class)
+    static class NestedCompositeClass {}
+
+    static class PlainClass {}
+
+    private static final Class<?>[] TEST_CLASSES = {
+        AnnotatedClass.class, CompositeClass.class, NestedCompositeClass.class, PlainClass.class,
+    };
+
+    /** Holds the method annotations of the synthetic tests. */
+    static class Templates {
+        @Test
+        public void plain() {}
+
+        @Test
+        @EnableFlags({"flag.method1", "flag.method2"})
+        public void enabled() {}
+
+        @Test
+        @DisableFlags("flag.method3")
+        @RequiresFlagsEnabled("flag.method4")
+        public void disabled() {}
+
+        @Test
+        @NestedCompositeFlags
+        public void nested() {}
+    }
+
+    public static void main(String[] args) throws Exception {
+        int classes = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int methods = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        Description suite = createSuite(classes, methods);
+        List<Description> tests = new ArrayList<>();
+        for (Description testClass : suite.getChildren()) {
+            tests.addAll(testClass.getChildren());
+        }
+        System.out.printf("%d test classes, %d test methods%n", classes, tests.size());
+        for (int round = 1; round <= ROUNDS; round++) {
+            // The first round fills the caches, the last one is warmed up by the JIT.
+            boolean report = round == 1 || round == ROUNDS;
+            String name = round == 1 ? "first pass" : "steady state";
+
+            long start = System.nanoTime();
+            List<Object> results = resolve(suite, tests);
+            report(report, "AnnotationsRetriever " + name, start);
+
+            start = System.nanoTime();
+            List<Object> uncachedResults = resolveUncached(suite, tests);
+            report(report, "Without caches " + name, start);
+
+            if (!results.equals(uncachedResults)) {
+                throw new AssertionError("Flags differ from the uncached resolution");
+            }
+        }
+    }
+
+    private static Description createSuite(int classes, int methods) {
+        Method[] templates = {
+            method("plain"), method("enabled"), method("disabled"), method("nested"),
+        };
+        Description suite = Description.createSuiteDescription("Suite");
+        for (int c = 0; c < classes; c++) {
+            Class<?> testClass = TEST_CLASSES[c % TEST_CLASSES.length];
+            Description classDescription = Description.createSuiteDescription(testClass);
+            for (int m = 0; m < methods; m++) {
+                Method template = templates[m % templates.length];
+                classDescription.addChild(
+                        Description.createTestDescription(
+                                testClass, template.name + c + "_" + m, template.annotations));
+            }
+            suite.addChild(classDescription);
+        }
+        return suite;
+    }
+
+    private static List<Object> resolve(Description suite, List<Description> tests) {
+        List<Object> results = new ArrayList<>();
+        results.add(AnnotationsRetriever.getAllUsedFlagsClasses(suite));
+        results.add(AnnotationsRetriever.getAllAnnotationSetFlags(suite));
+        for (Description test : tests) {
+            AnnotationsRetriever.FlagAnnotations annotations =
+                    AnnotationsRetriever.getFlagAnnotations(test);
+            results.add(annotations.mRequiredFlagValues);
+            results.add(annotations.mSetFlagValues);
+        }
+        return results;
+    }
+
+    /**
+     * Resolves the same flags as {@link #resolve}, walking the annotations of the test class and
+     * their meta-annotations for every test. The synthetic suite has no conflicting flags, so the
+     * method values simply override the class values.
+     */
+    private static List<Object> resolveUncached(Description suite, List<Description> tests) {
+        Set<String> usedFlagsClasses = new HashSet<>();
+        Set<String> setFlags = new HashSet<>();
+        for (Description testClass : suite.getChildren()) {
+            List<Annotation> classAnnotations = List.of(testClass.getTestClass().getAnnotations());
+            for (Collection<Annotation> annotations :
+                    List.of(classAnnotations, testClass.getAnnotations())) {
+                usedFlagsClasses.addAll(findFlags(UsesFlags.class, annotations));
+                setFlags.addAll(findFlags(EnableFlags.class, annotations));
+                setFlags.addAll(findFlags(DisableFlags.class, annotations));
+            }
+            for (Description test : testClass.getChildren()) {
+                usedFlagsClasses.addAll(findFlags(UsesFlags.class, test.getAnnotations()));
+                setFlags.addAll(findFlags(EnableFlags.class, test.getAnnotations()));
+                setFlags.addAll(findFlags(DisableFlags.class, test.getAnnotations()));
+            }
+        }
+        List<Object> results = new ArrayList<>();
+        results.add(usedFlagsClasses);
+        results.add(setFlags);
+        for (Description test : tests) {
+            List<Annotation> classAnnotations = List.of(test.getTestClass().getAnnotations());
+            results.add(
+                    findFlagValues(
+                            RequiresFlagsEnabled.class,
+                            RequiresFlagsDisabled.class,
+                            classAnnotations,
+                            test.getAnnotations()));
+            results.add(
+                    findFlagValues(
+                            EnableFlags.class,
+                            DisableFlags.class,
+                            classAnnotations,
+                            test.getAnnotations()));
+        }
+        return results;
+    }
+
+    private static Map<String, Boolean> findFlagValues(
+            Class<? extends Annotation> enabledType,
+            Class<? extends Annotation> disabledType,
+            Collection<Annotation> classAnnotations,
+            Collection<Annotation> methodAnnotations) {
+        Map<String, Boolean> values = new HashMap<>();
+        for (Collection<Annotation> annotations : List.of(classAnnotations, methodAnnotations)) {
+            for (String flag : findFlags(enabledType, annotations)) {
+                values.put(flag, true);
+            }
+            for (String flag : findFlags(disabledType, annotations)) {
+                values.put(flag, false);
+            }
+        }
+        return values;
+    }
+
+    /** Finds the flags of {@code type} in {@code annotations} and their meta-annotations. */
+    private static Set<String> findFlags(
+            Class<? extends Annotation> type, Collection<Annotation> annotations) {
+        Set<String> results = new HashSet<>();
+        Queue<Annotation> annotationQueue = new ArrayDeque<>(annotations);
+        Set<Class<? extends Annotation>> visitedAnnotations = new HashSet<>();
+        while (!annotationQueue.isEmpty()) {
+            Annotation annotation = annotationQueue.poll();
+            Class<? extends Annotation> currentType = annotation.annotationType();
+            if (currentType.equals(type)) {
+                results.addAll(getFlags(annotation));
+            } else if (!currentType.getName().startsWith("java.lang.annotation.")
+                    && !currentType.equals(Test.class)
+                    && visitedAnnotations.add(currentType)) {
+                annotationQueue.addAll(List.of(currentType.getAnnotations()));
+            }
+        }
+        return results;
+    }
+
+    private static List<String> getFlags(Annotation annotation) {
+        if (annotation instanceof UsesFlags) {
+            List<String> names = new ArrayList<>();
+            for (Class<?> flagsClass : ((UsesFlags) annotation).value()) {
+                names.add(flagsClass.getName());
+            }
+            return names;
+        } else if (annotation instanceof EnableFlags) {
+            return List.of(((EnableFlags) annotation).value());
+        } else if (annotation instanceof DisableFlags) {
+            return List.of(((DisableFlags) annotation).value());
+        } else if (annotation instanceof RequiresFlagsEnabled) {
+            return List.of(((RequiresFlagsEnabled) annotation).value());
+        } else {
+            return List.of(((RequiresFlagsDisabled) annotation).value());
+        }
+    }
+
+    private static Method method(String name) {
+        try {
+            return new Method(name, Templates.class.getMethod(name).getAnnotations());
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** A template test method: its name and its annotations. */
+    private static class Method {
+        final String name;
+        final Annotation[] annotations;
+
+        Method(String name, Annotation[] annotations) {
+            this.name = name;
+            this.annotations = annotations;
+        }
+    }
+
+    private static void report(boolean report, String name, long start) {
+        if (report) {
+            System.out.printf("%s: %.1f ms%n", name, (System.nanoTime() - start) / 1e6);
+        }
+    }
+}
@@ -17,7 +17,10 @@
 package android.platform.test.flag.junit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
 
+import android.platform.test.annotations.DisableFlags;
+import android.platform.test.annotations.EnableFlags;
 import android.platform.test.annotations.RequiresFlagsDisabled;
 import android.platform.test.annotations.RequiresFlagsEnabled;
 
@@ -34,6 +37,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.util.Map;
+import java.util.Set;
 
 @RunWith(JUnit4.class)
 public class AnnotationsRetrieverTest {
@@ -61,6 +65,10 @@ public class AnnotationsRetrieverTest {
     @RequiresFlagsDisabled({"flag1"})
     static class TestClassHasConflictingAnnotations {}
 
+    @EnableFlags({"flag7"})
+    @DisableFlags({"flag8"})
+    static class TestClassHasSetFlagsAnnotations {}
+
     private final RequiresFlagsEnabled mRequiresFlagsEnabled =
             createRequiresFlagsEnabled(new String[]{"flag5"});
 
@@ -163,6 +171,47 @@ public class AnnotationsRetrieverTest {
         getFlagAnnotations(TestClassHasConflictingAnnotations.class);
     }
 
+    @Test
+    public void conflictingClassAnnotationsThrowsEveryTime() {
+        for (int i = 0; i < 2; i++) {
+            assertThrows(
+                    AssertionError.class,
+                    () -> getFlagAnnotations(TestClassHasConflictingAnnotations.class));
+        }
+    }
+
+    @Test
+    public void methodAnnotationsAreResolvedPerDescription() {
+        // The class annotations are resolved once, but each method keeps its own annotations.
+        for (int i = 0; i < 2; i++) {
+            assertEquals(
+                    Map.of("flag1", true, "flag2", true, "flag5", true),
+                    getFlagAnnotations(
+                                    TestClassHasRequiresFlagsEnabled.class, mRequiresFlagsEnabled)
+                            .mRequiredFlagValues);
+            assertEquals(
+                    Map.of("flag1", true, "flag2", true),
+                    getFlagAnnotations(TestClassHasRequiresFlagsEnabled.class)
+                            .mRequiredFlagValues);
+        }
+    }
+
+    @Test
+    public void getAllAnnotationSetFlagsFromSuite() {
+        Description suite = Description.createSuiteDescription("suite");
+        suite.addChild(
+                Description.createTestDescription(TestClassHasSetFlagsAnnotations.class, "test1"));
+        suite.addChild(
+                Description.createTestDescription(TestClassHasSetFlagsAnnotations.class, "test2"));
+        suite.addChild(
+                Description.createTestDescription(
+                        TestClassHasNoAnnotation.class, "test3", mRequiresFlagsEnabled));
+
+        assertEquals(
+                Set.of("flag7", "flag8"), AnnotationsRetriever.getAllAnnotationSetFlags(suite));
+        assertEquals(Set.of(), AnnotationsRetriever.getAllUsedFlagsClasses(suite));
+    }
+
     @Test(expected = AssertionError.class)
     public void conflictingMethodAnnotationsThrows() {
         getFlagAnnotations(
@@ -18,12 +18,6 @@ package android.platform.test.rule;
 import android.os.SystemClock;
 import android.util.Log;
 import androidx.annotation.VisibleForTesting;
-import androidx.test.platform.app.InstrumentationRegistry;
-
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 
 import org.junit.runner.Description;
 
@@ -37,7 +31,10 @@ public class DropCachesRule extends TestWatcher {
     @VisibleForTesting static final String KEY_DROP_CACHE = "drop-cache";
     @VisibleForTesting static final String KEY_SYNC_BEFORE_DROP = "sync-before-drop-cache";
 
-    private String mDropCacheScriptPath;
+    // If this works correctly, the output will be 'Success'.
+    @VisibleForTesting
+    static final String DROP_CACHES_COMMAND =
+            "echo 3 > /proc/sys/vm/drop_caches && echo Success || echo Failure";
 
     /**
      * Shell equivalent of $(echo 3 > /proc/sys/vm/drop_caches)
@@ -49,31 +46,10 @@ public class DropCachesRule extends TestWatcher {
     }
 
     private void executeDropCachesImpl() {
-        // Create a temporary file which contains the dropCaches command.
-        // Do this because we cannot write to /proc/sys/vm/drop_caches directly,
-        // as executeShellCommand parses the '>' character as a literal.
-        try {
-            File outputDir =
-                    InstrumentationRegistry.getInstrumentation().getContext().getCacheDir();
-            File outputFile = File.createTempFile("drop_cache_script", ".sh", outputDir);
-            outputFile.setWritable(true);
-            outputFile.setExecutable(true, /*ownersOnly*/false);
-
-            mDropCacheScriptPath = outputFile.toString();
-
-            // If this works correctly, the next log-line will print 'Success'.
-            String str = "echo 3 > /proc/sys/vm/drop_caches && echo Success || echo Failure";
-            BufferedWriter writer = new BufferedWriter(new FileWriter(mDropCacheScriptPath));
-            writer.write(str);
-            writer.close();
-
-            String result = executeShellCommand(mDropCacheScriptPath);
-            // TODO: automatically report the output of shell commands to logcat?
-            Log.v(LOG_TAG, "dropCaches output was: " + result);
-            outputFile.delete();
-        } catch (IOException e) {
-            throw new AssertionError (e);
-        }
+        // Run in the shell session, as executeShellCommand passes the '>' character as a literal.
+        String result = executeShellSessionCommand(DROP_CACHES_COMMAND);
+        // TODO: automatically report the output of shell commands to logcat?
+        Log.v(LOG_TAG, "dropCaches output was: " + result);
     }
 
     @Override
@@ -93,9 +69,4 @@ public class DropCachesRule extends TestWatcher {
         // TODO: b/117868612 to identify the root cause for additional wait.
         SystemClock.sleep(3000);
     }
-
-    @VisibleForTesting
-    protected String getDropCacheScriptPath() {
-        return mDropCacheScriptPath;
-    }
 }
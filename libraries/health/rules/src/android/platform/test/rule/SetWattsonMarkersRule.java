@@ -15,13 +15,6 @@
  */
 package android.platform.test.rule;
 
-import androidx.test.platform.app.InstrumentationRegistry;
-
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-
 import org.junit.runner.Description;
 import org.junit.runners.model.InitializationError;
 
@@ -42,25 +35,9 @@ public class SetWattsonMarkersRule extends TestWatcher {
     }
 
     private void writeTraceMarker(String marker) {
-        // Create a temporary file which contains the markers command.
-        // Do this because we cannot write to sysfs directly, as executeShellCommand parses the '>'
-        // character as a literal.
-        File tempDir = InstrumentationRegistry.getInstrumentation().getContext().getCacheDir();
-        File tempFile = null;
-        try {
-            tempFile = File.createTempFile("echo_marker_script", ".sh", tempDir);
-            tempFile.setWritable(true);
-            tempFile.setExecutable(true, /*ownersOnly*/false);
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile.toString()))) {
-                writer.write(String.format("echo '%s' > /sys/kernel/tracing/trace_marker", marker));
-            }
-            executeShellCommand(tempFile.toString());
-        } catch (IOException e) {
-            throw new AssertionError (e);
-        } finally {
-            if (tempFile != null && tempFile.exists()) {
-                tempFile.delete();
-            }
-        }
+        // Write through the shell session, as executeShellCommand passes the '>' character as a
+        // literal. This also avoids spawning a process next to the measured test.
+        executeShellSessionCommand(
+                String.format("echo '%s' > /sys/kernel/tracing/trace_marker", marker));
     }
 }
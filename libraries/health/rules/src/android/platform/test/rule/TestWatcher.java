@@ -23,6 +23,8 @@ import android.util.Log;
 import androidx.test.InstrumentationRegistry;
 import androidx.test.uiautomator.UiDevice;
 
+import com.android.helpers.ShellSession;
+
 import java.io.IOException;
 import java.lang.Class;
 
@@ -115,6 +117,25 @@ public class TestWatcher implements TestRule {
         }
     }
 
+    /**
+     * Runs a shell command, {@code cmd}, in the {@link ShellSession} shared by the instrumentation
+     * and returns the output. Unlike {@link #executeShellCommand}, the command is interpreted by
+     * the shell, so it can use redirections, and no process is spawned for it.
+     *
+     * <p>Override this for unit testing shell commands.
+     */
+    protected String executeShellSessionCommand(String cmd) {
+        try {
+            Log.v(LOG_TAG, String.format("Executing session command from %s: %s",
+                    this.getClass(), cmd));
+            return ShellSession.getInstance(InstrumentationRegistry.getInstrumentation())
+                    .execute(cmd)
+                    .getOutputString();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Returns the {@link Bundle} containing registered arguments.
      *
@@ -42,7 +42,7 @@ public class DropCachesRuleTest {
         rule.apply(rule.getTestStatement(), Description.createTestDescription("clzz", "mthd"))
             .evaluate();
         assertThat(rule.getOperations())
-                .containsExactly("sync", rule.getDropCacheScriptPath(), "test")
+                .containsExactly("sync", DropCachesRule.DROP_CACHES_COMMAND, "test")
                 .inOrder();
     }
 
@@ -71,7 +71,7 @@ public class DropCachesRuleTest {
         rule.apply(rule.getTestStatement(), Description.createTestDescription("clzz", "mthd"))
                 .evaluate();
         assertThat(rule.getOperations())
-                .containsExactly(rule.getDropCacheScriptPath(), "test")
+                .containsExactly(DropCachesRule.DROP_CACHES_COMMAND, "test")
                 .inOrder();
     }
 
@@ -89,6 +89,12 @@ public class DropCachesRuleTest {
             return "";
         }
 
+        @Override
+        protected String executeShellSessionCommand(String cmd) {
+            mOperations.add(cmd);
+            return "";
+        }
+
         @Override
         protected Bundle getArguments() {
             return mBundle;
@@ -106,10 +112,5 @@ public class DropCachesRuleTest {
                 }
             };
         }
-
-        @Override
-        public String getDropCacheScriptPath() {
-            return super.getDropCacheScriptPath();
-        }
     }
 }
@@ -16,6 +16,7 @@
 package android.support.test.metricshelper;
 
 import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 
 import android.metrics.LogMaker;
 import android.metrics.MetricsReader;
@@ -25,10 +26,15 @@ import com.android.internal.logging.nano.MetricsProto.MetricsEvent;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 
 /**
  * Useful test utilities for metrics tests.
+ *
+ * <p>Each assertion taking a {@link MetricsReader} or a {@link Queue} scans all the captured logs.
+ * Tests making many assertions over the same logs should index them once with {@link
+ * MetricsLogIndex} and use the assertions taking the index.
  */
 public class MetricsAsserts {
 
@@ -43,12 +49,17 @@ public class MetricsAsserts {
      * Assert unless there is a log with the matching category and with ACTION type.
      */
     public static void assertHasActionLog(String message, Queue<LogMaker> queue, int view) {
-        Queue<LogMaker> logs = findMatchingLogs(queue,
-                new LogMaker(view)
-                        .setType(MetricsEvent.TYPE_ACTION));
+        Queue<LogMaker> logs = findMatchingLogs(queue, actionTemplate(view));
         assertTrue(message, !logs.isEmpty());
     }
 
+    /**
+     * Assert unless there is a log with the matching category and with ACTION type.
+     */
+    public static void assertHasActionLog(String message, MetricsLogIndex index, int view) {
+        assertTrue(message, index.hasLog(actionTemplate(view)));
+    }
+
     /**
      * Assert unless there is a log with the matching category and with visibility type.
      */
@@ -63,12 +74,28 @@ public class MetricsAsserts {
      */
     public static void assertHasVisibilityLog(String message, Queue<LogMaker> queue,
             int view, boolean visible) {
-        Queue<LogMaker> logs = findMatchingLogs(queue,
-                new LogMaker(view)
-                        .setType(visible ? MetricsEvent.TYPE_OPEN : MetricsEvent.TYPE_CLOSE));
+        Queue<LogMaker> logs = findMatchingLogs(queue, visibilityTemplate(view, visible));
         assertTrue(message, !logs.isEmpty());
     }
 
+    /**
+     * Assert unless there is a log with the matching category and with visibility type.
+     */
+    public static void assertHasVisibilityLog(String message, MetricsLogIndex index,
+            int view, boolean visible) {
+        assertTrue(message, index.hasLog(visibilityTemplate(view, visible)));
+    }
+
+    private static LogMaker actionTemplate(int view) {
+        return new LogMaker(view)
+                .setType(MetricsEvent.TYPE_ACTION);
+    }
+
+    private static LogMaker visibilityTemplate(int view, boolean visible) {
+        return new LogMaker(view)
+                .setType(visible ? MetricsEvent.TYPE_OPEN : MetricsEvent.TYPE_CLOSE);
+    }
+
     /**
      * @returns logs that have at least all the matching fields in the template.
      */
@@ -109,6 +136,38 @@ public class MetricsAsserts {
         assertTrue(message, !findMatchingLogs(queue, expected).isEmpty());
     }
 
+    /**
+     * Assert unless there is at least one  log that matches the template.
+     */
+    public static void assertHasLog(String message, MetricsLogIndex index, LogMaker expected) {
+        assertTrue(message, index.hasLog(expected));
+    }
+
+    /**
+     * Assert unless each template is matched by at least one log. The logs are only read once for
+     * all the templates, and the message lists the templates that weren't matched.
+     */
+    public static void assertHasLogs(String message, MetricsReader reader,
+            List<LogMaker> expected) {
+        assertHasLogs(message, MetricsLogIndex.of(reader), expected);
+    }
+
+    /**
+     * Assert unless each template is matched by at least one log. The message lists the templates
+     * that weren't matched.
+     */
+    public static void assertHasLogs(String message, MetricsLogIndex index,
+            List<LogMaker> expected) {
+        List<LogMaker> missing = index.findMissingLogs(expected);
+        if (!missing.isEmpty()) {
+            StringBuilder details = new StringBuilder(message).append(", missing:");
+            for (LogMaker template : missing) {
+                details.append("\n  ").append(template.getEntries());
+            }
+            fail(details.toString());
+        }
+    }
+
     private static class ReaderQueue implements Queue<LogMaker> {
 
         private final MetricsReader mMetricsReader;
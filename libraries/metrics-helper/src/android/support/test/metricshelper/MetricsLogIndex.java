@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.support.test.metricshelper;
+
+import android.metrics.LogMaker;
+import android.metrics.MetricsReader;
+import android.util.SparseArray;
+
+import com.android.internal.logging.nano.MetricsProto.MetricsEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Snapshot of captured logs, indexed by category, type and subtype.
+ *
+ * <p>Build it once after the logs of interest were captured, then run any number of queries
+ * against it. Each query only checks the logs sharing the category, type and subtype of its
+ * template, instead of all the captured logs.
+ */
+public class MetricsLogIndex {
+    private final List<LogMaker> mLogs = new ArrayList<>();
+    /**
+     * Logs by [category], [category, type] and [category, type, subtype], for the fields they
+     * have.
+     */
+    private final Map<List<Integer>, List<LogMaker>> mIndex = new HashMap<>();
+
+    private MetricsLogIndex() {}
+
+    /**
+     * Reads all the logs of {@code reader} and indexes them.
+     */
+    public static MetricsLogIndex of(MetricsReader reader) {
+        reader.read(0);
+        MetricsLogIndex index = new MetricsLogIndex();
+        while (reader.hasNext()) {
+            index.add(reader.next());
+        }
+        return index;
+    }
+
+    /**
+     * Indexes the logs of {@code queue}, consuming it.
+     */
+    public static MetricsLogIndex of(Queue<LogMaker> queue) {
+        MetricsLogIndex index = new MetricsLogIndex();
+        while (!queue.isEmpty()) {
+            index.add(queue.poll());
+        }
+        return index;
+    }
+
+    private void add(LogMaker log) {
+        mLogs.add(log);
+        List<Integer> key = getKey(log);
+        for (int length = 1; length <= key.size(); length++) {
+            mIndex.computeIfAbsent(key.subList(0, length), k -> new ArrayList<>()).add(log);
+        }
+    }
+
+    /** Returns the number of indexed logs. */
+    public int size() {
+        return mLogs.size();
+    }
+
+    /**
+     * @returns logs that have at least all the matching fields in the template, in the same order
+     * as {@link MetricsAsserts#findMatchingLogs(Queue, LogMaker)}.
+     */
+    public Queue<LogMaker> findMatchingLogs(LogMaker template) {
+        LinkedList<LogMaker> logs = new LinkedList<>();
+        if (template == null) {
+            return logs;
+        }
+        for (LogMaker log : getCandidates(template)) {
+            if (template.isSubsetOf(log)) {
+                logs.push(log);
+            }
+        }
+        return logs;
+    }
+
+    /**
+     * @returns the logs matching each of the templates, in the order of the templates.
+     */
+    public List<Queue<LogMaker>> findMatchingLogs(List<LogMaker> templates) {
+        List<Queue<LogMaker>> matches = new ArrayList<>(templates.size());
+        for (LogMaker template : templates) {
+            matches.add(findMatchingLogs(template));
+        }
+        return matches;
+    }
+
+    /**
+     * @returns whether at least one log matches the template.
+     */
+    public boolean hasLog(LogMaker template) {
+        if (template == null) {
+            return false;
+        }
+        for (LogMaker log : getCandidates(template)) {
+            if (template.isSubsetOf(log)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @returns the templates that no log matches, in the order of the templates.
+     */
+    public List<LogMaker> findMissingLogs(List<LogMaker> templates) {
+        List<LogMaker> missing = new ArrayList<>();
+        for (LogMaker template : templates) {
+            if (!hasLog(template)) {
+                missing.add(template);
+            }
+        }
+        return missing;
+    }
+
+    /** Returns the logs that may match {@code template}, in the order they were captured. */
+    private List<LogMaker> getCandidates(LogMaker template) {
+        List<Integer> key = getKey(template);
+        if (key.isEmpty()) {
+            return mLogs;
+        }
+        List<LogMaker> candidates = mIndex.get(key);
+        return candidates != null ? candidates : Collections.emptyList();
+    }
+
+    /**
+     * Returns the index key of {@code log}: its category, type and subtype, stopping at the first
+     * one it doesn't have.
+     */
+    private static List<Integer> getKey(LogMaker log) {
+        SparseArray<Object> entries = log.getEntries();
+        Object category = entries.get(MetricsEvent.RESERVED_FOR_LOGBUILDER_CATEGORY);
+        if (!(category instanceof Integer)) {
+            return Collections.emptyList();
+        }
+        Object type = entries.get(MetricsEvent.RESERVED_FOR_LOGBUILDER_TYPE);
+        if (!(type instanceof Integer)) {
+            return Collections.singletonList((Integer) category);
+        }
+        Object subtype = entries.get(MetricsEvent.RESERVED_FOR_LOGBUILDER_SUBTYPE);
+        if (!(subtype instanceof Integer)) {
+            return Arrays.asList((Integer) category, (Integer) type);
+        }
+        return Arrays.asList((Integer) category, (Integer) type, (Integer) subtype);
+    }
+}
@@ -16,6 +16,7 @@
 package android.support.test.metricshelper;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 
 import static org.mockito.Mockito.when;
 
@@ -33,6 +34,10 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
 @SmallTest
 @RunWith(AndroidJUnit4.class)
 public class MetricsAssertsTest {
@@ -163,4 +168,64 @@ public class MetricsAssertsTest {
         }
 
     }
+
+    @Test
+    public void testIndexHasActionAndVisibilityLogs() {
+        MetricsLogIndex index = MetricsLogIndex.of(mReader);
+
+        assertEquals(4, index.size());
+        MetricsAsserts.assertHasActionLog("foo", index, mActionView);
+        MetricsAsserts.assertHasVisibilityLog("foo", index, mOpenView, true);
+        MetricsAsserts.assertHasVisibilityLog("foo", index, mCloseView, false);
+        MetricsAsserts.assertHasLog("foo", index,
+                new LogMaker(mActionView)
+                        .setType(MetricsEvent.TYPE_ACTION)
+                        .setSubtype(mSubtype));
+    }
+
+    @Test
+    public void testIndexDoesNotHaveLog() {
+        MetricsLogIndex index = MetricsLogIndex.of(mReader);
+        final String message = "foo";
+        try {
+            MetricsAsserts.assertHasActionLog(message, index, mOpenView);
+        } catch (AssertionError e) {
+            assertEquals(message, e.getMessage());
+            return; // success!
+        }
+        throw new AssertionError("no log expected");
+    }
+
+    @Test
+    public void testIndexMatchesLikeQueue() {
+        MetricsLogIndex index = MetricsLogIndex.of(mReader);
+
+        // Templates without subtype, or without category, aren't narrowed down by the index.
+        Queue<LogMaker> opened = index.findMatchingLogs(
+                new LogMaker(MetricsEvent.SCREEN).setType(MetricsEvent.TYPE_OPEN));
+        Queue<LogMaker> timestamped = index.findMatchingLogs(
+                new LogMaker(MetricsEvent.VIEW_UNKNOWN).clearCategory().setTimestamp(2000));
+
+        assertEquals(1, opened.size());
+        assertEquals(a, opened.peek());
+        assertEquals(1, timestamped.size());
+        assertEquals(b, timestamped.peek());
+    }
+
+    @Test
+    public void testHasLogsReportsMissingTemplates() {
+        LogMaker missing = new LogMaker(mOpenView).setType(MetricsEvent.TYPE_ACTION);
+        List<LogMaker> expected = Arrays.asList(
+                new LogMaker(mActionView).setType(MetricsEvent.TYPE_ACTION),
+                missing,
+                new LogMaker(mCloseView));
+        try {
+            MetricsAsserts.assertHasLogs("foo", mReader, expected);
+        } catch (AssertionError e) {
+            assertTrue(e.getMessage().startsWith("foo, missing:"));
+            assertTrue(e.getMessage().contains(missing.getEntries().toString()));
+            return; // success!
+        }
+        throw new AssertionError("missing log not reported");
+    }
 }
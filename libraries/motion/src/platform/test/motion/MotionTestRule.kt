@@ -31,6 +31,7 @@ import org.junit.rules.TestRule
 import org.junit.rules.TestWatcher
 import org.junit.runner.Description
 import org.junit.runners.model.Statement
+import platform.test.motion.golden.BinaryGoldenSerializer
 import platform.test.motion.golden.DataPointType
 import platform.test.motion.golden.JsonGoldenSerializer
 import platform.test.motion.golden.TimeSeries
@@ -98,6 +99,9 @@ class MotionTestRule<Toolkit>(
      *
      * Golden data types not included in the `typeRegistry` will produce an [UnknownType].
      *
+     * Goldens are JSON files. A golden without JSON file can instead be in the binary format of
+     * [BinaryGoldenSerializer], for example converted from JSON when building the test.
+     *
      * @param typeRegistry [DataPointType] implementations used to de-serialize structured JSON
      *   values to golden values. See [TimeSeries.dataPointTypes] for creating the registry based on
      *   the currently produced timeseries.
@@ -108,12 +112,19 @@ class MotionTestRule<Toolkit>(
         goldenIdentifier: String,
         typeRegistry: Map<String, DataPointType<*>>,
     ): TimeSeries {
+        val assets = goldenPathManager.appContext.assets
         val path = goldenPathManager.goldenIdentifierResolver(goldenIdentifier, JSON_EXTENSION)
         try {
-            return goldenPathManager.appContext.assets.open(path).bufferedReader().use {
-                val jsonObject = JSONObject(it.readText())
-                JsonGoldenSerializer.fromJson(jsonObject, typeRegistry)
+            return assets.open(path).bufferedReader().use {
+                JsonGoldenSerializer.readJson(it, typeRegistry)
             }
+        } catch (e: FileNotFoundException) {
+            // Fall back to the binary golden below.
+        }
+        val binaryPath =
+            goldenPathManager.goldenIdentifierResolver(goldenIdentifier, BINARY_EXTENSION)
+        try {
+            return assets.open(binaryPath).use { BinaryGoldenSerializer.read(it, typeRegistry) }
         } catch (e: FileNotFoundException) {
             throw GoldenNotFoundException(path)
         }
@@ -163,9 +174,11 @@ class MotionTestRule<Toolkit>(
 
         try {
             FileOutputStream(goldenFile).bufferedWriter().use {
-                val jsonObject = JsonGoldenSerializer.toJson(recordedMotion.timeSeries)
-                jsonObject.put("//metadata", metadata)
-                it.write(jsonObject.toString(JSON_INDENTATION))
+                JsonGoldenSerializer.writeJson(
+                    recordedMotion.timeSeries,
+                    it,
+                    additionalProperties = mapOf("//metadata" to metadata),
+                )
             }
         } catch (e: Exception) {
             throw IOException("Failed to write generated JSON (${goldenFile.absolutePath}). ", e)
@@ -188,7 +201,7 @@ class MotionTestRule<Toolkit>(
         private const val JSON_EXTENSION = "json"
         private const val JSON_ACTUAL_EXTENSION = "actual.${JSON_EXTENSION}"
         private const val VIDEO_EXTENSION = "mp4"
-        private const val JSON_INDENTATION = 2
+        private const val BINARY_EXTENSION = "bin"
         private val GOLDEN_IDENTIFIER_REGEX = "^[A-Za-z0-9_-]+$".toRegex()
         private const val TAG = "MotionTestRule"
 
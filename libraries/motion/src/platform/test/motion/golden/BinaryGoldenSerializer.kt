@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package platform.test.motion.golden
+
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.io.Reader
+import java.io.StringWriter
+import java.io.Writer
+import java.nio.ByteBuffer
+import org.json.JSONTokener
+
+/**
+ * Utility to (de-)serialize golden [TimeSeries] data in a compact, columnar binary format.
+ *
+ * JSON stays the format goldens are reviewed in. This format is an optional, faster to load
+ * alternative for large goldens, see [convertJsonToBinary] and [convertBinaryToJson].
+ *
+ * The layout, with all numbers big endian and strings in modified UTF-8 unless noted:
+ * - magic number and format version
+ * - frame count, then each frame ID as a tag followed by its timestamp or label
+ * - feature count, then each feature as its name, its type name (empty if none), an encoding and
+ *   its data points. Features of numeric types are stored as a column of data point kinds followed
+ *   by a column of 32-bit values. Others are stored as the compact JSON text of each data point, in
+ *   UTF-8 prefixed by its length.
+ */
+object BinaryGoldenSerializer {
+    /**
+     * Reads a previously binary serialized [TimeSeries].
+     *
+     * Golden data types not included in the `typeRegistry` will produce an [UnknownType].
+     *
+     * @see JsonGoldenSerializer.fromJson
+     * @throws IOException if the data is truncated or not in the expected format.
+     */
+    fun read(input: InputStream, typeRegistry: Map<String, DataPointType<*>>): TimeSeries =
+        readWith(input, typeRegistry::get)
+
+    /** Writes the binary representation of [golden] to [output]. */
+    fun write(golden: TimeSeries, output: OutputStream) {
+        val out = DataOutputStream(BufferedOutputStream(output))
+        out.writeInt(MAGIC)
+        out.writeByte(VERSION)
+
+        out.writeInt(golden.frameIds.size)
+        for (frameId in golden.frameIds) {
+            when (frameId) {
+                is TimestampFrameId -> {
+                    out.writeByte(FRAME_TIMESTAMP)
+                    out.writeLong(frameId.milliseconds)
+                }
+                is SupplementalFrameId -> {
+                    out.writeByte(FRAME_SUPPLEMENTAL)
+                    out.writeUTF(frameId.label)
+                }
+            }
+        }
+
+        out.writeInt(golden.features.size)
+        for (feature in golden.features.values) {
+            out.writeUTF(feature.name)
+            out.writeUTF(JsonGoldenSerializer.featureTypeName(feature) ?: "")
+            val packed = packDataPoints(feature.dataPoints)
+            if (packed != null) {
+                out.writeByte(
+                    if (packed.packedType.type === DataPointTypes.float) ENCODING_FLOAT
+                    else ENCODING_INT
+                )
+                out.write(packed.kinds)
+                val bits = ByteBuffer.allocate(packed.bits.size * 4)
+                bits.asIntBuffer().put(packed.bits)
+                out.write(bits.array())
+            } else {
+                out.writeByte(ENCODING_JSON)
+                for (dataPoint in feature.dataPoints) {
+                    val text = StringWriter()
+                    GoldenJsonWriter(text, indent = null).value(dataPoint.asJson())
+                    val bytes = text.toString().toByteArray(Charsets.UTF_8)
+                    out.writeInt(bytes.size)
+                    out.write(bytes)
+                }
+            }
+        }
+        out.flush()
+    }
+
+    /**
+     * Converts a JSON golden to the binary format.
+     *
+     * Values of types other than the numeric ones are copied as is, so no type registry is needed.
+     */
+    fun convertJsonToBinary(json: Reader, output: OutputStream) {
+        write(JsonGoldenSerializer.readJsonWith(json, ::conversionType), output)
+    }
+
+    /** Converts a binary golden back to JSON, in the same text format as the golden JSON files. */
+    fun convertBinaryToJson(input: InputStream, json: Writer) {
+        JsonGoldenSerializer.writeJson(readWith(input, ::conversionType), json)
+    }
+
+    private fun readWith(
+        input: InputStream,
+        typeForName: (String) -> DataPointType<*>?,
+    ): TimeSeries {
+        val data = DataInputStream(BufferedInputStream(input))
+        if (data.readInt() != MAGIC) {
+            throw IOException("Not a binary motion golden")
+        }
+        val version = data.readByte().toInt()
+        if (version != VERSION) {
+            throw IOException("Unsupported binary golden version $version")
+        }
+
+        val frameCount = data.readInt()
+        val frameIds =
+            List(frameCount) {
+                when (val tag = data.readByte().toInt()) {
+                    FRAME_TIMESTAMP -> TimestampFrameId(data.readLong())
+                    FRAME_SUPPLEMENTAL -> SupplementalFrameId(data.readUTF())
+                    else -> throw IOException("Unknown frame ID tag $tag")
+                }
+            }
+
+        val features =
+            List(data.readInt()) {
+                val name = data.readUTF()
+                val type = typeForName(data.readUTF()) ?: JsonGoldenSerializer.unknownType
+                val dataPoints =
+                    when (val encoding = data.readByte().toInt()) {
+                        ENCODING_FLOAT,
+                        ENCODING_INT -> {
+                            val kinds = ByteArray(frameCount)
+                            data.readFully(kinds)
+                            val bytes = ByteArray(frameCount * 4)
+                            data.readFully(bytes)
+                            val bits = IntArray(frameCount)
+                            ByteBuffer.wrap(bytes).asIntBuffer().get(bits)
+                            val encodedType =
+                                if (encoding == ENCODING_FLOAT) DataPointTypes.float
+                                else DataPointTypes.int
+                            unpackDataPoints(
+                                PackedDataPointList(PackedType.of(encodedType)!!, kinds, bits),
+                                type,
+                            )
+                        }
+                        ENCODING_JSON ->
+                            List(frameCount) {
+                                val bytes = ByteArray(data.readInt())
+                                data.readFully(bytes)
+                                val text = String(bytes, Charsets.UTF_8)
+                                type.fromJson(JSONTokener(text).nextValue())
+                            }
+                        else -> throw IOException("Unknown feature encoding $encoding")
+                    }
+                Feature(name, dataPoints)
+            }
+        return TimeSeries(frameIds, features)
+    }
+
+    /** Returns [dataPoints] packed in primitive arrays, or null if they are not numeric. */
+    private fun packDataPoints(dataPoints: List<DataPoint<*>>): PackedDataPointList<*>? {
+        if (dataPoints is PackedDataPointList<*>) return dataPoints
+        val type =
+            dataPoints.firstNotNullOfOrNull { (it as? ValueDataPoint<*>)?.type } ?: return null
+        val packedType = PackedType.of(type) ?: return null
+        return PackedDataPointListBuilder(packedType, dataPoints.size)
+            .apply { dataPoints.forEach { add(it) } }
+            .build()
+    }
+
+    /**
+     * Returns the data points of [packed] as data points of [type]. Usually [type] is the type
+     * they were packed with, in which case they are returned as is.
+     */
+    private fun unpackDataPoints(
+        packed: PackedDataPointList<*>,
+        type: DataPointType<*>,
+    ): List<DataPoint<*>> =
+        if (packed.packedType.type === type) {
+            packed
+        } else {
+            packed.map { if (it is ValueDataPoint<*>) type.fromJson(it.asJson()) else it }
+        }
+
+    /**
+     * Types used for format conversions: the numeric types to pack, and types keeping any other
+     * JSON value as is.
+     */
+    private fun conversionType(typeName: String): DataPointType<*>? =
+        when {
+            typeName.isEmpty() -> null
+            typeName == DataPointTypes.float.typeName -> DataPointTypes.float
+            typeName == DataPointTypes.int.typeName -> DataPointTypes.int
+            else -> DataPointType(typeName, jsonToValue = { it }, valueToJson = { it })
+        }
+
+    private const val MAGIC = 0x4d544753 // "MTGS"
+    private const val VERSION = 1
+
+    private const val FRAME_TIMESTAMP = 0
+    private const val FRAME_SUPPLEMENTAL = 1
+
+    private const val ENCODING_FLOAT = 0
+    private const val ENCODING_INT = 1
+    private const val ENCODING_JSON = 2
+}
@@ -16,6 +16,11 @@
 
 package platform.test.motion.golden
 
+import android.util.JsonReader
+import android.util.JsonToken
+import java.io.IOException
+import java.io.Reader
+import java.io.Writer
 import org.json.JSONArray
 import org.json.JSONException
 import org.json.JSONObject
@@ -25,6 +30,10 @@ import org.json.JSONObject
  *
  * The JSON format is written with human readability in mind.
  *
+ * [readJson] and [writeJson] stream the JSON text directly from / to a [TimeSeries], without
+ * building the intermediate [JSONObject] tree, and store features of numeric types in primitive
+ * arrays. Prefer them for large goldens.
+ *
  * Note that this intentionally does not use protocol buffers, since the text format is not
  * available for the "Protobuf Java Lite Runtime". See http://shortn/_dx5ldOga8s for details.
  */
@@ -64,6 +73,147 @@ object JsonGoldenSerializer {
             )
         }
 
+    /**
+     * Reads a previously JSON serialized [TimeSeries], streaming from [reader].
+     *
+     * Produces the same [TimeSeries] as [fromJson], see there for the parameters.
+     *
+     * @throws JSONException if the JSON data does not match the expected schema.
+     */
+    fun readJson(reader: Reader, typeRegistry: Map<String, DataPointType<*>>): TimeSeries =
+        readJsonWith(reader, typeRegistry::get)
+
+    /**
+     * Writes the JSON representation of [golden] to [writer], formatted like the
+     * `toString(indentSpaces = 2)` of [toJson].
+     *
+     * @param additionalProperties written after the [golden] properties, e.g. metadata.
+     */
+    fun writeJson(
+        golden: TimeSeries,
+        writer: Writer,
+        additionalProperties: Map<String, Any> = emptyMap(),
+    ) {
+        GoldenJsonWriter(writer).apply {
+            beginObject()
+            name(KEY_FRAME_IDS)
+            beginArray()
+            golden.frameIds.forEach { value(frameIdToJson(it)) }
+            endArray()
+            name(KEY_FEATURES)
+            beginArray()
+            for (feature in golden.features.values) {
+                beginObject()
+                name(KEY_FEATURE_NAME)
+                value(feature.name)
+                featureTypeName(feature)?.let {
+                    name(KEY_FEATURE_TYPE)
+                    value(it)
+                }
+                name(KEY_FEATURE_DATAPOINTS)
+                beginArray()
+                feature.dataPoints.forEach { value(it.asJson()) }
+                endArray()
+                endObject()
+            }
+            endArray()
+            additionalProperties.forEach { (key, property) ->
+                name(key)
+                value(property)
+            }
+            endObject()
+        }
+        writer.flush()
+    }
+
+    internal fun readJsonWith(
+        reader: Reader,
+        typeForName: (String) -> DataPointType<*>?,
+    ): TimeSeries {
+        val jsonReader = JsonReader(reader)
+        try {
+            var frameIds: List<FrameId>? = null
+            var features: List<Feature<*>>? = null
+            jsonReader.beginObject()
+            while (jsonReader.hasNext()) {
+                when (jsonReader.nextName()) {
+                    KEY_FRAME_IDS ->
+                        frameIds = jsonReader.readArray { frameIdFromJson(nextJsonValue()) }
+                    KEY_FEATURES -> features = jsonReader.readArray { readFeature(typeForName) }
+                    else -> jsonReader.skipValue()
+                }
+            }
+            jsonReader.endObject()
+            return TimeSeries(
+                frameIds ?: throw JSONException("No value for $KEY_FRAME_IDS"),
+                features ?: throw JSONException("No value for $KEY_FEATURES"),
+            )
+        } catch (e: IOException) {
+            throw JSONException(e.message).apply { initCause(e) }
+        } catch (e: IllegalStateException) {
+            throw JSONException(e.message).apply { initCause(e) }
+        } catch (e: NumberFormatException) {
+            throw JSONException(e.message).apply { initCause(e) }
+        }
+    }
+
+    private fun JsonReader.readFeature(typeForName: (String) -> DataPointType<*>?): Feature<*> {
+        var name: String? = null
+        var typeName: String? = null
+        var dataPoints: List<DataPoint<*>>? = null
+        // Data points listed before the type can only be converted once the type is known.
+        var jsonDataPoints: List<Any>? = null
+
+        beginObject()
+        while (hasNext()) {
+            when (nextName()) {
+                KEY_FEATURE_NAME -> name = nextString()
+                KEY_FEATURE_TYPE -> typeName = nextString()
+                KEY_FEATURE_DATAPOINTS ->
+                    if (typeName != null) {
+                        dataPoints = readDataPoints(typeForName(typeName) ?: unknownType)
+                    } else {
+                        jsonDataPoints = readArray { nextJsonValue() }
+                    }
+                else -> skipValue()
+            }
+        }
+        endObject()
+
+        val featureDataPoints =
+            dataPoints
+                ?: jsonDataPoints?.let {
+                    val type = typeName?.let(typeForName) ?: unknownType
+                    it.map(type::fromJson)
+                }
+                ?: throw JSONException("No value for $KEY_FEATURE_DATAPOINTS")
+        return Feature(
+            name ?: throw JSONException("No value for $KEY_FEATURE_NAME"),
+            featureDataPoints,
+        )
+    }
+
+    private fun JsonReader.readDataPoints(type: DataPointType<*>): List<DataPoint<*>> {
+        val packedType = PackedType.of(type) ?: return readArray { type.fromJson(nextJsonValue()) }
+        return readPackedDataPoints(packedType)
+    }
+
+    private fun <T : Any> JsonReader.readPackedDataPoints(
+        packedType: PackedType<T>
+    ): List<DataPoint<T>> {
+        val builder = PackedDataPointListBuilder(packedType)
+        beginArray()
+        while (hasNext()) {
+            if (peek() == JsonToken.NUMBER) {
+                builder.addBits(packedType.packNumber(nextDouble()))
+            } else {
+                builder.add(packedType.type.fromJson(nextJsonValue()))
+            }
+        }
+        endArray()
+        return builder.build()
+    }
+
     private fun frameIdFromJson(jsonValue: Any): FrameId {
         return when (jsonValue) {
             is Number -> TimestampFrameId(jsonValue.toLong())
@@ -90,23 +240,35 @@ object JsonGoldenSerializer {
         return Feature(name, dataPoints)
     }
 
+    /**
+     * Returns the type name of the [feature]'s data points, or null if it has no value data point.
+     *
+     * @throws JSONException if the data points are of more than one type.
+     */
+    internal fun featureTypeName(feature: Feature<*>): String? {
+        val dataPoints = feature.dataPoints
+        if (dataPoints is PackedDataPointList<*>) {
+            return if (dataPoints.kinds.contains(PackedDataPointList.KIND_VALUE)) {
+                dataPoints.packedType.type.typeName
+            } else {
+                null
+            }
+        }
+        val dataPointTypes =
+            dataPoints.filterIsInstance<ValueDataPoint<Any>>().map { it.type.typeName }.toSet()
+        if (dataPointTypes.size > 1) {
+            throw JSONException(
+                "Feature [${feature.name}] contains more than one data point type: " +
+                    "[${dataPointTypes.joinToString()}]"
+            )
+        }
+        return dataPointTypes.singleOrNull()
+    }
+
     private fun featureToJson(feature: Feature<*>) =
         JSONObject().apply {
             put(KEY_FEATURE_NAME, feature.name)
-
-            val dataPointTypes =
-                feature.dataPoints
-                    .filterIsInstance<ValueDataPoint<Any>>()
-                    .map { it.type.typeName }
-                    .toSet()
-            if (dataPointTypes.size == 1) {
-                put(KEY_FEATURE_TYPE, dataPointTypes.single())
-            } else if (dataPointTypes.size > 1) {
-                throw JSONException(
-                    "Feature [${feature.name}] contains more than one data point type: " +
-                        "[${dataPointTypes.joinToString()}]"
-                )
-            }
+            featureTypeName(feature)?.let { put(KEY_FEATURE_TYPE, it) }
 
             put(
                 KEY_FEATURE_DATAPOINTS,
@@ -120,7 +282,7 @@ object JsonGoldenSerializer {
     private const val KEY_FEATURE_TYPE = "type"
     private const val KEY_FEATURE_DATAPOINTS = "data_points"
 
-    private val unknownType: DataPointType<Any> =
+    internal val unknownType: DataPointType<Any> =
         DataPointType(
             "unknown",
             jsonToValue = { throw UnknownTypeException() },
@@ -145,6 +307,15 @@ fun TimeSeries.createTypeRegistry(): Map<String, DataPointType<*>> = buildMap {
     }
 }
 
+private inline fun <T> JsonReader.readArray(readElement: JsonReader.() -> T): List<T> =
+    buildList {
+        beginArray()
+        while (hasNext()) {
+            add(readElement())
+        }
+        endArray()
+    }
+
 private fun <I, O> JSONArray.convert(
     elementAccessor: JSONArray.(index: Int) -> I,
     convertFn: (I) -> O,
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package platform.test.motion.golden
+
+import android.util.JsonReader
+import android.util.JsonToken
+import java.io.Writer
+import org.json.JSONArray
+import org.json.JSONException
+import org.json.JSONObject
+
+/**
+ * Streaming JSON writer producing the exact same text as `org.json`'s `toString(indentSpaces)`, so
+ * that goldens written in a single pass are identical to the ones built as a [JSONObject] tree.
+ *
+ * Values can be `org.json` values, including nested [JSONObject] and [JSONArray]s, as produced by
+ * [DataPointType.toJson].
+ *
+ * @param indent indentation per nesting level, or `null` for the compact form.
+ */
+internal class GoldenJsonWriter(private val out: Writer, private val indent: String? = "  ") {
+
+    private enum class Scope {
+        EMPTY_ARRAY,
+        NONEMPTY_ARRAY,
+        EMPTY_OBJECT,
+        NONEMPTY_OBJECT,
+        DANGLING_KEY,
+    }
+
+    private val stack = ArrayList<Scope>()
+
+    fun beginObject() = open(Scope.EMPTY_OBJECT, "{")
+
+    fun endObject() = close(Scope.EMPTY_OBJECT, Scope.NONEMPTY_OBJECT, "}")
+
+    fun beginArray() = open(Scope.EMPTY_ARRAY, "[")
+
+    fun endArray() = close(Scope.EMPTY_ARRAY, Scope.NONEMPTY_ARRAY, "]")
+
+    fun name(name: String) {
+        when (stack.lastOrNull()) {
+            Scope.NONEMPTY_OBJECT -> out.write(",")
+            Scope.EMPTY_OBJECT -> {}
+            else -> throw JSONException("Nesting problem")
+        }
+        newline()
+        stack[stack.size - 1] = Scope.DANGLING_KEY
+        out.write(JSONObject.quote(name))
+    }
+
+    fun value(value: Any?) {
+        when (value) {
+            is JSONObject -> {
+                beginObject()
+                for (key in value.keys()) {
+                    name(key)
+                    value(value.opt(key))
+                }
+                endObject()
+            }
+            is JSONArray -> {
+                beginArray()
+                for (i in 0 until value.length()) {
+                    value(value.opt(i))
+                }
+                endArray()
+            }
+            else -> {
+                beforeValue()
+                out.write(
+                    when (value) {
+                        null,
+                        JSONObject.NULL,
+                        is Boolean -> value.toString()
+                        is Number -> JSONObject.numberToString(value)
+                        else -> JSONObject.quote(value.toString())
+                    }
+                )
+            }
+        }
+    }
+
+    private fun open(empty: Scope, openBracket: String) {
+        beforeValue()
+        stack.add(empty)
+        out.write(openBracket)
+    }
+
+    private fun close(empty: Scope, nonempty: Scope, closeBracket: String) {
+        val context = stack.lastOrNull()
+        if (context != nonempty && context != empty) {
+            throw JSONException("Nesting problem")
+        }
+        stack.removeAt(stack.size - 1)
+        if (context == nonempty) {
+            newline()
+        }
+        out.write(closeBracket)
+    }
+
+    private fun beforeValue() {
+        when (stack.lastOrNull()) {
+            null -> return
+            Scope.EMPTY_ARRAY -> {
+                stack[stack.size - 1] = Scope.NONEMPTY_ARRAY
+                newline()
+            }
+            Scope.NONEMPTY_ARRAY -> {
+                out.write(",")
+                newline()
+            }
+            Scope.DANGLING_KEY -> {
+                out.write(if (indent == null) ":" else ": ")
+                stack[stack.size - 1] = Scope.NONEMPTY_OBJECT
+            }
+            else -> throw JSONException("Nesting problem")
+        }
+    }
+
+    private fun newline() {
+        if (indent == null) return
+        out.write("\n")
+        repeat(stack.size) { out.write(indent) }
+    }
+}
+
+/**
+ * Reads the next value, as the same `org.json` value [org.json.JSONTokener] would produce: nested
+ * objects and arrays as [JSONObject] and [JSONArray], `null` as [JSONObject.NULL] and integral
+ * numbers as [Int] or [Long].
+ */
+internal fun JsonReader.nextJsonValue(): Any =
+    when (peek()) {
+        JsonToken.BEGIN_OBJECT ->
+            JSONObject().also {
+                beginObject()
+                while (hasNext()) {
+                    it.put(nextName(), nextJsonValue())
+                }
+                endObject()
+            }
+        JsonToken.BEGIN_ARRAY ->
+            JSONArray().also {
+                beginArray()
+                while (hasNext()) {
+                    it.put(nextJsonValue())
+                }
+                endArray()
+            }
+        JsonToken.STRING -> nextString()
+        JsonToken.NUMBER -> parseJsonNumber(nextString())
+        JsonToken.BOOLEAN -> nextBoolean()
+        JsonToken.NULL -> {
+            nextNull()
+            JSONObject.NULL
+        }
+        else -> throw JSONException("Unexpected ${peek()}")
+    }
+
+private fun parseJsonNumber(literal: String): Any {
+    if (literal.none { it == '.' || it == 'e' || it == 'E' }) {
+        val longValue = literal.toLongOrNull()
+        if (longValue != null) {
+            return if (longValue.toInt().toLong() == longValue) longValue.toInt() else longValue
+        }
+    }
+    return literal.toDoubleOrNull() ?: literal
+}
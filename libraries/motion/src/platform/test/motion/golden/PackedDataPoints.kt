@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package platform.test.motion.golden
+
+/**
+ * A numeric [DataPointType] whose values fit in 32 bits, so that features of that type can be
+ * stored in primitive arrays instead of one [DataPoint] object per frame.
+ */
+internal class PackedType<T : Any>(
+    val type: DataPointType<T>,
+    val pack: (T) -> Int,
+    val unpack: (Int) -> T,
+    /** Packs a JSON number, converted the same way as [DataPointType.fromJson] does. */
+    val packNumber: (Double) -> Int,
+) {
+    companion object {
+        private val float =
+            PackedType(
+                DataPointTypes.float,
+                pack = { it.toRawBits() },
+                unpack = { Float.fromBits(it) },
+                packNumber = { it.toFloat().toRawBits() },
+            )
+        private val int =
+            PackedType(
+                DataPointTypes.int,
+                pack = { it },
+                unpack = { it },
+                packNumber = { it.toInt() },
+            )
+
+        /** Returns the [PackedType] of [type], or null if it can't be packed. */
+        fun of(type: DataPointType<*>): PackedType<*>? =
+            when {
+                type === DataPointTypes.float -> float
+                type === DataPointTypes.int -> int
+                else -> null
+            }
+    }
+}
+
+/**
+ * Read-only list of [DataPoint]s backed by primitive arrays. [ValueDataPoint]s are only created
+ * when accessed.
+ *
+ * @param kinds the kind of each data point, one of the `KIND_` constants.
+ * @param bits the packed value of each [KIND_VALUE] data point, undefined for others.
+ */
+internal class PackedDataPointList<T : Any>(
+    val packedType: PackedType<T>,
+    val kinds: ByteArray,
+    val bits: IntArray,
+) : AbstractList<DataPoint<T>>(), RandomAccess {
+
+    override val size: Int
+        get() = kinds.size
+
+    override fun get(index: Int): DataPoint<T> =
+        when (kinds[index]) {
+            KIND_VALUE -> ValueDataPoint(packedType.unpack(bits[index]), packedType.type)
+            KIND_NULL -> DataPoint.nullValue()
+            KIND_NOT_FOUND -> DataPoint.notFound()
+            else -> DataPoint.unknownType()
+        }
+
+    companion object {
+        const val KIND_VALUE: Byte = 0
+        const val KIND_NULL: Byte = 1
+        const val KIND_NOT_FOUND: Byte = 2
+        const val KIND_UNKNOWN: Byte = 3
+    }
+}
+
+/** Builds a [PackedDataPointList] one data point at a time. */
+internal class PackedDataPointListBuilder<T : Any>(
+    private val packedType: PackedType<T>,
+    initialCapacity: Int = 16,
+) {
+    private var kinds = ByteArray(initialCapacity.coerceAtLeast(1))
+    private var bits = IntArray(initialCapacity.coerceAtLeast(1))
+    private var size = 0
+
+    fun addBits(bits: Int) {
+        add(PackedDataPointList.KIND_VALUE, bits)
+    }
+
+    fun add(dataPoint: DataPoint<*>) {
+        when (dataPoint) {
+            is ValueDataPoint<*> -> {
+                @Suppress("UNCHECKED_CAST")
+                add(PackedDataPointList.KIND_VALUE, packedType.pack(dataPoint.value as T))
+            }
+            is NullDataPoint<*> -> add(PackedDataPointList.KIND_NULL, 0)
+            is NotFoundDataPoint<*> -> add(PackedDataPointList.KIND_NOT_FOUND, 0)
+            is UnknownType<*> -> add(PackedDataPointList.KIND_UNKNOWN, 0)
+        }
+    }
+
+    fun build(): PackedDataPointList<T> =
+        PackedDataPointList(packedType, kinds.copyOf(size), bits.copyOf(size))
+
+    private fun add(kind: Byte, value: Int) {
+        if (size == kinds.size) {
+            kinds = kinds.copyOf(size * 2)
+            bits = bits.copyOf(size * 2)
+        }
+        kinds[size] = kind
+        bits[size] = value
+        size++
+    }
+}
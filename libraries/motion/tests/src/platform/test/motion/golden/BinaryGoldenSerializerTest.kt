@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package platform.test.motion.golden
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.common.truth.Truth.assertThat
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.io.StringReader
+import java.io.StringWriter
+import org.junit.Assert.assertThrows
+import org.junit.Test
+import org.junit.runner.RunWith
+import platform.test.motion.golden.DataPoint.Companion.notFound
+import platform.test.motion.golden.DataPoint.Companion.nullValue
+
+@RunWith(AndroidJUnit4::class)
+class BinaryGoldenSerializerTest {
+
+    private val timeSeries =
+        TimeSeries(
+            listOf(TimestampFrameId(0), TimestampFrameId(16), SupplementalFrameId("after")),
+            listOf(
+                Feature("alpha", listOf(0f.asDataPoint(), 0.5f.asDataPoint(), nullValue())),
+                Feature("offset", listOf(1.asDataPoint(), notFound(), (-3).asDataPoint())),
+                Feature("visible", listOf(true.asDataPoint(), false.asDataPoint(), nullValue())),
+                Feature<Int>("empty", listOf(nullValue(), nullValue(), nullValue())),
+            ),
+        )
+
+    private fun toBinary(golden: TimeSeries): ByteArray =
+        ByteArrayOutputStream().also { BinaryGoldenSerializer.write(golden, it) }.toByteArray()
+
+    @Test
+    fun roundTrip_producesSameTimeSeries() {
+        val binary = toBinary(timeSeries)
+
+        assertThat(
+                BinaryGoldenSerializer.read(
+                    ByteArrayInputStream(binary),
+                    timeSeries.createTypeRegistry(),
+                )
+            )
+            .isEqualTo(timeSeries)
+    }
+
+    @Test
+    fun read_typeMissingFromRegistry_producesUnknown() {
+        val binary = toBinary(timeSeries)
+
+        val read =
+            BinaryGoldenSerializer.read(
+                ByteArrayInputStream(binary),
+                mapOf("float" to DataPointTypes.float),
+            )
+
+        assertThat(read.features.getValue("alpha")).isEqualTo(timeSeries.features["alpha"])
+        assertThat(read.features.getValue("visible").dataPoints[0])
+            .isEqualTo(DataPoint.unknownType<Boolean>())
+    }
+
+    @Test
+    fun read_notABinaryGolden_throws() {
+        assertThrows(IOException::class.java) {
+            BinaryGoldenSerializer.read(
+                ByteArrayInputStream("{}".toByteArray()),
+                timeSeries.createTypeRegistry(),
+            )
+        }
+    }
+
+    @Test
+    fun convertJsonToBinary_thenBack_producesSameJson() {
+        val json = StringWriter().also { JsonGoldenSerializer.writeJson(timeSeries, it) }
+
+        val binary = ByteArrayOutputStream()
+        BinaryGoldenSerializer.convertJsonToBinary(StringReader(json.toString()), binary)
+        val convertedJson = StringWriter()
+        BinaryGoldenSerializer.convertBinaryToJson(
+            ByteArrayInputStream(binary.toByteArray()),
+            convertedJson,
+        )
+
+        assertThat(convertedJson.toString()).isEqualTo(json.toString())
+    }
+
+    @Test
+    fun convertJsonToBinary_readsLikeJson() {
+        val json = StringWriter().also { JsonGoldenSerializer.writeJson(timeSeries, it) }
+
+        val binary = ByteArrayOutputStream()
+        BinaryGoldenSerializer.convertJsonToBinary(StringReader(json.toString()), binary)
+
+        assertThat(
+                BinaryGoldenSerializer.read(
+                    ByteArrayInputStream(binary.toByteArray()),
+                    timeSeries.createTypeRegistry(),
+                )
+            )
+            .isEqualTo(timeSeries)
+    }
+}
@@ -19,6 +19,8 @@ package platform.test.motion.golden
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import com.google.common.truth.Expect
 import com.google.common.truth.Truth.assertThat
+import java.io.StringReader
+import java.io.StringWriter
 import org.json.JSONException
 import org.json.JSONObject
 import org.junit.Assert.assertThrows
@@ -46,6 +48,22 @@ class JsonGoldenSerializerTest {
             .withMessage("deserialize from JSON")
             .that(JsonGoldenSerializer.fromJson(JSONObject(json), timeSeries.createTypeRegistry()))
             .isEqualTo(timeSeries)
+
+        val streamed = StringWriter().also { JsonGoldenSerializer.writeJson(timeSeries, it) }
+        expect
+            .withMessage("stream to JSON")
+            .that(streamed.toString())
+            .isEqualTo(JsonGoldenSerializer.toJson(timeSeries).toString(2))
+
+        expect
+            .withMessage("stream from JSON")
+            .that(
+                JsonGoldenSerializer.readJson(
+                    StringReader(streamed.toString()),
+                    timeSeries.createTypeRegistry(),
+                )
+            )
+            .isEqualTo(timeSeries)
     }
 
     @Test
@@ -180,4 +198,49 @@ class JsonGoldenSerializerTest {
                 )
             )
     }
+
+    @Test
+    fun readJson_dataPointsBeforeType() {
+        val timeSeries =
+            JsonGoldenSerializer.readJson(
+                StringReader(
+                    """{
+                    "features":[{"data_points":[null,43],"name":"foo","type":"int"}],
+                    "frame_ids":[1,2]
+                }"""
+                ),
+                mapOf("int" to DataPointTypes.int),
+            )
+
+        assertThat(timeSeries)
+            .isEqualTo(
+                TimeSeries(
+                    listOf(TimestampFrameId(1), TimestampFrameId(2)),
+                    listOf(Feature("foo", listOf(nullValue(), 43.asDataPoint()))),
+                )
+            )
+    }
+
+    @Test
+    fun readJson_invalidJson_throws() {
+        assertThrows(JSONException::class.java) {
+            JsonGoldenSerializer.readJson(StringReader("""{"frame_ids":["""), emptyMap())
+        }
+    }
+
+    @Test
+    fun writeJson_additionalProperties_writtenLast() {
+        val timeSeries = TimeSeries(listOf(TimestampFrameId(1)), listOf())
+        val writer = StringWriter()
+
+        JsonGoldenSerializer.writeJson(
+            timeSeries,
+            writer,
+            additionalProperties = mapOf("//metadata" to JSONObject().put("foo", "bar")),
+        )
+
+        val expected = JsonGoldenSerializer.toJson(timeSeries)
+        expected.put("//metadata", JSONObject().put("foo", "bar"))
+        assertThat(writer.toString()).isEqualTo(expected.toString(2))
+    }
 }
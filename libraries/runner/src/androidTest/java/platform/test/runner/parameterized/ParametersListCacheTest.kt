@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package platform.test.runner.parameterized
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import org.junit.runners.model.TestClass
+
+@RunWith(JUnit4::class)
+class ParametersListCacheTest {
+    class ParameterizedClass(val i: Int) {
+        companion object {
+            var howManyComputations = 0
+
+            @JvmStatic
+            @Parameters(name = "N = {0}")
+            fun data(): List<Array<Any>> {
+                howManyComputations++
+                return listOf(arrayOf(0), arrayOf(1), arrayOf(2))
+            }
+        }
+    }
+
+    private val testClass = TestClass(ParameterizedClass::class.java)
+
+    @Before
+    fun setUp() {
+        ParameterizedClass.howManyComputations = 0
+    }
+
+    @Test
+    fun parametersAreComputedOncePerRunner() {
+        val delegate = ParameterizedRunnerDelegate(1, "[N = 1]")
+
+        val first = delegate.createTestInstance(testClass) as ParameterizedClass
+        val second = delegate.createTestInstance(testClass) as ParameterizedClass
+
+        assertThat(first.i).isEqualTo(1)
+        assertThat(second.i).isEqualTo(1)
+        assertThat(ParameterizedClass.howManyComputations).isEqualTo(1)
+    }
+
+    @Test
+    fun parametersAreNotSharedBetweenRunners() {
+        val first = ParameterizedRunnerDelegate(0, "[N = 0]").createTestInstance(testClass)
+        val second = ParameterizedRunnerDelegate(2, "[N = 2]").createTestInstance(testClass)
+
+        assertThat((first as ParameterizedClass).i).isEqualTo(0)
+        assertThat((second as ParameterizedClass).i).isEqualTo(2)
+        assertThat(ParameterizedClass.howManyComputations).isEqualTo(2)
+    }
+}
@@ -45,6 +45,12 @@ class ParameterizedRunnerDelegate {
 
     private final int mParametersIndex;
     private final String mName;
+    /**
+     * Parameters of this runner, picked from the parameters list by the first test instance this
+     * delegate creates and reused for the other test methods of the same runner. The rest of the
+     * list isn't kept, so each runner only holds its own parameters.
+     */
+    private Object[] mParameters;
 
     ParameterizedRunnerDelegate(int parametersIndex, String name) {
         this.mParametersIndex = parametersIndex;
@@ -73,6 +79,9 @@ class ParameterizedRunnerDelegate {
         // objects
         // created by the test runner are not compatible with the parameters required by the test.
         // Instead, we compute the parameters within the test's class loader.
+        if (mParameters != null) {
+            return mParameters;
+        }
         try {
             List<Object> parametersList = getParametersList(testClass);
             if (mParametersIndex >= parametersList.size()) {
@@ -81,9 +90,11 @@ class ParameterizedRunnerDelegate {
                                 + " values. Is the data() method of your test non-deterministic?");
             }
             Object parametersObj = parametersList.get(mParametersIndex);
-            return (parametersObj instanceof Object[])
-                    ? (Object[]) parametersObj
-                    : new Object[] {parametersObj};
+            mParameters =
+                    (parametersObj instanceof Object[])
+                            ? (Object[]) parametersObj
+                            : new Object[] {parametersObj};
+            return mParameters;
         } catch (ClassCastException e) {
             throw new Exception(
                     String.format(
@@ -77,6 +77,10 @@ public class RobolectricParameterizedRunner extends RobolectricTestRunner {
     protected SandboxTestRunner.HelperTestRunner getHelperTestRunner(Class bootstrappedTestClass) {
         try {
             return new HelperTestRunner(bootstrappedTestClass) {
+                // Delegate loaded in the sandbox class loader, reused for all the test methods
+                // of the sandbox so that the parameters are only computed once for them.
+                private Object mDelegate;
+
                 @Override
                 protected void validateConstructor(List<Throwable> errors) {
                     RobolectricParameterizedRunner.this.validateOnlyOneConstructor(errors);
@@ -86,13 +90,19 @@ public class RobolectricParameterizedRunner extends RobolectricTestRunner {
                 protected Object createTest() throws Exception {
                     // The test object needs to be created in a different class loader
                     // than the runner
-                    return ReflectionHelpers.callStaticMethod(
-                            getTestClass().getJavaClass().getClassLoader(),
-                            RobolectricParameterizedRunner.class.getName(),
+                    if (mDelegate == null) {
+                        mDelegate =
+                                ReflectionHelpers.callStaticMethod(
+                                        getTestClass().getJavaClass().getClassLoader(),
+                                        RobolectricParameterizedRunner.class.getName(),
+                                        "createDelegate",
+                                        ClassParameter.from(Integer.TYPE, mParametersIndex),
+                                        ClassParameter.from(String.class, mName));
+                    }
+                    return ReflectionHelpers.callInstanceMethod(
+                            mDelegate,
                             "createTestInstance",
-                            ClassParameter.from(TestClass.class, getTestClass()),
-                            ClassParameter.from(Integer.TYPE, mParametersIndex),
-                            ClassParameter.from(String.class, mName));
+                            ClassParameter.from(TestClass.class, getTestClass()));
                 }
 
                 @Override
@@ -106,11 +116,10 @@ public class RobolectricParameterizedRunner extends RobolectricTestRunner {
     }
 
     /**
-     * Utility method called using reflection so that the test can be created in a different
-     * classLoader
+     * Utility method called using reflection so that the delegate creating the tests is loaded in
+     * a different classLoader
      */
-    public static Object createTestInstance(TestClass testClass, int parametersIndex, String name)
-            throws Exception {
-        return new ParameterizedRunnerDelegate(parametersIndex, name).createTestInstance(testClass);
+    public static Object createDelegate(int parametersIndex, String name) {
+        return new ParameterizedRunnerDelegate(parametersIndex, name);
     }
 }
@@ -21,15 +21,25 @@ import android.annotation.NonNull;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.stream.IntStream;
 
 import javax.imageio.ImageIO;
 
+import static java.awt.image.BufferedImage.TYPE_3BYTE_BGR;
+import static java.awt.image.BufferedImage.TYPE_4BYTE_ABGR;
 import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
 import static java.io.File.separatorChar;
-import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -77,14 +87,6 @@ public class ImageUtils {
 
     public static void assertImageSimilar(String relativePath, BufferedImage goldenImage,
             BufferedImage image, double maxPercentDifferent) throws IOException {
-        if (goldenImage.getType() != TYPE_INT_ARGB) {
-            BufferedImage temp = new BufferedImage(goldenImage.getWidth(), goldenImage.getHeight(),
-                    TYPE_INT_ARGB);
-            temp.getGraphics().drawImage(goldenImage, 0, 0, null);
-            goldenImage = temp;
-        }
-        assertEquals(TYPE_INT_ARGB, goldenImage.getType());
-
         int imageWidth = Math.min(goldenImage.getWidth(), image.getWidth());
         int imageHeight = Math.min(goldenImage.getHeight(), image.getHeight());
 
@@ -94,47 +96,18 @@ public class ImageUtils {
         // goldenImage = blur(goldenImage, 6);
         // image = blur(image, 6);
 
-        int width = 3 * imageWidth;
-        @SuppressWarnings("UnnecessaryLocalVariable")
-        int height = imageHeight; // makes code more readable
-        BufferedImage deltaImage = new BufferedImage(width, height, TYPE_INT_ARGB);
-        Graphics g = deltaImage.getGraphics();
-
-        // Compute delta map
-        long delta = 0;
-        for (int y = 0; y < imageHeight; y++) {
+        // Compute delta, reading the rows straight from the image rasters in parallel
+        RowReader goldenRows = RowReader.of(goldenImage);
+        RowReader rows = RowReader.of(image);
+        long delta = IntStream.range(0, imageHeight).parallel().mapToLong(y -> {
+            int[] goldenRow = goldenRows.read(y, imageWidth);
+            int[] row = rows.read(y, imageWidth);
+            long rowDelta = 0;
             for (int x = 0; x < imageWidth; x++) {
-                int goldenRgb = goldenImage.getRGB(x, y);
-                int rgb = image.getRGB(x, y);
-                if (goldenRgb == rgb) {
-                    deltaImage.setRGB(imageWidth + x, y, 0x00808080);
-                    continue;
-                }
-
-                // If the pixels have no opacity, don't delta colors at all
-                if (((goldenRgb & 0xFF000000) == 0) && (rgb & 0xFF000000) == 0) {
-                    deltaImage.setRGB(imageWidth + x, y, 0x00808080);
-                    continue;
-                }
-
-                int deltaR = ((rgb & 0xFF0000) >>> 16) - ((goldenRgb & 0xFF0000) >>> 16);
-                int newR = 128 + deltaR & 0xFF;
-                int deltaG = ((rgb & 0x00FF00) >>> 8) - ((goldenRgb & 0x00FF00) >>> 8);
-                int newG = 128 + deltaG & 0xFF;
-                int deltaB = (rgb & 0x0000FF) - (goldenRgb & 0x0000FF);
-                int newB = 128 + deltaB & 0xFF;
-
-                int avgAlpha = ((((goldenRgb & 0xFF000000) >>> 24)
-                        + ((rgb & 0xFF000000) >>> 24)) / 2) << 24;
-
-                int newRGB = avgAlpha | newR << 16 | newG << 8 | newB;
-                deltaImage.setRGB(imageWidth + x, y, newRGB);
-
-                delta += Math.abs(deltaR);
-                delta += Math.abs(deltaG);
-                delta += Math.abs(deltaB);
+                rowDelta += pixelDelta(goldenRow[x], row[x]);
             }
-        }
+            return rowDelta;
+        }).sum();
 
         // 3 different colors, 256 color levels
         long total = imageHeight * imageWidth * 3L * 256L;
@@ -155,17 +128,9 @@ public class ImageUtils {
         }
 
         if (error != null) {
-            // Expected on the left
-            // Golden on the right
-            g.drawImage(goldenImage, 0, 0, null);
-            g.drawImage(image, 2 * imageWidth, 0, null);
-
-            // Labels
-            if (imageWidth > 80) {
-                g.setColor(Color.RED);
-                g.drawString("Expected", 10, 20);
-                g.drawString("Actual", 2 * imageWidth + 10, 20);
-            }
+            // The delta image is only needed to report the failure
+            BufferedImage deltaImage = createDeltaImage(goldenImage, goldenRows, image, rows,
+                    imageWidth, imageHeight);
 
             File output = new File(getFailureDir(), "delta-" + imageName);
             if (output.exists()) {
@@ -178,8 +143,83 @@ public class ImageUtils {
             System.out.println(error);
             fail(error);
         }
+    }
+
+    /**
+     * Returns the difference between two ARGB pixels, as the sum of the absolute differences of
+     * their color components. Pixels that are both fully transparent don't differ.
+     */
+    private static int pixelDelta(int goldenRgb, int rgb) {
+        if (goldenRgb == rgb) {
+            return 0;
+        }
+
+        // If the pixels have no opacity, don't delta colors at all
+        if (((goldenRgb & 0xFF000000) == 0) && (rgb & 0xFF000000) == 0) {
+            return 0;
+        }
 
+        int deltaR = ((rgb & 0xFF0000) >>> 16) - ((goldenRgb & 0xFF0000) >>> 16);
+        int deltaG = ((rgb & 0x00FF00) >>> 8) - ((goldenRgb & 0x00FF00) >>> 8);
+        int deltaB = (rgb & 0x0000FF) - (goldenRgb & 0x0000FF);
+        return Math.abs(deltaR) + Math.abs(deltaG) + Math.abs(deltaB);
+    }
+
+    /**
+     * Creates an image with the golden image on the left, the delta map in the middle and the
+     * actual image on the right.
+     */
+    @NonNull
+    private static BufferedImage createDeltaImage(@NonNull BufferedImage goldenImage,
+            @NonNull RowReader goldenRows, @NonNull BufferedImage image, @NonNull RowReader rows,
+            int imageWidth, int imageHeight) {
+        int width = 3 * imageWidth;
+        @SuppressWarnings("UnnecessaryLocalVariable")
+        int height = imageHeight; // makes code more readable
+        BufferedImage deltaImage = new BufferedImage(width, height, TYPE_INT_ARGB);
+        int[] deltaPixels = ((DataBufferInt) deltaImage.getRaster().getDataBuffer()).getData();
+
+        // Compute delta map
+        for (int y = 0; y < imageHeight; y++) {
+            int[] goldenRow = goldenRows.read(y, imageWidth);
+            int[] row = rows.read(y, imageWidth);
+            int deltaStart = y * width + imageWidth;
+            for (int x = 0; x < imageWidth; x++) {
+                int goldenRgb = goldenRow[x];
+                int rgb = row[x];
+                if (pixelDelta(goldenRgb, rgb) == 0) {
+                    deltaPixels[deltaStart + x] = 0x00808080;
+                    continue;
+                }
+
+                int deltaR = ((rgb & 0xFF0000) >>> 16) - ((goldenRgb & 0xFF0000) >>> 16);
+                int newR = 128 + deltaR & 0xFF;
+                int deltaG = ((rgb & 0x00FF00) >>> 8) - ((goldenRgb & 0x00FF00) >>> 8);
+                int newG = 128 + deltaG & 0xFF;
+                int deltaB = (rgb & 0x0000FF) - (goldenRgb & 0x0000FF);
+                int newB = 128 + deltaB & 0xFF;
+
+                int avgAlpha = ((((goldenRgb & 0xFF000000) >>> 24)
+                        + ((rgb & 0xFF000000) >>> 24)) / 2) << 24;
+
+                deltaPixels[deltaStart + x] = avgAlpha | newR << 16 | newG << 8 | newB;
+            }
+        }
+
+        Graphics g = deltaImage.getGraphics();
+        // Expected on the left
+        // Golden on the right
+        g.drawImage(goldenImage, 0, 0, null);
+        g.drawImage(image, 2 * imageWidth, 0, null);
+
+        // Labels
+        if (imageWidth > 80) {
+            g.setColor(Color.RED);
+            g.drawString("Expected", 10, 20);
+            g.drawString("Actual", 2 * imageWidth + 10, 20);
+        }
         g.dispose();
+        return deltaImage;
     }
 
     /**
@@ -225,4 +265,132 @@ public class ImageUtils {
     private static String getName(@NonNull String relativePath) {
         return relativePath.substring(relativePath.lastIndexOf(separatorChar) + 1);
     }
+
+    /**
+     * Reads rows of an image as non-premultiplied ARGB pixels, the values
+     * {@link BufferedImage#getRGB(int, int)} returns.
+     * <p>
+     * The pixels of the common image types, the ones rendered by layoutlib and decoded by
+     * {@link ImageIO} from PNG files, are read directly from the backing array of the raster.
+     * This avoids the color model conversion done for every pixel by
+     * {@link BufferedImage#getRGB(int, int)}. Other image types fall back to reading whole rows
+     * with {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}.
+     * <p>
+     * Rows can be read concurrently.
+     */
+    abstract static class RowReader {
+        @NonNull
+        static RowReader of(@NonNull BufferedImage image) {
+            Raster raster = image.getRaster();
+            DataBuffer buffer = raster.getDataBuffer();
+            SampleModel sampleModel = raster.getSampleModel();
+            if (buffer.getNumBanks() == 1) {
+                switch (image.getType()) {
+                    case TYPE_INT_ARGB:
+                        return new IntRowReader(raster, 0);
+                    case TYPE_INT_RGB:
+                        return new IntRowReader(raster, 0xFF000000);
+                    case TYPE_4BYTE_ABGR:
+                    case TYPE_3BYTE_BGR:
+                        if (sampleModel instanceof ComponentSampleModel) {
+                            return new ByteRowReader(raster);
+                        }
+                        break;
+                }
+            }
+            return new RowReader() {
+                @Override
+                void read(int y, int[] row, int width) {
+                    image.getRGB(0, y, width, 1, row, 0, width);
+                }
+            };
+        }
+
+        /** Returns the first {@code width} pixels of row {@code y}. */
+        @NonNull
+        int[] read(int y, int width) {
+            int[] row = new int[width];
+            read(y, row, width);
+            return row;
+        }
+
+        abstract void read(int y, int[] row, int width);
+    }
+
+    /** Reads images whose pixels are packed in one int, with 8 bits per component. */
+    static class IntRowReader extends RowReader {
+        private final int[] mData;
+        private final int mOffset;
+        private final int mScanlineStride;
+        private final int mAlphaMask;
+
+        /**
+         * @param alphaMask bits set on every pixel, to make pixels of images without alpha opaque
+         */
+        private IntRowReader(@NonNull Raster raster, int alphaMask) {
+            DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+            SinglePixelPackedSampleModel sampleModel =
+                    (SinglePixelPackedSampleModel) raster.getSampleModel();
+            mData = buffer.getData();
+            mScanlineStride = sampleModel.getScanlineStride();
+            mOffset = buffer.getOffset()
+                    - raster.getSampleModelTranslateY() * mScanlineStride
+                    - raster.getSampleModelTranslateX();
+            mAlphaMask = alphaMask;
+        }
+
+        @Override
+        void read(int y, int[] row, int width) {
+            int start = mOffset + y * mScanlineStride;
+            if (mAlphaMask == 0) {
+                System.arraycopy(mData, start, row, 0, width);
+            } else {
+                for (int x = 0; x < width; x++) {
+                    row[x] = mData[start + x] | mAlphaMask;
+                }
+            }
+        }
+    }
+
+    /** Reads images whose pixels are interleaved bytes, one per component. */
+    static class ByteRowReader extends RowReader {
+        private final byte[] mData;
+        private final int mOffset;
+        private final int mScanlineStride;
+        private final int mPixelStride;
+        private final int mRedOffset;
+        private final int mGreenOffset;
+        private final int mBlueOffset;
+        /** Offset of the alpha component, or -1 if the image has no alpha. */
+        private final int mAlphaOffset;
+
+        private ByteRowReader(@NonNull Raster raster) {
+            DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+            ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+            int[] bandOffsets = sampleModel.getBandOffsets();
+            mData = buffer.getData();
+            mScanlineStride = sampleModel.getScanlineStride();
+            mPixelStride = sampleModel.getPixelStride();
+            mOffset = buffer.getOffset()
+                    - raster.getSampleModelTranslateY() * mScanlineStride
+                    - raster.getSampleModelTranslateX() * mPixelStride;
+            // The bands are in RGB(A) order, whatever the order of the bytes in memory
+            mRedOffset = bandOffsets[0];
+            mGreenOffset = bandOffsets[1];
+            mBlueOffset = bandOffsets[2];
+            mAlphaOffset = bandOffsets.length > 3 ? bandOffsets[3] : -1;
+        }
+
+        @Override
+        void read(int y, int[] row, int width) {
+            int pixel = mOffset + y * mScanlineStride;
+            for (int x = 0; x < width; x++, pixel += mPixelStride) {
+                int alpha = mAlphaOffset < 0 ? 0xFF : mData[pixel + mAlphaOffset] & 0xFF;
+                row[x] = alpha << 24
+                        | (mData[pixel + mRedOffset] & 0xFF) << 16
+                        | (mData[pixel + mGreenOffset] & 0xFF) << 8
+                        | (mData[pixel + mBlueOffset] & 0xFF);
+            }
+        }
+    }
 }
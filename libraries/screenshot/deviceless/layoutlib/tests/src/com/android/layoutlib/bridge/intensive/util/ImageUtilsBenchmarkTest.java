@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.layoutlib.bridge.intensive.util;
+
+import com.android.layoutlib.bridge.intensive.util.perf.PerformanceRunner;
+import com.android.layoutlib.bridge.intensive.util.perf.PerformanceRunner.Configuration;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+
+import static java.awt.image.BufferedImage.TYPE_4BYTE_ABGR;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+
+/**
+ * Measures {@link ImageUtils#assertImageSimilar} on images of the size of a phone screen.
+ * <p>
+ * Goldens are compared as {@link javax.imageio.ImageIO} decodes them from PNG files, and
+ * rendered images as layoutlib produces them.
+ */
+@RunWith(PerformanceRunner.class)
+@Configuration(warmUpIterations = 10, runs = 50)
+public class ImageUtilsBenchmarkTest {
+    private static final int WIDTH = 1440;
+    private static final int HEIGHT = 2960;
+
+    private static BufferedImage sGoldenImage;
+    private static BufferedImage sIdenticalImage;
+    private static BufferedImage sSimilarImage;
+
+    @BeforeClass
+    public static void setUp() {
+        Random random = new Random(0);
+        sGoldenImage = new BufferedImage(WIDTH, HEIGHT, TYPE_4BYTE_ABGR);
+        sIdenticalImage = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB);
+        sSimilarImage = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int rgb = 0xFF000000 | random.nextInt(0x1000000);
+                sGoldenImage.setRGB(x, y, rgb);
+                sIdenticalImage.setRGB(x, y, rgb);
+                // Few pixels slightly off, well below the allowed difference
+                sSimilarImage.setRGB(x, y, random.nextInt(100) == 0 ? rgb ^ 0x010101 : rgb);
+            }
+        }
+    }
+
+    @Test
+    public void identicalImages() throws IOException {
+        ImageUtils.assertImageSimilar("identical.png", sGoldenImage, sIdenticalImage, 0.1);
+    }
+
+    @Test
+    public void similarImages() throws IOException {
+        ImageUtils.assertImageSimilar("similar.png", sGoldenImage, sSimilarImage, 0.1);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.layoutlib.bridge.intensive.util;
+
+import com.android.layoutlib.bridge.intensive.util.ImageUtils.ByteRowReader;
+import com.android.layoutlib.bridge.intensive.util.ImageUtils.IntRowReader;
+import com.android.layoutlib.bridge.intensive.util.ImageUtils.RowReader;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static java.awt.image.BufferedImage.TYPE_3BYTE_BGR;
+import static java.awt.image.BufferedImage.TYPE_4BYTE_ABGR;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the rows read from the rasters of the common image types have the pixels
+ * {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)} returns.
+ */
+public class ImageUtilsTest {
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 23;
+
+    @Test
+    public void intArgbRowsMatchGetRgb() {
+        assertRowsMatchGetRgb(createImage(TYPE_INT_ARGB), IntRowReader.class);
+    }
+
+    @Test
+    public void intRgbRowsMatchGetRgb() {
+        assertRowsMatchGetRgb(createImage(TYPE_INT_RGB), IntRowReader.class);
+    }
+
+    @Test
+    public void fourByteAbgrRowsMatchGetRgb() {
+        assertRowsMatchGetRgb(createImage(TYPE_4BYTE_ABGR), ByteRowReader.class);
+    }
+
+    @Test
+    public void threeByteBgrRowsMatchGetRgb() {
+        assertRowsMatchGetRgb(createImage(TYPE_3BYTE_BGR), ByteRowReader.class);
+    }
+
+    @Test
+    public void subimageRowsMatchGetRgb() {
+        // The rasters of subimages start at an offset in the data of the parent image.
+        assertRowsMatchGetRgb(
+                createImage(TYPE_INT_ARGB).getSubimage(5, 3, 20, 11), IntRowReader.class);
+        assertRowsMatchGetRgb(
+                createImage(TYPE_INT_RGB).getSubimage(5, 3, 20, 11), IntRowReader.class);
+        assertRowsMatchGetRgb(
+                createImage(TYPE_4BYTE_ABGR).getSubimage(5, 3, 20, 11), ByteRowReader.class);
+        assertRowsMatchGetRgb(
+                createImage(TYPE_3BYTE_BGR).getSubimage(5, 3, 20, 11), ByteRowReader.class);
+    }
+
+    @Test
+    public void otherTypesRowsMatchGetRgb() {
+        BufferedImage image = createImage(BufferedImage.TYPE_INT_ARGB_PRE);
+        RowReader reader = RowReader.of(image);
+
+        assertTrue(!(reader instanceof IntRowReader) && !(reader instanceof ByteRowReader));
+        assertRowsMatchGetRgb(image, reader.getClass());
+    }
+
+    /** Returns an image of random pixels, with random alpha if the image type has one. */
+    private static BufferedImage createImage(int type) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+        Random random = new Random(type);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    private static void assertRowsMatchGetRgb(
+            BufferedImage image, Class<? extends RowReader> readerClass) {
+        RowReader reader = RowReader.of(image);
+        assertTrue(reader.getClass().getName(), readerClass.isInstance(reader));
+        int width = image.getWidth();
+        for (int y = 0; y < image.getHeight(); y++) {
+            int[] expected = image.getRGB(0, y, width, 1, null, 0, width);
+            assertArrayEquals("Row " + y, expected, reader.read(y, width));
+        }
+    }
+}
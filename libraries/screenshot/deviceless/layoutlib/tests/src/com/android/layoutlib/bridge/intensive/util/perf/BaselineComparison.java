@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.layoutlib.bridge.intensive.util.perf;
+
+import android.annotation.NonNull;
+
+import com.android.layoutlib.bridge.intensive.util.perf.LongStatsCollector.Stats;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Compares the run time of a {@link TimedStatementResult} to a baseline, the JSON result of a
+ * previous run of the same test.
+ * <p>
+ * A regression is reported when the mean time grew by more than the threshold and Welch's t-test
+ * finds the difference significant at the 95% level, so that noisy runs don't fail tests.
+ */
+public class BaselineComparison {
+    private final double mMean;
+    private final double mStandardDeviation;
+    private final int mSamples;
+
+    private BaselineComparison(double mean, double standardDeviation, int samples) {
+        mMean = mean;
+        mStandardDeviation = standardDeviation;
+        mSamples = samples;
+    }
+
+    /** Reads the baseline from a file written with {@link TimedStatementResult#toJson(String)}. */
+    @NonNull
+    public static BaselineComparison read(@NonNull File file) throws IOException {
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        try {
+            JSONObject baseline = new JSONObject(json);
+            return new BaselineComparison(
+                    baseline.getDouble("timeNsMean"),
+                    baseline.getDouble("timeNsStandardDeviation"),
+                    baseline.getInt("timeNsSampleCount") - baseline.getInt("timeNsOutlierCount"));
+        } catch (JSONException e) {
+            throw new IOException("Invalid baseline " + file, e);
+        }
+    }
+
+    /**
+     * Throws an {@link AssertionError} if {@code result} is slower than the baseline by more than
+     * {@code threshold}, e.g. 0.05 for 5%, and the difference is statistically significant.
+     */
+    public void check(@NonNull TimedStatementResult result, double threshold) {
+        Stats stats = result.getTimeStats();
+        int samples = stats.getSampleCount() - stats.getOutlierCount();
+        double relativeChange = (stats.getMean() - mMean) / mMean;
+        if (relativeChange <= threshold || samples < 2 || mSamples < 2) {
+            return;
+        }
+
+        double baselineVariance = mStandardDeviation * mStandardDeviation / mSamples;
+        double variance = stats.getStandardDeviation() * stats.getStandardDeviation() / samples;
+        double standardError = Math.sqrt(baselineVariance + variance);
+        if (standardError == 0) {
+            throw new AssertionError(regressionMessage(relativeChange, stats));
+        }
+        double t = (stats.getMean() - mMean) / standardError;
+        // Welch-Satterthwaite approximation of the degrees of freedom
+        double degreesOfFreedom = (baselineVariance + variance) * (baselineVariance + variance)
+                / (baselineVariance * baselineVariance / (mSamples - 1)
+                        + variance * variance / (samples - 1));
+        if (t > LongStatsCollector.tQuantile975(degreesOfFreedom)) {
+            throw new AssertionError(regressionMessage(relativeChange, stats));
+        }
+    }
+
+    @NonNull
+    private String regressionMessage(double relativeChange, @NonNull Stats stats) {
+        return String.format(
+                "Mean time regressed by %.1f%%: %.3f ms (95%% CI: %.3f - %.3f), baseline %.3f ms",
+                relativeChange * 100, stats.getMean() / 1e6,
+                stats.getConfidenceIntervalLow() / 1e6, stats.getConfidenceIntervalHigh() / 1e6,
+                mMean / 1e6);
+    }
+}
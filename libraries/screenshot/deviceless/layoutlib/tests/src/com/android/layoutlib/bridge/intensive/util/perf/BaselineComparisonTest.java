@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.layoutlib.bridge.intensive.util.perf;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BaselineComparisonTest {
+    private static final double THRESHOLD = 0.05;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void sameTimesPass() throws IOException {
+        baseline(1000, 10, 50).check(result(1000, 10, 50), THRESHOLD);
+    }
+
+    @Test
+    public void fasterTimesPass() throws IOException {
+        baseline(1000, 10, 50).check(result(500, 10, 50), THRESHOLD);
+    }
+
+    @Test
+    public void significantRegressionBelowThresholdPasses() throws IOException {
+        baseline(1000, 10, 50).check(result(1020, 10, 50), THRESHOLD);
+    }
+
+    @Test
+    public void significantRegressionAboveThresholdFails() throws IOException {
+        BaselineComparison baseline = baseline(1000, 10, 50);
+        TimedStatementResult result = result(1100, 10, 50);
+        try {
+            baseline.check(result, THRESHOLD);
+            fail("Expected AssertionError");
+        } catch (AssertionError e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Mean time regressed by 10."));
+        }
+    }
+
+    @Test
+    public void noisyRegressionAboveThresholdPasses() throws IOException {
+        // 20% slower, but the spread of the samples makes it not significant.
+        baseline(1000, 1000, 4).check(result(1200, 1200, 4), THRESHOLD);
+    }
+
+    @Test(expected = AssertionError.class)
+    public void regressionWithoutVarianceFails() throws IOException {
+        baseline(1000, 0, 10).check(result(1100, 0, 10), THRESHOLD);
+    }
+
+    @Test
+    public void singleSamplePasses() throws IOException {
+        baseline(1000, 10, 50).check(result(2000, 0, 1), THRESHOLD);
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidBaselineThrows() throws IOException {
+        File file = mFolder.newFile();
+        Files.write(file.toPath(), "{\"timeNsMean\": 1}".getBytes(StandardCharsets.UTF_8));
+        BaselineComparison.read(file);
+    }
+
+    /** Returns a baseline read from the JSON of a {@link #result}. */
+    private BaselineComparison baseline(long base, long spread, int samples) throws IOException {
+        File file = mFolder.newFile();
+        Files.write(file.toPath(),
+                result(base, spread, samples).toJson("baseline").getBytes(StandardCharsets.UTF_8));
+        return BaselineComparison.read(file);
+    }
+
+    /**
+     * Returns a result whose time samples alternate between {@code base} and {@code base + spread},
+     * so that none of them is an outlier.
+     */
+    private static TimedStatementResult result(long base, long spread, int samples) {
+        LongStatsCollector collector = new LongStatsCollector(samples);
+        long[] values = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            values[i] = base + (i % 2) * spread;
+            collector.accept(values[i]);
+        }
+        return new TimedStatementResult(0, samples, 1, collector.getStats(), values, null, null,
+                null, null);
+    }
+}
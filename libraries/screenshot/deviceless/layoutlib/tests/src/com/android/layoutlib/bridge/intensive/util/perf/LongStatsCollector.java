@@ -23,9 +23,24 @@ import java.util.Arrays;
 import java.util.function.LongConsumer;
 
 /**
- * Class that collect a series of longs and produces the median, min and max values.
+ * Class that collect a series of longs and produces statistics about them: median, min and max
+ * values, as well as the mean and its confidence interval after discarding outliers.
  */
 public class LongStatsCollector implements LongConsumer {
+    /** Quantile of the normal distribution for a two-sided 95% confidence interval. */
+    private static final double Z_95_TWO_SIDED = 1.959964;
+    /** Multiple of the interquartile range beyond which a value is an outlier (Tukey's fences). */
+    private static final double OUTLIER_IQR_FACTOR = 1.5;
+    /**
+     * 97.5% quantiles of the Student's t-distribution for 1 to 30 degrees of freedom, where the
+     * Cornish-Fisher expansion is not accurate enough.
+     */
+    private static final double[] T_975_TABLE = {
+            12.7062, 4.3027, 3.1824, 2.7764, 2.5706, 2.4469, 2.3646, 2.3060, 2.2622, 2.2281,
+            2.2010, 2.1788, 2.1604, 2.1448, 2.1314, 2.1199, 2.1098, 2.1009, 2.0930, 2.0860,
+            2.0796, 2.0739, 2.0687, 2.0639, 2.0595, 2.0555, 2.0518, 2.0484, 2.0452, 2.0423,
+    };
+
     private final LongArray mAllValues;
     private long mMin = Long.MAX_VALUE;
     private long mMax = Long.MIN_VALUE;
@@ -37,25 +52,49 @@ public class LongStatsCollector implements LongConsumer {
         return mAllValues.size();
     }
 
+    /** Returns the collected values, in the order they were collected. */
+    @NonNull
+    public long[] getValues() {
+        return mAllValues.toArray();
+    }
+
     @NonNull
     public Stats getStats() {
         if (mAllValues.size() == 0) {
             throw new IndexOutOfBoundsException("No data");
         }
 
-        double median;
         int size = mAllValues.size();
-        long[] buffer = new long[size];
-        for (int i = 0; i < size; i++) {
-            buffer[i] = mAllValues.get(i);
-        }
-
+        long[] buffer = mAllValues.toArray();
         Arrays.sort(buffer);
 
-        int midPoint = size / 2;
-        median = (size % 2 == 0) ? (buffer[midPoint - 1] + buffer[midPoint]) / 2 : buffer[midPoint];
+        double median = percentile(buffer, 0.5);
+        double q1 = percentile(buffer, 0.25);
+        double q3 = percentile(buffer, 0.75);
+        double iqr = q3 - q1;
+        double lowFence = q1 - OUTLIER_IQR_FACTOR * iqr;
+        double highFence = q3 + OUTLIER_IQR_FACTOR * iqr;
+
+        // Mean and variance of the values within the fences (Welford's algorithm)
+        int inliers = 0;
+        double mean = 0;
+        double m2 = 0;
+        for (long value : buffer) {
+            if (value < lowFence || value > highFence) {
+                continue;
+            }
+            inliers++;
+            double delta = value - mean;
+            mean += delta / inliers;
+            m2 += delta * (value - mean);
+        }
+        double standardDeviation = inliers > 1 ? Math.sqrt(m2 / (inliers - 1)) : 0;
+        double marginOfError = inliers > 1
+                ? tQuantile975(inliers - 1) * standardDeviation / Math.sqrt(inliers)
+                : 0;
 
-        return new Stats(mAllValues.size(), mMin, mMax, median);
+        return new Stats(size, mMin, mMax, median, q1, q3, size - inliers, mean,
+                standardDeviation, mean - marginOfError, mean + marginOfError);
     }
 
     @Override
@@ -65,17 +104,68 @@ public class LongStatsCollector implements LongConsumer {
         mAllValues.add(value);
     }
 
+    /** Returns the linearly interpolated percentile {@code p} of the sorted {@code values}. */
+    private static double percentile(@NonNull long[] sortedValues, double p) {
+        double position = p * (sortedValues.length - 1);
+        int lower = (int) Math.floor(position);
+        int upper = (int) Math.ceil(position);
+        return sortedValues[lower]
+                + (position - lower) * (sortedValues[upper] - sortedValues[lower]);
+    }
+
+    /**
+     * Returns the 97.5% quantile of the Student's t-distribution with {@code degreesOfFreedom},
+     * used for two-sided 95% confidence intervals and significance tests.
+     * <p>
+     * Up to 30 degrees of freedom, the quantile is interpolated linearly in a table, treating
+     * fewer than 1 degree of freedom as 1. Beyond, it uses the Cornish-Fisher expansion around the
+     * normal quantile, accurate to a few ten thousandths there.
+     */
+    static double tQuantile975(double degreesOfFreedom) {
+        double df = Math.max(1, degreesOfFreedom);
+        if (df <= T_975_TABLE.length) {
+            int lower = (int) Math.floor(df);
+            int upper = (int) Math.ceil(df);
+            double lowerQuantile = T_975_TABLE[lower - 1];
+            return lowerQuantile + (df - lower) * (T_975_TABLE[upper - 1] - lowerQuantile);
+        }
+        double z = Z_95_TWO_SIDED;
+        double z3 = z * z * z;
+        double z5 = z3 * z * z;
+        double z7 = z5 * z * z;
+        return z
+                + (z3 + z) / (4 * df)
+                + (5 * z5 + 16 * z3 + 3 * z) / (96 * df * df)
+                + (3 * z7 + 19 * z5 + 17 * z3 - 15 * z) / (384 * df * df * df);
+    }
+
     public static class Stats {
         private final int mSamples;
         private final long mMin;
         private final long mMax;
         private final double mMedian;
-
-        private Stats(int samples, long min, long max, double median) {
+        private final double mFirstQuartile;
+        private final double mThirdQuartile;
+        private final int mOutliers;
+        private final double mMean;
+        private final double mStandardDeviation;
+        private final double mConfidenceIntervalLow;
+        private final double mConfidenceIntervalHigh;
+
+        private Stats(int samples, long min, long max, double median, double firstQuartile,
+                double thirdQuartile, int outliers, double mean, double standardDeviation,
+                double confidenceIntervalLow, double confidenceIntervalHigh) {
             mSamples = samples;
             mMin = min;
             mMax = max;
             mMedian = median;
+            mFirstQuartile = firstQuartile;
+            mThirdQuartile = thirdQuartile;
+            mOutliers = outliers;
+            mMean = mean;
+            mStandardDeviation = standardDeviation;
+            mConfidenceIntervalLow = confidenceIntervalLow;
+            mConfidenceIntervalHigh = confidenceIntervalHigh;
         }
 
         public int getSampleCount() {
@@ -93,5 +183,41 @@ public class LongStatsCollector implements LongConsumer {
         public double getMedian() {
             return mMedian;
         }
+
+        public double getFirstQuartile() {
+            return mFirstQuartile;
+        }
+
+        public double getThirdQuartile() {
+            return mThirdQuartile;
+        }
+
+        /**
+         * Returns the number of samples outside of Tukey's fences, which are excluded from the
+         * mean, standard deviation and confidence interval.
+         */
+        public int getOutlierCount() {
+            return mOutliers;
+        }
+
+        /** Returns the mean of the samples, outliers excluded. */
+        public double getMean() {
+            return mMean;
+        }
+
+        /** Returns the sample standard deviation, outliers excluded. */
+        public double getStandardDeviation() {
+            return mStandardDeviation;
+        }
+
+        /** Returns the lower bound of the 95% confidence interval of {@link #getMean()}. */
+        public double getConfidenceIntervalLow() {
+            return mConfidenceIntervalLow;
+        }
+
+        /** Returns the upper bound of the 95% confidence interval of {@link #getMean()}. */
+        public double getConfidenceIntervalHigh() {
+            return mConfidenceIntervalHigh;
+        }
     }
 }
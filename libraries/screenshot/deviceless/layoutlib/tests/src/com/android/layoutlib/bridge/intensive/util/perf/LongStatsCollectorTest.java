@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.layoutlib.bridge.intensive.util.perf;
+
+import com.android.layoutlib.bridge.intensive.util.perf.LongStatsCollector.Stats;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LongStatsCollectorTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void percentilesAreInterpolated() {
+        Stats stats = collect(4, 1, 3, 2);
+
+        assertEquals(2.5, stats.getMedian(), DELTA);
+        // Positions 0.75 and 2.25 of the sorted values.
+        assertEquals(1.75, stats.getFirstQuartile(), DELTA);
+        assertEquals(3.25, stats.getThirdQuartile(), DELTA);
+        assertEquals(1, stats.getMin());
+        assertEquals(4, stats.getMax());
+    }
+
+    @Test
+    public void percentilesOfOddCountAreSamples() {
+        Stats stats = collect(50, 10, 40, 20, 30);
+
+        assertEquals(30, stats.getMedian(), DELTA);
+        assertEquals(20, stats.getFirstQuartile(), DELTA);
+        assertEquals(40, stats.getThirdQuartile(), DELTA);
+    }
+
+    @Test
+    public void outliersAreBeyondTukeyFences() {
+        // Q1 = 11.25 and Q3 = 13.75, so the fences are 7.5 and 17.5.
+        Stats stats = collect(10, 11, 12, 13, 14, 100);
+
+        assertEquals(6, stats.getSampleCount());
+        assertEquals(1, stats.getOutlierCount());
+        assertEquals(12, stats.getMean(), DELTA);
+        assertEquals(Math.sqrt(2.5), stats.getStandardDeviation(), DELTA);
+        // Outliers are still reported as extremes.
+        assertEquals(10, stats.getMin());
+        assertEquals(100, stats.getMax());
+    }
+
+    @Test
+    public void valuesOnTukeyFencesAreNotOutliers() {
+        // Q1 = 10 and Q3 = 12, so the fences are 7 and 15.
+        Stats stats = collect(7, 10, 10, 11, 12, 12, 15);
+
+        assertEquals(0, stats.getOutlierCount());
+    }
+
+    @Test
+    public void lowOutliersAreExcluded() {
+        Stats stats = collect(1, 100, 101, 102, 103, 104);
+
+        assertEquals(1, stats.getOutlierCount());
+        assertEquals(102, stats.getMean(), DELTA);
+    }
+
+    @Test
+    public void confidenceIntervalUsesStudentT() {
+        Stats stats = collect(10, 11, 12, 13, 14);
+
+        double margin = 2.7764 * Math.sqrt(2.5) / Math.sqrt(5);
+        assertEquals(12 - margin, stats.getConfidenceIntervalLow(), DELTA);
+        assertEquals(12 + margin, stats.getConfidenceIntervalHigh(), DELTA);
+    }
+
+    @Test
+    public void singleSampleHasEmptyConfidenceInterval() {
+        Stats stats = collect(42);
+
+        assertEquals(42, stats.getMedian(), DELTA);
+        assertEquals(42, stats.getMean(), DELTA);
+        assertEquals(0, stats.getStandardDeviation(), DELTA);
+        assertEquals(42, stats.getConfidenceIntervalLow(), DELTA);
+        assertEquals(42, stats.getConfidenceIntervalHigh(), DELTA);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void noSamplesHaveNoStats() {
+        new LongStatsCollector(0).getStats();
+    }
+
+    @Test
+    public void tQuantile975() {
+        assertEquals(12.71, LongStatsCollector.tQuantile975(1), 0.005);
+        assertEquals(4.303, LongStatsCollector.tQuantile975(2), 0.0005);
+        assertEquals(2.042, LongStatsCollector.tQuantile975(30), 0.0005);
+        assertEquals(2.040, LongStatsCollector.tQuantile975(31), 0.0005);
+        assertEquals(1.984, LongStatsCollector.tQuantile975(100), 0.0005);
+        assertEquals(1.962, LongStatsCollector.tQuantile975(1000), 0.0005);
+        assertEquals(1.960, LongStatsCollector.tQuantile975(1e9), 0.0005);
+    }
+
+    @Test
+    public void tQuantile975IsInterpolatedBelow30() {
+        assertEquals((12.7062 + 4.3027) / 2, LongStatsCollector.tQuantile975(1.5), DELTA);
+        // Fewer than 1 degree of freedom count as 1.
+        assertEquals(LongStatsCollector.tQuantile975(1), LongStatsCollector.tQuantile975(0), DELTA);
+    }
+
+    private static Stats collect(long... values) {
+        LongStatsCollector collector = new LongStatsCollector(values.length);
+        for (long value : values) {
+            collector.accept(value);
+        }
+        return collector.getStats();
+    }
+}
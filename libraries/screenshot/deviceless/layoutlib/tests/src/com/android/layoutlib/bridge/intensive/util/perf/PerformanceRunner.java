@@ -16,6 +16,8 @@
 
 package com.android.layoutlib.bridge.intensive.util.perf;
 
+import android.annotation.NonNull;
+
 import org.junit.runner.Runner;
 import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.BlockJUnit4ClassRunner;
@@ -23,16 +25,37 @@ import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
 import org.junit.runners.model.Statement;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.annotation.Inherited;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 /**
  * JUnit {@link Runner} that times the test execution and produces some stats.
+ * <p>
+ * The following system properties control what is done with the results:
+ * <ul>
+ *     <li>{@value #RESULTS_DIR_PROPERTY}: directory where each result is written as JSON, in a
+ *     "&lt;test class&gt;#&lt;test method&gt;.json" file.</li>
+ *     <li>{@value #BASELINE_DIR_PROPERTY}: directory with the JSON results of a baseline run. Tests
+ *     fail when their time regressed significantly compared to their baseline, see
+ *     {@link BaselineComparison}.</li>
+ *     <li>{@value #REGRESSION_THRESHOLD_PROPERTY}: relative time increase tolerated by the
+ *     baseline comparison, 0.05 (5%) by default.</li>
+ * </ul>
  */
 public class PerformanceRunner extends BlockJUnit4ClassRunner {
     private static final int DEFAULT_WARMUP_ITERATIONS = 50;
     private static final int DEFAULT_RUNS = 100;
+    private static final double DEFAULT_REGRESSION_THRESHOLD = 0.05;
+
+    public static final String RESULTS_DIR_PROPERTY = "perf.results.dir";
+    public static final String BASELINE_DIR_PROPERTY = "perf.baseline.dir";
+    public static final String REGRESSION_THRESHOLD_PROPERTY = "perf.regression.threshold";
 
     private final int mWarmUpIterations;
     private final int mRuns;
@@ -61,8 +84,39 @@ public class PerformanceRunner extends BlockJUnit4ClassRunner {
         runs = methodConfig != null && methodConfig.runs() != -1 ?
                 methodConfig.runs() :
                 mRuns;
+        String name = getTestClass().getJavaClass().getName() + "#" + method.getName();
         return new TimedStatement(super.methodInvoker(method, test), warmUpIterations, runs,
-                (result) -> System.out.println(result.toString()));
+                (result) -> reportResult(name, result));
+    }
+
+    /**
+     * Prints the result, exports it and compares it to its baseline as configured by the system
+     * properties.
+     */
+    private static void reportResult(@NonNull String name, @NonNull TimedStatementResult result) {
+        System.out.println(result.toString());
+        String fileName = name + ".json";
+        try {
+            String resultsDir = System.getProperty(RESULTS_DIR_PROPERTY);
+            if (resultsDir != null) {
+                File output = new File(resultsDir, fileName);
+                //noinspection ResultOfMethodCallIgnored
+                output.getParentFile().mkdirs();
+                Files.write(output.toPath(),
+                        result.toJson(name).getBytes(StandardCharsets.UTF_8));
+            }
+
+            String baselineDir = System.getProperty(BASELINE_DIR_PROPERTY);
+            File baseline = baselineDir != null ? new File(baselineDir, fileName) : null;
+            if (baseline != null && baseline.exists()) {
+                double threshold = Double.parseDouble(System.getProperty(
+                        REGRESSION_THRESHOLD_PROPERTY,
+                        String.valueOf(DEFAULT_REGRESSION_THRESHOLD)));
+                BaselineComparison.read(baseline).check(result, threshold);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
@@ -24,6 +24,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.Executors;
@@ -38,6 +41,9 @@ import com.google.common.hash.Hashing;
 
 /**
  * JUnit {@link Statement} used to measure some statistics about the test method.
+ * <p>
+ * Each run is timed with {@link System#nanoTime()}, and the bytes allocated by the test thread and
+ * the garbage collections happening during the run are counted.
  */
 public class TimedStatement extends Statement {
     private static final int CALIBRATION_WARMUP_ITERATIONS = 50;
@@ -51,6 +57,7 @@ public class TimedStatement extends Statement {
     private final int mRuns;
     private final Runtime mRuntime = Runtime.getRuntime();
     private final Consumer<TimedStatementResult> mCallback;
+    private final ThreadMXBean mThreadBean = ManagementFactory.getThreadMXBean();
 
     TimedStatement(Statement statement, int warmUpIterations, int runs,
             Consumer<TimedStatementResult> finishedCallback) {
@@ -113,12 +120,12 @@ public class TimedStatement extends Statement {
         LongStatsCollector stats = new LongStatsCollector(CALIBRATION_RUNS);
         for (int i = 0; i < CALIBRATION_RUNS; i++) {
             TestUtils.gc();
-            long start = System.currentTimeMillis();
+            long start = System.nanoTime();
             calibrateMethod();
-            stats.accept(System.currentTimeMillis() - start);
+            stats.accept(System.nanoTime() - start);
         }
 
-        sCalibrated = stats.getStats().getMedian();
+        sCalibrated = stats.getStats().getMedian() / 1_000_000;
         sIsCalibrated = true;
         System.out.printf("  DONE %fms\n", sCalibrated);
     }
@@ -127,6 +134,40 @@ public class TimedStatement extends Statement {
         return mRuntime.totalMemory() - mRuntime.freeMemory();
     }
 
+    /**
+     * Returns the bytes allocated so far by the current thread, or -1 if the JVM doesn't track
+     * thread allocations.
+     */
+    private long getAllocatedBytes() {
+        if (mThreadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threadBean =
+                    (com.sun.management.ThreadMXBean) mThreadBean;
+            if (threadBean.isThreadAllocatedMemorySupported()
+                    && threadBean.isThreadAllocatedMemoryEnabled()) {
+                return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the number of garbage collections so far, over all collectors. */
+    private static long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gcBean.getCollectionCount());
+        }
+        return count;
+    }
+
+    /** Returns the time spent in garbage collections so far in ms, over all collectors. */
+    private static long getGcTimeMs() {
+        long time = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gcBean.getCollectionTime());
+        }
+        return time;
+    }
+
 
     @Override
     public void evaluate() throws Throwable {
@@ -139,6 +180,9 @@ public class TimedStatement extends Statement {
         }
 
         LongStatsCollector timeStats = new LongStatsCollector(mRuns);
+        LongStatsCollector allocationStats = new LongStatsCollector(mRuns);
+        LongStatsCollector gcCountStats = new LongStatsCollector(mRuns);
+        LongStatsCollector gcTimeStats = new LongStatsCollector(mRuns);
         LongStatsCollector memoryUseStats = new LongStatsCollector(mRuns);
         AtomicBoolean collectSamples = new AtomicBoolean(false);
 
@@ -154,13 +198,21 @@ public class TimedStatement extends Statement {
         try {
             for (int i = 0; i < mRuns; i++) {
                 TestUtils.gc();
+                long startGcCount = getGcCount();
+                long startGcTimeMs = getGcTimeMs();
+                long startAllocatedBytes = getAllocatedBytes();
                 collectSamples.set(true);
-                long startTimeMs = System.currentTimeMillis();
+                long startTimeNs = System.nanoTime();
                 mStatement.evaluate();
-                long stopTimeMs = System.currentTimeMillis();
-                collectSamples.set(true);
-                timeStats.accept(stopTimeMs - startTimeMs);
-
+                long stopTimeNs = System.nanoTime();
+                collectSamples.set(false);
+                long stopAllocatedBytes = getAllocatedBytes();
+                timeStats.accept(stopTimeNs - startTimeNs);
+                if (startAllocatedBytes != -1 && stopAllocatedBytes != -1) {
+                    allocationStats.accept(stopAllocatedBytes - startAllocatedBytes);
+                }
+                gcCountStats.accept(getGcCount() - startGcCount);
+                gcTimeStats.accept(getGcTimeMs() - startGcTimeMs);
             }
         } finally {
             executorService.shutdownNow();
@@ -171,7 +223,11 @@ public class TimedStatement extends Statement {
                 mRuns,
                 sCalibrated,
                 timeStats.getStats(),
-                memoryUseStats.getStats());
+                timeStats.getValues(),
+                allocationStats.size() > 0 ? allocationStats.getStats() : null,
+                gcCountStats.getStats(),
+                gcTimeStats.getStats(),
+                memoryUseStats.size() > 0 ? memoryUseStats.getStats() : null);
         mCallback.accept(result);
     }
 
@@ -16,8 +16,15 @@
 
 package com.android.layoutlib.bridge.intensive.util.perf;
 
+import android.annotation.NonNull;
+import android.annotation.Nullable;
+
 import com.android.layoutlib.bridge.intensive.util.perf.LongStatsCollector.Stats;
 
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import java.text.DecimalFormat;
 
 /**
@@ -25,40 +32,141 @@ import java.text.DecimalFormat;
  */
 public class TimedStatementResult {
     private static final DecimalFormat UNITS_FORMAT = new DecimalFormat("#.##");
+    private static final double NS_PER_MS = 1_000_000;
 
     private final int mWarmUpIterations;
     private final int mRuns;
     private final double mCalibrationTimeMs;
     private final Stats mTimeStats;
-    private final Stats mMemoryStats;
+    private final long[] mTimeSamplesNs;
+    @Nullable private final Stats mAllocationStats;
+    private final Stats mGcCountStats;
+    private final Stats mGcTimeStats;
+    @Nullable private final Stats mMemoryStats;
 
     TimedStatementResult(int warmUpIterations, int runs,
             double calibrationTimeMs,
             Stats timeStats,
-            Stats memoryStats) {
+            long[] timeSamplesNs,
+            @Nullable Stats allocationStats,
+            Stats gcCountStats,
+            Stats gcTimeStats,
+            @Nullable Stats memoryStats) {
         mWarmUpIterations = warmUpIterations;
         mRuns = runs;
         mCalibrationTimeMs = calibrationTimeMs;
         mTimeStats = timeStats;
+        mTimeSamplesNs = timeSamplesNs;
+        mAllocationStats = allocationStats;
+        mGcCountStats = gcCountStats;
+        mGcTimeStats = gcTimeStats;
         mMemoryStats = memoryStats;
     }
 
+    /** Returns the statistics of the run times, in ns. */
+    @NonNull
+    public Stats getTimeStats() {
+        return mTimeStats;
+    }
+
+    /**
+     * Returns the statistics of the bytes allocated by each run, or null if the JVM doesn't track
+     * allocations.
+     */
+    @Nullable
+    public Stats getAllocationStats() {
+        return mAllocationStats;
+    }
+
+    /**
+     * Returns the result as a JSON object, for tools tracking the performance over time and for
+     * {@link BaselineComparison}. Times are in ns, except garbage collection times in ms.
+     */
+    @NonNull
+    public String toJson(@NonNull String name) {
+        try {
+            JSONObject json = new JSONObject();
+            json.put("name", name);
+            json.put("warmUpIterations", mWarmUpIterations);
+            json.put("runs", mRuns);
+            json.put("calibrationTimeMs", mCalibrationTimeMs);
+            putJsonStats(json, "timeNs", mTimeStats);
+            putJsonStats(json, "allocatedBytes", mAllocationStats);
+            putJsonStats(json, "gcCount", mGcCountStats);
+            putJsonStats(json, "gcTimeMs", mGcTimeStats);
+            putJsonStats(json, "memoryUsedBytes", mMemoryStats);
+            JSONArray timeSamples = new JSONArray();
+            for (long sample : mTimeSamplesNs) {
+                timeSamples.put(sample);
+            }
+            json.put("timeSamplesNs", timeSamples);
+            return json.toString(2) + "\n";
+        } catch (JSONException e) {
+            // Only thrown for non-finite numbers, which the statistics never are.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Puts the {@code stats} as flat properties prefixed with {@code prefix}, e.g. "timeNsMean".
+     */
+    private static void putJsonStats(@NonNull JSONObject json, @NonNull String prefix,
+            @Nullable Stats stats) throws JSONException {
+        if (stats == null) {
+            return;
+        }
+        json.put(prefix + "SampleCount", stats.getSampleCount());
+        json.put(prefix + "OutlierCount", stats.getOutlierCount());
+        json.put(prefix + "Min", stats.getMin());
+        json.put(prefix + "Max", stats.getMax());
+        json.put(prefix + "Median", stats.getMedian());
+        json.put(prefix + "FirstQuartile", stats.getFirstQuartile());
+        json.put(prefix + "ThirdQuartile", stats.getThirdQuartile());
+        json.put(prefix + "Mean", stats.getMean());
+        json.put(prefix + "StandardDeviation", stats.getStandardDeviation());
+        json.put(prefix + "ConfidenceIntervalLow", stats.getConfidenceIntervalLow());
+        json.put(prefix + "ConfidenceIntervalHigh", stats.getConfidenceIntervalHigh());
+    }
+
     @Override
     public String toString() {
-        return String.format(
+        StringBuilder result = new StringBuilder(String.format(
                 "Warm up %d. Runs %d\n" + "Time:             %s ms (min: %s, max %s)\n" +
+                        "Mean Time:        %s ms (95%% CI: %s - %s, %d outliers)\n" +
                         "Calibration Time: %f ms\n" +
-                        "Calibrated Time:  %s units (min: %s, max %s)\n" +
-                        "Sampled %d times\n" +
-                        "   Memory used:  %d bytes (max %d)\n\n",
+                        "Calibrated Time:  %s units (min: %s, max %s)\n",
                 mWarmUpIterations, mRuns,
-                mTimeStats.getMedian(), mTimeStats.getMin(), mTimeStats.getMax(),
+                UNITS_FORMAT.format(mTimeStats.getMedian() / NS_PER_MS),
+                UNITS_FORMAT.format(mTimeStats.getMin() / NS_PER_MS),
+                UNITS_FORMAT.format(mTimeStats.getMax() / NS_PER_MS),
+                UNITS_FORMAT.format(mTimeStats.getMean() / NS_PER_MS),
+                UNITS_FORMAT.format(mTimeStats.getConfidenceIntervalLow() / NS_PER_MS),
+                UNITS_FORMAT.format(mTimeStats.getConfidenceIntervalHigh() / NS_PER_MS),
+                mTimeStats.getOutlierCount(),
                 mCalibrationTimeMs,
-                UNITS_FORMAT.format((mTimeStats.getMedian() / mCalibrationTimeMs) * 100000),
-                UNITS_FORMAT.format((mTimeStats.getMin() / mCalibrationTimeMs) * 100000),
-                UNITS_FORMAT.format((mTimeStats.getMax() / mCalibrationTimeMs) * 100000),
-                mMemoryStats.getSampleCount(),
-                (long)mMemoryStats.getMedian() - mMemoryStats.getMin(),
-                mMemoryStats.getMax() - mMemoryStats.getMin());
+                UNITS_FORMAT.format(calibrated(mTimeStats.getMedian())),
+                UNITS_FORMAT.format(calibrated(mTimeStats.getMin())),
+                UNITS_FORMAT.format(calibrated(mTimeStats.getMax()))));
+        if (mAllocationStats != null) {
+            result.append(String.format("Allocated:        %d bytes (min: %d, max %d)\n",
+                    (long) mAllocationStats.getMedian(), mAllocationStats.getMin(),
+                    mAllocationStats.getMax()));
+        }
+        result.append(String.format("GC:               %d collections, %d ms (max %d, %d ms)\n",
+                (long) mGcCountStats.getMedian(), (long) mGcTimeStats.getMedian(),
+                mGcCountStats.getMax(), mGcTimeStats.getMax()));
+        if (mMemoryStats != null) {
+            result.append(String.format("Sampled %d times\n" +
+                            "   Memory used:  %d bytes (max %d)\n",
+                    mMemoryStats.getSampleCount(),
+                    (long) mMemoryStats.getMedian() - mMemoryStats.getMin(),
+                    mMemoryStats.getMax() - mMemoryStats.getMin()));
+        }
+        return result.append("\n").toString();
+    }
+
+    /** Converts a time in ns to units relative to the calibration time. */
+    private double calibrated(double timeNs) {
+        return (timeNs / NS_PER_MS / mCalibrationTimeMs) * 100000;
     }
 }
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package platform.test.screenshot.matchers
+
+import android.graphics.Bitmap
+import android.graphics.Color
+import android.graphics.Rect
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.common.truth.Truth.assertWithMessage
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.shadows.ShadowLog
+
+/**
+ * Checks that the tiled matchers return the same results as the single threaded [reference
+ * implementations][ReferencePixelPerfectMatcher], and measures both on screens of the size of a
+ * large foldable display.
+ *
+ * Times are logged, not asserted, as they depend on the machine running the test.
+ */
+@RunWith(AndroidJUnit4::class)
+class MatcherBenchmarkTest {
+    private val matchers =
+        listOf<Triple<String, () -> BitmapMatcher, () -> BitmapMatcher>>(
+            Triple("PixelPerfect", { PixelPerfectMatcher() }, { ReferencePixelPerfectMatcher() }),
+            Triple(
+                "AlmostPerfect",
+                { AlmostPerfectMatcher() },
+                { ReferenceAlmostPerfectMatcher() },
+            ),
+            Triple(
+                "AlmostPerfect(count)",
+                { AlmostPerfectMatcher(acceptableThresholdCount = 50) },
+                { ReferenceAlmostPerfectMatcher(acceptableThresholdCount = 50) },
+            ),
+            Triple("HumanEye", { HumanEyeMatcher() }, { ReferenceHumanEyeMatcher() }),
+            Triple(
+                "HumanEye(ungrouped)",
+                { HumanEyeMatcher(accountForGrouping = false) },
+                { ReferenceHumanEyeMatcher(accountForGrouping = false) },
+            ),
+            Triple("MSSIM", { MSSIMMatcher() }, { ReferenceMSSIMMatcher() }),
+        )
+
+    @Before
+    fun setUp() {
+        ShadowLog.stream = System.out
+    }
+
+    @Test
+    fun optimizedMatchers_returnSameResultsAsReference() {
+        val regionsList =
+            listOf(emptyList(), listOf(Rect(10, 20, 300, 250), Rect(200, 400, 640, 480)))
+        for (regions in regionsList) {
+            forEachGoldenPair(SMALL_WIDTH, SMALL_HEIGHT) { pairName, expected, given ->
+                for ((matcherName, createMatcher, createReference) in matchers) {
+                    val name = "$matcherName $pairName regions=$regions"
+                    val reference =
+                        createReference()
+                            .compareBitmaps(expected, given, SMALL_WIDTH, SMALL_HEIGHT, regions)
+
+                    val result =
+                        createMatcher()
+                            .compareBitmaps(expected, given, SMALL_WIDTH, SMALL_HEIGHT, regions)
+                    assertSameResult(name, result, reference)
+
+                    // Without diff the statistics may stop early, but the verdict is the same.
+                    val withoutDiff =
+                        createMatcher()
+                            .apply { generateDiff = false }
+                            .compareBitmaps(expected, given, SMALL_WIDTH, SMALL_HEIGHT, regions)
+                    assertWithMessage("$name without diff: matches")
+                        .that(withoutDiff.matches)
+                        .isEqualTo(reference.matches)
+                    assertWithMessage("$name without diff: diff").that(withoutDiff.diff).isNull()
+                }
+            }
+        }
+    }
+
+    @Test
+    fun compareLargeGoldens() {
+        forEachGoldenPair(LARGE_WIDTH, LARGE_HEIGHT) { pairName, expected, given ->
+            for ((matcherName, createMatcher, createReference) in matchers) {
+                val reference = createReference()
+                val referenceMillis = medianMillis {
+                    reference.compareBitmaps(expected, given, LARGE_WIDTH, LARGE_HEIGHT)
+                }
+                for (generateDiff in listOf(true, false)) {
+                    val matcher = createMatcher().also { it.generateDiff = generateDiff }
+                    val millis = medianMillis {
+                        matcher.compareBitmaps(expected, given, LARGE_WIDTH, LARGE_HEIGHT)
+                    }
+                    Log.i(
+                        TAG,
+                        "$matcherName $pairName (generateDiff=$generateDiff): ${millis}ms, " +
+                            "reference ${referenceMillis}ms"
+                    )
+                }
+                assertSameResult(
+                    "$matcherName $pairName",
+                    createMatcher().compareBitmaps(expected, given, LARGE_WIDTH, LARGE_HEIGHT),
+                    reference.compareBitmaps(expected, given, LARGE_WIDTH, LARGE_HEIGHT),
+                )
+            }
+        }
+    }
+
+    private fun assertSameResult(name: String, result: MatchResult, reference: MatchResult) {
+        assertWithMessage("$name: matches").that(result.matches).isEqualTo(reference.matches)
+        val stats = result.comparisonStatistics
+        val referenceStats = reference.comparisonStatistics
+        if (stats.numberPixelsSimilar == 0 && referenceStats.numberPixelsSimilar == 0) {
+            assertWithMessage("$name: statistics").that(stats).isEqualTo(referenceStats)
+        } else {
+            // MSSIM sums the window scores per tile, so the rounding of the average can differ.
+            assertWithMessage("$name: compared")
+                .that(stats.numberPixelsCompared)
+                .isEqualTo(referenceStats.numberPixelsCompared)
+            assertWithMessage("$name: ignored")
+                .that(stats.numberPixelsIgnored)
+                .isEqualTo(referenceStats.numberPixelsIgnored)
+            val similar = referenceStats.numberPixelsSimilar
+            assertWithMessage("$name: similar")
+                .that(stats.numberPixelsSimilar)
+                .isIn(similar - 1..similar + 1)
+        }
+        assertWithMessage("$name: diff")
+            .that(result.diff?.pixels())
+            .isEqualTo(reference.diff?.pixels())
+    }
+
+    /** Calls [block] with pairs of screens that look like real golden pairs. */
+    private fun forEachGoldenPair(
+        width: Int,
+        height: Int,
+        block: (name: String, expected: IntArray, given: IntArray) -> Unit,
+    ) {
+        val screen = createScreen(width, height)
+        block("identical", screen, screen.copyOf())
+        block("dark", screen, IntArray(screen.size) { darken(screen[it]) })
+        block("moved_1px", screen, IntArray(screen.size) { screen[(it + 1) % screen.size] })
+        block("antialiasing", screen, addNoise(screen, width, height))
+    }
+
+    /** Cards with text-like stripes, a translucent bar and a gradient, on a white background. */
+    private fun createScreen(width: Int, height: Int): IntArray =
+        IntArray(width * height) { index ->
+            val x = index % width
+            val y = index / width
+            val card = (y / 150) % 2 == 0 && x in 40 until width - 40 && y % 150 in 20 until 130
+            val text = card && (y % 150) % 12 < 6 && x % 97 < 80
+            when {
+                text -> Color.rgb(30, 30, 30)
+                card -> Color.rgb(232, 240, 254)
+                y < 60 -> Color.argb(128, 0, 0, 0)
+                y > height - 120 -> Color.rgb(x * 255 / width, 80, 160)
+                else -> Color.WHITE
+            }
+        }
+
+    private fun darken(color: Int): Int =
+        Color.argb(
+            Color.alpha(color),
+            Color.red(color) / 2,
+            Color.green(color) / 2,
+            Color.blue(color) / 2,
+        )
+
+    /** Slightly changes isolated pixels and short lines, as rendering differences do. */
+    private fun addNoise(screen: IntArray, width: Int, height: Int): IntArray {
+        val given = screen.copyOf()
+        for (y in 0 until height step 7) {
+            for (x in (y * 13) % 31 until width step 29) {
+                val index = y * width + x
+                val color = given[index]
+                val delta = if (x % 3 == 0) 40 else 4
+                given[index] =
+                    Color.argb(
+                        Color.alpha(color),
+                        (Color.red(color) + delta).coerceAtMost(255),
+                        Color.green(color),
+                        Color.blue(color),
+                    )
+                if (x % 5 == 0 && x + 1 < width) given[index + 1] = given[index]
+            }
+        }
+        return given
+    }
+
+    private fun Bitmap.pixels(): IntArray =
+        IntArray(width * height).also { getPixels(it, 0, width, 0, 0, width, height) }
+
+    private fun medianMillis(block: () -> Unit): Long {
+        block() // Warm up.
+        val times =
+            List(ITERATIONS) {
+                val start = System.nanoTime()
+                block()
+                (System.nanoTime() - start) / 1_000_000
+            }
+        return times.sorted()[ITERATIONS / 2]
+    }
+
+    private companion object {
+        const val TAG = "MatcherBenchmarkTest"
+        const val ITERATIONS = 3
+
+        const val SMALL_WIDTH = 640
+        const val SMALL_HEIGHT = 480
+
+        // Unfolded large foldable.
+        const val LARGE_WIDTH = 2208
+        const val LARGE_HEIGHT = 1840
+    }
+}
@@ -0,0 +1,648 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package platform.test.screenshot.matchers
+
+import android.graphics.Bitmap
+import android.graphics.Color
+import android.graphics.Rect
+import kotlin.math.max
+import kotlin.math.pow
+import platform.test.screenshot.proto.ScreenshotResultProto
+
+// Single threaded matchers, as they were before TiledComparison. They are the reference the tiled
+// matchers must agree with, and the baseline of MatcherBenchmarkTest.
+
+class ReferencePixelPerfectMatcher : BitmapMatcher() {
+
+    override fun compareBitmaps(
+        expected: IntArray,
+        given: IntArray,
+        width: Int,
+        height: Int,
+        regions: List<Rect>
+    ): MatchResult {
+        check(expected.size == given.size)
+
+        val filter = getFilter(width, height, regions)
+        var different = 0
+        var same = 0
+        var ignored = 0
+
+        val diffArray = lazy { IntArray(width * height) { Color.TRANSPARENT } }
+
+        expected.indices.forEach { index ->
+            when {
+                !filter[index] -> ignored++
+                expected[index] == given[index] -> same++
+                else -> diffArray.value[index] = Color.MAGENTA.also { different++ }
+            }
+        }
+
+        val stats =
+            ScreenshotResultProto.DiffResult.ComparisonStatistics.newBuilder()
+                .setNumberPixelsCompared(width * height)
+                .setNumberPixelsIdentical(same)
+                .setNumberPixelsDifferent(different)
+                .setNumberPixelsIgnored(ignored)
+                .build()
+
+        return if (different > 0) {
+            val diff = Bitmap.createBitmap(diffArray.value, width, height, Bitmap.Config.ARGB_8888)
+            MatchResult(matches = false, diff = diff, comparisonStatistics = stats)
+        } else {
+            MatchResult(matches = true, diff = null, comparisonStatistics = stats)
+        }
+    }
+}
+
+class ReferenceAlmostPerfectMatcher
+private constructor(
+    private val acceptableThreshold: Double = 0.0,
+    private val acceptableThresholdCount: Int = -1
+) : BitmapMatcher() {
+    constructor() : this(0.0, -1)
+
+    constructor(acceptableThreshold: Double) : this(acceptableThreshold, -1)
+
+    constructor(acceptableThresholdCount: Int) : this(0.0, acceptableThresholdCount)
+
+    override fun compareBitmaps(
+        expected: IntArray,
+        given: IntArray,
+        width: Int,
+        height: Int,
+        regions: List<Rect>
+    ): MatchResult {
+        check(expected.size == given.size) { "Size of two bitmaps does not match" }
+
+        val filter = getFilter(width, height, regions)
+        var different = 0
+        var same = 0
+        var ignored = 0
+
+        val diffArray = lazy { IntArray(width * height) { Color.TRANSPARENT } }
+
+        expected.indices.forEach { index ->
+            when {
+                !filter[index] -> ignored++
+                areSame(expected[index], given[index]) -> same++
+                else -> diffArray.value[index] = Color.MAGENTA.also { different++ }
+            }
+        }
+
+        val threshold =
+            if (acceptableThresholdCount >= 0) acceptableThresholdCount
+            else (acceptableThreshold * width * height).toInt()
+        val matches = different <= threshold
+        val diffBmp =
+            if (different <= 0) null
+            else Bitmap.createBitmap(diffArray.value, width, height, Bitmap.Config.ARGB_8888)
+        if (matches) {
+            ignored += different
+            different = 0
+        }
+
+        val stats =
+            ScreenshotResultProto.DiffResult.ComparisonStatistics.newBuilder()
+                .setNumberPixelsCompared(width * height)
+                .setNumberPixelsIdentical(same)
+                .setNumberPixelsDifferent(different)
+                .setNumberPixelsIgnored(ignored)
+                .build()
+
+        return MatchResult(matches = matches, diff = diffBmp, comparisonStatistics = stats)
+    }
+
+    // ref
+    // R. F. Witzel, R. W. Burnham, and J. W. Onley. Threshold and suprathreshold perceptual color
+    // differences. J. Optical Society of America, 63:615{625, 1973. 14
+    private fun areSame(referenceColor: Int, testColor: Int): Boolean {
+        val green = Color.green(referenceColor) - Color.green(testColor)
+        val blue = Color.blue(referenceColor) - Color.blue(testColor)
+        val red = Color.red(referenceColor) - Color.red(testColor)
+        val redMean = (Color.red(referenceColor) + Color.red(testColor)) / 2
+        val redScalar = if (redMean < 128) 2 else 3
+        val blueScalar = if (redMean < 128) 3 else 2
+        val greenScalar = 4
+        val correction =
+            (redScalar * red * red) + (greenScalar * green * green) + (blueScalar * blue * blue)
+        // 1.5 no difference
+        // 3.0 observable by experienced human observer
+        // 6.0 minimal difference
+        // 12.0 perceivable difference
+        return correction <= THRESHOLD_SQ
+    }
+
+    companion object {
+        const val THRESHOLD_SQ = 3 * 3
+    }
+}
+
+class ReferenceHumanEyeMatcher(
+    private val accountForGrouping: Boolean = true,
+    private val accountForTransparency: Boolean = true,
+) : BitmapMatcher() {
+    override fun compareBitmaps(
+        expected: IntArray,
+        given: IntArray,
+        width: Int,
+        height: Int,
+        regions: List<Rect>
+    ): MatchResult {
+        check(expected.size == given.size) {
+            "Pixels in expected (${expected.size}) does not match pixels in actual (${given.size})"
+        }
+
+        val filter = getFilter(width, height, regions)
+        var ignored = 0
+
+        // Prepare colorDiffArray
+        val colorDiffSqArray =
+            IntArray(width * height) { index ->
+                if (filter[index]) {
+                    if (accountForTransparency) {
+                        colorDiffSqWithTransparency(expected[index], given[index])
+                    } else {
+                        colorDiffSq(expected[index], given[index])
+                    }
+                } else {
+                    ignored++
+                    IGNORED_COLOR_DIFF
+                }
+            }
+
+        fun isIndexSameForLargeArea(index: Int) = isSameForLargeArea(colorDiffSqArray[index])
+
+        if (!accountForGrouping) {
+            val diffArray = lazy { IntArray(width * height) { Color.TRANSPARENT } }
+            var different = 0
+            expected.indices.forEach { index ->
+                if (!isIndexSameForLargeArea(index)) {
+                    diffArray.value[index] = Color.MAGENTA
+                    different++
+                }
+            }
+            return createMatchResult(
+                width,
+                height,
+                width * height - ignored - different,
+                different,
+                ignored,
+                diffArray,
+            )
+        }
+
+        fun getEasiestThresholdFailed(x: Int, y: Int): Int? {
+            val colorDiff = colorDiffSqArray[x + width * y]
+            return when {
+                colorDiff == IGNORED_COLOR_DIFF -> null
+                colorDiff > THRESHOLD_ISOLATED_PIXEL_SQ -> THRESHOLD_ISOLATED_PIXEL_SQ
+                colorDiff > THRESHOLD_1PX_LINE_OF_PIXELS_SQ -> THRESHOLD_1PX_LINE_OF_PIXELS_SQ
+                colorDiff > THRESHOLD_2PX_LINE_OF_PIXELS_SQ -> THRESHOLD_2PX_LINE_OF_PIXELS_SQ
+                colorDiff > THRESHOLD_BLOCK_OF_PIXELS_SQ -> THRESHOLD_BLOCK_OF_PIXELS_SQ
+                else -> 0
+            }
+        }
+
+        var different = 0
+        val diffArray = lazy { IntArray(colorDiffSqArray.size) { Color.TRANSPARENT } }
+
+        colorDiffSqArray.indices.forEach { index ->
+            // Also covers the ignored case
+            if (isIndexSameForLargeArea(index)) return@forEach
+
+            val x = index % width
+            val y = index / width
+
+            val currThreshold = getEasiestThresholdFailed(x, y)!!
+            // null = ignored or out of bounds of image
+            val upThreshold = if (y > 0) getEasiestThresholdFailed(x, y - 1) else null
+            val downThreshold = if (y < height - 1) getEasiestThresholdFailed(x, y + 1) else null
+            val leftThreshold = if (x > 0) getEasiestThresholdFailed(x - 1, y) else null
+            val rightThreshold = if (x < width - 1) getEasiestThresholdFailed(x + 1, y) else null
+
+            // Pixels with lower diff thresholds are not counted as neighbouring diffs
+            var neighbouringDiffs = 4
+            if (upThreshold != null && currThreshold > upThreshold) neighbouringDiffs--
+            if (downThreshold != null && currThreshold > downThreshold) neighbouringDiffs--
+            if (leftThreshold != null && currThreshold > leftThreshold) neighbouringDiffs--
+            if (rightThreshold != null && currThreshold > rightThreshold) neighbouringDiffs--
+
+            if (!isSame(colorDiffSqArray[index], neighbouringDiffs)) {
+                diffArray.value[index] = Color.MAGENTA
+                different++
+            }
+        }
+
+        return createMatchResult(
+            width,
+            height,
+            width * height - ignored - different,
+            different,
+            ignored,
+            diffArray,
+        )
+    }
+
+    private fun colorDiffSqWithTransparency(referenceColor: Int, testColor: Int): Int {
+        val diffWithWhite =
+            colorDiffSq(
+                blendWithBackground(referenceColor, Color.WHITE),
+                blendWithBackground(testColor, Color.WHITE)
+            )
+        val diffWithBlack =
+            colorDiffSq(
+                blendWithBackground(referenceColor, Color.BLACK),
+                blendWithBackground(testColor, Color.BLACK)
+            )
+
+        return max(diffWithWhite, diffWithBlack)
+    }
+
+    // ref
+    // R. F. Witzel, R. W. Burnham, and J. W. Onley. Threshold and suprathreshold perceptual color
+    // differences. J. Optical Society of America, 63:615{625, 1973. 14
+    private fun colorDiffSq(referenceColor: Int, testColor: Int): Int {
+        val green = Color.green(referenceColor) - Color.green(testColor)
+        val blue = Color.blue(referenceColor) - Color.blue(testColor)
+        val red = Color.red(referenceColor) - Color.red(testColor)
+        val redMean = (Color.red(referenceColor) + Color.red(testColor)) / 2
+        val redScalar = if (redMean < 128) 2 else 3
+        val blueScalar = if (redMean < 128) 3 else 2
+        val greenScalar = 4
+
+        return (redScalar * red * red) + (greenScalar * green * green) + (blueScalar * blue * blue)
+    }
+
+    /**
+     * This function is more lenient (uses a higher diff threshold) on isolated pixels than it is on
+     * lines or blocks of differing pixels. This is to emulate the human eye. It is harder to see
+     * color differences in very small objects as compared to larger ones.
+     */
+    private fun getThresholdSq(neighbouringDiffs: Int): Int =
+        when (neighbouringDiffs) {
+            0,
+            1 -> THRESHOLD_ISOLATED_PIXEL_SQ
+            2 -> THRESHOLD_1PX_LINE_OF_PIXELS_SQ
+            3 -> THRESHOLD_2PX_LINE_OF_PIXELS_SQ
+            4 -> THRESHOLD_BLOCK_OF_PIXELS_SQ
+            else ->
+                throw IllegalArgumentException(
+                    "Unsupported neighbouringDiffs value: $neighbouringDiffs"
+                )
+        }
+
+    private fun isSameForLargeArea(colorDiff: Int) = colorDiff <= THRESHOLD_BLOCK_OF_PIXELS_SQ
+
+    private fun isSame(colorDiff: Int, neighbouringDiffs: Int) =
+        colorDiff <= getThresholdSq(neighbouringDiffs)
+
+    /** Any alpha component of the [backgroundColor] will be ignored. */
+    private fun blendWithBackground(color: Int, backgroundColor: Int): Int {
+        val alpha: Float = Color.alpha(color) / 255f
+        if (alpha == 1f) return color
+        if (alpha == 0f) return backgroundColor
+
+        val outRed = alpha * Color.red(color) + (1 - alpha) * Color.red(backgroundColor)
+        val outGreen = alpha * Color.green(color) + (1 - alpha) * Color.green(backgroundColor)
+        val outBlue = alpha * Color.blue(color) + (1 - alpha) * Color.blue(backgroundColor)
+
+        return Color.valueOf(outRed / 255f, outGreen / 255f, outBlue / 255f).toArgb()
+    }
+
+    private fun createMatchResult(
+        width: Int,
+        height: Int,
+        samePixels: Int,
+        differentPixels: Int,
+        ignoredPixels: Int,
+        diffBitmapArray: Lazy<IntArray>,
+    ): MatchResult {
+        val stats =
+            ScreenshotResultProto.DiffResult.ComparisonStatistics.newBuilder()
+                .setNumberPixelsCompared(width * height)
+                .setNumberPixelsIdentical(samePixels)
+                .setNumberPixelsDifferent(differentPixels)
+                .setNumberPixelsIgnored(ignoredPixels)
+                .build()
+
+        return if (differentPixels > 0) {
+            val diff =
+                Bitmap.createBitmap(diffBitmapArray.value, width, height, Bitmap.Config.ARGB_8888)
+            MatchResult(matches = false, diff = diff, comparisonStatistics = stats)
+        } else {
+            MatchResult(matches = true, diff = null, comparisonStatistics = stats)
+        }
+    }
+
+    private companion object {
+        const val THRESHOLD_BLOCK_OF_PIXELS_SQ = 3 * 3
+        const val THRESHOLD_2PX_LINE_OF_PIXELS_SQ = 10 * 10
+        const val THRESHOLD_1PX_LINE_OF_PIXELS_SQ = 12 * 12
+        const val THRESHOLD_ISOLATED_PIXEL_SQ = 40 * 40
+
+        const val IGNORED_COLOR_DIFF = -1
+    }
+}
+
+class ReferenceMSSIMMatcher(private val threshold: Double = 0.98) : BitmapMatcher() {
+
+    companion object {
+        // These values were taken from the publication
+        private const val CONSTANT_L = 254.0
+        private const val CONSTANT_K1 = 0.00001
+        private const val CONSTANT_K2 = 0.00003
+        private val CONSTANT_C1 = (CONSTANT_L * CONSTANT_K1).pow(2.0)
+        private val CONSTANT_C2 = (CONSTANT_L * CONSTANT_K2).pow(2.0)
+        private const val WINDOW_SIZE = 10
+    }
+
+    override fun compareBitmaps(
+        expected: IntArray,
+        given: IntArray,
+        width: Int,
+        height: Int,
+        regions: List<Rect>
+    ): MatchResult {
+        val filter = getFilter(width, height, regions)
+        val calSSIMResult = calculateSSIM(expected, given, 0, width, width, height, filter)
+
+        val stats =
+            ScreenshotResultProto.DiffResult.ComparisonStatistics.newBuilder()
+                .setNumberPixelsCompared(calSSIMResult.numPixelsCompared)
+                .setNumberPixelsSimilar(calSSIMResult.numPixelsSimilar)
+                .setNumberPixelsIgnored(calSSIMResult.numPixelsIgnored)
+                .setNumberPixelsDifferent(
+                    calSSIMResult.numPixelsCompared - calSSIMResult.numPixelsSimilar
+                )
+                .build()
+
+        if (
+            calSSIMResult.numPixelsSimilar >= threshold * calSSIMResult.numPixelsCompared.toDouble()
+        ) {
+            return MatchResult(matches = true, diff = null, comparisonStatistics = stats)
+        }
+
+        // Create diff
+        val result =
+            ReferencePixelPerfectMatcher().compareBitmaps(expected, given, width, height, regions)
+        return MatchResult(matches = false, diff = result.diff, comparisonStatistics = stats)
+    }
+
+    private fun calculateSSIM(
+        ideal: IntArray,
+        given: IntArray,
+        offset: Int,
+        stride: Int,
+        width: Int,
+        height: Int,
+        filter: BooleanArray
+    ): SSIMResult {
+        var SSIMTotal = 0.0
+        var totalNumPixelsCompared = 0.0
+        var currentWindowY = 0
+        var ignored = 0
+
+        while (currentWindowY < height) {
+            val windowHeight = computeWindowSize(currentWindowY, height)
+            var currentWindowX = 0
+            while (currentWindowX < width) {
+                val windowWidth = computeWindowSize(currentWindowX, width)
+                val start: Int = indexFromXAndY(currentWindowX, currentWindowY, stride, offset)
+                if (
+                    shouldIgnoreWindow(ideal, start, stride, windowWidth, windowHeight, filter) &&
+                        shouldIgnoreWindow(given, start, stride, windowWidth, windowHeight, filter)
+                ) {
+                    currentWindowX += WINDOW_SIZE
+                    ignored += windowWidth * windowHeight
+                    continue
+                }
+                val means = getMeans(ideal, given, filter, start, stride, windowWidth, windowHeight)
+                val meanX = means[0]
+                val meanY = means[1]
+                val variances =
+                    getVariances(
+                        ideal,
+                        given,
+                        filter,
+                        meanX,
+                        meanY,
+                        start,
+                        stride,
+                        windowWidth,
+                        windowHeight
+                    )
+                val varX = variances[0]
+                val varY = variances[1]
+                val stdBoth = variances[2]
+                val SSIM = SSIM(meanX, meanY, varX, varY, stdBoth)
+                val numPixelsCompared =
+                    numPixelsToCompareInWindow(start, stride, windowWidth, windowHeight, filter)
+                SSIMTotal += SSIM * numPixelsCompared
+                totalNumPixelsCompared += numPixelsCompared.toDouble()
+                currentWindowX += WINDOW_SIZE
+            }
+            currentWindowY += WINDOW_SIZE
+        }
+
+        val averageSSIM = SSIMTotal / totalNumPixelsCompared
+        return SSIMResult(
+            SSIM = averageSSIM,
+            numPixelsSimilar = (averageSSIM * totalNumPixelsCompared + 0.5).toInt(),
+            numPixelsIgnored = ignored,
+            numPixelsCompared = (totalNumPixelsCompared + 0.5).toInt()
+        )
+    }
+
+    /**
+     * Compute the size of the window. The window defaults to WINDOW_SIZE, but must be contained
+     * within dimension.
+     */
+    private fun computeWindowSize(coordinateStart: Int, dimension: Int): Int {
+        return if (coordinateStart + WINDOW_SIZE <= dimension) {
+            WINDOW_SIZE
+        } else {
+            dimension - coordinateStart
+        }
+    }
+
+    /**
+     * Checks whether a pixel should be ignored. A pixel should be ignored if the corresponding
+     * filter entry is false.
+     */
+    private fun shouldIgnorePixel(
+        x: Int,
+        y: Int,
+        start: Int,
+        stride: Int,
+        filter: BooleanArray
+    ): Boolean {
+        return !filter[indexFromXAndY(x, y, stride, start)]
+    }
+
+    /**
+     * Checks whether a whole window should be ignored. A window should be ignored if all pixels are
+     * either white or should be ignored.
+     */
+    private fun shouldIgnoreWindow(
+        colors: IntArray,
+        start: Int,
+        stride: Int,
+        windowWidth: Int,
+        windowHeight: Int,
+        filter: BooleanArray
+    ): Boolean {
+        for (y in 0 until windowHeight) {
+            for (x in 0 until windowWidth) {
+                if (shouldIgnorePixel(x, y, start, stride, filter)) {
+                    continue
+                }
+                if (colors[indexFromXAndY(x, y, stride, start)] != Color.WHITE) {
+                    return false
+                }
+            }
+        }
+        return true
+    }
+
+    private fun numPixelsToCompareInWindow(
+        start: Int,
+        stride: Int,
+        windowWidth: Int,
+        windowHeight: Int,
+        filter: BooleanArray
+    ): Int {
+        var numPixelsToCompare = 0
+        for (y in 0 until windowHeight) {
+            for (x in 0 until windowWidth) {
+                if (!shouldIgnorePixel(x, y, start, stride, filter)) {
+                    numPixelsToCompare++
+                }
+            }
+        }
+        return numPixelsToCompare
+    }
+
+    /**
+     * This calculates the position in an array that would represent a bitmap given the parameters.
+     */
+    private fun indexFromXAndY(x: Int, y: Int, stride: Int, offset: Int): Int {
+        return x + y * stride + offset
+    }
+
+    private fun SSIM(muX: Double, muY: Double, sigX: Double, sigY: Double, sigXY: Double): Double {
+        var SSIM = (2 * muX * muY + CONSTANT_C1) * (2 * sigXY + CONSTANT_C2)
+        val denom = ((muX * muX + muY * muY + CONSTANT_C1) * (sigX + sigY + CONSTANT_C2))
+        SSIM /= denom
+        return SSIM
+    }
+
+    /**
+     * This method will find the mean of a window in both sets of pixels. The return is an array
+     * where the first double is the mean of the first set and the second double is the mean of the
+     * second set.
+     */
+    private fun getMeans(
+        pixels0: IntArray,
+        pixels1: IntArray,
+        filter: BooleanArray,
+        start: Int,
+        stride: Int,
+        windowWidth: Int,
+        windowHeight: Int
+    ): DoubleArray {
+        var avg0 = 0.0
+        var avg1 = 0.0
+        var numPixelsCounted = 0.0
+        for (y in 0 until windowHeight) {
+            for (x in 0 until windowWidth) {
+                if (shouldIgnorePixel(x, y, start, stride, filter)) {
+                    continue
+                }
+                val index: Int = indexFromXAndY(x, y, stride, start)
+                avg0 += getIntensity(pixels0[index])
+                avg1 += getIntensity(pixels1[index])
+                numPixelsCounted += 1.0
+            }
+        }
+        avg0 /= numPixelsCounted
+        avg1 /= numPixelsCounted
+        return doubleArrayOf(avg0, avg1)
+    }
+
+    /**
+     * Finds the variance of the two sets of pixels, as well as the covariance of the windows. The
+     * return value is an array of doubles, the first is the variance of the first set of pixels,
+     * the second is the variance of the second set of pixels, and the third is the covariance.
+     */
+    private fun getVariances(
+        pixels0: IntArray,
+        pixels1: IntArray,
+        filter: BooleanArray,
+        mean0: Double,
+        mean1: Double,
+        start: Int,
+        stride: Int,
+        windowWidth: Int,
+        windowHeight: Int
+    ): DoubleArray {
+        var var0 = 0.0
+        var var1 = 0.0
+        var varBoth = 0.0
+        var numPixelsCounted = 0
+        for (y in 0 until windowHeight) {
+            for (x in 0 until windowWidth) {
+                if (shouldIgnorePixel(x, y, start, stride, filter)) {
+                    continue
+                }
+                val index: Int = indexFromXAndY(x, y, stride, start)
+                val v0 = getIntensity(pixels0[index]) - mean0
+                val v1 = getIntensity(pixels1[index]) - mean1
+                var0 += v0 * v0
+                var1 += v1 * v1
+                varBoth += v0 * v1
+                numPixelsCounted += 1
+            }
+        }
+        if (numPixelsCounted <= 1) {
+            var0 = 0.0
+            var1 = 0.0
+            varBoth = 0.0
+        } else {
+            var0 /= (numPixelsCounted - 1).toDouble()
+            var1 /= (numPixelsCounted - 1).toDouble()
+            varBoth /= (numPixelsCounted - 1).toDouble()
+        }
+        return doubleArrayOf(var0, var1, varBoth)
+    }
+
+    /**
+     * Gets the intensity of a given pixel in RGB using luminosity formula
+     *
+     * l = 0.21R' + 0.72G' + 0.07B'
+     *
+     * The prime symbols dictate a gamma correction of 1.
+     */
+    private fun getIntensity(pixel: Int): Double {
+        val gamma = 1.0
+        var l = 0.0
+        l += 0.21f * (Color.red(pixel) / 255f.toDouble()).pow(gamma)
+        l += 0.72f * (Color.green(pixel) / 255f.toDouble()).pow(gamma)
+        l += 0.07f * (Color.blue(pixel) / 255f.toDouble()).pow(gamma)
+        return l
+    }
+}
@@ -33,7 +33,9 @@ import org.junit.AfterClass
 import org.junit.BeforeClass
 import org.junit.Rule
 import org.junit.Test
+import org.junit.runner.Description
 import org.junit.runner.RunWith
+import org.junit.runners.model.Statement
 import platform.test.screenshot.matchers.MSSIMMatcher
 import platform.test.screenshot.matchers.PixelPerfectMatcher
 import platform.test.screenshot.proto.ScreenshotResultProto.DiffResult
@@ -234,6 +236,78 @@ class ScreenshotTestRuleTest {
             )
     }
 
+    @Test
+    fun fetchExpectedImage_decodedOnce() {
+        val goldenIdentifier = "round_rect_gray"
+
+        val first = rule.fetchExpectedImage(goldenIdentifier)
+        loadBitmap(goldenIdentifier)
+            .assertAgainstGolden(rule, goldenIdentifier, matcher = PixelPerfectMatcher())
+        val second = rule.fetchExpectedImage(goldenIdentifier)
+
+        assertThat(second).isSameInstanceAs(first)
+        assertThat(second!!.isRecycled).isFalse()
+    }
+
+    @Test
+    fun goldenDigest_dependsOnPixels() {
+        val gray = loadBitmap("round_rect_gray")
+        val green = loadBitmap("round_rect_green")
+
+        assertThat(GoldenDigest.of(gray)).isEqualTo(GoldenDigest.of(loadBitmap("round_rect_gray")))
+        assertThat(GoldenDigest.of(gray)).isNotEqualTo(GoldenDigest.of(green))
+    }
+
+    @Test
+    fun goldenDigest_parse_requiresSameGoldenFile() {
+        val assets = InstrumentationRegistry.getInstrumentation().targetContext.assets
+        val pixelDigest = GoldenDigest.of(loadBitmap("round_rect_gray"))
+        val fileDigest = assets.open("round_rect_gray.png").use { GoldenDigest.ofFile(it) }
+        val content = "$pixelDigest $fileDigest"
+
+        assertThat(assets.open("round_rect_gray.png").use { GoldenDigest.parse(content, it) })
+            .isEqualTo(pixelDigest)
+        assertThat(assets.open("round_rect_green.png").use { GoldenDigest.parse(content, it) })
+            .isNull()
+        assertThat(assets.open("round_rect_gray.png").use { GoldenDigest.parse(pixelDigest, it) })
+            .isNull()
+    }
+
+    @Test
+    fun performDiff_matchingDigest_skipsGolden() {
+        val goldenIdentifier = "round_rect_gray"
+        val actual = loadBitmap(goldenIdentifier)
+        val digestRule =
+            object :
+                ScreenshotTestRule(
+                    CustomGoldenPathManager(InstrumentationRegistry.getInstrumentation().context),
+                    diffEscrowStrategy = fakeDiffEscrow,
+                ) {
+                override fun fetchExpectedDigest(goldenIdentifier: String): String =
+                    GoldenDigest.of(loadBitmap(goldenIdentifier))
+
+                override fun fetchExpectedImage(goldenIdentifier: String): Bitmap? =
+                    throw AssertionError("Golden decoded despite a matching digest")
+            }
+
+        digestRule
+            .apply(
+                object : Statement() {
+                    override fun evaluate() {
+                        actual.assertAgainstGolden(
+                            digestRule,
+                            goldenIdentifier,
+                            matcher = PixelPerfectMatcher(),
+                        )
+                    }
+                },
+                Description.createTestDescription(javaClass, "performDiff_matchingDigest"),
+            )
+            .evaluate()
+
+        assertThat(fakeDiffEscrow.reports).isEmpty()
+    }
+
     @Test
     fun screenshotAsserterHooks_successfulRun() {
         var preRan = false
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package platform.test.screenshot.matchers
+
+import android.graphics.Color
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import platform.test.screenshot.toIntArray
+
+class TiledComparisonTest {
+    // Large enough to be split in several tiles.
+    private val width = 1080
+    private val height = 2400
+
+    @Test
+    fun pixelPerfect_differenceInLastTile_isInDiff() {
+        val expected = IntArray(width * height) { Color.WHITE }
+        val given = expected.copyOf()
+        val index = (height - 1) * width + 7
+        given[index] = Color.BLACK
+
+        val result = PixelPerfectMatcher().compareBitmaps(expected, given, width, height)
+
+        assertThat(result.matches).isFalse()
+        assertThat(result.comparisonStatistics.numberPixelsDifferent).isEqualTo(1)
+        assertThat(result.comparisonStatistics.numberPixelsIdentical)
+            .isEqualTo(width * height - 1)
+        val diff = result.diff!!.toIntArray()
+        assertThat(diff[index]).isEqualTo(Color.MAGENTA)
+        assertThat(diff.count { it != Color.TRANSPARENT }).isEqualTo(1)
+    }
+
+    @Test
+    fun pixelPerfect_withoutDiff_stopsEarly() {
+        val expected = IntArray(width * height) { Color.WHITE }
+        val given = IntArray(width * height) { Color.BLACK }
+
+        val matcher = PixelPerfectMatcher().apply { generateDiff = false }
+        val result = matcher.compareBitmaps(expected, given, width, height)
+
+        assertThat(result.matches).isFalse()
+        assertThat(result.diff).isNull()
+        assertThat(result.comparisonStatistics.numberPixelsDifferent).isLessThan(width * height)
+    }
+
+    @Test
+    fun almostPerfect_withoutDiff_matchesBelowThreshold() {
+        val expected = IntArray(width * height) { Color.WHITE }
+        val given = expected.copyOf()
+        given[0] = Color.BLACK
+        given[given.size - 1] = Color.BLACK
+
+        val matcher = AlmostPerfectMatcher(acceptableThresholdCount = 2)
+        matcher.generateDiff = false
+        val result = matcher.compareBitmaps(expected, given, width, height)
+
+        assertThat(result.matches).isTrue()
+    }
+
+    @Test
+    fun humanEye_lineAcrossTiles_isInDiff() {
+        val expected = IntArray(width * height) { Color.WHITE }
+        val given = expected.copyOf()
+        // A vertical line through every tile.
+        for (y in 0 until height) {
+            given[y * width + 10] = Color.rgb(240, 240, 240)
+        }
+
+        val result = HumanEyeMatcher().compareBitmaps(expected, given, width, height)
+
+        assertThat(result.matches).isFalse()
+        assertThat(result.comparisonStatistics.numberPixelsDifferent).isEqualTo(height)
+    }
+
+    @Test
+    fun mssim_mismatch_diffHasExactDifferences() {
+        val expected = IntArray(width * height) { Color.WHITE }
+        val given = IntArray(width * height) { if (it % 2 == 0) Color.BLACK else Color.WHITE }
+
+        val result = MSSIMMatcher().compareBitmaps(expected, given, width, height)
+
+        assertThat(result.matches).isFalse()
+        val diff = result.diff!!.toIntArray()
+        assertThat(diff.count { it == Color.MAGENTA }).isEqualTo(width * height / 2)
+    }
+}
@@ -26,12 +26,14 @@ import java.io.File
 import org.junit.After
 import org.junit.Test
 import org.junit.runner.RunWith
+import platform.test.screenshot.GoldenDigest
 import platform.test.screenshot.GoldenPathManager
 import platform.test.screenshot.PathConfig
 import platform.test.screenshot.PathElementNoContext
 import platform.test.screenshot.getDeviceOutputDirectory
 import platform.test.screenshot.proto.ScreenshotResultProto.DiffResult
 import platform.test.screenshot.report.OutputFileType.IMAGE_ACTUAL
+import platform.test.screenshot.report.OutputFileType.IMAGE_ACTUAL_DIGEST
 import platform.test.screenshot.report.OutputFileType.IMAGE_DIFF
 import platform.test.screenshot.report.OutputFileType.IMAGE_EXPECTED
 import platform.test.screenshot.report.OutputFileType.RESULT_BIN_PROTO
@@ -63,6 +65,8 @@ class ScubaExportStrategyTest {
 
         assertThat(subject.getPathOnDeviceFor(IMAGE_ACTUAL).name)
             .isEqualTo("test-id_actual_golden-id.png")
+        assertThat(subject.getPathOnDeviceFor(IMAGE_ACTUAL_DIGEST).name)
+            .isEqualTo("test-id_actual_golden-id.png.sha256")
         assertThat(subject.getPathOnDeviceFor(IMAGE_EXPECTED).name)
             .isEqualTo("test-id_expected_golden-id.png")
         assertThat(subject.getPathOnDeviceFor(IMAGE_DIFF).name)
@@ -146,6 +150,17 @@ class ScubaExportStrategyTest {
         assertThat(subject.getPathOnDeviceFor(IMAGE_EXPECTED).exists()).isFalse()
     }
 
+    @Test
+    fun reportResult_writesActualDigest() {
+        val subject = ExportToScubaStrategy(GoldenPathManager(context))
+        val actual = createBitmap(Color.GREEN)
+
+        subject.reportResult(testId, goldenId, status = DiffResult.Status.PASSED, actual = actual)
+
+        assertThat(subject.getPathOnDeviceFor(IMAGE_ACTUAL_DIGEST).readText())
+            .isEqualTo(GoldenDigest.format(actual, subject.getPathOnDeviceFor(IMAGE_ACTUAL)))
+    }
+
     @Test
     fun reportResult_withDiff_writesDiff() {
         val subject = ExportToScubaStrategy(GoldenPathManager(context))
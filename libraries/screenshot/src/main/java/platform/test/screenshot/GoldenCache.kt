@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package platform.test.screenshot
+
+import android.graphics.Bitmap
+import android.util.LruCache
+import java.io.File
+import java.io.InputStream
+import java.nio.ByteBuffer
+import java.security.MessageDigest
+
+/**
+ * Cache of decoded goldens, keyed by asset path, so that tests comparing many variants against the
+ * same golden only decode it once.
+ *
+ * The cache is bounded by the memory used by the bitmaps. Cached bitmaps are shared between
+ * assertions and must not be modified or recycled by their users, see [isCached].
+ */
+internal class GoldenCache(maxSizeBytes: Int) {
+    private val bitmaps =
+        object : LruCache<String, Bitmap>(maxSizeBytes) {
+            override fun sizeOf(key: String, value: Bitmap): Int = value.allocationByteCount
+        }
+
+    /** Digests of the goldens, or an empty string for goldens without digest. */
+    private val digests = HashMap<String, String>()
+
+    @Synchronized fun getBitmap(path: String): Bitmap? = bitmaps.get(path)
+
+    @Synchronized
+    fun putBitmap(path: String, bitmap: Bitmap) {
+        bitmaps.put(path, bitmap)
+    }
+
+    /** Whether [bitmap] is the one cached for [path], and so must not be recycled. */
+    @Synchronized fun isCached(path: String, bitmap: Bitmap): Boolean = bitmaps.get(path) === bitmap
+
+    /**
+     * Returns the digest of the golden at [path], loading it with [load] the first time. Returns
+     * null if the golden has no digest.
+     */
+    @Synchronized
+    fun getDigest(path: String, load: () -> String?): String? =
+        digests.getOrPut(path) { load() ?: "" }.ifEmpty { null }
+
+    companion object {
+        /** Default cache size: an eighth of the heap, like the usual Android bitmap caches. */
+        val DEFAULT_MAX_SIZE_BYTES: Int =
+            (Runtime.getRuntime().maxMemory() / 8).coerceAtMost(Int.MAX_VALUE.toLong()).toInt()
+    }
+}
+
+/**
+ * Content digest of screenshots, used to accept an image identical to its golden without decoding
+ * nor comparing the golden.
+ *
+ * The digest of a golden is stored next to it, as a "<golden>.sha256" asset written by [format]. It
+ * holds [of] the golden bitmap, computed on the decoded pixels so that it doesn't depend on how the
+ * golden was encoded, followed by [ofFile] of the golden PNG it was computed for. The pixel digest
+ * is only trusted while the golden file is unchanged, see [parse], so that a golden edited or
+ * replaced without its digest is compared as usual. The export strategies write the digest of each
+ * actual image next to it, and the update_goldens scripts copy it along with the new golden.
+ */
+object GoldenDigest {
+    /** Extension appended to the golden asset path to get its digest. */
+    const val EXTENSION = ".sha256"
+
+    /** Returns the hex SHA-256 of the size and ARGB pixels of [bitmap]. */
+    @JvmStatic
+    fun of(bitmap: Bitmap): String {
+        val digest = MessageDigest.getInstance("SHA-256")
+        digest.update(ByteBuffer.allocate(8).putInt(bitmap.width).putInt(bitmap.height).array())
+        val row = IntArray(bitmap.width)
+        val rowBytes = ByteBuffer.allocate(bitmap.width * 4)
+        for (y in 0 until bitmap.height) {
+            bitmap.getPixels(row, 0, bitmap.width, 0, y, bitmap.width, 1)
+            rowBytes.clear()
+            rowBytes.asIntBuffer().put(row)
+            digest.update(rowBytes.array())
+        }
+        return digest.digest().toHex()
+    }
+
+    /** Returns the hex SHA-256 of the bytes read from [input]. */
+    @JvmStatic
+    fun ofFile(input: InputStream): String {
+        val digest = MessageDigest.getInstance("SHA-256")
+        val buffer = ByteArray(DEFAULT_BUFFER_SIZE)
+        while (true) {
+            val read = input.read(buffer)
+            if (read < 0) break
+            digest.update(buffer, 0, read)
+        }
+        return digest.digest().toHex()
+    }
+
+    /** Returns the content of the digest file for [bitmap], which was written to [file]. */
+    @JvmStatic
+    fun format(bitmap: Bitmap, file: File): String =
+        "${of(bitmap)} ${file.inputStream().use { ofFile(it) }}"
+
+    /**
+     * Returns the pixel digest held by the digest file [content], or null if it wasn't computed
+     * for the [golden] file as it is now.
+     */
+    @JvmStatic
+    fun parse(content: String, golden: InputStream): String? {
+        val parts = content.trim().split(' ')
+        if (parts.size != 2 || !parts[1].equals(ofFile(golden), ignoreCase = true)) {
+            return null
+        }
+        return parts[0]
+    }
+
+    private fun ByteArray.toHex(): String = joinToString("") { "%02x".format(it) }
+}
@@ -22,13 +22,16 @@ import android.graphics.Bitmap
 import android.graphics.BitmapFactory
 import android.graphics.Color
 import android.graphics.Rect
+import android.os.SystemClock
 import android.platform.uiautomatorhelpers.DeviceHelpers.shell
 import android.provider.Settings.System
+import android.util.Log
 import androidx.annotation.VisibleForTesting
 import androidx.test.platform.app.InstrumentationRegistry
 import androidx.test.runner.screenshot.Screenshot
 import com.android.internal.app.SimpleIconFactory
 import java.io.FileNotFoundException
+import java.io.InputStream
 import org.junit.rules.TestRule
 import org.junit.runner.Description
 import org.junit.runners.model.Statement
@@ -78,7 +81,24 @@ internal constructor(
     private lateinit var testIdentifier: String
 
     companion object {
+        private const val TAG = "ScreenshotTestRule"
+
         private val parityStatsCollector = ParityStatsCollector()
+
+        /** Instrumentation argument overriding the size of the golden cache, in bytes. */
+        private const val GOLDEN_CACHE_SIZE_BYTES_ARG = "golden-cache-size-bytes"
+
+        /**
+         * Decoded goldens, shared by all the rules of the process so that parameterized tests
+         * asserting against the same golden only decode it once.
+         */
+        private val goldenCache by lazy {
+            GoldenCache(
+                InstrumentationRegistry.getArguments()
+                    .getString(GOLDEN_CACHE_SIZE_BYTES_ARG)
+                    ?.toIntOrNull() ?: GoldenCache.DEFAULT_MAX_SIZE_BYTES
+            )
+        }
     }
 
     override fun apply(base: Statement, description: Description): Statement =
@@ -104,22 +124,91 @@ internal constructor(
     open fun getTestIdentifier(description: Description): String =
         "${description.className}_${description.methodName}"
 
+    /**
+     * Returns the decoded golden, or null if it doesn't exist.
+     *
+     * The default implementation caches decoded goldens: the returned bitmap may be shared with
+     * other assertions and must not be modified.
+     */
     open fun fetchExpectedImage(goldenIdentifier: String): Bitmap? {
+        val goldenPath = goldenPathManager.goldenImageIdentifierResolver(goldenIdentifier)
+        goldenCache.getBitmap(goldenPath)?.let {
+            parityStatsCollector.collectGoldenCacheHit()
+            return it
+        }
+        val start = SystemClock.elapsedRealtime()
+        val expected = readGoldenAsset(goldenPath) { BitmapFactory.decodeStream(it) } ?: return null
+        parityStatsCollector.collectGoldenDecode(SystemClock.elapsedRealtime() - start)
+        goldenCache.putBitmap(goldenPath, expected)
+        return expected
+    }
+
+    /**
+     * Returns the pixel digest stored next to the golden, see [GoldenDigest], or null if there is
+     * none or if it wasn't computed for the current golden file.
+     */
+    open fun fetchExpectedDigest(goldenIdentifier: String): String? {
+        val goldenPath = goldenPathManager.goldenImageIdentifierResolver(goldenIdentifier)
+        val digestPath = goldenPath + GoldenDigest.EXTENSION
+        return goldenCache.getDigest(digestPath) {
+            val content =
+                readGoldenAsset(digestPath) { it.bufferedReader().readText() }
+                    ?: return@getDigest null
+            val digest = readGoldenAsset(goldenPath) { GoldenDigest.parse(content, it) }
+            if (digest == null) {
+                Log.w(TAG, "Ignoring $digestPath, it wasn't computed for the current golden.")
+            }
+            digest
+        }
+    }
+
+    /**
+     * Whether [actual] is identical to the golden according to its digest. Always false for
+     * goldens without digest.
+     */
+    private fun matchesGoldenDigest(actual: Bitmap, goldenIdentifier: String): Boolean {
+        val expectedDigest = fetchExpectedDigest(goldenIdentifier) ?: return false
+        return expectedDigest.equals(GoldenDigest.of(actual), ignoreCase = true)
+    }
+
+    /** Reads the golden asset at [path] from the first context that has it. */
+    private fun <T> readGoldenAsset(path: String, read: (InputStream) -> T?): T? {
         val instrument = InstrumentationRegistry.getInstrumentation()
-        return listOf(instrument.targetContext.applicationContext, instrument.context)
-            .map { context ->
-                try {
-                    context.assets
-                        .open(goldenPathManager.goldenImageIdentifierResolver(goldenIdentifier))
-                        .use {
-                            return@use BitmapFactory.decodeStream(it)
-                        }
-                } catch (e: FileNotFoundException) {
-                    return@map null
+        for (context in listOf(instrument.targetContext.applicationContext, instrument.context)) {
+            try {
+                context.assets.open(path).use(read)?.let {
+                    return it
                 }
+            } catch (e: FileNotFoundException) {
+                // Try the next context.
             }
-            .filterNotNull()
-            .firstOrNull()
+        }
+        return null
+    }
+
+    /** Recycles [expected], unless it is owned by the golden cache. */
+    private fun releaseExpectedImage(expected: Bitmap, goldenIdentifier: String) {
+        val goldenPath = goldenPathManager.goldenImageIdentifierResolver(goldenIdentifier)
+        if (!goldenCache.isCached(goldenPath, expected)) {
+            expected.recycle()
+        }
+    }
+
+    private fun collectIdenticalStats(actual: Bitmap) {
+        if (doesCollectScreenshotParityStats) {
+            val stats =
+                ScreenshotResultProto.DiffResult.ComparisonStatistics.newBuilder()
+                    .setNumberPixelsCompared(actual.width * actual.height)
+                    .setNumberPixelsIdentical(actual.width * actual.height)
+                    .setNumberPixelsDifferent(0)
+                    .setNumberPixelsIgnored(0)
+                    .build()
+            parityStatsCollector.collectTestStats(
+                testIdentifier,
+                MatchResult(matches = true, diff = null, comparisonStatistics = stats),
+            )
+            parityStatsCollector.report()
+        }
     }
 
     /**
@@ -163,6 +252,9 @@ internal constructor(
      * tests to match the same golden). The name must not contain extension. You should also avoid
      * adding strings like "golden", "image" and instead describe what is the golder referring to.
      *
+     * If a digest of the golden is stored next to it (see [GoldenDigest]) and matches [actual], the
+     * golden is neither decoded nor compared.
+     *
      * @param actual The bitmap captured during the test.
      * @param goldenIdentifier Name of the golden. Allowed characters: 'A-Za-z0-9_-'
      * @param matcher The algorithm to be used to perform the matching.
@@ -187,6 +279,12 @@ internal constructor(
             )
         }
 
+        if (matchesGoldenDigest(actual, goldenIdentifier)) {
+            parityStatsCollector.collectGoldenDigestMatch()
+            collectIdenticalStats(actual)
+            return
+        }
+
         val expected = fetchExpectedImage(goldenIdentifier)
         if (expected == null) {
             diffEscrowStrategy.reportResult(
@@ -203,21 +301,8 @@ internal constructor(
         }
 
         if (expected.sameAs(actual)) {
-            if (doesCollectScreenshotParityStats) {
-                val stats =
-                    ScreenshotResultProto.DiffResult.ComparisonStatistics.newBuilder()
-                        .setNumberPixelsCompared(actual.width * actual.height)
-                        .setNumberPixelsIdentical(actual.width * actual.height)
-                        .setNumberPixelsDifferent(0)
-                        .setNumberPixelsIgnored(0)
-                        .build()
-                parityStatsCollector.collectTestStats(
-                    testIdentifier,
-                    MatchResult(matches = true, diff = null, comparisonStatistics = stats),
-                )
-                parityStatsCollector.report()
-            }
-            expected.recycle()
+            collectIdenticalStats(actual)
+            releaseExpectedImage(expected, goldenIdentifier)
             return
         }
 
@@ -247,7 +332,7 @@ internal constructor(
 
             val expectedWidth = expected.width
             val expectedHeight = expected.height
-            expected.recycle()
+            releaseExpectedImage(expected, goldenIdentifier)
 
             throw AssertionError(
                 "Sizes are different! Expected: [$expectedWidth, $expectedHeight], Actual: [${
@@ -289,15 +374,17 @@ internal constructor(
                 diff = comparisonResult.diff,
             )
 
-            expectedWithHighlight.recycle()
-            expected.recycle()
+            if (expectedWithHighlight !== expected) {
+                expectedWithHighlight.recycle()
+            }
+            releaseExpectedImage(expected, goldenIdentifier)
 
             throw AssertionError(
                 "Image mismatch! Comparison stats: '${comparisonResult.comparisonStatistics}'"
             )
         }
 
-        expected.recycle()
+        releaseExpectedImage(expected, goldenIdentifier)
     }
 
     override fun createScreenshotAsserter(config: ScreenshotAsserterConfig): ScreenshotAsserter {
@@ -44,28 +44,29 @@ private constructor(
     ): MatchResult {
         check(expected.size == given.size) { "Size of two bitmaps does not match" }
 
-        val filter = getFilter(width, height, regions)
-        var different = 0
-        var same = 0
-        var ignored = 0
-
-        val diffArray = lazy { IntArray(width * height) { Color.TRANSPARENT } }
-
-        expected.indices.forEach { index ->
-            when {
-                !filter[index] -> ignored++
-                areSame(expected[index], given[index]) -> same++
-                else -> diffArray.value[index] = Color.MAGENTA.also { different++ }
-            }
-        }
-
         val threshold =
             if (acceptableThresholdCount >= 0) acceptableThresholdCount
             else (acceptableThreshold * width * height).toInt()
+        val filter = getFilter(width, height, regions)
+        val comparison = TiledComparison(width, height, failAbove = threshold, generateDiff)
+        val tiles =
+            comparison.run { tile ->
+                tile.forEachRow { _, rowStart ->
+                    for (index in rowStart until rowStart + width) {
+                        when {
+                            !filter[index] -> tile.ignored++
+                            areSame(expected[index], given[index]) -> tile.same++
+                            else -> tile.markDifferent(index, Color.MAGENTA)
+                        }
+                    }
+                }
+            }
+        val same = tiles.sumOf { it.same }
+        var different = tiles.sumOf { it.different }
+        var ignored = tiles.sumOf { it.ignored }
+
         val matches = different <= threshold
-        val diffBmp =
-            if (different <= 0) null
-            else Bitmap.createBitmap(diffArray.value, width, height, Bitmap.Config.ARGB_8888)
+        val diffBmp = comparison.createDiffBitmap()
         if (matches) {
             ignored += different
             different = 0
@@ -26,6 +26,14 @@ import platform.test.screenshot.proto.ScreenshotResultProto.DiffResult.Compariso
 
 /** The abstract class to implement to provide custom bitmap matchers. */
 abstract class BitmapMatcher {
+    /**
+     * Whether [MatchResult.diff] is generated for mismatching bitmaps.
+     *
+     * When false, matchers may stop comparing as soon as the bitmaps are known not to match, in
+     * which case [MatchResult.comparisonStatistics] only covers the pixels compared until then.
+     */
+    var generateDiff: Boolean = true
+
     /**
      * Compares the given bitmaps and returns result of the operation.
      *
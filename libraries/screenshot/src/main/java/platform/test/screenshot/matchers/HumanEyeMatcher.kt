@@ -1,6 +1,5 @@
 package platform.test.screenshot.matchers
 
-import android.graphics.Bitmap
 import android.graphics.Color
 import android.graphics.Rect
 import kotlin.math.max
@@ -35,44 +34,49 @@ class HumanEyeMatcher(
         }
 
         val filter = getFilter(width, height, regions)
-        var ignored = 0
-
-        // Prepare colorDiffArray
-        val colorDiffSqArray =
-            IntArray(width * height) { index ->
-                if (filter[index]) {
-                    if (accountForTransparency) {
-                        colorDiffSqWithTransparency(expected[index], given[index])
-                    } else {
-                        colorDiffSq(expected[index], given[index])
-                    }
-                } else {
-                    ignored++
-                    IGNORED_COLOR_DIFF
-                }
-            }
+        val comparison = TiledComparison(width, height, failAbove = 0, generateDiff)
 
-        fun isIndexSameForLargeArea(index: Int) = isSameForLargeArea(colorDiffSqArray[index])
+        fun colorDiffSqAt(index: Int) =
+            if (accountForTransparency) {
+                colorDiffSqWithTransparency(expected[index], given[index])
+            } else {
+                colorDiffSq(expected[index], given[index])
+            }
 
         if (!accountForGrouping) {
-            val diffArray = lazy { IntArray(width * height) { Color.TRANSPARENT } }
-            var different = 0
-            expected.indices.forEach { index ->
-                if (!isIndexSameForLargeArea(index)) {
-                    diffArray.value[index] = Color.MAGENTA
-                    different++
+            val tiles =
+                comparison.run { tile ->
+                    tile.forEachRow { _, rowStart ->
+                        for (index in rowStart until rowStart + width) {
+                            when {
+                                !filter[index] -> tile.ignored++
+                                isSameForLargeArea(colorDiffSqAt(index)) -> tile.same++
+                                else -> tile.markDifferent(index, Color.MAGENTA)
+                            }
+                        }
+                    }
                 }
-            }
-            return createMatchResult(
-                width,
-                height,
-                width * height - ignored - different,
-                different,
-                ignored,
-                diffArray,
-            )
+            return createMatchResult(width, height, comparison, tiles.sumOf { it.ignored }, tiles)
         }
 
+        // Prepare colorDiffArray. Neighbours of a pixel may be in another tile, so it needs to be
+        // complete before any pixel can be checked.
+        val colorDiffSqArray = IntArray(width * height)
+        val ignored =
+            comparison
+                .run { tile ->
+                    for (index in tile.startRow * width until tile.endRow * width) {
+                        colorDiffSqArray[index] =
+                            if (filter[index]) {
+                                colorDiffSqAt(index)
+                            } else {
+                                tile.ignored++
+                                IGNORED_COLOR_DIFF
+                            }
+                    }
+                }
+                .sumOf { it.ignored }
+
         fun getEasiestThresholdFailed(x: Int, y: Int): Int? {
             val colorDiff = colorDiffSqArray[x + width * y]
             return when {
@@ -85,44 +89,50 @@ class HumanEyeMatcher(
             }
         }
 
-        var different = 0
-        val diffArray = lazy { IntArray(colorDiffSqArray.size) { Color.TRANSPARENT } }
-
-        colorDiffSqArray.indices.forEach { index ->
-            // Also covers the ignored case
-            if (isIndexSameForLargeArea(index)) return@forEach
-
-            val x = index % width
-            val y = index / width
-
-            val currThreshold = getEasiestThresholdFailed(x, y)!!
-            // null = ignored or out of bounds of image
-            val upThreshold = if (y > 0) getEasiestThresholdFailed(x, y - 1) else null
-            val downThreshold = if (y < height - 1) getEasiestThresholdFailed(x, y + 1) else null
-            val leftThreshold = if (x > 0) getEasiestThresholdFailed(x - 1, y) else null
-            val rightThreshold = if (x < width - 1) getEasiestThresholdFailed(x + 1, y) else null
-
-            // Pixels with lower diff thresholds are not counted as neighbouring diffs
-            var neighbouringDiffs = 4
-            if (upThreshold != null && currThreshold > upThreshold) neighbouringDiffs--
-            if (downThreshold != null && currThreshold > downThreshold) neighbouringDiffs--
-            if (leftThreshold != null && currThreshold > leftThreshold) neighbouringDiffs--
-            if (rightThreshold != null && currThreshold > rightThreshold) neighbouringDiffs--
-
-            if (!isSame(colorDiffSqArray[index], neighbouringDiffs)) {
-                diffArray.value[index] = Color.MAGENTA
-                different++
+        val tiles =
+            comparison.run { tile ->
+                tile.forEachRow { y, rowStart ->
+                    for (x in 0 until width) {
+                        val index = rowStart + x
+                        val colorDiff = colorDiffSqArray[index]
+                        if (colorDiff == IGNORED_COLOR_DIFF) continue
+                        if (isSameForLargeArea(colorDiff)) {
+                            tile.same++
+                            continue
+                        }
+
+                        val currThreshold = getEasiestThresholdFailed(x, y)!!
+                        // null = ignored or out of bounds of image
+                        val upThreshold = if (y > 0) getEasiestThresholdFailed(x, y - 1) else null
+                        val downThreshold =
+                            if (y < height - 1) getEasiestThresholdFailed(x, y + 1) else null
+                        val leftThreshold = if (x > 0) getEasiestThresholdFailed(x - 1, y) else null
+                        val rightThreshold =
+                            if (x < width - 1) getEasiestThresholdFailed(x + 1, y) else null
+
+                        // Pixels with lower diff thresholds are not counted as neighbouring diffs
+                        var neighbouringDiffs = 4
+                        if (upThreshold != null && currThreshold > upThreshold) neighbouringDiffs--
+                        if (downThreshold != null && currThreshold > downThreshold) {
+                            neighbouringDiffs--
+                        }
+                        if (leftThreshold != null && currThreshold > leftThreshold) {
+                            neighbouringDiffs--
+                        }
+                        if (rightThreshold != null && currThreshold > rightThreshold) {
+                            neighbouringDiffs--
+                        }
+
+                        if (isSame(colorDiff, neighbouringDiffs)) {
+                            tile.same++
+                        } else {
+                            tile.markDifferent(index, Color.MAGENTA)
+                        }
+                    }
+                }
             }
-        }
 
-        return createMatchResult(
-            width,
-            height,
-            width * height - ignored - different,
-            different,
-            ignored,
-            diffArray,
-        )
+        return createMatchResult(width, height, comparison, ignored, tiles)
     }
 
     private fun colorDiffSqWithTransparency(referenceColor: Int, testColor: Int): Int {
@@ -194,11 +204,12 @@ class HumanEyeMatcher(
     private fun createMatchResult(
         width: Int,
         height: Int,
-        samePixels: Int,
-        differentPixels: Int,
+        comparison: TiledComparison,
         ignoredPixels: Int,
-        diffBitmapArray: Lazy<IntArray>,
+        tiles: List<TiledComparison.Tile>,
     ): MatchResult {
+        val samePixels = tiles.sumOf { it.same }
+        val differentPixels = tiles.sumOf { it.different }
         val stats =
             ScreenshotResultProto.DiffResult.ComparisonStatistics.newBuilder()
                 .setNumberPixelsCompared(width * height)
@@ -207,13 +218,11 @@ class HumanEyeMatcher(
                 .setNumberPixelsIgnored(ignoredPixels)
                 .build()
 
-        return if (differentPixels > 0) {
-            val diff =
-                Bitmap.createBitmap(diffBitmapArray.value, width, height, Bitmap.Config.ARGB_8888)
-            MatchResult(matches = false, diff = diff, comparisonStatistics = stats)
-        } else {
-            MatchResult(matches = true, diff = null, comparisonStatistics = stats)
-        }
+        return MatchResult(
+            matches = differentPixels == 0,
+            diff = comparison.createDiffBitmap(),
+            comparisonStatistics = stats
+        )
     }
 
     private companion object {
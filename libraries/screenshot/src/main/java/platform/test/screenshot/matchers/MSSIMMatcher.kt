@@ -49,7 +49,16 @@ class MSSIMMatcher(@FloatRange(from = 0.0, to = 1.0) private val threshold: Doub
         regions: List<Rect>
     ): MatchResult {
         val filter = getFilter(width, height, regions)
-        val calSSIMResult = calculateSSIM(expected, given, width, height, filter)
+        // Exact pixel differences are marked during the SSIM pass, for the diff of a mismatch.
+        val comparison =
+            TiledComparison(
+                width,
+                height,
+                failAbove = -1,
+                generateDiff,
+                rowAlignment = WINDOW_SIZE,
+            )
+        val calSSIMResult = calculateSSIM(expected, given, width, height, filter, comparison)
 
         val stats =
             ScreenshotResultProto.DiffResult.ComparisonStatistics.newBuilder()
@@ -67,9 +76,11 @@ class MSSIMMatcher(@FloatRange(from = 0.0, to = 1.0) private val threshold: Doub
             return MatchResult(matches = true, diff = null, comparisonStatistics = stats)
         }
 
-        // Create diff
-        val result = PixelPerfectMatcher().compareBitmaps(expected, given, width, height, regions)
-        return MatchResult(matches = false, diff = result.diff, comparisonStatistics = stats)
+        return MatchResult(
+            matches = false,
+            diff = comparison.createDiffBitmap(),
+            comparisonStatistics = stats
+        )
     }
 
     internal fun calculateSSIM(
@@ -79,7 +90,49 @@ class MSSIMMatcher(@FloatRange(from = 0.0, to = 1.0) private val threshold: Doub
         height: Int,
         filter: BooleanArray
     ): SSIMResult {
-        return calculateSSIM(ideal, given, 0, width, width, height, filter)
+        val comparison =
+            TiledComparison(
+                width,
+                height,
+                failAbove = -1,
+                generateDiff = false,
+                rowAlignment = WINDOW_SIZE,
+            )
+        return calculateSSIM(ideal, given, width, height, filter, comparison)
+    }
+
+    private fun calculateSSIM(
+        ideal: IntArray,
+        given: IntArray,
+        width: Int,
+        height: Int,
+        filter: BooleanArray,
+        comparison: TiledComparison
+    ): SSIMResult {
+        // Tiles are made of whole windows, so each one can be computed independently.
+        val tiles =
+            comparison.run { tile ->
+                calculateSSIM(
+                    ideal,
+                    given,
+                    tile.startRow * width,
+                    width,
+                    width,
+                    tile.endRow - tile.startRow,
+                    filter,
+                    tile
+                )
+            }
+        val SSIMTotal = tiles.sumOf { it.score }
+        val totalNumPixelsCompared = tiles.sumOf { it.scored }.toDouble()
+
+        val averageSSIM = SSIMTotal / totalNumPixelsCompared
+        return SSIMResult(
+            SSIM = averageSSIM,
+            numPixelsSimilar = (averageSSIM * totalNumPixelsCompared + 0.5).toInt(),
+            numPixelsIgnored = tiles.sumOf { it.ignored },
+            numPixelsCompared = (totalNumPixelsCompared + 0.5).toInt()
+        )
     }
 
     private fun calculateSSIM(
@@ -89,12 +142,10 @@ class MSSIMMatcher(@FloatRange(from = 0.0, to = 1.0) private val threshold: Doub
         stride: Int,
         width: Int,
         height: Int,
-        filter: BooleanArray
-    ): SSIMResult {
-        var SSIMTotal = 0.0
-        var totalNumPixelsCompared = 0.0
+        filter: BooleanArray,
+        tile: TiledComparison.Tile
+    ) {
         var currentWindowY = 0
-        var ignored = 0
 
         while (currentWindowY < height) {
             val windowHeight = computeWindowSize(currentWindowY, height)
@@ -107,10 +158,11 @@ class MSSIMMatcher(@FloatRange(from = 0.0, to = 1.0) private val threshold: Doub
                         shouldIgnoreWindow(given, start, stride, windowWidth, windowHeight, filter)
                 ) {
                     currentWindowX += WINDOW_SIZE
-                    ignored += windowWidth * windowHeight
+                    tile.ignored += windowWidth * windowHeight
                     continue
                 }
-                val means = getMeans(ideal, given, filter, start, stride, windowWidth, windowHeight)
+                val means =
+                    getMeans(ideal, given, filter, start, stride, windowWidth, windowHeight, tile)
                 val meanX = means[0]
                 val meanY = means[1]
                 val variances =
@@ -131,20 +183,12 @@ class MSSIMMatcher(@FloatRange(from = 0.0, to = 1.0) private val threshold: Doub
                 val SSIM = SSIM(meanX, meanY, varX, varY, stdBoth)
                 val numPixelsCompared =
                     numPixelsToCompareInWindow(start, stride, windowWidth, windowHeight, filter)
-                SSIMTotal += SSIM * numPixelsCompared
-                totalNumPixelsCompared += numPixelsCompared.toDouble()
+                tile.score += SSIM * numPixelsCompared
+                tile.scored += numPixelsCompared
                 currentWindowX += WINDOW_SIZE
             }
             currentWindowY += WINDOW_SIZE
         }
-
-        val averageSSIM = SSIMTotal / totalNumPixelsCompared
-        return SSIMResult(
-            SSIM = averageSSIM,
-            numPixelsSimilar = (averageSSIM * totalNumPixelsCompared + 0.5).toInt(),
-            numPixelsIgnored = ignored,
-            numPixelsCompared = (totalNumPixelsCompared + 0.5).toInt()
-        )
     }
 
     /**
@@ -234,6 +278,8 @@ class MSSIMMatcher(@FloatRange(from = 0.0, to = 1.0) private val threshold: Doub
      * This method will find the mean of a window in both sets of pixels. The return is an array
      * where the first double is the mean of the first set and the second double is the mean of the
      * second set.
+     *
+     * Pixels that are not exactly the same are marked as different in [tile] along the way.
      */
     private fun getMeans(
         pixels0: IntArray,
@@ -242,7 +288,8 @@ class MSSIMMatcher(@FloatRange(from = 0.0, to = 1.0) private val threshold: Doub
         start: Int,
         stride: Int,
         windowWidth: Int,
-        windowHeight: Int
+        windowHeight: Int,
+        tile: TiledComparison.Tile
     ): DoubleArray {
         var avg0 = 0.0
         var avg1 = 0.0
@@ -253,6 +300,9 @@ class MSSIMMatcher(@FloatRange(from = 0.0, to = 1.0) private val threshold: Doub
                     continue
                 }
                 val index: Int = indexFromXAndY(x, y, stride, start)
+                if (pixels0[index] != pixels1[index]) {
+                    tile.markDifferent(index, Color.MAGENTA)
+                }
                 avg0 += getIntensity(pixels0[index])
                 avg1 += getIntensity(pixels1[index])
                 numPixelsCounted += 1.0
@@ -16,7 +16,6 @@
 
 package platform.test.screenshot.matchers
 
-import android.graphics.Bitmap
 import android.graphics.Color
 import android.graphics.Rect
 import kotlin.collections.List
@@ -35,19 +34,22 @@ class PixelPerfectMatcher : BitmapMatcher() {
         check(expected.size == given.size)
 
         val filter = getFilter(width, height, regions)
-        var different = 0
-        var same = 0
-        var ignored = 0
-
-        val diffArray = lazy { IntArray(width * height) { Color.TRANSPARENT } }
-
-        expected.indices.forEach { index ->
-            when {
-                !filter[index] -> ignored++
-                expected[index] == given[index] -> same++
-                else -> diffArray.value[index] = Color.MAGENTA.also { different++ }
+        val comparison = TiledComparison(width, height, failAbove = 0, generateDiff)
+        val tiles =
+            comparison.run { tile ->
+                tile.forEachRow { _, rowStart ->
+                    for (index in rowStart until rowStart + width) {
+                        when {
+                            !filter[index] -> tile.ignored++
+                            expected[index] == given[index] -> tile.same++
+                            else -> tile.markDifferent(index, Color.MAGENTA)
+                        }
+                    }
+                }
             }
-        }
+        val same = tiles.sumOf { it.same }
+        val different = tiles.sumOf { it.different }
+        val ignored = tiles.sumOf { it.ignored }
 
         val stats =
             ScreenshotResultProto.DiffResult.ComparisonStatistics.newBuilder()
@@ -57,11 +59,10 @@ class PixelPerfectMatcher : BitmapMatcher() {
                 .setNumberPixelsIgnored(ignored)
                 .build()
 
-        return if (different > 0) {
-            val diff = Bitmap.createBitmap(diffArray.value, width, height, Bitmap.Config.ARGB_8888)
-            MatchResult(matches = false, diff = diff, comparisonStatistics = stats)
-        } else {
-            MatchResult(matches = true, diff = null, comparisonStatistics = stats)
-        }
+        return MatchResult(
+            matches = different == 0,
+            diff = comparison.createDiffBitmap(),
+            comparisonStatistics = stats
+        )
     }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package platform.test.screenshot.matchers
+
+import android.graphics.Bitmap
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * Splits a bitmap comparison into tiles, bands of full rows, that are compared concurrently.
+ *
+ * Each tile counts its own pixels and marks its differences directly in the shared diff array, so
+ * statistics and diff come out of the same pass. Tiles never overlap, so no locking is needed.
+ *
+ * When no diff is requested, the comparison stops as soon as more than [failAbove] pixels differ,
+ * since the result can't turn into a match any more. The statistics then only cover the pixels
+ * compared up to that point.
+ *
+ * @param failAbove Number of differing pixels above which the comparison fails, or a negative value
+ *   to always compare every pixel.
+ * @param generateDiff Whether the diff array is kept. Early exit is disabled when it is.
+ * @param rowAlignment Tile heights are a multiple of this, so that windows spanning several rows
+ *   are never split between two tiles.
+ */
+internal class TiledComparison(
+    val width: Int,
+    val height: Int,
+    private val failAbove: Int,
+    private val generateDiff: Boolean,
+    private val rowAlignment: Int = 1,
+) {
+    private val differentCount = AtomicInteger()
+
+    /** Diff array, only allocated on the first difference. Transparent where pixels match. */
+    private val diffArray = lazy { IntArray(width * height) }
+
+    /** Whether the result is already known to be a failure, so remaining pixels can be skipped. */
+    val isFailed: Boolean
+        get() = !generateDiff && failAbove >= 0 && differentCount.get() > failAbove
+
+    /** Whether at least one pixel was marked different. */
+    val hasDiff: Boolean
+        get() = diffArray.isInitialized()
+
+    /** Runs [compareTile] on every tile, in parallel when there is more than one. */
+    fun run(compareTile: (Tile) -> Unit): List<Tile> {
+        val tiles = split()
+        if (tiles.size == 1) {
+            compareTile(tiles[0])
+        } else {
+            val futures = pool.invokeAll(tiles.map { tile -> Callable { compareTile(tile) } })
+            try {
+                futures.forEach { it.get() }
+            } catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+        }
+        return tiles
+    }
+
+    /** Returns the diff as a bitmap, or null if no pixel was marked different. */
+    fun createDiffBitmap(): Bitmap? =
+        if (generateDiff && hasDiff) {
+            Bitmap.createBitmap(diffArray.value, width, height, Bitmap.Config.ARGB_8888)
+        } else {
+            null
+        }
+
+    private fun split(): List<Tile> {
+        val parallelism = pool.parallelism
+        // A few tiles per thread, so that threads finishing early can pick up more work.
+        var tileHeight = max(MIN_TILE_PIXELS / max(width, 1), height / (parallelism * 4) + 1)
+        tileHeight = (tileHeight + rowAlignment - 1) / rowAlignment * rowAlignment
+        val tiles = mutableListOf<Tile>()
+        var startRow = 0
+        do {
+            val endRow = min(height, startRow + tileHeight)
+            tiles.add(Tile(startRow, endRow))
+            startRow = endRow
+        } while (startRow < height)
+        return tiles
+    }
+
+    /**
+     * A band of rows [startRow, endRow) of the compared images.
+     *
+     * Only used by the thread comparing it, except for the differences which are published to the
+     * comparison row by row.
+     */
+    inner class Tile(val startRow: Int, val endRow: Int) {
+        var same = 0
+        var different = 0
+        var ignored = 0
+
+        /** Sum of matcher specific scores of the pixels of the tile, e.g. their similarity. */
+        var score = 0.0
+        /** Number of pixels that contributed to [score]. */
+        var scored = 0
+
+        /**
+         * Calls [compareRow] with the index of the first pixel of each row of the tile, stopping
+         * early if the comparison is already known to fail.
+         */
+        inline fun forEachRow(compareRow: (y: Int, rowStart: Int) -> Unit) {
+            for (y in startRow until endRow) {
+                if (isFailed) return
+                val differentBefore = different
+                compareRow(y, y * width)
+                publishDifferences(different - differentBefore)
+            }
+        }
+
+        /** Counts the pixel at [index] as different and marks it in the diff. */
+        fun markDifferent(index: Int, color: Int) {
+            different++
+            if (generateDiff) {
+                diffArray.value[index] = color
+            }
+        }
+
+        @PublishedApi
+        internal fun publishDifferences(count: Int) {
+            if (count > 0) {
+                differentCount.addAndGet(count)
+            }
+        }
+    }
+
+    companion object {
+        /** Tiles smaller than this aren't worth the scheduling overhead. */
+        private const val MIN_TILE_PIXELS = 64 * 1024
+
+        private val pool: ForkJoinPool
+            get() = ForkJoinPool.commonPool()
+    }
+}
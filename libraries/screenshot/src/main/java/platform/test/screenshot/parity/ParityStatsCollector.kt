@@ -16,6 +16,7 @@
 
 package platform.test.screenshot.parity
 
+import android.util.Log
 import platform.test.screenshot.matchers.MatchResult
 import platform.test.screenshot.proto.ScreenshotResultProto.DiffResult.ComparisonStatistics
 
@@ -30,13 +31,37 @@ import platform.test.screenshot.proto.ScreenshotResultProto.DiffResult.Compariso
  * - X2 (Y2 percent of) test images are at least 99% the same as golden images.
  * - X3 (Y3 percent of) test images are 95% - 99% the same as golden images.
  * - ...
+ *
+ * It also reports how goldens were obtained: from the decoded golden cache, by decoding them (and
+ * how long that took), or not at all when the image digest matched the golden's.
  */
 public class ParityStatsCollector {
     private val testStats : HashMap<String, MutableList<String>>
         = HashMap<String, MutableList<String>>()
+    private var goldenCacheHits = 0
+    private var goldenDecodes = 0
+    private var goldenDecodeTimeMs = 0L
+    private var goldenDigestMatches = 0
 
     fun clear() {
         testStats.clear()
+        goldenCacheHits = 0
+        goldenDecodes = 0
+        goldenDecodeTimeMs = 0L
+        goldenDigestMatches = 0
+    }
+
+    fun collectGoldenCacheHit() {
+        goldenCacheHits++
+    }
+
+    fun collectGoldenDecode(decodeTimeMs: Long) {
+        goldenDecodes++
+        goldenDecodeTimeMs += decodeTimeMs
+    }
+
+    fun collectGoldenDigestMatch() {
+        goldenDigestMatches++
     }
 
     fun collectTestStats(testIdentifier: String, matchResult: MatchResult) {
@@ -72,9 +97,22 @@ public class ParityStatsCollector {
             println("${entry.key} : ${entry.value.size} test(s).")
         }
         println("Tests with significant different pixel number: ${testStats[PIXEL_DIFFERENT]}")
+        val goldenLookups = goldenCacheHits + goldenDecodes
+        if (goldenLookups > 0) {
+            Log.i(
+                TAG,
+                "Golden cache: $goldenCacheHits hit(s) / $goldenLookups lookup(s) " +
+                    "(${goldenCacheHits * 100 / goldenLookups}%), " +
+                    "$goldenDecodes decode(s) in ${goldenDecodeTimeMs}ms.",
+            )
+        }
+        if (goldenDigestMatches > 0) {
+            Log.i(TAG, "Golden digest matches: $goldenDigestMatches test(s) skipped comparison.")
+        }
     }
 
     private companion object {
+        const val TAG = "ParityStatsCollector"
         const val EXACTLY_SAME = "exactly_same"
         const val SAME99 = "pixel_same99"
         const val SAME95 = "pixel_same95"
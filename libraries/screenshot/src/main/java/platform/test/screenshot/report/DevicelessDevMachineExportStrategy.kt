@@ -22,6 +22,7 @@ import java.nio.file.Path
 import java.nio.file.Paths
 import kotlin.io.path.outputStream
 import kotlin.io.path.writeText
+import platform.test.screenshot.GoldenDigest
 import platform.test.screenshot.GoldenPathManager
 import platform.test.screenshot.proto.ScreenshotResultProto
 
@@ -68,7 +69,11 @@ internal class DevicelessDevMachineExportStrategy(
 
         actual.writeTo(actualImagePath)
         if (assetsDir != null) {
-            actual.writeTo(assetsDir.resolve(imagePath))
+            val goldenPath = assetsDir.resolve(imagePath)
+            actual.writeTo(goldenPath)
+            assetsDir
+                .resolve(imagePath + GoldenDigest.EXTENSION)
+                .writeText(GoldenDigest.format(actual, goldenPath.toFile()))
         }
         expected?.writeTo(expectedImagePath)
         diff?.writeTo(diffImagePath)
@@ -22,6 +22,7 @@ import androidx.test.platform.app.InstrumentationRegistry
 import java.io.File
 import java.io.FileOutputStream
 import java.io.IOException
+import platform.test.screenshot.GoldenDigest
 import platform.test.screenshot.GoldenPathManager
 import platform.test.screenshot.proto.ScreenshotResultProto
 
@@ -73,10 +74,19 @@ class ExportToScubaStrategy(
 
         val report = Bundle()
 
-        actual.writeToDevice(OutputFileType.IMAGE_ACTUAL, goldenIdentifier, testIdentifier).also {
-            resultProto.imageLocationTest = it.name
-            report.putString(bundleKeyPrefix + OutputFileType.IMAGE_ACTUAL, it.absolutePath)
-        }
+        val actualFile =
+            actual.writeToDevice(OutputFileType.IMAGE_ACTUAL, goldenIdentifier, testIdentifier)
+        resultProto.imageLocationTest = actualFile.name
+        report.putString(bundleKeyPrefix + OutputFileType.IMAGE_ACTUAL, actualFile.absolutePath)
+        writeToDevice(OutputFileType.IMAGE_ACTUAL_DIGEST, goldenIdentifier, testIdentifier) {
+                it.write(GoldenDigest.format(actual, actualFile).toByteArray())
+            }
+            .also {
+                report.putString(
+                    bundleKeyPrefix + OutputFileType.IMAGE_ACTUAL_DIGEST,
+                    it.absolutePath
+                )
+            }
         diff?.run {
             writeToDevice(OutputFileType.IMAGE_DIFF, goldenIdentifier, testIdentifier).also {
                 resultProto.imageLocationDiff = it.name
@@ -120,6 +130,8 @@ class ExportToScubaStrategy(
         val fileName =
             when (fileType) {
                 OutputFileType.IMAGE_ACTUAL -> "${succinctTestIdentifier}_actual_$imageSuffix"
+                OutputFileType.IMAGE_ACTUAL_DIGEST ->
+                    "${succinctTestIdentifier}_actual_$imageSuffix${GoldenDigest.EXTENSION}"
                 OutputFileType.IMAGE_EXPECTED -> "${succinctTestIdentifier}_expected_$imageSuffix"
                 OutputFileType.IMAGE_DIFF -> "${succinctTestIdentifier}_diff_$imageSuffix"
                 OutputFileType.RESULT_PROTO -> "${succinctTestIdentifier}_$protoSuffix"
@@ -194,6 +206,7 @@ class ExportToScubaStrategy(
 /** Type of file that can be produced by the [ExportToScubaStrategy]. */
 internal enum class OutputFileType {
     IMAGE_ACTUAL,
+    IMAGE_ACTUAL_DIGEST,
     IMAGE_EXPECTED,
     IMAGE_DIFF,
     RESULT_PROTO,
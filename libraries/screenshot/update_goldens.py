@@ -26,6 +26,9 @@ import shutil
 
 ACTUAL_SCREENSHOT_FILE_LINE_PATTERN = r'image_location_test: "(?P<name>[^"]+)"'
 GOLDEN_PATH_LINE_PATTERN = r'image_location_golden: "(?P<name>[^"]+)"'
+# Digest of the screenshot pixels and file, written next to the actual screenshot
+# and the golden.
+DIGEST_EXTENSION = '.sha256'
 
 def main():
   parser = argparse.ArgumentParser(
@@ -59,7 +62,8 @@ def main():
   # needs to be mapped to the file name after renaming should be pre-built.
   actual_screenshot_files = {}
   for filename in os.listdir(args.source_directory):
-    if not (filename.endswith('.png') or filename.find('_actual') < 0):
+    if not (filename.endswith('.png') or filename.find('_actual') < 0
+            or filename.find('.png' + DIGEST_EXTENSION) >= 0):
       continue
     actual_screenshot_files[get_stripped_actual_screenshot_file(filename)] = filename
 
@@ -95,13 +99,27 @@ def main():
     dest_path = os.path.join(pathlib.Path.home(), args.android_build_top, golden_path)
     shutil.copyfile(src_path, dest_path)
     print(f'Updated {dest_path}')
+    update_digest(
+        args.source_directory,
+        actual_screenshot_files.get(actual_screenshot_file_name + DIGEST_EXTENSION),
+        dest_path)
+
+def update_digest(source_directory: str, digest_file_name: str, golden_path: str):
+  """Copies the digest of the new golden next to it, or removes the stale one."""
+  dest_path = golden_path + DIGEST_EXTENSION
+  if digest_file_name:
+    shutil.copyfile(os.path.join(source_directory, digest_file_name), dest_path)
+    print(f'Updated {dest_path}')
+  elif os.path.exists(dest_path):
+    os.remove(dest_path)
+    print(f'Removed stale {dest_path}')
 
 def get_stripped_actual_screenshot_file(original_file_name: str) -> str:
-  first_index = original_file_name.find('.png_')
-  if first_index < 0:
-    return original_file_name
-  else:
-    return original_file_name[:first_index] + '.png'
+  for extension in ('.png' + DIGEST_EXTENSION, '.png'):
+    first_index = original_file_name.find(extension + '_')
+    if first_index >= 0:
+      return original_file_name[:first_index] + extension
+  return original_file_name
 
 if __name__ == '__main__':
   main()
@@ -4,6 +4,8 @@ import argparse
 import os
 import shutil
 
+# Digest of the screenshot pixels and file, written next to the test image and the golden.
+DIGEST_EXTENSION = ".sha256"
 
 def parse_arguments():
     """Parses command-line arguments and returns the parsed arguments object."""
@@ -111,10 +113,23 @@ def update_goldens(android_dir, updated_image_locations_list):
         try:
             shutil.copy2(test_image_path, golden_image_path)
             print(f"Updated golden image: {golden_image_path}")
+            update_golden_digest(test_image_path, golden_image_path)
         except IOError as e:
             print(f"Error updating golden image: {e}")
 
 
+def update_golden_digest(test_image_path, golden_image_path):
+    """Copies the digest of the test image next to the golden, or removes the stale one."""
+    test_digest_path = test_image_path + DIGEST_EXTENSION
+    golden_digest_path = golden_image_path + DIGEST_EXTENSION
+    if os.path.isfile(test_digest_path):
+        shutil.copy2(test_digest_path, golden_digest_path)
+        print(f"Updated golden digest: {golden_digest_path}")
+    elif os.path.exists(golden_digest_path):
+        os.remove(golden_digest_path)
+        print(f"Removed stale golden digest: {golden_digest_path}")
+
+
 def main():
     args = parse_arguments()
 
@@ -24,10 +24,13 @@ import com.android.tradefed.util.CommandResult;
 import com.android.tradefed.util.CommandStatus;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -59,6 +62,8 @@ public final class ProcessUtil {
 
     public static final long PROCESS_WAIT_TIMEOUT_MS = 10_000;
     public static final long PROCESS_POLL_PERIOD_MS = 250;
+    // First poll period when waiting for a batch of pids; doubled up to PROCESS_POLL_PERIOD_MS.
+    public static final long PROCESS_MIN_POLL_PERIOD_MS = 10;
     public static final String[] INTENT_QUERY_CMDS = {
         "resolve-activity", "query-activities", "query-services", "query-receivers"
     };
@@ -96,6 +101,48 @@ public final class ProcessUtil {
         return Optional.of(pidToCommand);
     }
 
+    /**
+     * Get the pids matching any of the patterns passed to `pgrep`, using a single shell command.
+     * Each pattern is passed to its own `pgrep -f -l` exactly as {@link #pidsOf(ITestDevice,
+     * String)} does.
+     *
+     * @param device the device to use
+     * @param pgrepRegexes the regexes for pgrep
+     * @return an Optional Map of pid to command line; empty if no pattern matched any process
+     */
+    public static Optional<Map<Integer, String>> pidsOf(
+            ITestDevice device, Collection<String> pgrepRegexes)
+            throws DeviceNotAvailableException {
+        if (pgrepRegexes.isEmpty()) {
+            return Optional.empty();
+        }
+        // The shell running the pgreps has all the patterns in its command line, so print its pid
+        // first to exclude it from the results.
+        StringBuilder cmd = new StringBuilder("echo $$; ");
+        for (String pgrepRegex : pgrepRegexes) {
+            cmd.append(String.format("pgrep -f -l %s; ", pgrepRegex));
+        }
+        // pgrep fails when nothing matches, which is expected for some of the patterns
+        cmd.append("true");
+        CommandResult pgrepRes = device.executeShellV2Command(cmd.toString());
+        String[] lines = pgrepRes.getStdout().split("\n");
+        String shellPid = lines[0].trim();
+        Map<Integer, String> pidToCommand = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i];
+            String[] pidComm = line.trim().split(" ", 2);
+            if (pidComm.length != 2 || pidComm[0].equals(shellPid)) {
+                continue;
+            }
+            try {
+                pidToCommand.put(Integer.valueOf(pidComm[0]), pidComm[1]);
+            } catch (NumberFormatException e) {
+                Log.d(LOG_TAG, String.format("Ignoring unexpected pgrep output: %s", line));
+            }
+        }
+        return pidToCommand.isEmpty() ? Optional.empty() : Optional.of(pidToCommand);
+    }
+
     /**
      * Get a single pid matching a pattern passed to `pgrep`. Throw an {@link
      * IllegalArgumentException} when there are more than one PID matching the pattern.
@@ -261,6 +308,104 @@ public final class ProcessUtil {
         waitPidExited(device, pid, timeoutMs);
     }
 
+    /**
+     * Wait for a set of processes to be exited, checking all of them with a single shell command
+     * per poll. The poll period starts at {@link #PROCESS_MIN_POLL_PERIOD_MS} and doubles up to
+     * {@link #PROCESS_POLL_PERIOD_MS}. As with {@link #waitPidExited(ITestDevice, int, long)}, it
+     * is possible, but unlikely, for a pid to be reused between polls.
+     *
+     * @param device the device to use
+     * @param pids the ids of the processes to wait until exited
+     * @param timeoutMs how long to wait before throwing a TimeoutException
+     */
+    public static void waitPidsExited(ITestDevice device, Collection<Integer> pids, long timeoutMs)
+            throws TimeoutException, DeviceNotAvailableException {
+        long endTime = System.currentTimeMillis() + timeoutMs;
+        long pollPeriodMs = PROCESS_MIN_POLL_PERIOD_MS;
+        Set<Integer> remaining = new HashSet<>(pids);
+        while (!remaining.isEmpty()) {
+            StringBuilder pidList = new StringBuilder();
+            for (int pid : remaining) {
+                pidList.append(pid).append(' ');
+            }
+            // `[ -e /proc/pid ]` does not need permissions on the process, unlike `kill -0`
+            CommandResult res =
+                    device.executeShellV2Command(
+                            String.format(
+                                    "for p in %s; do [ -e /proc/$p ] && echo $p; done; true",
+                                    pidList.toString().trim()));
+            Set<Integer> alive = new HashSet<>();
+            for (String line : res.getStdout().split("\n")) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    alive.add(Integer.valueOf(line));
+                }
+            }
+            remaining.retainAll(alive);
+            if (remaining.isEmpty()) {
+                return;
+            }
+            if (System.currentTimeMillis() > endTime) {
+                throw new TimeoutException(
+                        String.format("Processes still running: %s", remaining));
+            }
+            try {
+                Thread.sleep(pollPeriodMs);
+            } catch (InterruptedException e) {
+                // don't care, just keep looping until we time out
+            }
+            pollPeriodMs = Math.min(pollPeriodMs * 2, PROCESS_POLL_PERIOD_MS);
+        }
+    }
+
+    /**
+     * Send a signal to a set of processes with a single command and wait for all of them to be
+     * exited. Processes that no longer exist are ignored.
+     *
+     * @param device the device to use
+     * @param pids the ids of the processes to kill
+     * @param signal the signal to send to the processes
+     * @param timeoutMs how long to wait before throwing a TimeoutException
+     * @return the time in milliseconds between sending the signal and all processes being exited
+     */
+    public static long killPids(
+            ITestDevice device, Collection<Integer> pids, int signal, long timeoutMs)
+            throws DeviceNotAvailableException, TimeoutException, KillException {
+        if (pids.isEmpty()) {
+            return 0;
+        }
+        StringBuilder pidList = new StringBuilder();
+        for (int pid : pids) {
+            pidList.append(' ').append(pid);
+        }
+        long startTime = System.currentTimeMillis();
+        CommandResult res =
+                device.executeShellV2Command(String.format("kill -%d%s", signal, pidList));
+        if (res.getStatus() != CommandStatus.SUCCESS) {
+            // kill reports an error per pid that it could not signal
+            for (String err : res.getStderr().split("\n")) {
+                if (err.isEmpty() || err.contains("No such process")) {
+                    continue;
+                }
+                if (err.contains("invalid signal specification")) {
+                    throw new KillException(err, KillException.Reason.INVALID_SIGNAL);
+                } else if (err.contains("Operation not permitted")) {
+                    throw new KillException(err, KillException.Reason.INSUFFICIENT_PERMISSIONS);
+                } else {
+                    throw new KillException(err, KillException.Reason.UNKNOWN);
+                }
+            }
+        }
+        waitPidsExited(device, pids, timeoutMs);
+        long latencyMs = System.currentTimeMillis() - startTime;
+        Log.d(
+                LOG_TAG,
+                String.format(
+                        "%d processes exited %d ms after signal %d", pids.size(), latencyMs,
+                        signal));
+        return latencyMs;
+    }
+
     /**
      * Send SIGKILL to a all processes matching a pattern.
      *
@@ -297,17 +442,27 @@ public final class ProcessUtil {
             return false;
         }
 
-        for (int pid : pids.get().keySet()) {
-            try {
-                killPid(device, pid, timeoutMs);
-            } catch (KillException e) {
-                // ignore pids that do not exist
-                if (e.getReason() != KillException.Reason.NO_SUCH_PROCESS) {
-                    throw e;
-                }
-            }
-        }
+        killPids(device, pids.get().keySet(), 9, timeoutMs);
+        return true;
+    }
 
+    /**
+     * Send SIGKILL to all processes matching any of the patterns, with one command to find them,
+     * one to kill them and one per poll to wait for them.
+     *
+     * @param device the device to use
+     * @param pgrepRegexes the regexes for pgrep
+     * @param timeoutMs how long to wait before throwing a TimeoutException
+     * @return whether any processes were killed
+     */
+    public static boolean killAll(
+            ITestDevice device, Collection<String> pgrepRegexes, long timeoutMs)
+            throws DeviceNotAvailableException, TimeoutException, KillException {
+        Optional<Map<Integer, String>> pids = pidsOf(device, pgrepRegexes);
+        if (!pids.isPresent()) {
+            return false;
+        }
+        killPids(device, pids.get().keySet(), 9, timeoutMs);
         return true;
     }
 
@@ -371,6 +526,45 @@ public final class ProcessUtil {
         };
     }
 
+    /**
+     * Kill processes matching any of the patterns at the beginning and end of a test, in a batch.
+     *
+     * @param device the device to use
+     * @param pgrepRegexes the name patterns of the processes to kill to give to pgrep
+     * @param beforeCloseKill a runnable for any actions that need to cleanup before killing the
+     *     processes in a normal environment at the end of the test. Can be null.
+     * @param timeoutMs how long in milliseconds to wait for the processes to be killed
+     * @return An object that will kill the processes again when it is closed
+     */
+    public static AutoCloseable withProcessKill(
+            final ITestDevice device,
+            final Collection<String> pgrepRegexes,
+            final Runnable beforeCloseKill,
+            final long timeoutMs)
+            throws DeviceNotAvailableException, TimeoutException, KillException {
+        return new AutoCloseable() {
+            {
+                try {
+                    if (!killAll(device, pgrepRegexes, timeoutMs)) {
+                        Log.d(
+                                LOG_TAG,
+                                String.format("did not kill any processes for %s", pgrepRegexes));
+                    }
+                } catch (KillException e) {
+                    Log.d(LOG_TAG, "failed to kill a process");
+                }
+            }
+
+            @Override
+            public void close() throws Exception {
+                if (beforeCloseKill != null) {
+                    beforeCloseKill.run();
+                }
+                killAll(device, pgrepRegexes, timeoutMs);
+            }
+        };
+    }
+
     /**
      * Returns the currently open file names of the specified process. This does not include shared
      * libraries linked by the linker.
@@ -29,6 +29,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.regex.Pattern;
 
@@ -94,4 +95,21 @@ public class ProcessUtilTest extends BaseHostJUnit4Test {
                 .that(fileEntryOptional.isPresent())
                 .isFalse();
     }
+
+    @Test
+    public void testKillAllMultipleRegexes() throws Exception {
+        getDevice().executeShellCommand("nohup sleep 123451 > /dev/null 2>&1 &");
+        getDevice().executeShellCommand("nohup sleep 123452 > /dev/null 2>&1 &");
+        List<String> regexes = List.of("'sleep 123451'", "'sleep 123452'");
+        ProcessUtil.waitProcessRunning(getDevice(), "'sleep 123452'");
+
+        assertWithMessage("processes should have been killed")
+                .that(
+                        ProcessUtil.killAll(
+                                getDevice(), regexes, ProcessUtil.PROCESS_WAIT_TIMEOUT_MS))
+                .isTrue();
+        assertWithMessage("no process should be left")
+                .that(ProcessUtil.pidsOf(getDevice(), regexes).isPresent())
+                .isFalse();
+    }
 }
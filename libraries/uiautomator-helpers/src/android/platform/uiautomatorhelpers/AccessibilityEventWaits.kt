@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package android.platform.uiautomatorhelpers
+
+import android.app.UiAutomation
+import android.os.SystemClock.sleep
+import android.os.SystemClock.uptimeMillis
+import android.util.Log
+import android.view.accessibility.AccessibilityEvent
+import androidx.test.platform.app.InstrumentationRegistry
+import java.time.Duration
+import java.util.concurrent.TimeoutException
+
+/**
+ * Waits driven by [AccessibilityEvent]s delivered to [UiAutomation], rather than fixed sleeps.
+ *
+ * A wait returns as soon as the UI reports a window or window content change, or when the timeout
+ * expires, whichever comes first. This does not replace the [UiAutomation] event listener used by
+ * uiautomator: it relies on [UiAutomation.executeAndWaitForEvent], which observes events
+ * independently.
+ *
+ * If events can't be observed (e.g. [UiAutomation] is not available to this process), waits fall
+ * back to sleeping for the full timeout.
+ */
+object AccessibilityEventWaits {
+    private const val TAG = "AccessibilityEventWaits"
+    private const val TIMING_COLLECTOR_TAG = "ForTimingCollector"
+
+    private const val UI_CHANGE_EVENT_TYPES =
+        AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED or
+            AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED or
+            AccessibilityEvent.TYPE_WINDOWS_CHANGED
+
+    /** Whether waits are driven by accessibility events. When false, waits are plain sleeps. */
+    @JvmStatic @Volatile var enabled = true
+
+    /** Waiter used instead of [UiAutomation] when set. Replaced in tests. */
+    @JvmStatic @Volatile var uiChangeWaiter: UiChangeWaiter? = null
+
+    private val METRIC_NAME_PATTERN = Regex("[A-Za-z0-9_-]+")
+
+    private val uiAutomation: UiAutomation?
+        get() =
+            try {
+                InstrumentationRegistry.getInstrumentation().uiAutomation
+            } catch (e: RuntimeException) {
+                Log.w(TAG, "UiAutomation not available, falling back to polling.", e)
+                enabled = false
+                null
+            }
+
+    /** Runs an action and waits for the UI to change afterwards. */
+    fun interface UiChangeWaiter {
+        /**
+         * Runs [action] and waits up to [timeoutMs] for the UI to change. Changes happening while
+         * [action] runs must end the wait too.
+         *
+         * @throws TimeoutException if the UI didn't change within [timeoutMs].
+         */
+        @Throws(TimeoutException::class)
+        fun runAndAwaitUiChange(action: Runnable, timeoutMs: Long)
+    }
+
+    /** Thrown out of the waited action to return without waiting once the condition is met. */
+    private class ConditionMetException : RuntimeException(null, null, false, false)
+
+    private fun currentWaiter(): UiChangeWaiter? {
+        if (!enabled) return null
+        uiChangeWaiter?.let {
+            return it
+        }
+        val automation = uiAutomation ?: return null
+        return UiChangeWaiter { action, timeoutMs ->
+            automation.executeAndWaitForEvent(
+                action,
+                { event -> event.eventType and UI_CHANGE_EVENT_TYPES != 0 },
+                timeoutMs
+            )
+        }
+    }
+
+    /**
+     * Runs [action] and waits up to [timeout] for the UI to change afterwards.
+     *
+     * @return the time actually waited, including [action].
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun awaitUiChange(timeout: Duration, action: Runnable = Runnable {}): Duration {
+        val start = uptimeMillis()
+        val waiter = currentWaiter()
+        if (waiter == null) {
+            action.run()
+            val remaining = timeout.toMillis() - (uptimeMillis() - start)
+            if (remaining > 0) sleep(remaining)
+            return Duration.ofMillis(uptimeMillis() - start)
+        }
+        try {
+            waiter.runAndAwaitUiChange(action, timeout.toMillis())
+        } catch (e: TimeoutException) {
+            // No UI change within the timeout, the caller decides whether that's an error.
+        }
+        return Duration.ofMillis(uptimeMillis() - start)
+    }
+
+    /**
+     * Checks [condition] and, if it's false, waits up to [timeout] for the next UI change.
+     *
+     * Events are observed from before [condition] is checked, so a change happening while it runs
+     * still ends the wait. When events can't be observed, this sleeps for [timeout] instead.
+     *
+     * @return the result of [condition].
+     */
+    @JvmStatic
+    fun checkOrAwaitUiChange(timeout: Duration, condition: () -> Boolean): Boolean {
+        val waiter = currentWaiter()
+        if (waiter == null) {
+            if (condition()) return true
+            if (!timeout.isNegative) sleep(timeout.toMillis())
+            return false
+        }
+        try {
+            waiter.runAndAwaitUiChange(
+                { if (condition()) throw ConditionMetException() },
+                timeout.toMillis()
+            )
+        } catch (e: ConditionMetException) {
+            return true
+        } catch (e: TimeoutException) {
+            // No UI change, the caller checks again.
+        }
+        return false
+    }
+
+    /**
+     * Logs [waited] under the "ForTimingCollector" tag, so that TimingCollector reports it as the
+     * "wait-[metricName]-ms" metric.
+     *
+     * [metricName] must be a fixed identifier made of letters, digits, '_' and '-', not a
+     * description built at runtime, to keep the set of reported metrics stable.
+     */
+    @JvmStatic
+    fun reportWaitTime(metricName: String, waited: Duration) {
+        require(METRIC_NAME_PATTERN.matches(metricName)) { "Invalid metric name: $metricName" }
+        Log.i(TIMING_COLLECTOR_TAG, "wait-$metricName-ms:${waited.toMillis()}")
+    }
+}
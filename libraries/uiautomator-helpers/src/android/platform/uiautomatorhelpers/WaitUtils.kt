@@ -14,7 +14,6 @@
  */
 package android.platform.uiautomatorhelpers
 
-import android.os.SystemClock.sleep
 import android.os.SystemClock.uptimeMillis
 import android.os.Trace
 import android.platform.uiautomatorhelpers.TracingUtils.trace
@@ -56,6 +55,8 @@ object WaitUtils {
      * ```
      * ensureThat("screen is on") { uiDevice.isScreenOn }
      * ```
+     *
+     * If [metricName] is set, the time waited is reported as the "wait-[metricName]-ms" metric.
      */
     @JvmStatic
     @JvmOverloads
@@ -65,12 +66,13 @@ object WaitUtils {
         errorProvider: (() -> String)? = null,
         ignoreFailure: Boolean = false,
         ignoreException: Boolean = false,
+        metricName: String? = null,
         condition: () -> Boolean,
     ) {
         val errorProvider =
             errorProvider
                 ?: { "Error ensuring that \"$description\" within ${timeout.toMillis()}ms" }
-        waitToBecomeTrue(description, timeout, condition).run {
+        waitToBecomeTrue(description, timeout, metricName, condition).run {
             when (result) {
                 WaitResult.WaitSuccess -> return
                 WaitResult.WaitFailure -> {
@@ -97,12 +99,15 @@ object WaitUtils {
      *
      * This can be a useful replacement for [ensureThat] in situations where you want to wait for
      * the condition to become true, but want a chance to recover if it does not.
+     *
+     * If [metricName] is set, the time waited is reported as the "wait-[metricName]-ms" metric.
      */
     @JvmStatic
     @JvmOverloads
     fun waitToBecomeTrue(
         description: String? = null,
         timeout: Duration = DEFAULT_DEADLINE,
+        metricName: String? = null,
         condition: () -> Boolean,
     ): WaitReport {
         val traceName =
@@ -121,8 +126,9 @@ object WaitUtils {
                 while (uptimeMillis() < startTime + timeoutMs) {
                     trace("iteration $i") {
                         try {
-                            if (condition()) {
+                            if (checkOrWaitBeforeNextCheck(startTime + timeoutMs, condition)) {
                                 log("[#$i] Condition true")
+                                reportWaitTime(metricName, startTime)
                                 return WaitReport(WaitResult.WaitSuccess, i)
                             }
                         } catch (t: Throwable) {
@@ -131,11 +137,11 @@ object WaitUtils {
                         }
 
                         log("[#$i] Condition false, might retry.")
-                        sleep(POLLING_WAIT.toMillis())
                         i++
                     }
                 }
                 log("[#$i] Condition has always been false. Failing.")
+                reportWaitTime(metricName, startTime)
                 return WaitReport(WaitResult.WaitFailure, i)
             }
         }
@@ -152,6 +158,7 @@ object WaitUtils {
         timeout: Duration = DEFAULT_DEADLINE,
         errorProvider: () -> String =
             defaultWaitForSettleError(minimumSettleTime, description, timeout),
+        metricName: String? = null,
         supplier: () -> T,
     ): T {
         return waitForNullableValueToSettle(
@@ -159,6 +166,7 @@ object WaitUtils {
             minimumSettleTime,
             timeout,
             errorProvider,
+            metricName,
             supplier
         )
             ?: error(errorProvider())
@@ -182,6 +190,8 @@ object WaitUtils {
      *
      * Note: Prefer using [waitForValueToSettle] when [supplier] doesn't return a null value.
      *
+     * If [metricName] is set, the time waited is reported as the "wait-[metricName]-ms" metric.
+     *
      * @return the settled value. Throws if it doesn't settle.
      */
     @JvmStatic
@@ -192,6 +202,7 @@ object WaitUtils {
         timeout: Duration = DEFAULT_DEADLINE,
         errorProvider: () -> String =
             defaultWaitForSettleError(minimumSettleTime, description, timeout),
+        metricName: String? = null,
         supplier: () -> T?,
     ): T? {
         val prefix =
@@ -209,36 +220,44 @@ object WaitUtils {
                 log(traceName)
 
                 val startTime = now()
+                val startUptime = uptimeMillis()
                 var settledSince = startTime
                 var previousValue: T? = null
                 var previousValueSet = false
                 while (now().isBefore(startTime + timeout)) {
-                    val newValue =
-                        try {
-                            supplier()
-                        } catch (t: Throwable) {
-                            if (previousValueSet) {
-                                Trace.endSection()
+                    val settled =
+                        checkOrWaitBeforeNextCheck(startUptime + timeout.toMillis()) {
+                            val newValue =
+                                try {
+                                    supplier()
+                                } catch (t: Throwable) {
+                                    if (previousValueSet) {
+                                        Trace.endSection()
+                                    }
+                                    log("Supplier has thrown an exception")
+                                    throw RuntimeException(t)
+                                }
+                            val currentTime = now()
+                            if (previousValue != newValue || !previousValueSet) {
+                                log("value changed to $newValue")
+                                settledSince = currentTime
+                                if (previousValueSet) {
+                                    Trace.endSection()
+                                }
+                                TracingUtils.beginSectionSafe("New value: $newValue")
+                                previousValue = newValue
+                                previousValueSet = true
+                                false
+                            } else {
+                                now().isAfter(settledSince + minimumSettleTime)
                             }
-                            log("Supplier has thrown an exception")
-                            throw RuntimeException(t)
-                        }
-                    val currentTime = now()
-                    if (previousValue != newValue || !previousValueSet) {
-                        log("value changed to $newValue")
-                        settledSince = currentTime
-                        if (previousValueSet) {
-                            Trace.endSection()
                         }
-                        TracingUtils.beginSectionSafe("New value: $newValue")
-                        previousValue = newValue
-                        previousValueSet = true
-                    } else if (now().isAfter(settledSince + minimumSettleTime)) {
+                    if (settled) {
                         log("Got settled value. Returning \"$previousValue\"")
                         Trace.endSection() // previousValue is guaranteed to be non-null.
+                        reportWaitTime(metricName, startUptime)
                         return previousValue
                     }
-                    sleep(POLLING_WAIT.toMillis())
                 }
                 if (previousValueSet) {
                     Trace.endSection()
@@ -248,6 +267,27 @@ object WaitUtils {
         }
     }
 
+    /**
+     * Checks [condition] and, if it's false, waits before the next check, until [deadline] at most.
+     *
+     * Waits for [POLLING_WAIT], or less if [AccessibilityEventWaits] sees the UI change.
+     */
+    private fun checkOrWaitBeforeNextCheck(deadline: Long, condition: () -> Boolean): Boolean {
+        val remaining = (deadline - uptimeMillis()).coerceAtLeast(0)
+        return AccessibilityEventWaits.checkOrAwaitUiChange(
+            Duration.ofMillis(minOf(remaining, POLLING_WAIT.toMillis())),
+            condition
+        )
+    }
+
+    private fun reportWaitTime(metricName: String?, startTime: Long) {
+        if (metricName == null) return
+        AccessibilityEventWaits.reportWaitTime(
+            metricName,
+            Duration.ofMillis(uptimeMillis() - startTime)
+        )
+    }
+
     private fun defaultWaitForSettleError(
         minimumSettleTime: Duration,
         description: String?,
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.platform.uiautomatorhelpers
+
+import android.os.SystemClock.uptimeMillis
+import android.platform.uiautomatorhelpers.AccessibilityEventWaits.UiChangeWaiter
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.common.truth.Truth.assertThat
+import java.time.Duration
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import org.junit.After
+import org.junit.Assert.assertThrows
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Unit tests for the accessibility event driven waits of [WaitUtils]. */
+@RunWith(AndroidJUnit4::class)
+class WaitUtilsTest {
+    private val waiter = FakeUiChangeWaiter()
+
+    @Before
+    fun setUp() {
+        AccessibilityEventWaits.enabled = true
+        AccessibilityEventWaits.uiChangeWaiter = waiter
+    }
+
+    @After
+    fun tearDown() {
+        AccessibilityEventWaits.enabled = true
+        AccessibilityEventWaits.uiChangeWaiter = null
+    }
+
+    @Test
+    fun waitToBecomeTrue_checksAgainOnUiChange() {
+        var checks = 0
+        waiter.changeUi()
+
+        val report = WaitUtils.waitToBecomeTrue(timeout = TIMEOUT) { ++checks == 2 }
+
+        assertThat(report).isEqualTo(WaitReport(WaitResult.WaitSuccess, 2))
+        assertThat(waiter.timeouts).isEmpty()
+    }
+
+    @Test
+    fun waitToBecomeTrue_seesUiChangeDuringCheck() {
+        var checks = 0
+
+        val report =
+            WaitUtils.waitToBecomeTrue(timeout = TIMEOUT) {
+                checks++
+                if (checks == 1) {
+                    // The UI changes after the condition was evaluated, but before it returns.
+                    waiter.changeUi()
+                }
+                checks == 2
+            }
+
+        assertThat(report).isEqualTo(WaitReport(WaitResult.WaitSuccess, 2))
+        assertThat(waiter.timeouts).isEmpty()
+    }
+
+    @Test
+    fun waitToBecomeTrue_fallsBackToPollingWithoutUiChange() {
+        var checks = 0
+
+        val report = WaitUtils.waitToBecomeTrue(timeout = TIMEOUT) { ++checks == 3 }
+
+        assertThat(report).isEqualTo(WaitReport(WaitResult.WaitSuccess, 3))
+        assertThat(waiter.timeouts).hasSize(2)
+        waiter.timeouts.forEach { assertThat(it).isAtMost(POLLING_WAIT_MS) }
+    }
+
+    @Test
+    fun waitToBecomeTrue_checksEveryPollingWaitWithoutUiChange() {
+        val checkTimes = mutableListOf<Long>()
+
+        val report =
+            WaitUtils.waitToBecomeTrue(timeout = TIMEOUT) {
+                checkTimes += uptimeMillis()
+                checkTimes.size == 3
+            }
+
+        assertThat(report).isEqualTo(WaitReport(WaitResult.WaitSuccess, 3))
+        assertPolledEveryPollingWait(checkTimes)
+    }
+
+    @Test
+    fun waitToBecomeTrue_pollsWhenDisabled() {
+        AccessibilityEventWaits.enabled = false
+        val checkTimes = mutableListOf<Long>()
+
+        val report =
+            WaitUtils.waitToBecomeTrue(timeout = TIMEOUT) {
+                checkTimes += uptimeMillis()
+                checkTimes.size == 3
+            }
+
+        assertThat(report).isEqualTo(WaitReport(WaitResult.WaitSuccess, 3))
+        assertThat(waiter.calls).isEqualTo(0)
+        // Same timing as before waits were driven by accessibility events.
+        assertPolledEveryPollingWait(checkTimes)
+    }
+
+    @Test
+    fun waitToBecomeTrue_reportsExceptionThrownByCondition() {
+        val exception = IllegalStateException()
+
+        val report = WaitUtils.waitToBecomeTrue(timeout = TIMEOUT) { throw exception }
+
+        assertThat(report).isEqualTo(WaitReport(WaitResult.WaitThrown(exception), 1))
+    }
+
+    @Test
+    fun waitForValueToSettle_returnsSettledValue() {
+        var value = 0
+
+        val settled =
+            WaitUtils.waitForValueToSettle(
+                minimumSettleTime = Duration.ofMillis(200),
+                timeout = TIMEOUT
+            ) {
+                if (value < 3) {
+                    waiter.changeUi()
+                    value++
+                } else {
+                    value
+                }
+            }
+
+        assertThat(settled).isEqualTo(3)
+    }
+
+    @Test
+    fun reportWaitTime_rejectsFreeTextNames() {
+        assertThrows(IllegalArgumentException::class.java) {
+            AccessibilityEventWaits.reportWaitTime("Screen is on", Duration.ZERO)
+        }
+    }
+
+    private fun assertPolledEveryPollingWait(checkTimes: List<Long>) {
+        checkTimes.zipWithNext { previous, next ->
+            assertThat(next - previous).isAtLeast(POLLING_WAIT_MS)
+        }
+    }
+
+    /** Reports a UI change each time [changeUi] is called, and records timed out waits. */
+    private class FakeUiChangeWaiter : UiChangeWaiter {
+        private val uiChanges = Semaphore(0)
+        val timeouts = mutableListOf<Long>()
+        var calls = 0
+
+        fun changeUi() = uiChanges.release()
+
+        override fun runAndAwaitUiChange(action: Runnable, timeoutMs: Long) {
+            calls++
+            action.run()
+            if (!uiChanges.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                timeouts += timeoutMs
+                throw TimeoutException()
+            }
+        }
+    }
+
+    private companion object {
+        val TIMEOUT: Duration = Duration.ofSeconds(10)
+        const val POLLING_WAIT_MS = 100L
+    }
+}